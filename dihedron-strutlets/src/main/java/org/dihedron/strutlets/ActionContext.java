@@ -90,6 +90,17 @@ public class ActionContext {
 	 */
 	private static final int MILLISECONDS_PER_SEC = 1000;
 	
+	/**
+	 * The locks used to serialise check-then-act operations on session data, 
+	 * shared by sessions according to their identifier.
+	 */
+	private static final Object[] SESSION_LOCKS = new Object[64];
+	static {
+		for(int i = 0; i < SESSION_LOCKS.length; ++i) {
+			SESSION_LOCKS[i] = new Object();
+		}
+	}
+	
 	/**
 	 * The 4 possible phases in the portlet lifecycle.
 	 * 
@@ -303,6 +314,12 @@ public class ActionContext {
 	 * set through the <code>ActionContext</code>. 
 	 */
 	private boolean renderParametersChanged = false;
+	
+	/**
+	 * The invocation of the target being processed in the current request, if
+	 * any; it carries the values produced by the action over to the renderer.
+	 */
+	private ActionInvocation invocation = null;
 		
 	/**
 	 * Retrieves the per-thread instance.
@@ -397,13 +414,22 @@ public class ActionContext {
 			        // parse the request & process the uploaded items
 			        List<FileItem> items = upload.parseRequest(context);
 			        logger.trace("{} items in the multipart/form-data request", items.size());
+			        int files = 0;
+			        long bytes = 0;
 			        for(FileItem item : items) {
+			        	if(!item.isFormField()) {
+			        		files++;
+			        		bytes += item.getSize();
+			        	}
 			        	// parameters would be stored with their fully-qualified 
 			        	// name if we didn't remove the portlet namespace
 			        	String fieldName = item.getFieldName().replaceFirst(getPortletNamespace(), "");
 			        	logger.trace("storing field '{}' (type: '{}') into parts map", fieldName, item.isFormField() ? "field" : "file"); 
 			        	getContext().parts.put(fieldName, item);
-			        }		        
+			        }
+			        if(portlet instanceof ActionController && ((ActionController)portlet).getMetrics() != null) {
+			        	((ActionController)portlet).getMetrics().recordUpload(files, bytes);
+			        }
 		        } else {
 		        	logger.trace("handling plain form request");
 		        }
@@ -427,6 +453,41 @@ public class ActionContext {
 		return (ActionController)getContext().portlet;
 	}	
 
+	/**
+	 * Replaces the response bound to the current request, e.g. with a wrapper 
+	 * capturing the output, the title and the properties set by the target, 
+	 * until the context is unbound.
+	 * 
+	 * @param response
+	 *   the new portlet response.
+	 */
+	static void bindResponse(PortletResponse response) {
+		getContext().response = response;
+	}
+	
+	/**
+	 * Binds the invocation of the target being processed to the current request,
+	 * until the context is unbound.
+	 * 
+	 * @param invocation
+	 *   the target invocation.
+	 */
+	static void bindInvocation(ActionInvocation invocation) {
+		getContext().invocation = invocation;
+	}
+	
+	/**
+	 * Returns the invocation of the target processed in the current request, 
+	 * which remains available after the action has returned, for the renderer
+	 * to pick up the values it produced.
+	 * 
+	 * @return
+	 *   the target invocation, or {@code null} if no target has been invoked.
+	 */
+	public static ActionInvocation getInvocation() {
+		return getContext().invocation;
+	}
+	
 	/**
 	 * Cleans up the internal status of the <code>ActionContextImpl</code> in order to
 	 * avoid memory leaks due to persisting portal objects stored in the per-thread
@@ -442,6 +503,7 @@ public class ActionContext {
 		getContext().configuration = null;
 		getContext().server = null;
 		getContext().portal = null;
+		getContext().invocation = null;
 		// remove all files if this is a multipart/form-data request, because
 		// the file tracker does not seem to work as expected
 		if(isMultiPartRequest()) {
@@ -1616,7 +1678,10 @@ public class ActionContext {
 		default:
 			logger.error("cannot store an output value into {} scope: this is probably a bug!", scope.name());
 			throw new StrutletsException("Cannot store an output value into the " + scope.name() + " scope: this is probably a bug!");					
-		}			
+		}
+		if(getContext().invocation != null) {
+			getContext().invocation.setOutput(key, value);
+		}
 	}
 	
 	/**
@@ -2584,6 +2649,23 @@ public class ActionContext {
 		return getContext().request.getPortletSession();
 	}
 	
+	/**
+	 * Returns an object on which code can synchronise to perform some work 
+	 * atomically with respect to other requests in the same session (e.g. 
+	 * check-then-create of session attributes). Synchronising on the session 
+	 * object itself is not enough, since some portals (e.g. Liferay) hand out
+	 * a different session wrapper on each request; the lock is chosen instead
+	 * among a fixed set of shared locks, according to the session identifier.
+	 * 
+	 * @param session
+	 *   the portlet session.
+	 * @return
+	 *   the lock associated with the session.
+	 */
+	public static Object getSessionLock(PortletSession session) {
+		return SESSION_LOCKS[(session.getId().hashCode() & Integer.MAX_VALUE) % SESSION_LOCKS.length];
+	}
+	
 	/**
 	 * Returns the event, if this invocation was due to an inter-portlet communication
 	 * even being fired ("event phase").
@@ -2602,6 +2684,28 @@ public class ActionContext {
 		}
 	}
 
+	/**
+	 * Sets the version of the resource being served, for {@code @Cached} resource
+	 * targets; the framework derives the resource's ETag from this version and, 
+	 * if the client already has it, answers with a "304 Not Modified" without 
+	 * invoking the renderer. Actions should set a version that changes whenever
+	 * the underlying data changes (e.g. a database row version or a timestamp).
+	 * 
+	 * @param version
+	 *   the version of the resource being served.
+	 * @throws InvalidPhaseException 
+	 *   if the method is invoked out of the "resource" phase.
+	 */
+	public static void setResourceVersion(String version) throws InvalidPhaseException {
+		if(isResourcePhase()) {
+			logger.trace("setting the resource version to '{}'", version);
+			getContext().request.setAttribute(Strutlets.STRUTLETS_RESOURCE_VERSION, version);
+		} else {
+			logger.error("cannot set the resource version out of the resource phase");
+			throw new InvalidPhaseException("Cannot set the resource version when not in resource phase");
+		}
+	}
+	
 	/**
 	 * Sets interceptor-specific data into the action context; this information 
 	 * is available through different calls and can be used to keep track of 
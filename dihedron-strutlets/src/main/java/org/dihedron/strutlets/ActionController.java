@@ -12,8 +12,14 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
 
 import javax.portlet.ActionRequest;
 import javax.portlet.ActionResponse;
@@ -24,6 +30,7 @@ import javax.portlet.PortletException;
 import javax.portlet.PortletMode;
 import javax.portlet.PortletRequest;
 import javax.portlet.PortletResponse;
+import javax.portlet.PortletSession;
 import javax.portlet.RenderRequest;
 import javax.portlet.RenderResponse;
 import javax.portlet.ResourceRequest;
@@ -39,19 +46,31 @@ import org.dihedron.core.url.URLFactory;
 import org.dihedron.core.variables.EnvironmentValueProvider;
 import org.dihedron.core.variables.SystemPropertyValueProvider;
 import org.dihedron.core.variables.Variables;
+import org.dihedron.strutlets.ActionContext.Phase;
 import org.dihedron.strutlets.ActionContext.Scope;
 import org.dihedron.strutlets.actions.Result;
 import org.dihedron.strutlets.actions.factory.ActionFactory;
+import org.dihedron.strutlets.annotations.Action;
+import org.dihedron.strutlets.annotations.Cached;
+import org.dihedron.strutlets.cache.CapturingRenderResponse;
+import org.dihedron.strutlets.cache.CapturingResourceResponse;
+import org.dihedron.strutlets.cache.HttpCaching;
+import org.dihedron.strutlets.cache.RenderCache;
+import org.dihedron.strutlets.cache.ResourceCache;
 import org.dihedron.strutlets.containers.portlet.PortalServer;
 import org.dihedron.strutlets.containers.portlet.PortalServerPluginFactory;
 import org.dihedron.strutlets.containers.web.ApplicationServer;
 import org.dihedron.strutlets.containers.web.ApplicationServerPluginFactory;
 import org.dihedron.strutlets.diagnostics.DefaultErrorHandler;
 import org.dihedron.strutlets.diagnostics.ErrorHandler;
+import org.dihedron.strutlets.diagnostics.JspChecker;
+import org.dihedron.strutlets.diagnostics.SlowRequestDetector;
 import org.dihedron.strutlets.exceptions.DeploymentException;
 import org.dihedron.strutlets.exceptions.StrutletsException;
 import org.dihedron.strutlets.interceptors.InterceptorStack;
 import org.dihedron.strutlets.interceptors.registry.InterceptorsRegistry;
+import org.dihedron.strutlets.metrics.MetricsRegistry;
+import org.dihedron.strutlets.metrics.MetricsReporter;
 import org.dihedron.strutlets.plugins.Plugin;
 import org.dihedron.strutlets.plugins.PluginManager;
 import org.dihedron.strutlets.renderers.Renderer;
@@ -64,6 +83,11 @@ import org.dihedron.strutlets.targets.Target;
 import org.dihedron.strutlets.targets.TargetId;
 import org.dihedron.strutlets.targets.registry.TargetFactory;
 import org.dihedron.strutlets.targets.registry.TargetRegistry;
+import org.dihedron.strutlets.tracing.RingBufferTraceSink;
+import org.dihedron.strutlets.tracing.Trace;
+import org.dihedron.strutlets.tracing.TraceSink;
+import org.dihedron.strutlets.tracing.Tracer;
+import org.dihedron.strutlets.tracing.Tracing;
 import org.dihedron.strutlets.upload.FileUploadConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -133,6 +157,37 @@ public class ActionController extends GenericPortlet {
 	 * The last-resort error handler.
 	 */
 	private ErrorHandler errorHandler = null;
+	
+	/**
+	 * The cache of rendered output for idempotent targets; {@code null} if 
+	 * render output caching is disabled.
+	 */
+	private RenderCache renderCache = null;
+	
+	/**
+	 * The LRU cache of rendered resource bodies; {@code null} if disabled.
+	 */
+	private ResourceCache resourceCache = null;
+	
+	/**
+	 * The registry of per-target, per-phase metrics.
+	 */
+	private MetricsRegistry metrics = null;
+	
+	/**
+	 * The per-request tracing facility; {@code null} if tracing is disabled.
+	 */
+	private Tracer tracer = null;
+	
+	/**
+	 * The watchdog flagging slow target invocations; {@code null} if disabled.
+	 */
+	private SlowRequestDetector watchdog = null;
+	
+	/**
+	 * The startup check (and precompilation) of JSPs; {@code null} if disabled.
+	 */
+	private JspChecker jspChecker = null;
 
 	/**
 	 * The default package for stock portal- and application-server plugins.
@@ -154,7 +209,9 @@ public class ActionController extends GenericPortlet {
      * the relevant information under the same path. User stacks override default 
      * stacks if names collide.</li>
      * <li><b>loading the renderers registry</b>: this is the registry of available 
-     * renderers.</li></ol>
+     * renderers.</li>
+     * <li><b>checking the JSPs</b> (optional): the JSPs known at startup are 
+     * checked for existence and possibly precompiled.</li></ol>
      * </ol>
      * 
      * @see javax.portlet.GenericPortlet#init()
@@ -182,6 +239,10 @@ public class ActionController extends GenericPortlet {
         	initialiseFileUploadConfiguration();
         	
         	initialiseErrorHandler();
+        	
+        	initialiseMetrics();
+        	initialiseTracing();
+        	initialiseWatchdog();
 
         	initialiseTargetsRegistry();
 			
@@ -189,6 +250,12 @@ public class ActionController extends GenericPortlet {
         	
         	initialiseRenderersRegistry();
         	
+        	initialiseJspCheck();
+        	
+        	initialiseRenderCache();
+        	
+        	initialiseResourceCache();
+        	
         	initialiseAdminConsole();
         	
 			logger.info("action controller for portlet '{}' open for business", getPortletName());
@@ -214,6 +281,30 @@ public class ActionController extends GenericPortlet {
     		logger.trace("... cleaning up error handler");
     		errorHandler.cleanup();
     	}
+    	if(metrics != null) {
+    		logger.trace("... shutting down metrics");
+    		metrics.shutdown();
+    	}
+    	if(tracer != null) {
+    		logger.trace("... shutting down tracing");
+    		tracer.shutdown();
+    	}
+    	if(interceptors != null) {
+    		logger.trace("... cleaning up interceptors");
+    		interceptors.cleanup();
+    	}
+    	if(renderers != null) {
+    		logger.trace("... cleaning up renderers");
+    		renderers.cleanup();
+    	}
+    	if(jspChecker != null) {
+    		logger.trace("... stopping JSP precompilation");
+    		jspChecker.shutdown();
+    	}
+    	if(watchdog != null) {
+    		logger.trace("... shutting down slow request detector");
+    		watchdog.shutdown();
+    	}
     }
     
     /**
@@ -237,6 +328,56 @@ public class ActionController extends GenericPortlet {
     public TargetRegistry getTargetRegistry() {
     	return registry;
     }
+    
+    /**
+     * Returns the cache of rendered output for idempotent targets.
+     * 
+     * @return
+     *   the render output cache, or {@code null} if disabled.
+     */
+    public RenderCache getRenderCache() {
+    	return renderCache;
+    }
+    
+    /**
+     * Returns the cache of rendered resource bodies.
+     * 
+     * @return
+     *   the resource cache, or {@code null} if disabled.
+     */
+    public ResourceCache getResourceCache() {
+    	return resourceCache;
+    }
+    
+    /**
+     * Returns the registry of per-target, per-phase metrics.
+     * 
+     * @return
+     *   the metrics registry.
+     */
+    public MetricsRegistry getMetrics() {
+    	return metrics;
+    }
+    
+    /**
+     * Returns the per-request tracing facility.
+     * 
+     * @return
+     *   the tracer, or {@code null} if tracing is disabled.
+     */
+    public Tracer getTracer() {
+    	return tracer;
+    }
+    
+    /**
+     * Returns the watchdog flagging slow target invocations.
+     * 
+     * @return
+     *   the slow request detector, or {@code null} if disabled.
+     */
+    public SlowRequestDetector getSlowRequestDetector() {
+    	return watchdog;
+    }
 
     /**
      * Intercepts action requests and dispatches them to the appropriate handler.
@@ -254,11 +395,14 @@ public class ActionController extends GenericPortlet {
      */
     @Override
     public void processAction(ActionRequest request, ActionResponse response) throws IOException, PortletException {
+    	boolean traced = tracer != null && tracer.startTrace("action");
     	try {
 	    	// bind the per-thread invocation context to the current request,
 	    	// response and invocation objects
     		logger.trace("binding context to thread-local storage");
+	    	int binding = Tracing.begin("bind-context");
 	    	ActionContext.bindContext(this, request, response, configuration, server, portal, uploadInfo);
+	    	Tracing.end(binding);
 	    	
 
 	    	logger.trace("processing action...");
@@ -313,10 +457,16 @@ public class ActionController extends GenericPortlet {
     		ActionContext.setRenderParameter(Strutlets.STRUTLETS_ERROR_JSP, jsp);
     		logger.error("... done with error handling, rendering error page '{}'", jsp);
 		} finally {			
+			// the action may have changed the state rendered by cached targets
+			invalidateRenderCache(request);
+			
     		// unbind the invocation context from the thread-local storage to
     		// prevent memory leaks and complaints by the application server
 			logger.trace("unbinding context from thread-local storage");
 			ActionContext.unbindContext();    			
+			if(traced) {
+				tracer.endTrace();
+			}
 		}
     }
     
@@ -334,12 +484,15 @@ public class ActionController extends GenericPortlet {
      */
     @Override
     public void processEvent(EventRequest request, EventResponse response) throws PortletException, IOException {
+    	boolean traced = tracer != null && tracer.startTrace("event");
     	try {
     		
 	    	// bind the per-thread invocation context to the current request,
 	    	// response and invocation objects
     		logger.trace("binding context to thread-local storage");
+	    	int binding = Tracing.begin("bind-context");
 	    	ActionContext.bindContext(this, request, response, configuration, server, portal, uploadInfo);
+	    	Tracing.end(binding);
     		
 	    	// request attributes are removed upon a brand new event request
 	    	ActionContext.clearRequestAttributes();
@@ -362,10 +515,16 @@ public class ActionController extends GenericPortlet {
     		errorHandler.onEventPhaseError(request, response, e);
     		logger.error("... done with error handling");    		    		
     	} finally {
+			// the event may have changed the state rendered by cached targets
+			invalidateRenderCache(request);
+			
     		// unbind the invocation context from the thread-local storage to
     		// prevent memory leaks and complaints by the application server
 			logger.trace("unbinding context from thread-local storage");
 			ActionContext.unbindContext();
+			if(traced) {
+				tracer.endTrace();
+			}
     	}
     }        
     
@@ -415,11 +574,14 @@ public class ActionController extends GenericPortlet {
     @Override
     public void render(RenderRequest request, RenderResponse response) throws IOException, PortletException {
 
+    	boolean traced = tracer != null && tracer.startTrace("render");
     	try {
 	    	// bind the per-thread invocation context to the current request,
 	    	// response and invocation objects
     		logger.trace("binding context to thread-local storage");
+    		int binding = Tracing.begin("bind-context");
     		ActionContext.bindContext(this, request, response, configuration, server, portal, uploadInfo);    		
+    		Tracing.end(binding);
     		
 	    	TargetId targetId = null;
 	    	Renderer renderer = null;
@@ -434,12 +596,36 @@ public class ActionController extends GenericPortlet {
 				return;
 	    	}
 	    	
+	    	// check if the output of the requested target can be replayed from 
+	    	// the render cache; if it cannot, capture it for later reuse
+	    	CapturingRenderResponse capture = null;
+	    	String cacheKey = null;
+	    	String cacheOwner = null;
+	    	long cacheTtl = 0;
+	    	Target cacheable = getRenderCacheableTarget(request);
+	    	if(cacheable != null) {
+	    		cacheKey = makeCacheKey(cacheable, request);
+	    		RenderCache.Entry entry = renderCache.get(cacheKey);
+	    		if(entry != null) {
+	    			logger.debug("replaying cached output for target '{}'", cacheable.getId());
+	    			entry.replay(response);
+	    			return;
+	    		}
+	    		logger.trace("no valid cached output for target '{}', capturing output", cacheable.getId());
+	    		cacheTtl = cacheable.getCachePolicy().ttl() * 1000L;
+	    		cacheOwner = cacheable.getCachePolicy().perUser() ? getCacheOwner(request) : null;
+	    		capture = new CapturingRenderResponse(response);
+	    		ActionContext.bindResponse(capture);
+	    	}
+	    	RenderResponse output = capture != null ? capture : response;
+	    	
     		String target = request.getParameter(Strutlets.STRUTLETS_TARGET);
     		String result = request.getParameter(Strutlets.STRUTLETS_RESULT);
 	    	
 	    	logger.trace("rendering output (target: '{}', result: '{}')...", target, result);
 	    	
 	    	boolean first = true;
+	    	Result resolved = null;
 	    	while(true) {
 	    		if(TargetId.isValidTarget(target)) {
 	    			targetId = new TargetId(target);
@@ -459,16 +645,17 @@ public class ActionController extends GenericPortlet {
 	    				if(TargetId.isValidTarget(subtarget)) {
 	    					targetId = new TargetId(subtarget);
 	    					logger.debug("target '{}' on result '{}' wants its output rendered by target '{}', forwarding...", target, result, subtarget);
-	    					result = invokePresentationLogic(targetId, request, response);
+	    					result = invokePresentationLogic(targetId, request, output);
 	    					target = targetId.toString();
 	    					continue;
 		    			} else {
 		    				logger.trace("moving over to rendering '{}'...", subtarget);
+		    				resolved = r;
 		    				break;
 		    			}
 	    			} else {
 	    				logger.trace("render phase with no prior action/event/render invocation: '{}' (first: {})", target, first);
-    					result = invokePresentationLogic(targetId, request, response);
+    					result = invokePresentationLogic(targetId, request, output);
 	    				continue;
 	    			}
 	    		} else {
@@ -501,8 +688,9 @@ public class ActionController extends GenericPortlet {
 	    	String url = null;
 	    	// now, if target and result are valid, get the renderer
 	    	if(targetId != null && Strings.isValid(result)) {
-	    		// get the URL corresponding to the given target and result
-	    		url = getUrl(targetId, result);
+	    		// get the URL corresponding to the given target and result, unless
+	    		// it was already resolved above
+	    		url = resolved != null ? resolved.getData() : getUrl(targetId, result);
 	    	} else {
 				// no, this is a plain render request, let's check "jspPage" 
 				// first, to comply with Liferay's worst practices
@@ -524,11 +712,26 @@ public class ActionController extends GenericPortlet {
 	    	if(Strings.isValid(url)) {
 	    		logger.info("rendering through URL: '{}'", url);
 	    		renderer = renderers.getRenderer(JspRenderer.ID);
-    			renderer.render(request, response, url);
+	    		renderOutput(renderer, targetId, Phase.RENDER, request, output, url);
 	    	} else {
 	    		logger.error("invalid render URL");
 	    		throw new StrutletsException("No valid render URL available");
-	    	}    	
+	    	}
+	    	
+	    	// copy the captured output onto the actual response and cache it, 
+	    	// unless it is the output of an error result or an anonymous user's 
+	    	// session was created while rendering, so that the key no longer 
+	    	// matches the owner of the output
+	    	if(capture != null) {
+	    		byte[] content = capture.commit();
+	    		if(resolved != null && isErrorResult(resolved.getId())) {
+	    			logger.debug("result '{}' of target '{}' is an error, output will not be cached", resolved.getId(), cacheable.getId());
+	    		} else if(cacheOwner != null && !cacheOwner.equals(getCacheOwner(request))) {
+	    			logger.debug("a session was created while rendering target '{}', output will not be cached", cacheable.getId());
+	    		} else if(renderCache.put(cacheKey, cacheOwner, content, capture, cacheTtl)) {
+	    			logger.trace("output of target '{}' ({} bytes) stored in render cache", cacheable.getId(), content.length);
+	    		}
+	    	}
 	    	logger.trace("... output rendering done");
     	} catch(Throwable e) {
     		logger.error("error caught in the render phase, invoking the error handler...");
@@ -567,6 +770,9 @@ public class ActionController extends GenericPortlet {
     		// prevent memory leaks and complaints by the application server
 			logger.trace("unbinding context from thread-local storage");
 			ActionContext.unbindContext();		    		
+			if(traced) {
+				tracer.endTrace();
+			}
     	}
     }
     
@@ -577,12 +783,15 @@ public class ActionController extends GenericPortlet {
      */
     public void serveResource(ResourceRequest request, ResourceResponse response) throws PortletException, IOException {
     	
+    	boolean traced = tracer != null && tracer.startTrace("resource");
     	try {
     		
 	    	// bind the per-thread invocation context to the current request,
 	    	// response and invocation objects
     		logger.trace("binding context to thread-local storage");
+    		int binding = Tracing.begin("bind-context");
     		ActionContext.bindContext(this, request, response, configuration, server, portal, uploadInfo);
+    		Tracing.end(binding);
 	    	
 	    	String target = request.getResourceID();
 	    	logger.trace("serving resource '{}'...", target);
@@ -591,17 +800,21 @@ public class ActionController extends GenericPortlet {
 	    		
 	    		TargetId targetId = new TargetId(target);
 	    		
+				Target data = registry.getTarget(target);
+				if(data.isResourceCacheable()) {
+					serveCacheableResource(data, request, response);
+					return;
+				}
+	    		
 	    		String res = invokeResourceLogic(targetId, request, response);
 	    		
 	    		logger.trace("target '{}' returned '{}'", targetId, res);
 	    		
-				Target data = registry.getTarget(target);
 				Result result = data.getResult(res);
 				
 				logger.debug("rendering via '{}', result data '{}'...", result.getRenderer(), result.getData());
 	    		
-	    		Renderer renderer = renderers.getRenderer(result.getRenderer());
-	        	renderer.render(request, response, result.getData());
+	    		renderOutput(getRenderer(result), targetId, Phase.RESOURCE, request, response, result.getData());
 	        	
 	        	logger.trace("... output rendering done");
 	    		
@@ -618,6 +831,9 @@ public class ActionController extends GenericPortlet {
     		// prevent memory leaks and complaints by the application server
 			logger.trace("unbinding context from thread-local storage");
 			ActionContext.unbindContext();
+			if(traced) {
+				tracer.endTrace();
+			}
     	}
     }    
     
@@ -755,18 +971,344 @@ public class ActionController extends GenericPortlet {
 		}
 		
 		// get the stack for the given action
-		InterceptorStack stack = interceptors.getStackOrDefault(target.getInterceptorStackId());
+		InterceptorStack stack = interceptors.getChain(target, ActionContext.getCurrentPhase());
     	    	
     	// create and fire the action stack invocation
 		ActionInvocation invocation = null;
+		long start = System.nanoTime();
+		boolean failed = true;
+		Tracing.setTarget(targetId.toString());
+		int span = Tracing.begin("invoke:", targetId.toString());
+		SlowRequestDetector.Watch watch = watchdog != null ? watchdog.start(targetId.toString()) : null;
 		try {
 			invocation = new ActionInvocation(action, target, stack, request, response);
-			return invocation.invoke();
+			ActionContext.bindInvocation(invocation);
+			String result = invocation.invoke();
+			failed = false;
+			return result;
 		} finally {
-			invocation.cleanup();
+			if(invocation != null) {
+				invocation.cleanup();
+				for(int i = 0; i < invocation.getInvokedInterceptors(); ++i) {
+					metrics.recordInterceptor(stack.get(i).getId(), invocation.getInterceptorTime(i));
+				}
+			}
+			ActionFactory.releaseAction(target, action);
+			Tracing.end(span);
+			if(watch != null) {
+				watchdog.stop(watch, ActionContext.getCurrentPhase().name(), failed, invocation, stack);
+			}
+			metrics.recordInvocation(targetId.toString(), ActionContext.getCurrentPhase(), System.nanoTime() - start, failed);
 		}
     }
     
+    /**
+     * Renders the output through the given renderer, tracing the call, recording
+     * its duration among the target's metrics and watching it like target 
+     * invocations, so that slow JSPs and renderers are flagged too.
+     * 
+     * @param renderer
+     *   the renderer.
+     * @param targetId
+     *   the target whose output is being rendered, if any.
+     * @param phase
+     *   the request processing phase.
+     * @param request
+     *   the portlet request.
+     * @param response
+     *   the portlet response.
+     * @param data
+     *   the renderer data, e.g. the JSP URL.
+     * @throws IOException
+     * @throws PortletException
+     */
+    private void renderOutput(Renderer renderer, TargetId targetId, Phase phase, PortletRequest request, PortletResponse response, String data) throws IOException, PortletException {
+    	long start = System.nanoTime();
+    	boolean failed = true;
+    	int span = Tracing.begin("render:", renderer.getId());
+    	SlowRequestDetector.Watch watch = watchdog != null ? watchdog.start(targetId != null ? targetId.toString() : data) : null;
+    	try {
+    		renderer.render(request, response, data);
+    		failed = false;
+    	} finally {
+    		Tracing.end(span);
+    		if(watch != null) {
+    			watchdog.stop(watch, phase.name() + " (" + renderer.getId() + " renderer)", failed, null, null);
+    		}
+    	}
+    	if(targetId != null) {
+    		metrics.recordRendering(targetId.toString(), phase, System.nanoTime() - start);
+    	}
+    }
+    
+    /**
+     * Returns the renderer of the given result, through the index resolved at
+     * startup or, for results created later on, the index resolved on first use.
+     * 
+     * @param result
+     *   the result.
+     * @return
+     *   the renderer instance.
+     * @throws StrutletsException
+     *   if the result refers to an unknown renderer.
+     */
+    private Renderer getRenderer(Result result) throws StrutletsException {
+    	int index = result.getRendererIndex();
+    	if(index < 0) {
+    		index = renderers.getIndex(result.getRenderer());
+    		if(index < 0) {
+    			logger.error("result '{}' refers to unknown renderer '{}'", result.getId(), result.getRenderer());
+    			throw new StrutletsException("Result '" + result.getId() + "' refers to unknown renderer '" + result.getRenderer() + "'");
+    		}
+    		result.setRendererIndex(index);
+    	}
+    	return renderers.getRenderer(index);
+    }
+    
+    /**
+     * Serves a resource whose target declares a caching policy: if the body is 
+     * available in the resource cache it is served (or validated) without invoking
+     * the target; otherwise the target is invoked and, if it supplied a resource 
+     * version matching the client's copy, the request is answered with a "304 
+     * Not Modified" without rendering; failing that, the output is rendered, its
+     * ETag computed and the body sent (or validated) and possibly cached. The 
+     * headers and status set by the interceptors, the target and the renderer
+     * are captured along with the body; responses to undeclared or error results,
+     * or carrying an explicit status, are sent as they are, with no caching.
+     * 
+     * @param target
+     *   the resource target.
+     * @param request
+     *   the resource request.
+     * @param response
+     *   the resource response.
+     * @throws IOException
+     * @throws PortletException
+     */
+    private void serveCacheableResource(Target target, ResourceRequest request, ResourceResponse response) throws IOException, PortletException {
+    	Cached policy = target.getCachePolicy();
+    	boolean shared = !policy.perUser();
+    	String key = makeCacheKey(target, request);
+    	
+    	if(resourceCache != null) {
+    		ResourceCache.Entry entry = resourceCache.get(key);
+    		if(entry != null) {
+    			if(HttpCaching.isNotModified(request, entry.getETag(), entry.getLastModified())) {
+    				logger.debug("client copy of cached resource '{}' is still valid", target.getId());
+    				HttpCaching.sendNotModified(response, entry.getETag(), entry.getLastModified(), policy.maxAge(), shared);
+    			} else {
+    				logger.debug("serving resource '{}' from cache", target.getId());
+    				HttpCaching.setCachingHeaders(response, entry.getETag(), entry.getLastModified(), policy.maxAge(), shared);
+    				entry.replay(response);
+    			}
+    			return;
+    		}
+    	}
+    	
+    	// capture the headers and status set by the interceptors and the target, 
+    	// so that they can be inspected before caching the response
+    	String owner = policy.perUser() ? getCacheOwner(request) : null;
+    	CapturingResourceResponse capture = new CapturingResourceResponse(response);
+    	ActionContext.bindResponse(capture);
+    	String res = invokeResourceLogic(target.getId(), request, capture);
+    	logger.trace("target '{}' returned '{}'", target.getId(), res);
+    	Result result = target.getResult(res);
+    	boolean cacheable = isCacheableResult(target, result, capture);
+    	
+    	// if the action supplied a version, the client's copy can be validated
+    	// without rendering the output
+    	String etag = null;
+    	String version = (String)request.getAttribute(Strutlets.STRUTLETS_RESOURCE_VERSION);
+    	if(cacheable && Strings.isValid(version)) {
+    		etag = HttpCaching.makeETag(key + "|" + res + "|" + version);
+    		if(HttpCaching.isNotModified(request, etag, -1)) {
+    			logger.debug("client copy of resource '{}' (version '{}') is still valid", target.getId(), version);
+    			HttpCaching.sendNotModified(response, etag, -1, policy.maxAge(), shared);
+    			return;
+    		}
+    	}
+    	
+		logger.debug("rendering via '{}', result data '{}'...", result.getRenderer(), result.getData());
+		renderOutput(getRenderer(result), target.getId(), Phase.RESOURCE, request, capture, result.getData());
+		
+		if(!cacheable || !isCacheableResult(target, result, capture)) {
+			capture.commit();
+			logger.trace("... output rendering done, response not cached");
+			return;
+		}
+		
+		byte[] content = capture.getContent();
+		if(etag == null) {
+			etag = HttpCaching.makeETag(content);
+		}
+		
+		// the cache refuses responses setting cookies or varying on request 
+		// headers; output is not stored either if an anonymous user's session 
+		// was created while rendering, since the key no longer matches its owner
+		long lastModified = -1;
+		if(resourceCache != null && policy.ttl() > 0) {
+			long now = System.currentTimeMillis();
+			if(owner != null && !owner.equals(getCacheOwner(request))) {
+				logger.debug("a session was created while serving resource '{}', it will not be stored", target.getId());
+			} else if(resourceCache.put(key, content, capture, etag, now, policy.ttl() * 1000L)) {
+				lastModified = now;
+			}
+		}
+		
+		if(HttpCaching.isNotModified(request, etag, -1)) {
+			logger.debug("client copy of resource '{}' is still valid", target.getId());
+			HttpCaching.sendNotModified(response, etag, lastModified, policy.maxAge(), shared);
+		} else {
+			HttpCaching.setCachingHeaders(response, etag, lastModified, policy.maxAge(), shared);
+			capture.commit();
+		}
+		logger.trace("... output rendering done");
+    }
+    
+    /**
+     * Checks whether the response to a resource request can be cached: this is
+     * only the case for results declared in the annotations, which are not error
+     * results, and only as long as no explicit HTTP status code has been set 
+     * (e.g. by an interceptor denying access or rejecting the request).
+     * 
+     * @param target
+     *   the resource target.
+     * @param result
+     *   the result returned by the target.
+     * @param capture
+     *   the response capturing the headers set so far.
+     * @return
+     *   whether the response can be cached.
+     */
+    private boolean isCacheableResult(Target target, Result result, CapturingResourceResponse capture) {
+    	if(!result.isDeclared()) {
+    		logger.debug("result '{}' of resource '{}' is not declared, response will not be cached", result.getId(), target.getId());
+    		return false;
+    	}
+    	if(isErrorResult(result.getId())) {
+    		logger.debug("result '{}' of resource '{}' is an error, response will not be cached", result.getId(), target.getId());
+    		return false;
+    	}
+    	if(capture.getStatus() != null) {
+    		logger.debug("resource '{}' set status '{}', response will not be cached", target.getId(), capture.getStatus());
+    		return false;
+    	}
+    	return true;
+    }
+    
+    /**
+     * Returns whether the given result denotes an error, i.e. whether it is the 
+     * standard error result or one of the fallback results of the interceptors
+     * (e.g. "error_access_denied").
+     * 
+     * @param result
+     *   the result identifier.
+     * @return
+     *   whether the result denotes an error.
+     */
+    private static boolean isErrorResult(String result) {
+    	return result.equals(Action.ERROR) || result.startsWith(Action.ERROR + "_");
+    }
+    
+    /**
+     * Retrieves the target invoked by a plain render request (i.e. one that does
+     * not follow an action or event), if its output can be served from the 
+     * render cache.
+     * 
+     * @param request
+     *   the render request.
+     * @return
+     *   the target, or {@code null} if the render cache is disabled, no target 
+     *   is being invoked or the target's output is not cacheable.
+     * @throws StrutletsException
+     */
+    private Target getRenderCacheableTarget(RenderRequest request) throws StrutletsException {
+    	if(renderCache == null || Strings.isValid(request.getParameter(Strutlets.STRUTLETS_RESULT))) {
+    		return null;
+    	}
+    	String target = request.getParameter(Strutlets.STRUTLETS_TARGET);
+    	if(!TargetId.isValidTarget(target) && !Strings.isValid(request.getParameter(Strutlets.LIFERAY_TARGET))) {
+    		target = getDefaultUrl(request.getPortletMode());
+    	}
+    	if(TargetId.isValidTarget(target)) {
+    		Target data = registry.getTarget(new TargetId(target));
+    		if(data.isRenderCacheable()) {
+    			return data;
+    		}
+    	}
+    	return null;
+    }
+    
+    /**
+     * Builds the cache key for the given target, out of the portlet window, mode
+     * and state, the locale, the owner (for user-specific output), the request 
+     * parameters and the additional inputs declared by the target.
+     * 
+     * @param target
+     *   the target whose output is being cached.
+     * @param request
+     *   the render or resource request.
+     * @return
+     *   the cache key.
+     * @throws StrutletsException
+     */
+    static String makeCacheKey(Target target, PortletRequest request) throws StrutletsException {
+    	StringBuilder key = new StringBuilder(target.getId().toString());
+    	key.append('|').append(request.getWindowID());
+    	key.append('|').append(request.getPortletMode());
+    	key.append('|').append(request.getWindowState());
+    	key.append('|').append(request.getLocale());
+    	if(target.getCachePolicy().perUser()) {
+    		key.append('|').append(getCacheOwner(request));
+    	}
+    	Map<String, String[]> parameters = new TreeMap<String, String[]>(request.getParameterMap());
+    	for(Entry<String, String[]> parameter : parameters.entrySet()) {
+    		key.append('|').append(parameter.getKey()).append('=').append(Arrays.toString(parameter.getValue()));
+    	}
+    	for(String name : target.getCachePolicy().keys()) {
+    		Object value = ActionContext.findValueInScopes(name, 
+    				org.dihedron.strutlets.annotations.Scope.REQUEST, 
+    				org.dihedron.strutlets.annotations.Scope.PORTLET, 
+    				org.dihedron.strutlets.annotations.Scope.APPLICATION);
+    		key.append('|').append(name).append('=').append(value);
+    	}
+    	return key.toString();
+    }
+    
+    /**
+     * Returns the owner of user-specific cached output: the remote user if 
+     * authenticated, the portlet session otherwise, so that anonymous users do
+     * not read each other's output; anonymous users without a session (whose 
+     * output cannot depend on session state) share a single owner.
+     * 
+     * @param request
+     *   the portlet request.
+     * @return
+     *   the owner of the output.
+     */
+    static String getCacheOwner(PortletRequest request) {
+    	String user = request.getRemoteUser();
+    	if(user != null) {
+    		return user;
+    	}
+    	PortletSession session = request.getPortletSession(false);
+    	return session != null ? "<anonymous:" + session.getId() + ">" : "<anonymous>";
+    }
+    
+    /**
+     * Removes the entries of the requesting user (or anonymous session), along
+     * with those shared by all users, from the render cache, if enabled; other 
+     * users' entries are not affected by the request.
+     * 
+     * @param request
+     *   the action or event request.
+     */
+    private void invalidateRenderCache(PortletRequest request) {
+    	if(renderCache != null) {
+    		renderCache.invalidate(getCacheOwner(request));
+    	}
+    }
+    
     /**
      * Retrieves the render URL for the given target and its result.
      * 
@@ -791,6 +1333,66 @@ public class ActionController extends GenericPortlet {
     	return url;
     }
     
+    /**
+     * Returns the URLs of all the JSPs known at startup: those of the results
+     * rendered through JSPs of all registered targets, the default pages of 
+     * the standard portlet modes and the default error page.
+     * 
+     * @return
+     *   the set of JSP URLs, in no particular order.
+     * @throws StrutletsException
+     */
+    private Set<String> getKnownJspUrls() throws StrutletsException {
+    	Set<String> urls = new HashSet<String>();
+    	for(TargetId id : registry.getTargetIds()) {
+    		for(Result result : registry.getTarget(id).getResults().values()) {
+    			if(JspRenderer.ID.equals(result.getRenderer()) && Strings.isValid(result.getData()) && !TargetId.isValidTarget(result.getData())) {
+    				urls.add(result.getData());
+    			}
+    		}
+    	}
+    	for(PortletMode mode : new PortletMode[] { PortletMode.VIEW, PortletMode.EDIT, PortletMode.HELP }) {
+    		String url = getDefaultUrl(mode);
+    		if(Strings.isValid(url) && !TargetId.isValidTarget(url)) {
+    			urls.add(url);
+    		}
+    	}
+    	String error = InitParameter.ERROR_JSP_PATH.getValueForPortlet(this);
+    	if(Strings.isValid(error)) {
+    		urls.add(error);
+    	}
+    	return urls;
+    }
+    
+    /**
+     * Collects the paths of the JSPs that would render the standard results 
+     * ("success", "input" and "error") of each target, according to the pattern
+     * for auto-configured results, when the target does not declare them; since
+     * a target may never return some of them, these JSPs may legitimately be 
+     * missing.
+     * 
+     * @param known
+     *   the JSPs already known, which are not collected again.
+     * @return
+     *   the paths of the conventional JSPs.
+     * @throws StrutletsException
+     */
+    private Set<String> getConventionalJspUrls(Set<String> known) throws StrutletsException {
+    	Set<String> urls = new HashSet<String>();
+    	for(TargetId id : registry.getTargetIds()) {
+    		Target target = registry.getTarget(id);
+    		for(String result : new String[] { Action.SUCCESS, Action.INPUT, Action.ERROR }) {
+    			if(!target.getResults().containsKey(result)) {
+    				String url = target.getUndeclaredJspUrl(result);
+    				if(!known.contains(url)) {
+    					urls.add(url);
+    				}
+    			}
+    		}
+    	}
+    	return urls;
+    }
+    
     /**
      * Retrieves the default URL for the given portlet mode.
      * 
@@ -1078,6 +1680,16 @@ public class ActionController extends GenericPortlet {
 			}
 			*/			
 		}    	
+		
+		// override the default stack, e.g. to use the "diagnostic" stack
+		value = InitParameter.INTERCEPTORS_DEFAULT_STACK.getValueForPortlet(this);
+		if(Strings.isValid(value)) {
+			logger.info("using interceptors stack '{}' as default", value.trim());
+			interceptors.setDefaultStackId(value.trim());
+		}
+		
+		// resolve the per-target, per-phase interceptor chains once and for all 
+		interceptors.prepare(registry);
     }
 
     /**
@@ -1107,9 +1719,58 @@ public class ActionController extends GenericPortlet {
 				loader.loadFromJavaPackage(renderers, pkg);
 			}
 		}
+		
+		// instantiate and initialise the renderers, then resolve the renderer
+		// of each declared result once and for all
+		renderers.initialise();
+		renderers.prepare(registry);
+		
+		// look up the dispatchers of all the JSPs known at this point
+		Renderer jsp = renderers.getRenderer(JspRenderer.ID);
+		if(jsp instanceof JspRenderer) {
+			((JspRenderer)jsp).preload(getKnownJspUrls());
+		}
 		logger.trace("renderers configuration:\n{}", renderers.toString());    	
     }
 
+	/**
+	 * Initialises the render output cache, unless it has been explicitly disabled
+	 * by setting its maximum size to 0.
+	 */
+	private void initialiseRenderCache() {
+		int size = RenderCache.DEFAULT_MAX_ENTRIES;
+		String value = InitParameter.RENDER_CACHE_MAX_ENTRIES.getValueForPortlet(this);
+		if(Strings.isValid(value)) {
+			size = Integer.parseInt(value.trim());
+		}
+		if(size > 0) {
+			logger.info("render output cache enabled (max {} entries)", size);
+			renderCache = new RenderCache(size);
+		} else {
+			logger.info("render output cache disabled");
+			renderCache = null;
+		}
+	}
+
+	/**
+	 * Initialises the LRU cache of rendered resource bodies, unless it has been
+	 * explicitly disabled by setting its maximum size to 0.
+	 */
+	private void initialiseResourceCache() {
+		int size = ResourceCache.DEFAULT_MAX_ENTRIES;
+		String value = InitParameter.RESOURCE_CACHE_MAX_ENTRIES.getValueForPortlet(this);
+		if(Strings.isValid(value)) {
+			size = Integer.parseInt(value.trim());
+		}
+		if(size > 0) {
+			logger.info("resource cache enabled (max {} entries)", size);
+			resourceCache = new ResourceCache(size);
+		} else {
+			logger.info("resource cache disabled");
+			resourceCache = null;
+		}
+	}
+
 	/**
 	 * Initialises support for file uploads.
 	 * 
@@ -1263,6 +1924,148 @@ public class ActionController extends GenericPortlet {
 		}
 	}
 	
+	/**
+	 * Initialises the metrics registry, optionally exposing metrics through JMX 
+	 * and scheduling a user-provided reporter.
+	 */
+	private void initialiseMetrics() {
+		String value = InitParameter.METRICS_ENABLE_JMX.getValueForPortlet(this);
+		boolean jmx = !Strings.isValid(value) || value.trim().equalsIgnoreCase("true");
+		logger.info("initialising metrics (JMX {})", jmx ? "enabled" : "disabled");
+		metrics = new MetricsRegistry(getPortletContext().getPortletContextName(), getPortletName(), jmx);
+		
+		value = InitParameter.METRICS_REPORTER_CLASS.getValueForPortlet(this);
+		if(Strings.isValid(value)) {
+			long interval = DEFAULT_METRICS_REPORTING_INTERVAL;
+			String parameter = InitParameter.METRICS_REPORTING_INTERVAL.getValueForPortlet(this);
+			if(Strings.isValid(parameter)) {
+				interval = Long.parseLong(parameter.trim());
+			}
+			try {
+				logger.info("initialising metrics reporter of class '{}'...", value);
+				MetricsReporter reporter = (MetricsReporter)Class.forName(value.trim()).newInstance();
+				metrics.addReporter(reporter, interval);
+			} catch (ClassNotFoundException e) {
+				logger.error("class '" + value + "' not found on classpath", e);
+			} catch (InstantiationException e) {
+				logger.error("error instantiating metrics reporter of class '" + value + "'", e);
+			} catch (IllegalAccessException e) {
+				logger.error("illegal access to metrics reporter class '" + value + "'", e);
+			} catch (ClassCastException e) {
+				logger.error("class '" + value + "' does not implement MetricsReporter", e);
+			}
+		}
+	}
+	
+	/**
+	 * Initialises per-request tracing, if a positive sampling rate has been 
+	 * specified, and registers the configured trace sinks (by default, an 
+	 * in-memory ring buffer that can be inspected in the administrative console).
+	 */
+	private void initialiseTracing() {
+		String value = InitParameter.TRACING_SAMPLING_RATE.getValueForPortlet(this);
+		double rate = Strings.isValid(value) ? Double.parseDouble(value.trim()) : 0.0;
+		if(rate <= 0.0) {
+			logger.info("per-request tracing disabled");
+			return;
+		}
+		int spans = Trace.DEFAULT_MAX_SPANS;
+		value = InitParameter.TRACING_MAX_SPANS.getValueForPortlet(this);
+		if(Strings.isValid(value)) {
+			spans = Integer.parseInt(value.trim());
+		}
+		logger.info("initialising per-request tracing (sampling rate: {}, max spans per trace: {})", rate, spans);
+		tracer = new Tracer(getPortletName(), rate, spans, DEFAULT_TRACING_POOL_SIZE);
+		
+		value = InitParameter.TRACING_SINKS.getValueForPortlet(this);
+		if(Strings.isValid(value)) {
+			for(String sink : value.split(",")) {
+				if(!Strings.isValid(sink)) {
+					continue;
+				}
+				try {
+					logger.info("initialising trace sink of class '{}'...", sink.trim());
+					tracer.addSink((TraceSink)Class.forName(sink.trim()).newInstance());
+				} catch (ClassNotFoundException e) {
+					logger.error("class '" + sink + "' not found on classpath", e);
+				} catch (InstantiationException e) {
+					logger.error("error instantiating trace sink of class '" + sink + "'", e);
+				} catch (IllegalAccessException e) {
+					logger.error("illegal access to trace sink class '" + sink + "'", e);
+				} catch (ClassCastException e) {
+					logger.error("class '" + sink + "' does not implement TraceSink", e);
+				}
+			}
+		} else {
+			logger.info("using default in-memory trace sink");
+			tracer.addSink(new RingBufferTraceSink());
+		}
+	}
+	
+	/**
+	 * Initialises the watchdog flagging slow target invocations, if a default 
+	 * threshold has been specified; per-target thresholds can be given as a 
+	 * comma-separated list of "target=milliseconds" pairs.
+	 */
+	private void initialiseWatchdog() {
+		String value = InitParameter.SLOW_REQUEST_THRESHOLD.getValueForPortlet(this);
+		if(!Strings.isValid(value) || Long.parseLong(value.trim()) <= 0) {
+			logger.info("slow request detection disabled");
+			return;
+		}
+		long threshold = Long.parseLong(value.trim());
+		Map<String, Long> thresholds = new HashMap<String, Long>();
+		value = InitParameter.SLOW_REQUEST_TARGET_THRESHOLDS.getValueForPortlet(this);
+		if(Strings.isValid(value)) {
+			for(String pair : value.split(",")) {
+				int index = pair.lastIndexOf('=');
+				if(index > 0) {
+					thresholds.put(pair.substring(0, index).trim(), Long.parseLong(pair.substring(index + 1).trim()));
+				} else if(Strings.isValid(pair)) {
+					logger.warn("invalid slow request threshold specification: '{}'", pair);
+				}
+			}
+		}
+		int capacity = SlowRequestDetector.DEFAULT_CAPACITY;
+		value = InitParameter.SLOW_REQUEST_BUFFER_SIZE.getValueForPortlet(this);
+		if(Strings.isValid(value)) {
+			capacity = Integer.parseInt(value.trim());
+		}
+		logger.info("initialising slow request detection (threshold: {} ms, per-target thresholds: {})", threshold, thresholds);
+		watchdog = new SlowRequestDetector(getPortletName(), threshold, thresholds, capacity);
+	}
+	
+	/**
+	 * Checks that all the JSPs known at startup exist and, optionally, starts
+	 * precompiling them, unless the check is disabled.
+	 * 
+	 * @throws StrutletsException
+	 *   if the check is configured to fail on missing JSPs and any is missing.
+	 */
+	private void initialiseJspCheck() throws StrutletsException {
+		String mode = InitParameter.JSP_STARTUP_CHECK.getValueForPortlet(this);
+		if(!Strings.isValid(mode) || mode.trim().equalsIgnoreCase("none")) {
+			logger.info("startup JSP check disabled");
+			return;
+		}
+		String base = InitParameter.JSP_PRECOMPILE_URL.getValueForPortlet(this);
+		jspChecker = new JspChecker(getPortletName(), getPortletContext(), Strings.isValid(base) ? base.trim() : null, JspChecker.DEFAULT_THREADS);
+		List<String> missing;
+		try {
+			Set<String> known = getKnownJspUrls();
+			missing = jspChecker.check(known, getConventionalJspUrls(known));
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			jspChecker.shutdown();
+			throw new StrutletsException("Interrupted while checking JSPs", e);
+		}
+		if(!missing.isEmpty() && mode.trim().equalsIgnoreCase("fail")) {
+			logger.error("missing JSPs: {}", missing);
+			jspChecker.shutdown();
+			throw new StrutletsException("Missing JSPs: " + missing);
+		}
+	}
+	
 	private void initialiseAdminConsole() throws StrutletsException {
 		String value = InitParameter.ENABLE_ADMIN_CONSOLE.getValueForPortlet(this);
 		if(Strings.isValid(value) && value.equalsIgnoreCase("true")) {
@@ -1295,6 +2098,16 @@ public class ActionController extends GenericPortlet {
 	 * mode HTML navigation tree.
 	 */	
 	private static final String RENDER_XXXX_HOMEPAGE = "strutlets:xxxx-home";    
+	
+	/**
+	 * The default interval between metrics reports, in seconds.
+	 */
+	private static final long DEFAULT_METRICS_REPORTING_INTERVAL = 60;
+	
+	/**
+	 * The number of traces preallocated for per-request tracing.
+	 */
+	private static final int DEFAULT_TRACING_POOL_SIZE = 32;
 
 	/**
      * The logger.
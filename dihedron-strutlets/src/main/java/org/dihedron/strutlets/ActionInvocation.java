@@ -6,7 +6,10 @@ package org.dihedron.strutlets;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 import javax.portlet.ActionRequest;
 import javax.portlet.ActionResponse;
@@ -23,6 +26,7 @@ import org.dihedron.strutlets.exceptions.StrutletsException;
 import org.dihedron.strutlets.interceptors.Interceptor;
 import org.dihedron.strutlets.interceptors.InterceptorStack;
 import org.dihedron.strutlets.targets.Target;
+import org.dihedron.strutlets.tracing.Tracing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -73,6 +77,24 @@ public class ActionInvocation {
 	 */
 	private InterceptorStack interceptors;
 	
+	/**
+	 * The time spent in each interceptor, including the nested interceptors and
+	 * the action, in nanoseconds; the last slot holds the time spent in the 
+	 * action alone.
+	 */
+	private long[] elapsed;
+	
+	/**
+	 * The number of interceptors invoked so far.
+	 */
+	private int position = 0;
+	
+	/**
+	 * The values the action stored into scopes through its {@code @Out} and
+	 * {@code @InOut} parameters, by name; created on first use.
+	 */
+	private Map<String, Object> outputs = null;
+	
 	/**
 	 * Constructor.
 	 * 
@@ -94,6 +116,7 @@ public class ActionInvocation {
 		this.request = request;
 		this.response = response;
 		this.interceptors = interceptors;
+		this.elapsed = new long[(interceptors != null ? interceptors.size() : 0) + 1];
 		this.iterator.set(null);
 	}
 	
@@ -269,9 +292,20 @@ public class ActionInvocation {
 			iterator.set(interceptors.iterator());
 		}
 		if(iterator.get().hasNext()) {
-			return iterator.get().next().intercept(this);
+			Interceptor interceptor = iterator.get().next();
+			int index = Math.min(position++, elapsed.length - 2);
+			long start = System.nanoTime();
+			int span = Tracing.begin("interceptor:", interceptor.getId());
+			try {
+				return interceptor.intercept(this);
+			} finally {
+				Tracing.end(span);
+				elapsed[index] += System.nanoTime() - start;
+			}
 		}
 		// now invoke the static proxy method 
+		long start = System.nanoTime();
+		int span = Tracing.begin("proxy");
 		try {
 			Method proxy = target.getProxyMethod();
 			logger.trace("invoking actual method on action instance through proxy '{}'", proxy.getName());
@@ -285,7 +319,97 @@ public class ActionInvocation {
 		} catch (InvocationTargetException e) {
 			logger.error("invocation target error calling proxy method", e);
 			throw new StrutletsException("Invocation target error calling proxy method", e);
+		} finally {
+			Tracing.end(span);
+			elapsed[elapsed.length - 1] += System.nanoTime() - start;
+		}
+	}
+	
+	/**
+	 * Records a value produced by the action, so that it can be handed to the
+	 * renderer without looking it up in the scopes it was stored into.
+	 * 
+	 * @param name
+	 *   the name under which the value was stored.
+	 * @param value
+	 *   the value.
+	 */
+	public void setOutput(String name, Object value) {
+		if(outputs == null) {
+			outputs = new HashMap<String, Object>();
+		}
+		outputs.put(name, value);
+	}
+	
+	/**
+	 * Returns whether the action produced a value with the given name.
+	 * 
+	 * @param name
+	 *   the name of the value.
+	 * @return
+	 *   whether the value was produced.
+	 */
+	public boolean hasOutput(String name) {
+		return outputs != null && outputs.containsKey(name);
+	}
+	
+	/**
+	 * Returns a value produced by the action.
+	 * 
+	 * @param name
+	 *   the name of the value.
+	 * @return
+	 *   the value, or {@code null} if no such value was produced.
+	 */
+	public Object getOutput(String name) {
+		return outputs != null ? outputs.get(name) : null;
+	}
+	
+	/**
+	 * Returns all the values produced by the action.
+	 * 
+	 * @return
+	 *   an unmodifiable map of values, by name.
+	 */
+	public Map<String, Object> getOutputs() {
+		if(outputs == null) {
+			return Collections.emptyMap();
 		}
+		return Collections.unmodifiableMap(outputs);
+	}
+	
+	/**
+	 * Returns the number of interceptors in the stack that were actually invoked;
+	 * interceptors past one that diverted the control flow are never reached.
+	 * 
+	 * @return
+	 *   the number of interceptors invoked.
+	 */
+	public int getInvokedInterceptors() {
+		return Math.min(position, elapsed.length - 1);
+	}
+	
+	/**
+	 * Returns the time spent in the given interceptor alone, that is excluding 
+	 * the time spent in the nested interceptors and in the action.
+	 * 
+	 * @param index
+	 *   the position of the interceptor in the stack.
+	 * @return
+	 *   the time spent in the interceptor, in nanoseconds.
+	 */
+	public long getInterceptorTime(int index) {
+		return Math.max(elapsed[index] - elapsed[index + 1], 0);
+	}
+	
+	/**
+	 * Returns the time spent in the action's business method alone.
+	 * 
+	 * @return
+	 *   the time spent in the action, in nanoseconds.
+	 */
+	public long getActionTime() {
+		return elapsed[elapsed.length - 1];
 	}
 	
 	/**
@@ -186,6 +186,110 @@ public enum InitParameter {
 	 */
 	ERROR_JSP_PATH("strutlets:error-default-page", ""),
 	
+	/**
+	 * The maximum number of entries in the render output cache (default: 1000); 
+	 * set it to 0 to disable render output caching altogether.
+	 */
+	RENDER_CACHE_MAX_ENTRIES("strutlets:render-cache-max-entries", ""),
+	
+	/**
+	 * The maximum number of rendered resource bodies kept in memory for 
+	 * {@code @Cached} resource targets (default: 200); set it to 0 to disable 
+	 * server-side storage (ETags and conditional requests are supported anyway).
+	 */
+	RESOURCE_CACHE_MAX_ENTRIES("strutlets:resource-cache-max-entries", ""),
+	
+	/**
+	 * Whether per-target metrics should be exposed as JMX MBeans (default: "true").
+	 */
+	METRICS_ENABLE_JMX("strutlets:metrics-enable-jmx", ""),
+	
+	/**
+	 * The class of the reporter that periodically publishes per-target metrics;
+	 * it must implement {@code org.dihedron.strutlets.metrics.MetricsReporter}.
+	 */
+	METRICS_REPORTER_CLASS("strutlets:metrics-reporter-class", ""),
+	
+	/**
+	 * The interval between metrics reports, in seconds (default: 60).
+	 */
+	METRICS_REPORTING_INTERVAL("strutlets:metrics-reporting-interval", ""),
+	
+	/**
+	 * The ratio of requests that are traced, between 0 and 1 (default: 0, 
+	 * meaning that per-request tracing is disabled).
+	 */
+	TRACING_SAMPLING_RATE("strutlets:tracing-sampling-rate", ""),
+	
+	/**
+	 * The maximum number of spans recorded per traced request (default: 64).
+	 */
+	TRACING_MAX_SPANS("strutlets:tracing-max-spans", ""),
+	
+	/**
+	 * A comma-separated list of classes completed traces are exported to; they
+	 * must implement {@code org.dihedron.strutlets.tracing.TraceSink} (default: 
+	 * an in-memory ring buffer, shown in the administrative console).
+	 */
+	TRACING_SINKS("strutlets:tracing-sinks", ""),
+	
+	/**
+	 * The default duration, in milliseconds, beyond which a target invocation is
+	 * flagged as slow and its context captured (default: 0, meaning that slow 
+	 * request detection is disabled).
+	 */
+	SLOW_REQUEST_THRESHOLD("strutlets:slow-request-threshold", ""),
+	
+	/**
+	 * Per-target slow request thresholds, as a comma-separated list of 
+	 * "MyAction!myMethod=milliseconds" pairs.
+	 */
+	SLOW_REQUEST_TARGET_THRESHOLDS("strutlets:slow-request-target-thresholds", ""),
+	
+	/**
+	 * The number of slow requests kept in memory for the administrative console 
+	 * (default: 50).
+	 */
+	SLOW_REQUEST_BUFFER_SIZE("strutlets:slow-request-buffer-size", ""),
+	
+	/**
+	 * Whether the JSP renderer caches request dispatchers for plain context-
+	 * relative paths and looks up those of all the JSP results declared by 
+	 * targets at startup (default: "true"); disable it for containers whose 
+	 * dispatchers cannot be reused across requests.
+	 */
+	JSP_DISPATCHER_CACHE("strutlets:jsp-dispatcher-cache", ""),
+	
+	/**
+	 * Whether the JSPs rendered by declared results, the default pages and the
+	 * error page should be checked for existence at startup: "none" (the 
+	 * default) skips the check, "warn" logs missing JSPs and "fail" prevents
+	 * the portlet from starting if any is missing. The JSPs that the naming 
+	 * pattern yields for undeclared standard results are precompiled if they 
+	 * exist, but never reported as missing.
+	 */
+	JSP_STARTUP_CHECK("strutlets:jsp-startup-check", ""),
+	
+	/**
+	 * The base URL of the web application (e.g. "http://localhost:8080/my-portlet"),
+	 * used to have the container precompile the JSPs found by the startup check,
+	 * in the background; if not set, JSPs are compiled when first requested.
+	 */
+	JSP_PRECOMPILE_URL("strutlets:jsp-precompile-url", ""),
+	
+	/**
+	 * The minimum size, in characters, of the textual output of resource 
+	 * renderers (JSON, XML, string) for it to be compressed, if the client
+	 * accepts it (default: 1024; a negative value disables compression).
+	 */
+	COMPRESSION_THRESHOLD("strutlets:compression-threshold", ""),
+	
+	/**
+	 * The level of compression of resource renderers' output, from 1 (fastest)
+	 * to 9 (smallest) (default: 6).
+	 */
+	COMPRESSION_LEVEL("strutlets:compression-level", ""),
+	
 	/**
 	 * Enables the Strutlets Administrative Console (default: "false").
 	 */
@@ -89,6 +89,13 @@ public final class Strutlets {
 	
 	public static final String STRUTLETS_LAST_FORM_RESULT = "org.dihedron.strutlets.last-form-result";
 	
+	/**
+	 * The name of the portlet request attribute under which actions can store 
+	 * the version of the resource being served, from which the framework will 
+	 * compute the resource's ETag.
+	 */
+	public static final String STRUTLETS_RESOURCE_VERSION = "org.dihedron.strutlets.resource-version";
+	
 	/**
 	 * Returns the framework's version (as per the project's POM).
 	 * 
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.actions;
+
+/**
+ * Interface to be implemented by pooled actions that need to clear their 
+ * per-request state before being reused to service another request.
+ * 
+ * @author Andrea Funto'
+ */
+public interface Resettable {
+	
+	/**
+	 * Restores the object to a clean state; this method is invoked by the framework
+	 * once the request has been serviced, right before the object is given back 
+	 * to the pool.
+	 */
+	void reset();
+}
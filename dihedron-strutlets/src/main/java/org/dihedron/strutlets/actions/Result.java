@@ -51,6 +51,18 @@ public class Result {
 	 */
 	private WindowState state;
 	
+	/**
+	 * The index of the renderer in the renderers registry, once resolved; -1
+	 * until then.
+	 */
+	private volatile int index = -1;
+	
+	/**
+	 * Whether the result was declared in the annotations, as opposed to being 
+	 * auto-configured when first returned by the target.
+	 */
+	private boolean declared = false;
+	
 	/**
 	 * Constructor.
 	 * 
@@ -124,6 +136,52 @@ public class Result {
 		return renderer;
 	}
 
+	/**
+	 * Returns the index of the renderer in the renderers registry.
+	 * 
+	 * @return
+	 *   the index of the renderer, or -1 if it has not been resolved yet.
+	 */
+	public int getRendererIndex() {
+		return index;
+	}
+	
+	/**
+	 * Sets the index of the renderer in the renderers registry.
+	 * 
+	 * @param index
+	 *   the index of the renderer.
+	 * @return
+	 *   the object itself, for method chaining.
+	 */
+	public Result setRendererIndex(int index) {
+		this.index = index;
+		return this;
+	}
+
+	/**
+	 * Returns whether the result was declared in the annotations.
+	 * 
+	 * @return
+	 *   whether the result was declared, as opposed to auto-configured.
+	 */
+	public boolean isDeclared() {
+		return declared;
+	}
+	
+	/**
+	 * Sets whether the result was declared in the annotations.
+	 * 
+	 * @param declared
+	 *   whether the result was declared, as opposed to auto-configured.
+	 * @return
+	 *   the object itself, for method chaining.
+	 */
+	public Result setDeclared(boolean declared) {
+		this.declared = declared;
+		return this;
+	}
+	
 	/**
 	 * Returns the data used by the renderer to return a meaningful result, e.g
 	 * the URL of the JSP or servlet that will provide the actions' view for "jsp"
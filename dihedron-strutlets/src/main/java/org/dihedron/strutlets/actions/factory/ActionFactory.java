@@ -4,6 +4,11 @@
 
 package org.dihedron.strutlets.actions.factory;
 
+import javax.portlet.PortletSession;
+
+import org.dihedron.strutlets.ActionContext;
+import org.dihedron.strutlets.actions.Resettable;
+import org.dihedron.strutlets.annotations.Lifecycle;
 import org.dihedron.strutlets.exceptions.StrutletsException;
 import org.dihedron.strutlets.targets.Target;
 import org.slf4j.Logger;
@@ -22,7 +27,16 @@ public final class ActionFactory {
 	private static final Logger logger = LoggerFactory.getLogger(ActionFactory.class);
 	
 	/**
-	 * Creates a new Action object, given the information about the request target.
+	 * The prefix of the portlet session attribute under which per-session action
+	 * instances are stored.
+	 */
+	private static final String SESSION_ACTION_KEY_PREFIX = "org.dihedron.strutlets.action:";
+	
+	/**
+	 * Creates a new Action object, given the information about the request target;
+	 * depending on the action's lifecycle, the object may be borrowed from a pool,
+	 * retrieved from the user's session, or be the result of the proxy's factory 
+	 * method (a shared singleton or a brand new instance).
 	 *  
 	 * @param target
 	 *   information about the requested target (the business service).
@@ -35,8 +49,32 @@ public final class ActionFactory {
 		if(target != null) {
 			logger.trace("instantiating action of class '{}'...", target.getActionClass().getSimpleName());
 			try {
-				action = target.getFactoryMethod().invoke(null);
-//				action = target.getActionClass().newInstance();
+				switch(target.getLifecycle()) {
+				case POOLED:
+					action = target.getActionPool().acquire();
+					if(action != null) {
+						logger.trace("... reusing pooled instance");
+					} else {
+						logger.trace("... pool is empty, creating new instance");
+						action = target.getFactoryMethod().invoke(null);
+					}
+					break;
+				case PER_SESSION:
+					String key = SESSION_ACTION_KEY_PREFIX + target.getActionClass().getName();
+					PortletSession session = ActionContext.getPortletSession();
+					synchronized(ActionContext.getSessionLock(session)) {
+						action = session.getAttribute(key, PortletSession.PORTLET_SCOPE);
+						if(action == null) {
+							logger.trace("... creating new instance for session '{}'", session.getId());
+							action = target.getFactoryMethod().invoke(null);
+							session.setAttribute(key, action, PortletSession.PORTLET_SCOPE);
+						}
+					}
+					break;
+				default:
+					action = target.getFactoryMethod().invoke(null);
+					break;
+				}
 				logger.trace("... class '{}' instance ready!", target.getActionClass().getSimpleName());
 			} catch (Exception e) {
 				logger.error("error instantiating action for target '{}'", target);
@@ -46,6 +84,33 @@ public final class ActionFactory {
 		return action;
 	}
 	
+	/**
+	 * Releases an action instance once the request has been serviced; pooled 
+	 * instances are reset (if they implement {@link Resettable}) and given back
+	 * to the pool, all other instances are left alone.
+	 * 
+	 * @param target
+	 *   information about the serviced target.
+	 * @param action
+	 *   the action instance that serviced the request.
+	 */
+	public static void releaseAction(Target target, Object action) {
+		if(target != null && action != null && target.getLifecycle() == Lifecycle.POOLED) {
+			try {
+				if(action instanceof Resettable) {
+					((Resettable)action).reset();
+				}
+				if(target.getActionPool().release(action)) {
+					logger.trace("instance of class '{}' returned to pool", target.getActionClass().getSimpleName());
+				} else {
+					logger.trace("pool for class '{}' is full, discarding instance", target.getActionClass().getSimpleName());
+				}
+			} catch(RuntimeException e) {
+				logger.warn("error resetting instance of class '" + target.getActionClass().getSimpleName() + "', discarding it", e);
+			}
+		}
+	}
+	
 	/**
 	 * Private constructor to prevent utility class instantiation. 
 	 */
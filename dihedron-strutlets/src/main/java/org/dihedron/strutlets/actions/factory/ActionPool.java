@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.actions.factory;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free pool of action instances. The pool is made up of a fixed
+ * number of slots, each of which can hold an idle instance; borrowing and giving
+ * back objects is done by atomically swapping slot contents, so threads never 
+ * block on the pool: if no idle instance is available the caller is expected 
+ * to create a new one, if no slot is free the instance being given back is 
+ * simply left to the garbage collector.
+ * 
+ * @author Andrea Funto'
+ */
+public class ActionPool {
+	
+	/**
+	 * The slots holding idle instances.
+	 */
+	private final AtomicReferenceArray<Object> slots;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param capacity
+	 *   the maximum number of idle instances held by the pool.
+	 */
+	public ActionPool(int capacity) {
+		this.slots = new AtomicReferenceArray<Object>(capacity > 0 ? capacity : 1);
+	}
+	
+	/**
+	 * Returns the maximum number of idle instances held by the pool.
+	 * 
+	 * @return
+	 *   the capacity of the pool.
+	 */
+	public int getCapacity() {
+		return slots.length();
+	}
+
+	/**
+	 * Borrows an idle instance from the pool, if any is available.
+	 * 
+	 * @return
+	 *   an idle instance, or {@code null} if the pool is empty.
+	 */
+	public Object acquire() {
+		int start = getStartSlot();
+		for(int i = 0; i < slots.length(); ++i) {
+			int slot = (start + i) % slots.length();
+			if(slots.get(slot) != null) {
+				Object object = slots.getAndSet(slot, null);
+				if(object != null) {
+					return object;
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Gives an instance back to the pool.
+	 * 
+	 * @param object
+	 *   the instance to be stored for later reuse.
+	 * @return
+	 *   whether the instance was stored in the pool; if {@code false} the pool 
+	 *   was full and the instance has been discarded.
+	 */
+	public boolean release(Object object) {
+		if(object != null) {
+			int start = getStartSlot();
+			for(int i = 0; i < slots.length(); ++i) {
+				int slot = (start + i) % slots.length();
+				if(slots.get(slot) == null && slots.compareAndSet(slot, null, object)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the number of idle instances currently in the pool; the value is
+	 * only an estimate, since the pool may be concurrently modified.
+	 * 
+	 * @return
+	 *   the number of idle instances.
+	 */
+	public int getIdleCount() {
+		int count = 0;
+		for(int i = 0; i < slots.length(); ++i) {
+			if(slots.get(i) != null) {
+				++count;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Picks the slot from which the scan starts, depending on the current thread,
+	 * so that concurrent threads tend not to contend on the same slots.
+	 * 
+	 * @return
+	 *   the index of the first slot to probe.
+	 */
+	private int getStartSlot() {
+		return (int)(Thread.currentThread().getId() % slots.length());
+	}
+}
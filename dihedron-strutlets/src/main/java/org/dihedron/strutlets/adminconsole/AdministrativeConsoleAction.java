@@ -3,8 +3,8 @@
  */ 
 package org.dihedron.strutlets.adminconsole;
 
-
-
+import java.util.Collections;
+import java.util.List;
 
 import org.dihedron.core.properties.Properties;
 import org.dihedron.strutlets.ActionContext;
@@ -15,7 +15,11 @@ import org.dihedron.strutlets.annotations.Out;
 import org.dihedron.strutlets.annotations.Result;
 import org.dihedron.strutlets.annotations.Scope;
 import org.dihedron.strutlets.aop.$;
+import org.dihedron.strutlets.diagnostics.SlowRequest;
+import org.dihedron.strutlets.renderers.impl.JsonRenderer;
 import org.dihedron.strutlets.targets.registry.TargetRegistry;
+import org.dihedron.strutlets.tracing.RingBufferTraceSink;
+import org.dihedron.strutlets.tracing.Trace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +33,11 @@ public class AdministrativeConsoleAction {
 	 * The logger.
 	 */
 	private static final Logger logger = LoggerFactory.getLogger(AdministrativeConsoleAction.class);
+	
+	/**
+	 * The name under which the runtime statistics are published.
+	 */
+	public static final String STATISTICS = "org.dihedron.strutlets:statistics";
 
 	/**
 	 * Constructor.
@@ -41,7 +50,10 @@ public class AdministrativeConsoleAction {
 	@SuppressWarnings("deprecation")
 	public String render(
 		@Out(value="org.dihedron.strutlets:configuration", to = Scope.REQUEST) $<Properties> configuration,
-		@Out(value="org.dihedron.strutlets:registry", to = Scope.REQUEST) $<TargetRegistry> registry
+		@Out(value="org.dihedron.strutlets:registry", to = Scope.REQUEST) $<TargetRegistry> registry,
+		@Out(value=STATISTICS, to = Scope.REQUEST) $<RuntimeStatistics> statistics,
+		@Out(value="org.dihedron.strutlets:traces", to = Scope.REQUEST) $<List<Trace>> traces,
+		@Out(value="org.dihedron.strutlets:slow-requests", to = Scope.REQUEST) $<List<SlowRequest>> slow
 	) {
 		ActionController controller = ActionContext.getActionController();
 		
@@ -53,8 +65,42 @@ public class AdministrativeConsoleAction {
 		registry.set(controller.getTargetRegistry());
 		logger.trace("... done!");
 		
+		logger.trace("storing the current runtime statistics into REQUEST scope...");
+		statistics.set(new RuntimeStatistics(controller));
+		logger.trace("... done!");
+		
+		logger.trace("storing the most recent request traces into REQUEST scope...");
+		RingBufferTraceSink sink = controller.getTracer() != null ? controller.getTracer().getSink(RingBufferTraceSink.class) : null;
+		traces.set(sink != null ? sink.getTraces() : Collections.<Trace>emptyList());
+		logger.trace("... done!");
+		
+		logger.trace("storing the most recent slow requests into REQUEST scope...");
+		slow.set(controller.getSlowRequestDetector() != null ? controller.getSlowRequestDetector().getSlowRequests() : Collections.<SlowRequest>emptyList());
+		logger.trace("... done!");
+		
 		return Action.SUCCESS;
 	}
 	
-	
+	/**
+	 * Publishes a snapshot of the current runtime statistics as a JSON document,
+	 * so they can be periodically scraped by monitoring tools.
+	 * 
+	 * @param statistics
+	 *   the runtime statistics.
+	 * @return
+	 *   always {@code Action.SUCCESS}.
+	 */
+	@Invocable(
+		idempotent = true,
+		results = @Result(value = Action.SUCCESS, renderer = JsonRenderer.ID, data = STATISTICS)
+	)
+	@SuppressWarnings("deprecation")
+	public String statistics(
+		@Out(value=STATISTICS, to = Scope.REQUEST) $<RuntimeStatistics> statistics
+	) {
+		logger.trace("storing the current runtime statistics into REQUEST scope...");
+		statistics.set(new RuntimeStatistics(ActionContext.getActionController()));
+		logger.trace("... done!");
+		return Action.SUCCESS;
+	}
 }
@@ -0,0 +1,510 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.adminconsole;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.dihedron.strutlets.ActionController;
+import org.dihedron.strutlets.cache.RenderCache;
+import org.dihedron.strutlets.cache.ResourceCache;
+import org.dihedron.strutlets.metrics.Histogram;
+import org.dihedron.strutlets.metrics.MetricsRegistry;
+import org.dihedron.strutlets.metrics.TargetMetrics;
+
+/**
+ * A point-in-time snapshot of the runtime statistics of a portlet: per-target
+ * throughput, latencies, error rates and rendering times, the time spent in
+ * each interceptor, upload volumes, cache hit ratios and JVM memory and thread
+ * figures. The snapshot only exposes plain values through its getters, so it
+ * can be displayed in the administrative console and serialised to JSON as is;
+ * all times are expressed in milliseconds.
+ *
+ * @author Andrea Funto'
+ */
+public class RuntimeStatistics {
+
+	/**
+	 * The number of nanoseconds in a millisecond.
+	 */
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	/**
+	 * The statistics of a target in a given phase.
+	 */
+	public static class TargetStatistics {
+
+		private final String target;
+
+		private final String phase;
+
+		private final long invocations;
+
+		private final long errors;
+
+		private final double errorRate;
+
+		private final double throughput;
+
+		private final double meanLatency;
+
+		private final double latency50thPercentile;
+
+		private final double latency95thPercentile;
+
+		private final double latency99thPercentile;
+
+		private final double maxLatency;
+
+		private final long renderings;
+
+		private final double meanRenderingTime;
+
+		private final double renderingTime95thPercentile;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param metrics
+		 *   the metrics of the target.
+		 */
+		TargetStatistics(TargetMetrics metrics) {
+			this.target = metrics.getTarget();
+			this.phase = metrics.getPhase();
+			this.invocations = metrics.getInvocations();
+			this.errors = metrics.getErrors();
+			this.errorRate = metrics.getErrorRate();
+			this.throughput = metrics.getThroughput();
+			this.meanLatency = metrics.getMeanLatency();
+			this.latency50thPercentile = metrics.getLatency50thPercentile();
+			this.latency95thPercentile = metrics.getLatency95thPercentile();
+			this.latency99thPercentile = metrics.getLatency99thPercentile();
+			this.maxLatency = metrics.getMaxLatency();
+			this.renderings = metrics.getRenderings();
+			this.meanRenderingTime = metrics.getMeanRenderingTime();
+			this.renderingTime95thPercentile = metrics.getRenderingTime95thPercentile();
+		}
+
+		public String getTarget() {
+			return target;
+		}
+
+		public String getPhase() {
+			return phase;
+		}
+
+		public long getInvocations() {
+			return invocations;
+		}
+
+		public long getErrors() {
+			return errors;
+		}
+
+		public double getErrorRate() {
+			return errorRate;
+		}
+
+		public double getThroughput() {
+			return throughput;
+		}
+
+		public double getMeanLatency() {
+			return meanLatency;
+		}
+
+		public double getLatency50thPercentile() {
+			return latency50thPercentile;
+		}
+
+		public double getLatency95thPercentile() {
+			return latency95thPercentile;
+		}
+
+		public double getLatency99thPercentile() {
+			return latency99thPercentile;
+		}
+
+		public double getMaxLatency() {
+			return maxLatency;
+		}
+
+		public long getRenderings() {
+			return renderings;
+		}
+
+		public double getMeanRenderingTime() {
+			return meanRenderingTime;
+		}
+
+		public double getRenderingTime95thPercentile() {
+			return renderingTime95thPercentile;
+		}
+	}
+
+	/**
+	 * The statistics of the time spent in an interceptor alone, excluding the
+	 * nested interceptors and the action.
+	 */
+	public static class InterceptorStatistics {
+
+		private final String interceptor;
+
+		private final long invocations;
+
+		private final double meanTime;
+
+		private final double time95thPercentile;
+
+		private final double totalTime;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param interceptor
+		 *   the interceptor's namespaced identifier.
+		 * @param histogram
+		 *   the histogram of the time spent in the interceptor, in nanoseconds.
+		 */
+		InterceptorStatistics(String interceptor, Histogram histogram) {
+			this.interceptor = interceptor;
+			this.invocations = histogram.getCount();
+			this.meanTime = histogram.getMean() / NANOS_PER_MILLI;
+			this.time95thPercentile = histogram.getValueAtPercentile(95.0) / NANOS_PER_MILLI;
+			this.totalTime = meanTime * invocations;
+		}
+
+		public String getInterceptor() {
+			return interceptor;
+		}
+
+		public long getInvocations() {
+			return invocations;
+		}
+
+		public double getMeanTime() {
+			return meanTime;
+		}
+
+		public double getTime95thPercentile() {
+			return time95thPercentile;
+		}
+
+		public double getTotalTime() {
+			return totalTime;
+		}
+	}
+
+	/**
+	 * The statistics of a cache.
+	 */
+	public static class CacheStatistics {
+
+		private final String cache;
+
+		private final int entries;
+
+		private final long hits;
+
+		private final long misses;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param cache
+		 *   the name of the cache.
+		 * @param entries
+		 *   the number of entries in the cache.
+		 * @param hits
+		 *   the number of cache hits.
+		 * @param misses
+		 *   the number of cache misses.
+		 */
+		CacheStatistics(String cache, int entries, long hits, long misses) {
+			this.cache = cache;
+			this.entries = entries;
+			this.hits = hits;
+			this.misses = misses;
+		}
+
+		public String getCache() {
+			return cache;
+		}
+
+		public int getEntries() {
+			return entries;
+		}
+
+		public long getHits() {
+			return hits;
+		}
+
+		public long getMisses() {
+			return misses;
+		}
+
+		public double getHitRatio() {
+			return hits + misses > 0 ? (double)hits / (hits + misses) : 0.0;
+		}
+	}
+
+	/**
+	 * The time at which the snapshot was taken.
+	 */
+	private final long timestamp = System.currentTimeMillis();
+
+	/**
+	 * The name of the portlet.
+	 */
+	private final String portlet;
+
+	/**
+	 * The per-target, per-phase statistics.
+	 */
+	private final List<TargetStatistics> targets = new ArrayList<TargetStatistics>();
+
+	/**
+	 * The per-interceptor statistics.
+	 */
+	private final List<InterceptorStatistics> interceptors = new ArrayList<InterceptorStatistics>();
+
+	/**
+	 * The cache statistics.
+	 */
+	private final List<CacheStatistics> caches = new ArrayList<CacheStatistics>();
+
+	/**
+	 * The number of multipart/form-data requests.
+	 */
+	private long uploads;
+
+	/**
+	 * The number of uploaded files.
+	 */
+	private long uploadedFiles;
+
+	/**
+	 * The total size of uploaded files, in bytes.
+	 */
+	private long uploadedBytes;
+
+	/**
+	 * The named counters maintained by interceptors and other components.
+	 */
+	private Map<String, Long> counters = Collections.emptyMap();
+
+	/**
+	 * The JVM uptime.
+	 */
+	private final long uptime;
+
+	/**
+	 * The number of available processors.
+	 */
+	private final int availableProcessors;
+
+	/**
+	 * The system load average for the last minute, or a negative value if not
+	 * available.
+	 */
+	private final double systemLoadAverage;
+
+	/**
+	 * The used heap memory, in bytes.
+	 */
+	private final long heapUsed;
+
+	/**
+	 * The committed heap memory, in bytes.
+	 */
+	private final long heapCommitted;
+
+	/**
+	 * The maximum heap memory, in bytes, or a negative value if undefined.
+	 */
+	private final long heapMax;
+
+	/**
+	 * The used non-heap memory, in bytes.
+	 */
+	private final long nonHeapUsed;
+
+	/**
+	 * The number of live threads.
+	 */
+	private final int threads;
+
+	/**
+	 * The number of live daemon threads.
+	 */
+	private final int daemonThreads;
+
+	/**
+	 * The peak number of live threads.
+	 */
+	private final int peakThreads;
+
+	/**
+	 * The total number of garbage collections.
+	 */
+	private long garbageCollections;
+
+	/**
+	 * The total time spent in garbage collections.
+	 */
+	private long garbageCollectionTime;
+
+	/**
+	 * Constructor; takes a snapshot of the current statistics.
+	 *
+	 * @param controller
+	 *   the action controller of the portlet.
+	 */
+	public RuntimeStatistics(ActionController controller) {
+		this.portlet = controller.getPortletName();
+
+		MetricsRegistry metrics = controller.getMetrics();
+		if(metrics != null) {
+			for(TargetMetrics metric : metrics.getAllMetrics()) {
+				targets.add(new TargetStatistics(metric));
+			}
+			Collections.sort(targets, new Comparator<TargetStatistics>() {
+				@Override
+				public int compare(TargetStatistics first, TargetStatistics second) {
+					int result = first.getTarget().compareTo(second.getTarget());
+					return result != 0 ? result : first.getPhase().compareTo(second.getPhase());
+				}
+			});
+			for(Entry<String, Histogram> entry : metrics.getInterceptorMetrics().entrySet()) {
+				interceptors.add(new InterceptorStatistics(entry.getKey(), entry.getValue()));
+			}
+			uploads = metrics.getUploads();
+			uploadedFiles = metrics.getUploadedFiles();
+			uploadedBytes = metrics.getUploadedBytes();
+			counters = metrics.getCounters();
+		}
+
+		RenderCache renderCache = controller.getRenderCache();
+		if(renderCache != null) {
+			caches.add(new CacheStatistics("render", renderCache.size(), renderCache.getHits(), renderCache.getMisses()));
+		}
+		ResourceCache resourceCache = controller.getResourceCache();
+		if(resourceCache != null) {
+			caches.add(new CacheStatistics("resource", resourceCache.size(), resourceCache.getHits(), resourceCache.getMisses()));
+		}
+
+		uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+		availableProcessors = ManagementFactory.getOperatingSystemMXBean().getAvailableProcessors();
+		systemLoadAverage = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		heapUsed = memory.getHeapMemoryUsage().getUsed();
+		heapCommitted = memory.getHeapMemoryUsage().getCommitted();
+		heapMax = memory.getHeapMemoryUsage().getMax();
+		nonHeapUsed = memory.getNonHeapMemoryUsage().getUsed();
+		ThreadMXBean thread = ManagementFactory.getThreadMXBean();
+		threads = thread.getThreadCount();
+		daemonThreads = thread.getDaemonThreadCount();
+		peakThreads = thread.getPeakThreadCount();
+		for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if(collector.getCollectionCount() > 0) {
+				garbageCollections += collector.getCollectionCount();
+			}
+			if(collector.getCollectionTime() > 0) {
+				garbageCollectionTime += collector.getCollectionTime();
+			}
+		}
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public String getPortlet() {
+		return portlet;
+	}
+
+	public List<TargetStatistics> getTargets() {
+		return targets;
+	}
+
+	public List<InterceptorStatistics> getInterceptors() {
+		return interceptors;
+	}
+
+	public List<CacheStatistics> getCaches() {
+		return caches;
+	}
+
+	public long getUploads() {
+		return uploads;
+	}
+
+	public long getUploadedFiles() {
+		return uploadedFiles;
+	}
+
+	public long getUploadedBytes() {
+		return uploadedBytes;
+	}
+
+	public Map<String, Long> getCounters() {
+		return counters;
+	}
+
+	public long getUptime() {
+		return uptime;
+	}
+
+	public int getAvailableProcessors() {
+		return availableProcessors;
+	}
+
+	public double getSystemLoadAverage() {
+		return systemLoadAverage;
+	}
+
+	public long getHeapUsed() {
+		return heapUsed;
+	}
+
+	public long getHeapCommitted() {
+		return heapCommitted;
+	}
+
+	public long getHeapMax() {
+		return heapMax;
+	}
+
+	public long getNonHeapUsed() {
+		return nonHeapUsed;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public int getDaemonThreads() {
+		return daemonThreads;
+	}
+
+	public int getPeakThreads() {
+		return peakThreads;
+	}
+
+	public long getGarbageCollections() {
+		return garbageCollections;
+	}
+
+	public long getGarbageCollectionTime() {
+		return garbageCollectionTime;
+	}
+}
@@ -41,6 +41,11 @@ public @interface Action {
 	 */
 	public static final String ERROR = "error";
 	
+	/**
+	 * The default maximum number of idle instances kept by pooled actions.
+	 */
+	public static final int DEFAULT_POOL_SIZE = 16;
+	
 	/**
 	 * An alternativa name for the action, so that the user need not know the 
 	 * name of the concrete class implementing the business logic.
@@ -59,4 +64,24 @@ public @interface Action {
 	 *   the id if the interceptors' stack.
 	 */
 	String interceptors() default DEFAULT_INTERCEPTORS_STACK;
+	
+	/**
+	 * The lifecycle of the action instances, i.e. whether the same instance is
+	 * shared among all requests, created anew at each request, borrowed from a
+	 * pool or bound to the user's session.
+	 * 
+	 * @return
+	 *   the lifecycle of the action instances; by default the framework decides
+	 *   by inspecting the action's instance fields.
+	 */
+	Lifecycle lifecycle() default Lifecycle.AUTOMATIC;
+	
+	/**
+	 * The maximum number of idle instances kept in the pool, when the action's
+	 * lifecycle is {@link Lifecycle#POOLED}; ignored otherwise.
+	 * 
+	 * @return
+	 *   the maximum number of idle instances in the pool.
+	 */
+	int poolSize() default DEFAULT_POOL_SIZE;
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation used to opt an {@code @Invocable} method into output caching. 
+ * When an idempotent target is invoked in the render phase, the framework stores
+ * the rendered output, along with the portlet title and the properties (headers 
+ * and markup head elements) set on the response, and replays them on subsequent
+ * renders with the same inputs, without running the target or its JSP; output 
+ * that sets cookies is never stored. Whenever the portlet processes an action 
+ * or an event, the entries of the requesting user and those shared by all users
+ * are invalidated. 
+ * When the target is invoked in the resource phase, the framework computes an 
+ * ETag out of the rendered bytes (or out of the version supplied by the action
+ * through {@code ActionContext.setResourceVersion()}), answers conditional 
+ * requests with a "304 Not Modified", sets the caching headers and optionally 
+ * keeps the rendered bodies, unless they set cookies or vary on request headers,
+ * in a bounded in-memory LRU cache.
+ * The cache key is made up of the target, the request parameters, the locale, 
+ * the portlet mode and window state, the portlet window and (optionally) the 
+ * user or, for anonymous users, the portlet session, plus the values of the 
+ * selected {@link #keys()}.
+ * 
+ * @author Andrea Funto'
+ */
+@Retention(RetentionPolicy.RUNTIME) 
+@Target(ElementType.METHOD)
+@Inherited
+@Documented
+public @interface Cached {
+	
+	/**
+	 * The default time to live of cached output, in seconds.
+	 */
+	public static final int DEFAULT_TTL = 60;
+	
+	/**
+	 * The time to live of the cached output, in seconds; for resource targets,
+	 * set it to 0 to have the rendered bodies never stored on the server (ETags 
+	 * and conditional requests are supported anyway).
+	 * 
+	 * @return
+	 *   the number of seconds after which the cached output expires.
+	 */
+	int ttl() default DEFAULT_TTL;
+	
+	/**
+	 * For resource targets, the number of seconds the client may reuse the 
+	 * response without revalidating it; by default (0) the client must always
+	 * revalidate, which is cheap thanks to ETags.
+	 * 
+	 * @return
+	 *   the value of the "max-age" caching directive sent to the client.
+	 */
+	int maxAge() default 0;
+	
+	/**
+	 * The names of additional inputs, looked up in the request, portlet and 
+	 * application scopes, whose values contribute to the cache key; request 
+	 * parameters are always part of the key and need not be listed here.
+	 * 
+	 * @return
+	 *   the names of the additional inputs making up the cache key.
+	 */
+	String[] keys() default {};
+	
+	/**
+	 * Whether the output is user-specific, in which case the remote user (or the
+	 * portlet session, for anonymous users) is part of the cache key; set it to 
+	 * {@code false} only for output that is the same for all users. Since 
+	 * cached output is replayed without running the interceptors, 
+	 * {@code @Secured} targets cannot share their output among users and are
+	 * rejected at startup if this is {@code false}.
+	 * 
+	 * @return
+	 *   whether the cached output is specific to each user.
+	 */
+	boolean perUser() default true;
+}
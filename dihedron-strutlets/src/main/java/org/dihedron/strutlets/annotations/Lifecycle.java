@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.annotations;
+
+/**
+ * The lifecycle of an action instance, that is how the framework retrieves the 
+ * object on which the business method is invoked at each request.
+ * 
+ * @author Andrea Funto'
+ */
+public enum Lifecycle {
+	
+	/**
+	 * The framework inspects the action class: if it has no instance fields 
+	 * anywhere in its hierarchy a single instance is shared among all requests,
+	 * otherwise a brand new instance is created at each invocation; this is the
+	 * legacy behaviour and the default.
+	 */
+	AUTOMATIC,
+	
+	/**
+	 * A single instance is created at deployment time and shared among all
+	 * requests, regardless of its instance fields; the action must be thread 
+	 * safe, e.g. its fields should only be read-only services and constants.
+	 */
+	SINGLETON,
+	
+	/**
+	 * A brand new instance is created at each invocation.
+	 */
+	PER_REQUEST,
+	
+	/**
+	 * Instances are borrowed from a bounded pool and given back once the request
+	 * has been serviced; if the pool is empty a new instance is created, if it 
+	 * is full when the instance is given back, the instance is discarded. Actions
+	 * implementing {@link org.dihedron.strutlets.actions.Resettable} are reset 
+	 * before being returned to the pool; pooled actions that do not implement it
+	 * are reused with whatever state the previous request left in their fields,
+	 * and a warning is logged at deployment.
+	 */
+	POOLED,
+	
+	/**
+	 * A single instance is created for each portlet session and stored in the 
+	 * session (portlet scope); the same instance may be used by concurrent 
+	 * requests coming from the same user session. The action class must be 
+	 * serializable, so that sessions can be replicated and passivated.
+	 */
+	PER_SESSION
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation used to restrict access to an {@code @Invocable} method, or to 
+ * all the {@code @Invocable} methods of an action (annotations on methods take
+ * precedence over the one on the class). The restrictions are enforced by the
+ * {@code Security} interceptor, which must be part of the target's interceptor
+ * stack: a request is only forwarded to the target if the user is authenticated
+ * (when required) and has at least one of the listed roles (if any).
+ * 
+ * @author Andrea Funto'
+ */
+@Retention(RetentionPolicy.RUNTIME) 
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Inherited
+@Documented
+public @interface Secured {
+	
+	/**
+	 * The roles granting access to the target; the user must have at least one
+	 * of them. If empty, no role is required.
+	 * 
+	 * @return
+	 *   the roles granting access to the target.
+	 */
+	String[] roles() default {};
+	
+	/**
+	 * Whether only authenticated users may access the target; this is implied
+	 * if any role is required.
+	 * 
+	 * @return
+	 *   whether the user must be authenticated.
+	 */
+	boolean authenticated() default true;
+}
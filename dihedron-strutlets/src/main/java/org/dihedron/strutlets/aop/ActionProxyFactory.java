@@ -29,6 +29,7 @@ import org.dihedron.strutlets.annotations.Action;
 import org.dihedron.strutlets.annotations.In;
 import org.dihedron.strutlets.annotations.InOut;
 import org.dihedron.strutlets.annotations.Invocable;
+import org.dihedron.strutlets.annotations.Lifecycle;
 import org.dihedron.strutlets.annotations.Model;
 import org.dihedron.strutlets.annotations.Out;
 import org.dihedron.strutlets.annotations.Scope;
@@ -244,7 +245,7 @@ public class ActionProxyFactory {
 					generator.addField(validator);
 				}
 				
-				if(hasInstanceFields(action)) {
+				if(!isSingleton(action)) {
 					logger.trace("factory method will renew action instances at each invocation");
 				} else {
 					logger.trace("factory method will reuse a single, cached action instance");
@@ -332,6 +333,36 @@ public class ActionProxyFactory {
 		return found;
 	}
 	
+	/**
+	 * Checks whether the action can be serviced by a single, shared instance: 
+	 * this is the case when the developer explicitly declared the action as a
+	 * {@code SINGLETON}, or when the lifecycle is left to the framework and the
+	 * class has no instance fields; pooled, per-session and per-request actions 
+	 * always get a brand new instance out of the factory method, and it is up
+	 * to the {@code ActionFactory} to recycle them.
+	 * 
+	 * @param action
+	 *   the action class.
+	 * @return
+	 *   whether the factory method should return the cached singleton.
+	 */
+	static boolean isSingleton(Class<?> action) {
+		Lifecycle lifecycle = Lifecycle.AUTOMATIC;
+		Action annotation = action.getAnnotation(Action.class);
+		if(annotation != null) {
+			lifecycle = annotation.lifecycle();
+		}
+		logger.trace("lifecycle of class '{}' is {}", action.getSimpleName(), lifecycle);
+		switch(lifecycle) {
+		case SINGLETON:
+			return true;
+		case AUTOMATIC:
+			return !hasInstanceFields(action);
+		default:
+			return false;
+		}
+	}
+	
 	/**
 	 * Creates the static factory method that retrieves the instance of action to
 	 * be used in the actual invocation. The way of retrieving the action instance
@@ -391,11 +422,13 @@ public class ActionProxyFactory {
 				code.append("\t}\n");
 			}
 			
-			// now analyse the action class and all its parent classes, checking 
-			// if it has any non-static field, and then decide whether we can reuse
-			// the single cached instance or we need to create a brand new instance 
-			// at each invocation
-			if(hasInstanceFields(action)) {
+			// now check the declared lifecycle or, if left to the framework, analyse 
+			// the action class and all its parent classes, checking if it has any 
+			// non-static field, and then decide whether we can reuse the single 
+			// cached instance or we need to create a brand new instance at each 
+			// invocation (pooled and per-session instances are recycled by the 
+			// ActionFactory)
+			if(!isSingleton(action)) {
 				code.append("\tlogger.trace(\"instantiating brand new non-cacheable object\");\n");
 				code.append("\t").append(action.getCanonicalName()).append(" action = new ").append(action.getCanonicalName()).append("();\n");
 			} else {
@@ -455,6 +488,7 @@ public class ActionProxyFactory {
 			code.append("\tlogger.trace(\"entering stub method...\");\n");			
 			code.append("\tjava.lang.StringBuilder trace = new java.lang.StringBuilder();\n");
 			code.append("\tjava.lang.Object value = null;\n");			
+			code.append("\tint span = -1;\n");
 			if(doValidation) {
 				code.append("\tjava.lang.reflect.Method methodToValidate = null;\n");
 				code.append("\tjava.util.List validationValues = null;\n");	
@@ -519,9 +553,13 @@ public class ActionProxyFactory {
 				args.append(args.length() > 0 ? ", " : "").append(arg);
 			}
 						
+			// trace spans are closed by the enclosing span if an exception is 
+			// thrown, so there is no need for try/finally blocks here
+			code.append("\tspan = org.dihedron.strutlets.tracing.Tracing.begin(\"bind\");\n");
 			code.append(preCode);
 						
-			code.append("\tif(trace.length() > 0) {\n\t\ttrace.setLength(trace.length() - 2);\n\t\tlogger.debug(trace.toString());\n\t}\n\n");
+			code.append("\tif(trace.length() > 0) {\n\t\ttrace.setLength(trace.length() - 2);\n\t\tlogger.debug(trace.toString());\n\t}\n");
+			code.append("\torg.dihedron.strutlets.tracing.Tracing.end(span);\n\n");
 			
 			// if validation should occur, and there are both a valid JSR-349 validator and
 			// a valid set of information (method and arguments), then the validator will
@@ -530,6 +568,7 @@ public class ActionProxyFactory {
 			if(doValidation) {
 				code.append("\t//\n\t// JSR-349 parameters validation\n\t//\n");
 				code.append("\tif(methodToValidate != null) {\n");
+				code.append("\t\tspan = org.dihedron.strutlets.tracing.Tracing.begin(\"validate\");\n");
 				code.append("\t\tlogger.trace(\"validating invocation parameters\");\n");
 				code.append("\t\tObject[] array = validationValues.toArray(new java.lang.Object[validationValues.size()]);\n");
 				code.append("\t\tjava.util.Set violations = methodValidator.validateParameters((").append(action.getCanonicalName()).append(")$1, methodToValidate, array, new java.lang.Class[] { javax.validation.groups.Default.class });\n");
@@ -548,6 +587,7 @@ public class ActionProxyFactory {
 				code.append("\t\t\t\treturn result;\n");
 				code.append("\t\t\t}\n");
 				code.append("\t\t}\n");
+				code.append("\t\torg.dihedron.strutlets.tracing.Tracing.end(span);\n");
 				
 				code.append("\t} else if(methodValidator != null) {\n");
 				code.append("\t\tlogger.warn(\"method is null\");\n");
@@ -559,6 +599,7 @@ public class ActionProxyFactory {
 			
 			code.append("\t//\n\t// invoking proxied method\n\t//\n");
 			code.append("\tlong millis = java.lang.System.currentTimeMillis();\n");
+			code.append("\tspan = org.dihedron.strutlets.tracing.Tracing.begin(\"execute\");\n");
 			code
 				.append("\tjava.lang.String result = ((")
 				.append(action.getCanonicalName())
@@ -567,6 +608,7 @@ public class ActionProxyFactory {
 				.append("(")
 				.append(args)
 				.append(");\n");
+			code.append("\torg.dihedron.strutlets.tracing.Tracing.end(span);\n");
 		
 			code.append("\n");
 			
@@ -574,6 +616,7 @@ public class ActionProxyFactory {
 				// now apply JSR-349 validation to result			
 				code.append("\t//\n\t// JSR-349 result validation\n\t//\n");
 				code.append("\tif(methodToValidate != null) {\n");
+				code.append("\t\tspan = org.dihedron.strutlets.tracing.Tracing.begin(\"validate-result\");\n");
 				code.append("\t\tlogger.trace(\"validating invocation results\");\n");
 				code.append("\t\tjava.util.Set violations = methodValidator.validateReturnValue((").append(action.getCanonicalName()).append(")$1, methodToValidate, result, new java.lang.Class[] { javax.validation.groups.Default.class });\n");
 				
@@ -591,6 +634,7 @@ public class ActionProxyFactory {
 				code.append("\t\t\t\tresult = forcedResult;\n");
 				code.append("\t\t\t}\n");
 				code.append("\t\t}\n");
+				code.append("\t\torg.dihedron.strutlets.tracing.Tracing.end(span);\n");
 				code.append("\t}\n");
 				
 				code.append("\n");
@@ -599,7 +643,9 @@ public class ActionProxyFactory {
 			// code executed after the action has been fired, e.g. storing [in]out parameters into scopes
 			if(postCode.length() > 0) {
 				code.append("\t//\n\t// post action execution: store @Out parameters into scopes\n\t//\n\n");
+				code.append("\tspan = org.dihedron.strutlets.tracing.Tracing.begin(\"store\");\n");
 				code.append(postCode);
+				code.append("\torg.dihedron.strutlets.tracing.Tracing.end(span);\n");
 			}
 						
 			code.append("\tlogger.debug(\"result is '{}' (execution took {} ms)\", result, new java.lang.Long((java.lang.System.currentTimeMillis() - millis)).toString());\n");
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * The buffer shared by the capturing response wrappers: it collects everything
+ * written either through the output stream or through the lazily created writer,
+ * so that it can be cached and later replayed.
+ * 
+ * @author Andrea Funto'
+ */
+class CaptureBuffer {
+	
+	/**
+	 * The default character encoding, if none is set on the wrapped response.
+	 */
+	private static final String DEFAULT_CHARACTER_ENCODING = "UTF-8";
+	
+	/**
+	 * The buffer collecting the output.
+	 */
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	
+	/**
+	 * The lazily created writer on the buffer.
+	 */
+	private PrintWriter writer = null;
+	
+	/**
+	 * Returns the writer on the buffer, creating it on first access.
+	 * 
+	 * @param encoding
+	 *   the character encoding of the response, or {@code null} for the default.
+	 * @return
+	 *   the writer on the buffer.
+	 * @throws IOException
+	 */
+	PrintWriter getWriter(String encoding) throws IOException {
+		if(writer == null) {
+			writer = new PrintWriter(new OutputStreamWriter(buffer, encoding != null ? encoding : DEFAULT_CHARACTER_ENCODING));
+		}
+		return writer;
+	}
+	
+	/**
+	 * Returns the output stream on the buffer.
+	 * 
+	 * @return
+	 *   the output stream on the buffer.
+	 */
+	OutputStream getOutputStream() {
+		return buffer;
+	}
+	
+	/**
+	 * Flushes any characters pending in the writer into the buffer.
+	 */
+	void flush() {
+		if(writer != null) {
+			writer.flush();
+		}
+	}
+	
+	/**
+	 * Discards the output captured so far.
+	 */
+	void reset() {
+		flush();
+		buffer.reset();
+	}
+	
+	/**
+	 * Returns the output captured so far.
+	 * 
+	 * @return
+	 *   the captured output.
+	 */
+	byte[] getContent() {
+		flush();
+		return buffer.toByteArray();
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+
+import javax.portlet.RenderResponse;
+import javax.portlet.filter.RenderResponseWrapper;
+import javax.servlet.http.Cookie;
+
+import org.w3c.dom.Element;
+
+/**
+ * A render response wrapper that captures everything written to it, either 
+ * through the writer or through the output stream, so that it can be cached and 
+ * later replayed; the captured output must be explicitly copied onto the wrapped 
+ * response by calling {@link #commit()}. The portlet title and the properties
+ * (headers, cookies and markup head elements) are passed through to the wrapped 
+ * response and recorded, so that they can be replayed along with the output.
+ * 
+ * @author Andrea Funto'
+ */
+public class CapturingRenderResponse extends RenderResponseWrapper {
+	
+	/**
+	 * The buffer collecting the output.
+	 */
+	private final CaptureBuffer buffer = new CaptureBuffer();
+	
+	/**
+	 * The portlet title, if set.
+	 */
+	private String title = null;
+	
+	/**
+	 * The properties set on the response.
+	 */
+	private final ResponseProperties properties = new ResponseProperties();
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param response
+	 *   the render response being wrapped.
+	 */
+	public CapturingRenderResponse(RenderResponse response) {
+		super(response);
+	}
+	
+	/**
+	 * @see javax.portlet.filter.RenderResponseWrapper#getWriter()
+	 */
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		return buffer.getWriter(getCharacterEncoding());
+	}
+	
+	/**
+	 * @see javax.portlet.filter.RenderResponseWrapper#getPortletOutputStream()
+	 */
+	@Override
+	public OutputStream getPortletOutputStream() throws IOException {
+		return buffer.getOutputStream();
+	}
+	
+	/**
+	 * @see javax.portlet.filter.RenderResponseWrapper#setTitle(java.lang.String)
+	 */
+	@Override
+	public void setTitle(String title) {
+		super.setTitle(title);
+		this.title = title;
+	}
+	
+	/**
+	 * @see javax.portlet.filter.PortletResponseWrapper#setProperty(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void setProperty(String key, String value) {
+		super.setProperty(key, value);
+		properties.set(key, value);
+	}
+	
+	/**
+	 * @see javax.portlet.filter.PortletResponseWrapper#addProperty(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void addProperty(String key, String value) {
+		super.addProperty(key, value);
+		properties.add(key, value);
+	}
+	
+	/**
+	 * @see javax.portlet.filter.PortletResponseWrapper#addProperty(java.lang.String, org.w3c.dom.Element)
+	 */
+	@Override
+	public void addProperty(String key, Element element) {
+		super.addProperty(key, element);
+		properties.add(key, element);
+	}
+	
+	/**
+	 * @see javax.portlet.filter.PortletResponseWrapper#addProperty(javax.servlet.http.Cookie)
+	 */
+	@Override
+	public void addProperty(Cookie cookie) {
+		super.addProperty(cookie);
+		properties.add(cookie);
+	}
+	
+	/**
+	 * @see javax.portlet.filter.RenderResponseWrapper#flushBuffer()
+	 */
+	@Override
+	public void flushBuffer() throws IOException {
+		buffer.flush();
+	}
+	
+	/**
+	 * @see javax.portlet.filter.RenderResponseWrapper#resetBuffer()
+	 */
+	@Override
+	public void resetBuffer() {
+		buffer.reset();
+	}
+	
+	/**
+	 * @see javax.portlet.filter.RenderResponseWrapper#reset()
+	 */
+	@Override
+	public void reset() {
+		super.reset();
+		resetBuffer();
+	}
+	
+	/**
+	 * Returns the output captured so far.
+	 * 
+	 * @return
+	 *   the captured output.
+	 */
+	public byte[] getContent() {
+		return buffer.getContent();
+	}
+	
+	/**
+	 * Returns the portlet title set while capturing.
+	 * 
+	 * @return
+	 *   the portlet title, or {@code null} if none was set.
+	 */
+	public String getTitle() {
+		return title;
+	}
+	
+	/**
+	 * Returns the properties set while capturing.
+	 * 
+	 * @return
+	 *   the recorded properties.
+	 */
+	public ResponseProperties getProperties() {
+		return properties;
+	}
+	
+	/**
+	 * Copies the captured output onto the wrapped response.
+	 * 
+	 * @return
+	 *   the captured output.
+	 * @throws IOException
+	 */
+	public byte[] commit() throws IOException {
+		byte[] content = getContent();
+		getResponse().getPortletOutputStream().write(content);
+		return content;
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+
+import javax.portlet.ResourceResponse;
+import javax.portlet.filter.ResourceResponseWrapper;
+import javax.servlet.http.Cookie;
+
+import org.w3c.dom.Element;
+
+/**
+ * A resource response wrapper that captures everything written to it, either
+ * through the writer or through the output stream, so that it can be cached and
+ * later replayed. The properties (headers and cookies, including the HTTP status
+ * code) and the content length are recorded and held back along with the output:
+ * they are only copied onto the wrapped response by calling {@link #commit()},
+ * so that none of them leaks onto a "304 Not Modified" answer.
+ * 
+ * @author Andrea Funto'
+ */
+public class CapturingResourceResponse extends ResourceResponseWrapper {
+	
+	/**
+	 * The buffer collecting the output.
+	 */
+	private final CaptureBuffer buffer = new CaptureBuffer();
+	
+	/**
+	 * The properties set on the response.
+	 */
+	private final ResponseProperties properties = new ResponseProperties();
+	
+	/**
+	 * Whether the content length was set.
+	 */
+	private boolean contentLengthSet = false;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param response
+	 *   the resource response being wrapped.
+	 */
+	public CapturingResourceResponse(ResourceResponse response) {
+		super(response);
+	}
+	
+	/**
+	 * @see javax.portlet.filter.ResourceResponseWrapper#getWriter()
+	 */
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		return buffer.getWriter(getCharacterEncoding());
+	}
+	
+	/**
+	 * @see javax.portlet.filter.ResourceResponseWrapper#getPortletOutputStream()
+	 */
+	@Override
+	public OutputStream getPortletOutputStream() throws IOException {
+		return buffer.getOutputStream();
+	}
+	
+	/**
+	 * Records that the content length was set; the actual length is set on the
+	 * wrapped response when the captured output is committed.
+	 * 
+	 * @see javax.portlet.filter.ResourceResponseWrapper#setContentLength(int)
+	 */
+	@Override
+	public void setContentLength(int length) {
+		contentLengthSet = true;
+	}
+	
+	/**
+	 * @see javax.portlet.filter.PortletResponseWrapper#setProperty(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void setProperty(String key, String value) {
+		properties.set(key, value);
+	}
+	
+	/**
+	 * @see javax.portlet.filter.PortletResponseWrapper#addProperty(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void addProperty(String key, String value) {
+		properties.add(key, value);
+	}
+	
+	/**
+	 * @see javax.portlet.filter.PortletResponseWrapper#addProperty(java.lang.String, org.w3c.dom.Element)
+	 */
+	@Override
+	public void addProperty(String key, Element element) {
+		properties.add(key, element);
+	}
+	
+	/**
+	 * @see javax.portlet.filter.PortletResponseWrapper#addProperty(javax.servlet.http.Cookie)
+	 */
+	@Override
+	public void addProperty(Cookie cookie) {
+		properties.add(cookie);
+	}
+	
+	/**
+	 * @see javax.portlet.filter.ResourceResponseWrapper#flushBuffer()
+	 */
+	@Override
+	public void flushBuffer() throws IOException {
+		buffer.flush();
+	}
+	
+	/**
+	 * @see javax.portlet.filter.ResourceResponseWrapper#resetBuffer()
+	 */
+	@Override
+	public void resetBuffer() {
+		buffer.reset();
+	}
+	
+	/**
+	 * @see javax.portlet.filter.ResourceResponseWrapper#reset()
+	 */
+	@Override
+	public void reset() {
+		super.reset();
+		resetBuffer();
+		properties.clear();
+		contentLengthSet = false;
+	}
+	
+	/**
+	 * Returns the output captured so far.
+	 * 
+	 * @return
+	 *   the captured output.
+	 */
+	public byte[] getContent() {
+		return buffer.getContent();
+	}
+	
+	/**
+	 * Returns the properties set while capturing.
+	 * 
+	 * @return
+	 *   the recorded properties.
+	 */
+	public ResponseProperties getProperties() {
+		return properties;
+	}
+	
+	/**
+	 * Returns whether the content length was set while capturing.
+	 * 
+	 * @return
+	 *   whether the content length was set.
+	 */
+	public boolean isContentLengthSet() {
+		return contentLengthSet;
+	}
+	
+	/**
+	 * Returns the HTTP status code set while capturing, if any.
+	 * 
+	 * @return
+	 *   the HTTP status code, or {@code null} if none was set.
+	 */
+	public String getStatus() {
+		return properties.getValue(ResourceResponse.HTTP_STATUS_CODE);
+	}
+	
+	/**
+	 * Copies the recorded properties, the content length and the captured output
+	 * onto the wrapped response.
+	 * 
+	 * @return
+	 *   the captured output.
+	 * @throws IOException
+	 */
+	public byte[] commit() throws IOException {
+		byte[] content = getContent();
+		ResourceResponse response = (ResourceResponse)getResponse();
+		properties.replay(response);
+		if(contentLengthSet) {
+			response.setContentLength(content.length);
+		}
+		response.getPortletOutputStream().write(content);
+		return content;
+	}
+}
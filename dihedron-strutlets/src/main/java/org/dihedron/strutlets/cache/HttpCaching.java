@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.cache;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import javax.portlet.PortletRequest;
+import javax.portlet.ResourceResponse;
+
+import org.dihedron.core.strings.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utility methods to support HTTP caching of resources: entity tag computation,
+ * conditional request evaluation and caching headers.
+ * 
+ * @author Andrea Funto'
+ */
+public final class HttpCaching {
+	
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(HttpCaching.class);
+
+	/**
+	 * The HTTP status code for "Not Modified".
+	 */
+	public static final String HTTP_NOT_MODIFIED = "304";
+	
+	/**
+	 * The format of HTTP dates (RFC 1123).
+	 */
+	private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+	
+	/**
+	 * The hexadecimal digits.
+	 */
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	
+	/**
+	 * Computes a strong entity tag out of the given bytes.
+	 * 
+	 * @param content
+	 *   the rendered content.
+	 * @return
+	 *   the quoted entity tag.
+	 */
+	public static String makeETag(byte[] content) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(content);
+			StringBuilder etag = new StringBuilder(2 + digest.length * 2).append('"');
+			for(byte b : digest) {
+				etag.append(HEX_DIGITS[(b >> 4) & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
+			}
+			return etag.append('"').toString();
+		} catch(NoSuchAlgorithmException e) {
+			// MD5 is guaranteed to be available on all Java platforms
+			logger.error("MD5 message digest not available", e);
+			return "\"" + Integer.toHexString(java.util.Arrays.hashCode(content)) + "\"";
+		}
+	}
+	
+	/**
+	 * Computes a strong entity tag out of the given version string.
+	 * 
+	 * @param version
+	 *   the resource version.
+	 * @return
+	 *   the quoted entity tag.
+	 */
+	public static String makeETag(String version) {
+		return makeETag(version.getBytes(Charset.forName("UTF-8")));
+	}
+	
+	/**
+	 * Checks whether the client already has an up-to-date copy of the resource,
+	 * by matching the "If-None-Match" header against the entity tag or, if absent,
+	 * the "If-Modified-Since" header against the last modification time.
+	 * 
+	 * @param request
+	 *   the portlet request.
+	 * @param etag
+	 *   the current entity tag of the resource.
+	 * @param lastModified
+	 *   the last modification time of the resource, in milliseconds since the 
+	 *   epoch, or a negative value if unknown.
+	 * @return
+	 *   whether the client's copy is still valid.
+	 */
+	public static boolean isNotModified(PortletRequest request, String etag, long lastModified) {
+		String header = request.getProperty("If-None-Match");
+		if(Strings.isValid(header)) {
+			for(String tag : header.split(",")) {
+				tag = tag.trim();
+				if(tag.startsWith("W/")) {
+					tag = tag.substring(2);
+				}
+				if(tag.equals("*") || tag.equals(etag)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		header = request.getProperty("If-Modified-Since");
+		if(lastModified >= 0 && Strings.isValid(header)) {
+			try {
+				long since = makeDateFormat().parse(header).getTime();
+				return lastModified / 1000 <= since / 1000;
+			} catch(ParseException e) {
+				logger.debug("invalid If-Modified-Since header: '{}'", header);
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Sets the caching headers on the response.
+	 * 
+	 * @param response
+	 *   the resource response.
+	 * @param etag
+	 *   the entity tag of the resource.
+	 * @param lastModified
+	 *   the last modification time of the resource, in milliseconds since the 
+	 *   epoch, or a negative value if unknown.
+	 * @param maxAge
+	 *   the number of seconds the client may reuse the response without 
+	 *   revalidating it.
+	 * @param shared
+	 *   whether the response may be stored by shared caches (i.e. it is not 
+	 *   user-specific).
+	 */
+	public static void setCachingHeaders(ResourceResponse response, String etag, long lastModified, int maxAge, boolean shared) {
+		response.setProperty("ETag", etag);
+		if(lastModified >= 0) {
+			response.setProperty("Last-Modified", makeDateFormat().format(new Date(lastModified)));
+		}
+		StringBuilder control = new StringBuilder(shared ? "public" : "private");
+		if(maxAge > 0) {
+			control.append(", max-age=").append(maxAge);
+		} else {
+			control.append(", no-cache");
+		}
+		response.setProperty("Cache-Control", control.toString());
+	}
+	
+	/**
+	 * Answers the request with a "304 Not Modified", without any body.
+	 * 
+	 * @param response
+	 *   the resource response.
+	 * @param etag
+	 *   the entity tag of the resource.
+	 * @param lastModified
+	 *   the last modification time of the resource, in milliseconds since the 
+	 *   epoch, or a negative value if unknown.
+	 * @param maxAge
+	 *   the number of seconds the client may reuse the response without 
+	 *   revalidating it.
+	 * @param shared
+	 *   whether the response may be stored by shared caches.
+	 */
+	public static void sendNotModified(ResourceResponse response, String etag, long lastModified, int maxAge, boolean shared) {
+		logger.trace("resource not modified (ETag: {})", etag);
+		response.setProperty(ResourceResponse.HTTP_STATUS_CODE, HTTP_NOT_MODIFIED);
+		setCachingHeaders(response, etag, lastModified, maxAge, shared);
+	}
+	
+	/**
+	 * Creates a formatter for HTTP dates; formatters are not thread safe, so a 
+	 * new one is created at each invocation.
+	 * 
+	 * @return
+	 *   a formatter for HTTP dates.
+	 */
+	private static SimpleDateFormat makeDateFormat() {
+		SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		return format;
+	}
+	
+	/**
+	 * Private constructor to prevent utility class instantiation. 
+	 */
+	private HttpCaching() {
+	}
+}
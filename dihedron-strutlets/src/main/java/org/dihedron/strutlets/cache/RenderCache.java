@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.cache;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.portlet.RenderResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded, time-expiring cache of rendered output; entries are stored as raw 
+ * bytes along with their content type, the portlet title and the properties 
+ * set on the response, so they can be replayed verbatim onto the response. 
+ * Entries may belong to a user, in which case they are only invalidated along
+ * with that user's entries and with the shared ones. Output that sets cookies
+ * is never stored, since the cookies would be handed out again to whoever reads
+ * the entry. When the cache is full, expired entries are purged and, if there 
+ * is still no room, new output is simply not cached.
+ * 
+ * @author Andrea Funto'
+ */
+public class RenderCache {
+	
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(RenderCache.class);
+	
+	/**
+	 * The default maximum number of entries in the cache.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 1000;
+	
+	/**
+	 * A cached chunk of output.
+	 * 
+	 * @author Andrea Funto'
+	 */
+	public static class Entry {
+		
+		/**
+		 * The rendered output.
+		 */
+		private final byte[] content;
+		
+		/**
+		 * The content type of the rendered output, if any was set.
+		 */
+		private final String contentType;
+		
+		/**
+		 * The portlet title, if any was set.
+		 */
+		private final String title;
+		
+		/**
+		 * The properties set on the response.
+		 */
+		private final ResponseProperties properties;
+		
+		/**
+		 * The user owning the entry, or {@code null} if shared by all users.
+		 */
+		private final String owner;
+		
+		/**
+		 * The time (in milliseconds since the epoch) at which the entry expires.
+		 */
+		private final long expiry;
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param content
+		 *   the rendered output.
+		 * @param contentType
+		 *   the content type of the rendered output.
+		 * @param title
+		 *   the portlet title.
+		 * @param properties
+		 *   the properties set on the response.
+		 * @param owner
+		 *   the user owning the entry, or {@code null} if shared.
+		 * @param expiry
+		 *   the expiry time, in milliseconds since the epoch.
+		 */
+		Entry(byte[] content, String contentType, String title, ResponseProperties properties, String owner, long expiry) {
+			this.content = content;
+			this.contentType = contentType;
+			this.title = title;
+			this.properties = properties;
+			this.owner = owner;
+			this.expiry = expiry;
+		}
+		
+		/**
+		 * Returns the rendered output.
+		 * 
+		 * @return
+		 *   the rendered output.
+		 */
+		public byte[] getContent() {
+			return content;
+		}
+		
+		/**
+		 * Returns the content type of the rendered output.
+		 * 
+		 * @return
+		 *   the content type, or {@code null} if none was set.
+		 */
+		public String getContentType() {
+			return contentType;
+		}
+		
+		/**
+		 * Replays the cached output, along with its content type, title and 
+		 * properties, onto the given response.
+		 * 
+		 * @param response
+		 *   the render response.
+		 * @throws IOException
+		 */
+		public void replay(RenderResponse response) throws IOException {
+			if(contentType != null) {
+				response.setContentType(contentType);
+			}
+			if(title != null) {
+				response.setTitle(title);
+			}
+			properties.replay(response);
+			response.getPortletOutputStream().write(content);
+		}
+		
+		/**
+		 * Returns whether the entry belongs to the given user or is shared.
+		 * 
+		 * @param user
+		 *   the user.
+		 * @return
+		 *   whether the entry is shared or owned by the user.
+		 */
+		boolean isVisibleTo(String user) {
+			return owner == null || owner.equals(user);
+		}
+		
+		/**
+		 * Returns whether the entry has expired.
+		 * 
+		 * @param now
+		 *   the current time, in milliseconds since the epoch.
+		 * @return
+		 *   whether the entry has expired.
+		 */
+		boolean isExpired(long now) {
+			return now >= expiry;
+		}
+	}
+	
+	/**
+	 * The cached entries.
+	 */
+	private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+	
+	/**
+	 * The maximum number of entries.
+	 */
+	private final int maxEntries;
+	
+	/**
+	 * The number of cache hits.
+	 */
+	private final AtomicLong hits = new AtomicLong();
+	
+	/**
+	 * The number of cache misses.
+	 */
+	private final AtomicLong misses = new AtomicLong();
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxEntries
+	 *   the maximum number of entries in the cache.
+	 */
+	public RenderCache(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+	
+	/**
+	 * Retrieves a valid (non expired) entry from the cache.
+	 * 
+	 * @param key
+	 *   the cache key.
+	 * @return
+	 *   the entry, or {@code null} if not found or expired.
+	 */
+	public Entry get(String key) {
+		Entry entry = entries.get(key);
+		if(entry != null && entry.isExpired(System.currentTimeMillis())) {
+			logger.trace("entry '{}' has expired", key);
+			entries.remove(key);
+			entry = null;
+		}
+		if(entry != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return entry;
+	}
+	
+	/**
+	 * Stores the rendered output into the cache.
+	 * 
+	 * @param key
+	 *   the cache key.
+	 * @param owner
+	 *   the user owning the output, or {@code null} if it is shared by all users.
+	 * @param content
+	 *   the rendered output.
+	 * @param capture
+	 *   the response that captured the output, providing its content type, title 
+	 *   and properties.
+	 * @param ttl
+	 *   the time to live of the entry, in milliseconds.
+	 * @return
+	 *   whether the entry was stored; output that sets cookies is never stored.
+	 */
+	public boolean put(String key, String owner, byte[] content, CapturingRenderResponse capture, long ttl) {
+		if(capture.getProperties().hasCookies()) {
+			logger.debug("output for '{}' sets cookies, it will not be cached", key);
+			return false;
+		}
+		long now = System.currentTimeMillis();
+		if(entries.size() >= maxEntries && !entries.containsKey(key)) {
+			purge(now);
+			if(entries.size() >= maxEntries) {
+				logger.debug("render cache is full ({} entries), output for '{}' will not be cached", entries.size(), key);
+				return false;
+			}
+		}
+		entries.put(key, new Entry(content, capture.getContentType(), capture.getTitle(), capture.getProperties(), owner, now + ttl));
+		return true;
+	}
+	
+	/**
+	 * Removes the entries of the given user and those shared by all users from
+	 * the cache, leaving other users' entries in place.
+	 * 
+	 * @param user
+	 *   the user whose entries are to be removed, or {@code null} for anonymous 
+	 *   users.
+	 */
+	public void invalidate(String user) {
+		int removed = 0;
+		Iterator<Entry> iterator = entries.values().iterator();
+		while(iterator.hasNext()) {
+			if(iterator.next().isVisibleTo(user)) {
+				iterator.remove();
+				++removed;
+			}
+		}
+		if(removed > 0) {
+			logger.trace("invalidated {} cached entries for user '{}'", removed, user);
+		}
+	}
+	
+	/**
+	 * Removes all entries from the cache.
+	 */
+	public void invalidate() {
+		if(!entries.isEmpty()) {
+			logger.trace("invalidating {} cached entries", entries.size());
+			entries.clear();
+		}
+	}
+	
+	/**
+	 * Returns the number of entries currently in the cache.
+	 * 
+	 * @return
+	 *   the number of entries.
+	 */
+	public int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Returns the number of cache hits since startup.
+	 * 
+	 * @return
+	 *   the number of cache hits.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+	
+	/**
+	 * Returns the number of cache misses since startup.
+	 * 
+	 * @return
+	 *   the number of cache misses.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	/**
+	 * Removes all expired entries.
+	 * 
+	 * @param now
+	 *   the current time, in milliseconds since the epoch.
+	 */
+	private void purge(long now) {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while(iterator.hasNext()) {
+			if(iterator.next().isExpired(now)) {
+				iterator.remove();
+			}
+		}
+	}
+}
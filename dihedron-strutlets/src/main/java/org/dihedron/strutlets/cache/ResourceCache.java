@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.cache;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.portlet.ResourceResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded, least-recently-used cache of rendered resource bodies, along with
+ * their headers, ETags and last modification times, so that resource requests 
+ * can be served (or answered with a "304 Not Modified") without invoking the 
+ * target and its renderer. Bodies whose response sets cookies or varies on
+ * request headers are never stored, since the cookies would be handed out again
+ * to whoever reads the entry, and the request headers are not part of the key.
+ * 
+ * @author Andrea Funto'
+ */
+public class ResourceCache {
+	
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(ResourceCache.class);
+	
+	/**
+	 * The default maximum number of entries in the cache.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 200;
+	
+	/**
+	 * A cached resource body.
+	 * 
+	 * @author Andrea Funto'
+	 */
+	public static class Entry {
+		
+		/**
+		 * The rendered body.
+		 */
+		private final byte[] content;
+		
+		/**
+		 * The content type of the rendered body.
+		 */
+		private final String contentType;
+		
+		/**
+		 * The character encoding of the rendered body.
+		 */
+		private final String characterEncoding;
+		
+		/**
+		 * The properties (headers and cookies) set along with the rendered body.
+		 */
+		private final ResponseProperties properties;
+		
+		/**
+		 * Whether the content length was set along with the rendered body.
+		 */
+		private final boolean contentLengthSet;
+		
+		/**
+		 * The entity tag of the rendered body.
+		 */
+		private final String etag;
+		
+		/**
+		 * The time (in milliseconds since the epoch) at which the body was rendered.
+		 */
+		private final long lastModified;
+		
+		/**
+		 * The time (in milliseconds since the epoch) at which the entry expires.
+		 */
+		private final long expiry;
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param content
+		 *   the rendered body.
+		 * @param capture
+		 *   the response that captured the body, providing its content type, 
+		 *   character encoding and properties.
+		 * @param etag
+		 *   the entity tag of the rendered body.
+		 * @param lastModified
+		 *   the time at which the body was rendered.
+		 * @param expiry
+		 *   the expiry time, in milliseconds since the epoch.
+		 */
+		Entry(byte[] content, CapturingResourceResponse capture, String etag, long lastModified, long expiry) {
+			this.content = content;
+			this.contentType = capture.getContentType();
+			this.characterEncoding = capture.getCharacterEncoding();
+			this.properties = capture.getProperties();
+			this.contentLengthSet = capture.isContentLengthSet();
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.expiry = expiry;
+		}
+		
+		/**
+		 * Returns the rendered body.
+		 * 
+		 * @return
+		 *   the rendered body.
+		 */
+		public byte[] getContent() {
+			return content;
+		}
+		
+		/**
+		 * Returns the content type of the rendered body.
+		 * 
+		 * @return
+		 *   the content type, or {@code null} if none was set.
+		 */
+		public String getContentType() {
+			return contentType;
+		}
+		
+		/**
+		 * Replays the rendered body, along with its content type, character 
+		 * encoding, properties and content length, onto the given response; the 
+		 * caching headers are not part of the entry and must be set separately.
+		 * 
+		 * @param response
+		 *   the resource response.
+		 * @throws IOException
+		 */
+		public void replay(ResourceResponse response) throws IOException {
+			if(contentType != null) {
+				response.setContentType(contentType);
+			}
+			if(characterEncoding != null) {
+				response.setCharacterEncoding(characterEncoding);
+			}
+			properties.replay(response);
+			if(contentLengthSet) {
+				response.setContentLength(content.length);
+			}
+			response.getPortletOutputStream().write(content);
+		}
+		
+		/**
+		 * Returns the entity tag of the rendered body.
+		 * 
+		 * @return
+		 *   the entity tag.
+		 */
+		public String getETag() {
+			return etag;
+		}
+		
+		/**
+		 * Returns the time at which the body was rendered.
+		 * 
+		 * @return
+		 *   the time at which the body was rendered, in milliseconds since the epoch.
+		 */
+		public long getLastModified() {
+			return lastModified;
+		}		
+	}
+	
+	/**
+	 * The cached entries, in access order.
+	 */
+	private final Map<String, Entry> entries;
+	
+	/**
+	 * The number of cache hits.
+	 */
+	private final AtomicLong hits = new AtomicLong();
+	
+	/**
+	 * The number of cache misses.
+	 */
+	private final AtomicLong misses = new AtomicLong();
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxEntries
+	 *   the maximum number of entries in the cache; when exceeded, the least 
+	 *   recently used entry is evicted.
+	 */
+	public ResourceCache(final int maxEntries) {
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+	
+	/**
+	 * Retrieves a valid (non expired) entry from the cache.
+	 * 
+	 * @param key
+	 *   the cache key.
+	 * @return
+	 *   the entry, or {@code null} if not found or expired.
+	 */
+	public Entry get(String key) {
+		Entry entry = null;
+		synchronized(entries) {
+			entry = entries.get(key);
+			if(entry != null && System.currentTimeMillis() >= entry.expiry) {
+				entries.remove(key);
+				entry = null;
+			}
+		}
+		if(entry != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return entry;
+	}
+	
+	/**
+	 * Stores a rendered body into the cache.
+	 * 
+	 * @param key
+	 *   the cache key.
+	 * @param content
+	 *   the rendered body.
+	 * @param capture
+	 *   the response that captured the body, providing its content type, 
+	 *   character encoding and properties.
+	 * @param etag
+	 *   the entity tag of the rendered body.
+	 * @param lastModified
+	 *   the time at which the body was rendered, in milliseconds since the epoch.
+	 * @param ttl
+	 *   the time to live of the entry, in milliseconds.
+	 * @return
+	 *   whether the entry was stored; bodies whose response sets cookies or 
+	 *   varies on request headers are never stored.
+	 */
+	public boolean put(String key, byte[] content, CapturingResourceResponse capture, String etag, long lastModified, long ttl) {
+		if(capture.getProperties().hasCookies()) {
+			logger.debug("response for '{}' sets cookies, it will not be cached", key);
+			return false;
+		}
+		if(capture.getProperties().getValue("Vary") != null) {
+			logger.debug("response for '{}' varies on request headers, it will not be cached", key);
+			return false;
+		}
+		Entry entry = new Entry(content, capture, etag, lastModified, lastModified + ttl);
+		synchronized(entries) {
+			entries.put(key, entry);
+		}
+		return true;
+	}
+	
+	/**
+	 * Removes all entries from the cache.
+	 */
+	public void invalidate() {
+		synchronized(entries) {
+			entries.clear();
+		}
+	}
+	
+	/**
+	 * Returns the number of entries currently in the cache.
+	 * 
+	 * @return
+	 *   the number of entries.
+	 */
+	public int size() {
+		synchronized(entries) {
+			return entries.size();
+		}
+	}
+	
+	/**
+	 * Returns the number of cache hits since startup.
+	 * 
+	 * @return
+	 *   the number of cache hits.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+	
+	/**
+	 * Returns the number of cache misses since startup.
+	 * 
+	 * @return
+	 *   the number of cache misses.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.portlet.PortletResponse;
+import javax.servlet.http.Cookie;
+
+import org.w3c.dom.Element;
+
+/**
+ * A recording of the properties (headers, cookies and markup head elements) set
+ * on a portlet response, in the order in which they were set, so that they can
+ * be replayed onto a different response along with the cached output.
+ * 
+ * @author Andrea Funto'
+ */
+public class ResponseProperties {
+	
+	/**
+	 * A single recorded property operation.
+	 * 
+	 * @author Andrea Funto'
+	 */
+	private static class Property {
+		
+		/**
+		 * The name of the property, if not a cookie.
+		 */
+		final String name;
+		
+		/**
+		 * The string value of the property, if any.
+		 */
+		final String value;
+		
+		/**
+		 * The markup head element, if any.
+		 */
+		final Element element;
+		
+		/**
+		 * The cookie, if any.
+		 */
+		final Cookie cookie;
+		
+		/**
+		 * Whether the property replaces any existing value or is added to it.
+		 */
+		final boolean replace;
+		
+		/**
+		 * Constructor.
+		 */
+		Property(String name, String value, Element element, Cookie cookie, boolean replace) {
+			this.name = name;
+			this.value = value;
+			this.element = element;
+			this.cookie = cookie;
+			this.replace = replace;
+		}
+	}
+	
+	/**
+	 * The recorded properties, in order.
+	 */
+	private final List<Property> properties = new ArrayList<Property>();
+	
+	/**
+	 * Records a property replacing any existing value.
+	 * 
+	 * @param name
+	 *   the name of the property.
+	 * @param value
+	 *   the value of the property.
+	 * @return
+	 *   the object itself, for method chaining.
+	 */
+	public ResponseProperties set(String name, String value) {
+		properties.add(new Property(name, value, null, null, true));
+		return this;
+	}
+	
+	/**
+	 * Records a property value added to any existing ones.
+	 * 
+	 * @param name
+	 *   the name of the property.
+	 * @param value
+	 *   the value of the property.
+	 * @return
+	 *   the object itself, for method chaining.
+	 */
+	public ResponseProperties add(String name, String value) {
+		properties.add(new Property(name, value, null, null, false));
+		return this;
+	}
+	
+	/**
+	 * Records a markup head element.
+	 * 
+	 * @param name
+	 *   the name of the property.
+	 * @param element
+	 *   the markup head element; a deep copy is recorded.
+	 * @return
+	 *   the object itself, for method chaining.
+	 */
+	public ResponseProperties add(String name, Element element) {
+		Element copy = element != null ? (Element)element.cloneNode(true) : null;
+		properties.add(new Property(name, null, copy, null, false));
+		return this;
+	}
+	
+	/**
+	 * Records a cookie.
+	 * 
+	 * @param cookie
+	 *   the cookie; a copy is recorded.
+	 * @return
+	 *   the object itself, for method chaining.
+	 */
+	public ResponseProperties add(Cookie cookie) {
+		properties.add(new Property(null, null, null, (Cookie)cookie.clone(), false));
+		return this;
+	}
+	
+	/**
+	 * Discards all recorded properties.
+	 */
+	public void clear() {
+		properties.clear();
+	}
+	
+	/**
+	 * Returns whether no properties were recorded.
+	 * 
+	 * @return
+	 *   whether no properties were recorded.
+	 */
+	public boolean isEmpty() {
+		return properties.isEmpty();
+	}
+	
+	/**
+	 * Returns whether any cookie was recorded.
+	 * 
+	 * @return
+	 *   whether any cookie was recorded.
+	 */
+	public boolean hasCookies() {
+		for(Property property : properties) {
+			if(property.cookie != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the last value recorded for the given property, if any.
+	 * 
+	 * @param name
+	 *   the name of the property.
+	 * @return
+	 *   the last recorded value, or {@code null} if none.
+	 */
+	public String getValue(String name) {
+		for(int i = properties.size() - 1; i >= 0; --i) {
+			Property property = properties.get(i);
+			if(property.value != null && property.name.equalsIgnoreCase(name)) {
+				return property.value;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Replays the recorded properties onto the given response, in the order in
+	 * which they were recorded.
+	 * 
+	 * @param response
+	 *   the response onto which the properties are replayed.
+	 */
+	public void replay(PortletResponse response) {
+		for(Property property : properties) {
+			if(property.cookie != null) {
+				response.addProperty((Cookie)property.cookie.clone());
+			} else if(property.element != null) {
+				response.addProperty(property.name, (Element)property.element.cloneNode(true));
+			} else if(property.replace) {
+				response.setProperty(property.name, property.value);
+			} else {
+				response.addProperty(property.name, property.value);
+			}
+		}
+	}
+}
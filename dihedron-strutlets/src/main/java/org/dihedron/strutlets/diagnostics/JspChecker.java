@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.diagnostics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.portlet.PortletContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A startup check on the JSPs the portlet is going to render: each path is 
+ * verified to exist in the portlet context, so that missing pages are reported
+ * at deployment rather than when a user first hits them; optionally, existing
+ * JSPs are then compiled in the background by sending the web application a
+ * request with the standard {@code jsp_precompile} parameter (JSP 2.x, section
+ * JSP.11.4.2), which has the container compile the page without executing it,
+ * so that the first users do not pay for compilation. Since portlets are 
+ * initialised without any request, the base URL of the web application must 
+ * be configured for precompilation to take place; requests are retried for a
+ * while, since the HTTP connector may not be accepting connections yet when
+ * the portlet starts up with the server, and the web application may answer
+ * with a "404" or "503" status while it is being (re)deployed. The checker's
+ * threads go away by themselves once all the work is done.
+ * 
+ * @author Andrea Funto'
+ */
+public class JspChecker {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(JspChecker.class);
+	
+	/**
+	 * The default number of threads performing the checks.
+	 */
+	public static final int DEFAULT_THREADS = 4;
+	
+	/**
+	 * The number of attempts made to precompile each JSP.
+	 */
+	private static final int MAX_ATTEMPTS = 5;
+	
+	/**
+	 * The delay between two attempts, in milliseconds.
+	 */
+	private static final long RETRY_DELAY = 5000;
+	
+	/**
+	 * The HTTP status returned while the web application is not deployed yet.
+	 */
+	private static final int HTTP_NOT_FOUND = 404;
+	
+	/**
+	 * The HTTP status returned while the web application is starting up.
+	 */
+	private static final int HTTP_UNAVAILABLE = 503;
+	
+	/**
+	 * The connect and read timeout of precompilation requests, in milliseconds.
+	 */
+	private static final int TIMEOUT = 30000;
+	
+	/**
+	 * The portlet context.
+	 */
+	private final PortletContext context;
+	
+	/**
+	 * The base URL of the web application, for precompilation requests; 
+	 * {@code null} if JSPs must not be precompiled.
+	 */
+	private final String base;
+	
+	/**
+	 * The threads performing the checks and the precompilation.
+	 */
+	private final ExecutorService executor;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param name
+	 *   the name of the portlet.
+	 * @param context
+	 *   the portlet context.
+	 * @param base
+	 *   the base URL of the web application (e.g. "http://localhost:8080/my-portlet"),
+	 *   or {@code null} if JSPs must not be precompiled.
+	 * @param threads
+	 *   the number of threads performing the checks.
+	 */
+	public JspChecker(final String name, PortletContext context, String base, int threads) {
+		this.context = context;
+		this.base = base != null && base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+		final AtomicInteger counter = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "strutlets-jsp-check-" + name + "-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	
+	/**
+	 * Verifies, in parallel, that the given JSPs exist and then, if a base URL
+	 * was configured, starts precompiling the existing ones in the background;
+	 * the checker accepts no further work afterwards.
+	 * 
+	 * @param paths
+	 *   the context-relative paths of the JSPs that must exist.
+	 * @param optional
+	 *   the context-relative paths of the JSPs that may be missing, e.g. those
+	 *   derived from the naming convention for results that a target may never
+	 *   return; they are only precompiled if they exist.
+	 * @return
+	 *   the paths, among those that must exist, that could not be found.
+	 * @throws InterruptedException
+	 *   if the thread was interrupted while waiting for the checks.
+	 */
+	public List<String> check(Collection<String> paths, Collection<String> optional) throws InterruptedException {
+		try {
+			List<String> missing = new ArrayList<String>();
+			List<String> existing = new ArrayList<String>();
+			verify(paths, missing, existing);
+			for(String path : missing) {
+				logger.warn("JSP '{}' does not exist in the portlet context", path);
+			}
+			List<String> absent = new ArrayList<String>();
+			verify(optional, absent, existing);
+			logger.info("{} JSPs checked, {} missing", paths.size(), missing.size());
+			if(!absent.isEmpty()) {
+				logger.debug("{} conventional JSPs not found: {}", absent.size(), absent);
+			}
+			if(base != null) {
+				for(final String path : existing) {
+					if(path.endsWith(".jsp") || path.endsWith(".jspx")) {
+						executor.submit(new Runnable() {
+							@Override
+							public void run() {
+								precompile(path);
+							}
+						});
+					}
+				}
+			}
+			return missing;
+		} finally {
+			// let the precompilation complete, if any, then release the threads
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * Stops any pending precompilation.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+	
+	/**
+	 * Verifies, in parallel, that the given JSPs exist.
+	 * 
+	 * @param paths
+	 *   the context-relative paths of the JSPs.
+	 * @param missing
+	 *   the list to which the paths that could not be found are added.
+	 * @param existing
+	 *   the list to which the paths that were found are added.
+	 * @throws InterruptedException
+	 *   if the thread was interrupted while waiting for the checks.
+	 */
+	private void verify(Collection<String> paths, List<String> missing, List<String> existing) throws InterruptedException {
+		List<Future<String>> checks = new ArrayList<Future<String>>();
+		for(final String path : paths) {
+			checks.add(executor.submit(new Callable<String>() {
+				@Override
+				public String call() {
+					return exists(path) ? null : path;
+				}
+			}));
+		}
+		int index = 0;
+		for(String path : paths) {
+			try {
+				String result = checks.get(index++).get();
+				if(result != null) {
+					missing.add(result);
+				} else {
+					existing.add(path);
+				}
+			} catch(ExecutionException e) {
+				logger.warn("error checking JSP '" + path + "'", e.getCause());
+			}
+		}
+	}
+	
+	/**
+	 * Returns whether the resource at the given path exists.
+	 * 
+	 * @param path
+	 *   the path, possibly followed by a query string.
+	 * @return
+	 *   whether the resource exists.
+	 */
+	private boolean exists(String path) {
+		int index = path.indexOf('?');
+		String resource = index >= 0 ? path.substring(0, index) : path;
+		try {
+			return resource.startsWith("/") && context.getResource(resource) != null;
+		} catch(MalformedURLException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Has the container compile the given JSP, retrying if the web application
+	 * is not reachable or not available yet.
+	 * 
+	 * @param path
+	 *   the context-relative path of the JSP.
+	 */
+	private void precompile(String path) {
+		for(int attempt = 1; attempt <= MAX_ATTEMPTS && !Thread.currentThread().isInterrupted(); ++attempt) {
+			long start = System.currentTimeMillis();
+			try {
+				HttpURLConnection connection = (HttpURLConnection)new URL(base + path + "?jsp_precompile=true").openConnection();
+				connection.setConnectTimeout(TIMEOUT);
+				connection.setReadTimeout(TIMEOUT);
+				int status = connection.getResponseCode();
+				try(InputStream stream = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+					// drain the response, so that the connection can be reused
+					if(stream != null) {
+						byte[] buffer = new byte[1024];
+						while(stream.read(buffer) >= 0);
+					}
+				}
+				if(status < 400) {
+					logger.debug("JSP '{}' precompiled in {} ms", path, System.currentTimeMillis() - start);
+					return;
+				} else if(status != HTTP_NOT_FOUND && status != HTTP_UNAVAILABLE) {
+					logger.warn("precompilation of JSP '{}' failed with HTTP status {}", path, status);
+					return;
+				}
+				logger.trace("attempt {} at precompiling JSP '{}' returned HTTP status {}", attempt, path, status);
+			} catch(IOException e) {
+				logger.trace("attempt {} at precompiling JSP '{}' failed: {}", attempt, path, e.getMessage());
+			}
+			try {
+				Thread.sleep(RETRY_DELAY);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		logger.warn("JSP '{}' could not be precompiled", path);
+	}
+}
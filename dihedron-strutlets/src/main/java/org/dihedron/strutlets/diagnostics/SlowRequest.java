@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.diagnostics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.dihedron.strutlets.ActionContext;
+import org.dihedron.strutlets.ActionContext.Scope;
+import org.dihedron.strutlets.ActionInvocation;
+import org.dihedron.strutlets.interceptors.InterceptorStack;
+
+/**
+ * A compact snapshot of the context of a target invocation that took longer
+ * than its threshold: unlike the {@code Dumper} interceptor, it only records
+ * the names and sizes of request parameters and the number of attributes in
+ * each scope, never their values, and it is only ever built for slow requests.
+ *
+ * @author Andrea Funto'
+ */
+public class SlowRequest {
+
+	/**
+	 * The number of nanoseconds in a millisecond.
+	 */
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	/**
+	 * The time at which the invocation started, in milliseconds since the epoch.
+	 */
+	private final long timestamp;
+
+	/**
+	 * The target identifier.
+	 */
+	private final String target;
+
+	/**
+	 * The request processing phase.
+	 */
+	private final String phase;
+
+	/**
+	 * The duration of the invocation, in milliseconds.
+	 */
+	private final double duration;
+
+	/**
+	 * The threshold the invocation exceeded, in milliseconds.
+	 */
+	private final long threshold;
+
+	/**
+	 * Whether the invocation ended with an error.
+	 */
+	private final boolean failed;
+
+	/**
+	 * The total length of the values of each request parameter, by name.
+	 */
+	private final Map<String, Integer> parameters = new TreeMap<String, Integer>();
+
+	/**
+	 * The number of attributes in each scope.
+	 */
+	private final Map<String, Integer> scopes = new LinkedHashMap<String, Integer>();
+
+	/**
+	 * The time spent in each interceptor and in the action, in milliseconds.
+	 */
+	private final Map<String, Double> timings = new LinkedHashMap<String, Double>();
+
+	/**
+	 * The stack of the worker thread, sampled while the invocation was still
+	 * running; {@code null} if the invocation completed before it could be
+	 * sampled.
+	 */
+	private final StackTraceElement[] stackTrace;
+
+	/**
+	 * Constructor; it must be invoked by the thread that processed the request,
+	 * before the action context is unbound.
+	 *
+	 * @param target
+	 *   the target identifier.
+	 * @param phase
+	 *   the request processing phase.
+	 * @param timestamp
+	 *   the time at which the invocation started, in milliseconds since the epoch.
+	 * @param nanos
+	 *   the duration of the invocation, in nanoseconds.
+	 * @param threshold
+	 *   the threshold the invocation exceeded, in milliseconds.
+	 * @param failed
+	 *   whether the invocation ended with an error.
+	 * @param invocation
+	 *   the action invocation, for the timing breakdown; may be {@code null}.
+	 * @param stack
+	 *   the interceptor stack the invocation went through; may be {@code null}.
+	 * @param stackTrace
+	 *   the stack of the worker thread sampled while the invocation was still
+	 *   running, or {@code null}.
+	 */
+	public SlowRequest(String target, String phase, long timestamp, long nanos, long threshold, boolean failed,
+			ActionInvocation invocation, InterceptorStack stack, StackTraceElement[] stackTrace) {
+		this.target = target;
+		this.phase = phase;
+		this.timestamp = timestamp;
+		this.duration = nanos / NANOS_PER_MILLI;
+		this.threshold = threshold;
+		this.failed = failed;
+		this.stackTrace = stackTrace;
+
+		Map<String, String[]> values = ActionContext.getParameters();
+		if(values != null) {
+			for(Entry<String, String[]> entry : values.entrySet()) {
+				int size = 0;
+				if(entry.getValue() != null) {
+					for(String value : entry.getValue()) {
+						size += value != null ? value.length() : 0;
+					}
+				}
+				parameters.put(entry.getKey(), size);
+			}
+		}
+		for(Scope scope : Scope.values()) {
+			Map<String, Object> attributes = ActionContext.getAttributes(scope);
+			scopes.put(scope.name(), attributes != null ? attributes.size() : 0);
+		}
+		if(invocation != null && stack != null) {
+			for(int i = 0; i < invocation.getInvokedInterceptors(); ++i) {
+				timings.put(stack.get(i).getId(), invocation.getInterceptorTime(i) / NANOS_PER_MILLI);
+			}
+			timings.put("action", invocation.getActionTime() / NANOS_PER_MILLI);
+		}
+	}
+
+	/**
+	 * Returns the time at which the invocation started.
+	 *
+	 * @return
+	 *   the start time, in milliseconds since the epoch.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Returns the target identifier.
+	 *
+	 * @return
+	 *   the target identifier.
+	 */
+	public String getTarget() {
+		return target;
+	}
+
+	/**
+	 * Returns the request processing phase.
+	 *
+	 * @return
+	 *   the name of the phase.
+	 */
+	public String getPhase() {
+		return phase;
+	}
+
+	/**
+	 * Returns the duration of the invocation.
+	 *
+	 * @return
+	 *   the duration, in milliseconds.
+	 */
+	public double getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Returns the threshold the invocation exceeded.
+	 *
+	 * @return
+	 *   the threshold, in milliseconds.
+	 */
+	public long getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Returns whether the invocation ended with an error.
+	 *
+	 * @return
+	 *   whether the invocation failed.
+	 */
+	public boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * Returns the total length of the values of each request parameter.
+	 *
+	 * @return
+	 *   the parameter sizes, by parameter name.
+	 */
+	public Map<String, Integer> getParameters() {
+		return Collections.unmodifiableMap(parameters);
+	}
+
+	/**
+	 * Returns the number of attributes in each scope.
+	 *
+	 * @return
+	 *   the number of attributes, by scope name.
+	 */
+	public Map<String, Integer> getScopes() {
+		return Collections.unmodifiableMap(scopes);
+	}
+
+	/**
+	 * Returns the time spent in each interceptor (excluding nested ones) and in
+	 * the action.
+	 *
+	 * @return
+	 *   the timings, in milliseconds, in invocation order.
+	 */
+	public Map<String, Double> getTimings() {
+		return Collections.unmodifiableMap(timings);
+	}
+
+	/**
+	 * Returns the stack of the worker thread, sampled while the invocation was
+	 * still running.
+	 *
+	 * @return
+	 *   the stack trace sample, or {@code null} if not available.
+	 */
+	public StackTraceElement[] getStackTrace() {
+		return stackTrace;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder();
+		buffer.append(String.format("slow %s invocation of target '%s': %.3f ms (threshold: %d ms%s)", phase, target, duration, threshold, failed ? ", failed" : ""));
+		buffer.append("\n  parameters: ").append(parameters);
+		buffer.append("\n  scopes: ").append(scopes);
+		buffer.append("\n  timings: ").append(timings);
+		if(stackTrace != null) {
+			buffer.append("\n  stack sample:");
+			for(StackTraceElement element : stackTrace) {
+				buffer.append("\n    at ").append(element);
+			}
+		}
+		return buffer.toString();
+	}
+}
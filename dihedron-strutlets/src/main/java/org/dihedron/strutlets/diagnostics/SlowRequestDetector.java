@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.diagnostics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.dihedron.strutlets.ActionInvocation;
+import org.dihedron.strutlets.interceptors.InterceptorStack;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A watchdog that flags target invocations, and the renderings of their output
+ * (JSPs and renderers), taking longer than a configurable, per-target threshold;
+ * invocations and renderings are watched separately. While invocations are 
+ * running, a background thread periodically checks them and, as soon as one 
+ * exceeds its threshold, samples the stack of the worker thread; when a slow 
+ * invocation completes, a compact {@code SlowRequest} snapshot is built and 
+ * stored in a fixed-size ring buffer.
+ * Fast invocations only pay for registering and unregistering themselves.
+ *
+ * @author Andrea Funto'
+ */
+public class SlowRequestDetector {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(SlowRequestDetector.class);
+
+	/**
+	 * The default number of slow requests kept in memory.
+	 */
+	public static final int DEFAULT_CAPACITY = 50;
+
+	/**
+	 * The maximum number of stack frames kept in a stack sample.
+	 */
+	public static final int MAX_STACK_DEPTH = 32;
+
+	/**
+	 * The minimum interval between checks of running invocations, in milliseconds.
+	 */
+	private static final long MIN_CHECK_INTERVAL = 10;
+
+	/**
+	 * The maximum interval between checks of running invocations, in milliseconds.
+	 */
+	private static final long MAX_CHECK_INTERVAL = 1000;
+
+	/**
+	 * A running invocation being watched.
+	 */
+	public static class Watch {
+
+		/**
+		 * The target identifier.
+		 */
+		private final String target;
+
+		/**
+		 * The worker thread.
+		 */
+		private final Thread thread = Thread.currentThread();
+
+		/**
+		 * The wall-clock time at which the invocation started.
+		 */
+		private final long timestamp = System.currentTimeMillis();
+
+		/**
+		 * The value of the nanosecond timer at which the invocation started.
+		 */
+		private final long start = System.nanoTime();
+
+		/**
+		 * The threshold, in nanoseconds.
+		 */
+		private final long threshold;
+
+		/**
+		 * The stack sample taken while the invocation was running, if any.
+		 */
+		private volatile StackTraceElement[] stackTrace;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param target
+		 *   the target identifier.
+		 * @param threshold
+		 *   the threshold, in nanoseconds.
+		 */
+		Watch(String target, long threshold) {
+			this.target = target;
+			this.threshold = threshold;
+		}
+	}
+
+	/**
+	 * The default threshold, in milliseconds.
+	 */
+	private final long threshold;
+
+	/**
+	 * The per-target thresholds, in milliseconds.
+	 */
+	private final Map<String, Long> thresholds = new ConcurrentHashMap<String, Long>();
+
+	/**
+	 * The invocations currently running.
+	 */
+	private final Set<Watch> running = Collections.newSetFromMap(new ConcurrentHashMap<Watch, Boolean>());
+
+	/**
+	 * The ring buffer of the most recent slow requests.
+	 */
+	private final AtomicReferenceArray<SlowRequest> requests;
+
+	/**
+	 * The number of slow requests detected so far, used to pick the next slot.
+	 */
+	private final AtomicLong detected = new AtomicLong();
+
+	/**
+	 * The scheduler running the periodic checks.
+	 */
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param portlet
+	 *   the name of the portlet whose invocations are watched.
+	 * @param threshold
+	 *   the default threshold, in milliseconds.
+	 * @param thresholds
+	 *   the per-target thresholds, in milliseconds; may be {@code null}.
+	 * @param capacity
+	 *   the number of slow requests kept in memory.
+	 */
+	public SlowRequestDetector(String portlet, long threshold, Map<String, Long> thresholds, int capacity) {
+		this.threshold = threshold;
+		long minimum = threshold;
+		if(thresholds != null) {
+			this.thresholds.putAll(thresholds);
+			for(long value : thresholds.values()) {
+				minimum = Math.min(minimum, value);
+			}
+		}
+		this.requests = new AtomicReferenceArray<SlowRequest>(capacity);
+
+		final String name = "strutlets-watchdog-" + portlet;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		long interval = Math.max(MIN_CHECK_INTERVAL, Math.min(MAX_CHECK_INTERVAL, minimum / 2));
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				check();
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+		logger.info("watching for invocations slower than {} ms (checking every {} ms)", threshold, interval);
+	}
+
+	/**
+	 * Returns the threshold applying to the given target.
+	 *
+	 * @param target
+	 *   the target identifier.
+	 * @return
+	 *   the threshold, in milliseconds.
+	 */
+	public long getThreshold(String target) {
+		Long value = thresholds.get(target);
+		return value != null ? value : threshold;
+	}
+
+	/**
+	 * Starts watching an invocation running in the current thread.
+	 *
+	 * @param target
+	 *   the target identifier.
+	 * @return
+	 *   the watch, to be passed to {@link #stop(Watch, String, boolean, ActionInvocation, InterceptorStack)}.
+	 */
+	public Watch start(String target) {
+		Watch watch = new Watch(target, TimeUnit.MILLISECONDS.toNanos(getThreshold(target)));
+		running.add(watch);
+		return watch;
+	}
+
+	/**
+	 * Stops watching an invocation and, if it exceeded its threshold, records
+	 * a snapshot of its context; it must be invoked by the thread that
+	 * processed the request, before the action context is unbound.
+	 *
+	 * @param watch
+	 *   the watch returned by {@link #start(String)}.
+	 * @param phase
+	 *   the request processing phase.
+	 * @param failed
+	 *   whether the invocation ended with an error.
+	 * @param invocation
+	 *   the action invocation, if available.
+	 * @param stack
+	 *   the interceptor stack, if available.
+	 */
+	public void stop(Watch watch, String phase, boolean failed, ActionInvocation invocation, InterceptorStack stack) {
+		running.remove(watch);
+		long nanos = System.nanoTime() - watch.start;
+		if(nanos > watch.threshold) {
+			try {
+				SlowRequest request = new SlowRequest(watch.target, phase, watch.timestamp, nanos,
+						TimeUnit.NANOSECONDS.toMillis(watch.threshold), failed, invocation, stack, watch.stackTrace);
+				long slot = detected.getAndIncrement();
+				requests.set((int)(slot % requests.length()), request);
+				logger.warn("{}", request);
+			} catch(RuntimeException e) {
+				logger.error("error capturing the context of slow invocation of target '" + watch.target + "'", e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the most recent slow requests, most recent first.
+	 *
+	 * @return
+	 *   the most recent slow requests.
+	 */
+	public List<SlowRequest> getSlowRequests() {
+		List<SlowRequest> result = new ArrayList<SlowRequest>(requests.length());
+		long last = detected.get();
+		for(long i = last - 1; i >= 0 && i >= last - requests.length(); --i) {
+			SlowRequest request = requests.get((int)(i % requests.length()));
+			if(request != null) {
+				result.add(request);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of slow requests detected so far.
+	 *
+	 * @return
+	 *   the number of slow requests.
+	 */
+	public long getDetectedCount() {
+		return detected.get();
+	}
+
+	/**
+	 * Stops the background checks.
+	 */
+	public void shutdown() {
+		scheduler.shutdownNow();
+		running.clear();
+	}
+
+	/**
+	 * Samples the stack of the worker threads whose invocations have exceeded
+	 * their threshold and have not been sampled yet.
+	 */
+	private void check() {
+		try {
+			long now = System.nanoTime();
+			for(Watch watch : running) {
+				if(watch.stackTrace == null && now - watch.start > watch.threshold) {
+					StackTraceElement[] stackTrace = watch.thread.getStackTrace();
+					if(running.contains(watch)) {
+						watch.stackTrace = stackTrace.length > MAX_STACK_DEPTH ? Arrays.copyOf(stackTrace, MAX_STACK_DEPTH) : stackTrace;
+						logger.debug("invocation of target '{}' exceeded its threshold, stack sampled", watch.target);
+					}
+				}
+			}
+		} catch(RuntimeException e) {
+			logger.error("error checking running invocations", e);
+		}
+	}
+}
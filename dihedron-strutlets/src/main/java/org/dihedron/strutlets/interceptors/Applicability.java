@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.interceptors;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.dihedron.core.regex.Regex;
+import org.dihedron.core.strings.Strings;
+import org.dihedron.strutlets.ActionContext.Phase;
+import org.dihedron.strutlets.exceptions.StrutletsException;
+import org.dihedron.strutlets.targets.Target;
+
+/**
+ * The declarative conditions under which an interceptor is executed, as
+ * specified in the interceptors configuration: the request processing phases,
+ * a regular expression on the target identifier (e.g. "MyAction!.*") and a set
+ * of annotations the action class or method must carry. Conditions that are
+ * not specified always match. Applicability is evaluated once per target and
+ * phase, when the target's interceptor chain is first resolved, and never on
+ * the request processing path.
+ *
+ * @author Andrea Funto'
+ */
+public class Applicability {
+
+	/**
+	 * The phases in which the interceptor is executed.
+	 */
+	private final Set<Phase> phases = EnumSet.allOf(Phase.class);
+
+	/**
+	 * The regular expression the target identifier must match, if any.
+	 */
+	private Regex targets;
+	
+	/**
+	 * The textual form of the regular expression on the target identifier.
+	 */
+	private String pattern;
+
+	/**
+	 * The annotations (any of which) the action class or method must carry.
+	 */
+	private final List<Class<? extends Annotation>> annotations = new ArrayList<Class<? extends Annotation>>();
+
+	/**
+	 * Sets the phases in which the interceptor is executed.
+	 *
+	 * @param value
+	 *   a comma-separated list of phase names (e.g. "ACTION, EVENT"); if empty,
+	 *   the interceptor is executed in all phases.
+	 * @return
+	 *   the object itself, for method chaining.
+	 * @throws StrutletsException
+	 *   if any of the phases is not valid.
+	 */
+	public Applicability setPhases(String value) throws StrutletsException {
+		if(Strings.isValid(value)) {
+			phases.clear();
+			for(String phase : Strings.split(value, ",", true)) {
+				try {
+					phases.add(Phase.valueOf(phase.trim().toUpperCase()));
+				} catch(IllegalArgumentException e) {
+					throw new StrutletsException("invalid phase '" + phase + "' in interceptor applicability");
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Sets the regular expression the target identifier must match.
+	 *
+	 * @param value
+	 *   the regular expression; if empty, the interceptor applies to all targets.
+	 * @return
+	 *   the object itself, for method chaining.
+	 */
+	public Applicability setTargets(String value) {
+		pattern = Strings.isValid(value) ? value.trim() : null;
+		targets = pattern != null ? new Regex(pattern) : null;
+		return this;
+	}
+
+	/**
+	 * Sets the annotations the action class or method must carry.
+	 *
+	 * @param value
+	 *   a comma-separated list of fully qualified annotation class names; if
+	 *   empty, the interceptor applies regardless of annotations.
+	 * @return
+	 *   the object itself, for method chaining.
+	 * @throws StrutletsException
+	 *   if any of the classes cannot be loaded or is not an annotation.
+	 */
+	@SuppressWarnings("unchecked")
+	public Applicability setAnnotations(String value) throws StrutletsException {
+		annotations.clear();
+		if(Strings.isValid(value)) {
+			for(String name : Strings.split(value, ",", true)) {
+				try {
+					Class<?> clazz = Class.forName(name.trim());
+					if(!clazz.isAnnotation()) {
+						throw new StrutletsException("class '" + name + "' in interceptor applicability is not an annotation");
+					}
+					annotations.add((Class<? extends Annotation>)clazz);
+				} catch(ClassNotFoundException e) {
+					throw new StrutletsException("annotation class '" + name + "' in interceptor applicability not found", e);
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Returns whether the interceptor is executed in the given phase.
+	 *
+	 * @param phase
+	 *   the request processing phase.
+	 * @return
+	 *   whether the interceptor applies to the phase.
+	 */
+	public boolean appliesTo(Phase phase) {
+		return phases.contains(phase);
+	}
+
+	/**
+	 * Returns whether the interceptor is executed for the given target,
+	 * regardless of the phase.
+	 *
+	 * @param target
+	 *   the target.
+	 * @return
+	 *   whether the interceptor applies to the target.
+	 */
+	public boolean appliesTo(Target target) {
+		if(targets != null && !targets.matches(target.getId().toString())) {
+			return false;
+		}
+		if(annotations.isEmpty()) {
+			return true;
+		}
+		for(Class<? extends Annotation> annotation : annotations) {
+			if(target.getActionClass() != null && target.getActionClass().isAnnotationPresent(annotation)) {
+				return true;
+			}
+			if(target.getActionMethod() != null && target.getActionMethod().isAnnotationPresent(annotation)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the phases in which the interceptor is executed.
+	 *
+	 * @return
+	 *   an unmodifiable set of phases.
+	 */
+	public Set<Phase> getPhases() {
+		return Collections.unmodifiableSet(phases);
+	}
+
+	/**
+	 * Returns a short description of the conditions.
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder("phases: ").append(phases);
+		if(targets != null) {
+			buffer.append(", targets: '").append(pattern).append("'");
+		}
+		if(!annotations.isEmpty()) {
+			buffer.append(", annotations: [");
+			for(int i = 0; i < annotations.size(); ++i) {
+				buffer.append(i > 0 ? ", " : "").append(annotations.get(i).getSimpleName());
+			}
+			buffer.append("]");
+		}
+		return buffer.toString();
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.interceptors;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dihedron.core.strings.Strings;
+import org.dihedron.strutlets.ActionInvocation;
+import org.dihedron.strutlets.exceptions.InterceptorException;
+import org.dihedron.strutlets.exceptions.StrutletsException;
+import org.dihedron.strutlets.tracing.Tracing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The base class for interceptors whose work involves some (possibly slow) I/O,
+ * such as auditing or remote authorisation lookups, and that can be overlapped
+ * with the execution of the rest of the chain and of the action. The interceptor
+ * is split in two halves, both invoked on the thread processing the request:
+ * <ol>
+ * <li>{@link #prepare(ActionInvocation)} captures whatever it needs from the
+ * action context and returns a task, which is submitted to the interceptor's
+ * own thread pool; the chain then proceeds immediately;</li>
+ * <li>{@link #complete(ActionInvocation, Object, String)} is invoked when the
+ * chain has returned, with the outcome of the task, and can confirm or replace
+ * the result.</li>
+ * </ol>
+ * Since the task runs on a different thread, it must not access the {@code
+ * ActionContext}. The interceptor supports the following parameters:<ul>
+ * <li><code>threads</code>: the size of the thread pool (default: 2);</li>
+ * <li><code>timeout</code>: the maximum time, in milliseconds, the request
+ * waits for the task once the chain has returned (default: 5000).</li></ul>
+ * As far as the rest of the framework is concerned, this is an ordinary
+ * synchronous interceptor, so it can be mixed freely with other interceptors
+ * in any stack.
+ *
+ * @author Andrea Funto'
+ */
+public abstract class AsyncInterceptor extends Interceptor {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(AsyncInterceptor.class);
+
+	/**
+	 * The name of the parameter containing the size of the thread pool.
+	 */
+	public static final String THREADS_PARAMETER = "threads";
+
+	/**
+	 * The name of the parameter containing the maximum wait, in milliseconds.
+	 */
+	public static final String TIMEOUT_PARAMETER = "timeout";
+
+	/**
+	 * The default size of the thread pool.
+	 */
+	public static final int DEFAULT_THREADS = 2;
+
+	/**
+	 * The default maximum wait, in milliseconds.
+	 */
+	public static final long DEFAULT_TIMEOUT = 5000;
+
+	/**
+	 * The thread pool running the asynchronous tasks.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * The maximum wait for a task, in milliseconds.
+	 */
+	private long timeout = DEFAULT_TIMEOUT;
+
+	/**
+	 * Initialises the thread pool; subclasses overriding this method must
+	 * invoke it.
+	 *
+	 * @see org.dihedron.strutlets.interceptors.Interceptor#initialise()
+	 */
+	@Override
+	public void initialise() {
+		int threads = DEFAULT_THREADS;
+		String value = getParameter(THREADS_PARAMETER);
+		if(Strings.isValid(value)) {
+			threads = Integer.parseInt(value.trim());
+		}
+		value = getParameter(TIMEOUT_PARAMETER);
+		if(Strings.isValid(value)) {
+			timeout = Long.parseLong(value.trim());
+		}
+		final String name = "strutlets-async-" + getId();
+		final AtomicInteger counter = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		logger.info("asynchronous interceptor '{}' running on {} threads (timeout: {} ms)", getId(), threads, timeout);
+	}
+
+	/**
+	 * Starts the asynchronous task, lets the chain proceed and then hands the
+	 * task outcome to {@link #complete(ActionInvocation, Object, String)}; if
+	 * the chain fails, the task is cancelled.
+	 *
+	 * @see org.dihedron.strutlets.interceptors.Interceptor#intercept(org.dihedron.strutlets.ActionInvocation)
+	 */
+	@Override
+	public final String intercept(ActionInvocation invocation) throws StrutletsException {
+		Callable<?> task = prepare(invocation);
+		Future<?> pending = task != null ? executor.submit(task) : null;
+		String result = null;
+		boolean done = false;
+		try {
+			result = invocation.invoke();
+			done = true;
+		} finally {
+			if(!done && pending != null) {
+				pending.cancel(true);
+			}
+		}
+		return complete(invocation, await(pending), result);
+	}
+
+	/**
+	 * Shuts the thread pool down.
+	 *
+	 * @see org.dihedron.strutlets.interceptors.Interceptor#cleanup()
+	 */
+	@Override
+	public void cleanup() {
+		if(executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Invoked on the request thread before the rest of the chain, it captures
+	 * any information needed from the action context and returns the task to
+	 * be run asynchronously.
+	 *
+	 * @param invocation
+	 *   the action invocation.
+	 * @return
+	 *   the task, or {@code null} if there is nothing to do for this request.
+	 * @throws StrutletsException
+	 */
+	protected abstract Callable<?> prepare(ActionInvocation invocation) throws StrutletsException;
+
+	/**
+	 * Invoked on the request thread after the rest of the chain has returned,
+	 * with the outcome of the asynchronous task; the default implementation
+	 * returns the result of the chain unchanged.
+	 *
+	 * @param invocation
+	 *   the action invocation.
+	 * @param outcome
+	 *   the value returned by the task, or {@code null} if no task was run.
+	 * @param result
+	 *   the result of the rest of the chain.
+	 * @return
+	 *   the result of the interceptor.
+	 * @throws StrutletsException
+	 */
+	protected String complete(ActionInvocation invocation, Object outcome, String result) throws StrutletsException {
+		return result;
+	}
+
+	/**
+	 * Waits for the task to complete.
+	 *
+	 * @param pending
+	 *   the pending task, or {@code null}.
+	 * @return
+	 *   the outcome of the task.
+	 * @throws InterceptorException
+	 *   if the task failed, timed out or the thread was interrupted.
+	 */
+	private Object await(Future<?> pending) throws InterceptorException {
+		if(pending == null) {
+			return null;
+		}
+		int span = Tracing.begin("await:", getId());
+		try {
+			return timeout > 0 ? pending.get(timeout, TimeUnit.MILLISECONDS) : pending.get();
+		} catch(TimeoutException e) {
+			pending.cancel(true);
+			throw new InterceptorException("timed out waiting for the asynchronous task of interceptor '" + getId() + "'", e);
+		} catch(ExecutionException e) {
+			throw new InterceptorException("asynchronous task of interceptor '" + getId() + "' failed", e.getCause());
+		} catch(CancellationException e) {
+			throw new InterceptorException("asynchronous task of interceptor '" + getId() + "' was cancelled", e);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterceptorException("interrupted while waiting for the asynchronous task of interceptor '" + getId() + "'", e);
+		} finally {
+			Tracing.end(span);
+		}
+	}
+}
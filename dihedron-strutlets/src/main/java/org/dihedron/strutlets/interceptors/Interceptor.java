@@ -7,8 +7,10 @@ package org.dihedron.strutlets.interceptors;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.dihedron.strutlets.ActionContext.Phase;
 import org.dihedron.strutlets.ActionInvocation;
 import org.dihedron.strutlets.exceptions.StrutletsException;
+import org.dihedron.strutlets.targets.Target;
 
 /**
  * @author Andrea Funto'
@@ -24,6 +26,11 @@ public abstract class Interceptor {
 	 * A map of configuration parameters.
 	 */
 	private Map<String, String> parameters = new HashMap<String, String>();
+	
+	/**
+	 * The conditions under which the interceptor is executed, if any.
+	 */
+	private Applicability applicability;
 		
 	/**
 	 * Sets the interceptor's unique identifier, namespaced with the stack in 
@@ -88,6 +95,46 @@ public abstract class Interceptor {
 		return parameters;
 	}
 	
+	/**
+	 * Sets the conditions under which the interceptor is executed.
+	 * 
+	 * @param applicability
+	 *   the applicability conditions, or {@code null} if the interceptor must
+	 *   always be executed.
+	 * @return
+	 *   the interceptor itself, for method chaining.
+	 */
+	public Interceptor setApplicability(Applicability applicability) {
+		this.applicability = applicability;
+		return this;
+	}
+	
+	/**
+	 * Returns the conditions under which the interceptor is executed.
+	 * 
+	 * @return
+	 *   the applicability conditions, or {@code null} if the interceptor is 
+	 *   always executed.
+	 */
+	public Applicability getApplicability() {
+		return applicability;
+	}
+	
+	/**
+	 * Returns whether the interceptor must be executed for the given target in
+	 * the given phase.
+	 * 
+	 * @param target
+	 *   the target.
+	 * @param phase
+	 *   the request processing phase.
+	 * @return
+	 *   whether the interceptor applies.
+	 */
+	public boolean appliesTo(Target target, Phase phase) {
+		return applicability == null || (applicability.appliesTo(phase) && applicability.appliesTo(target));
+	}
+	
 	/**
 	 * Initialises the interceptor; this is the place where any task that should 
 	 * be performed before the request processing starts can be accomplished. 
@@ -101,6 +148,13 @@ public abstract class Interceptor {
 	public void initialise() {
 	}
 	
+	/**
+	 * Releases any resources held by the interceptor, when the portlet is shut
+	 * down; the default implementation does nothing.
+	 */
+	public void cleanup() {
+	}
+	
 	/**
 	 * The method implementing the interceptor's business logic.
 	 * 
@@ -52,6 +52,9 @@ public class InterceptorStack extends ArrayList<Interceptor> {
 			buffer.append(" {\n");
 			for(Interceptor interceptor : this ) {
 				buffer.append("  interceptor('").append(interceptor.getId()).append("')");
+				if(interceptor.getApplicability() != null) {
+					buffer.append(" [").append(interceptor.getApplicability()).append("]");
+				}
 				if(!interceptor.getParameters().isEmpty()) {
 					buffer.append(" {\n");
 					for(Entry<String, String> entry : interceptor.getParameters().entrySet()) {
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.interceptors.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.dihedron.core.strings.Strings;
+import org.dihedron.strutlets.ActionContext;
+import org.dihedron.strutlets.ActionInvocation;
+import org.dihedron.strutlets.exceptions.InterceptorException;
+import org.dihedron.strutlets.exceptions.StrutletsException;
+import org.dihedron.strutlets.interceptors.Interceptor;
+import org.dihedron.strutlets.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An interceptor that caps the number of concurrent executions of the targets
+ * it applies to, so that targets depending on a slow or degraded backend cannot
+ * tie up all the container threads. Executions are counted either per target
+ * or across all the targets going through the interceptor (which, together
+ * with the <code>targets</code> applicability attribute, allows to protect a
+ * group of targets sharing the same backend); when no permit is available, the
+ * request optionally waits for a while and is then rejected with the
+ * configured result.
+ *
+ * Rejections, queued requests and queue timeouts are counted in the portlet
+ * metrics, as "&lt;interceptor id&gt;.rejected", "&lt;interceptor id&gt;.queued"
+ * and "&lt;interceptor id&gt;.timeouts" respectively.
+ *
+ * The interceptor supports the following parameters:<ul>
+ * <li><code>permits</code>: the maximum number of concurrent executions
+ * (default: 10);</li>
+ * <li><code>per-target</code>: whether executions are counted per target
+ * (<code>true</code>, the default) or across all targets;</li>
+ * <li><code>queue</code>: the maximum number of requests waiting for a permit
+ * (default: 0, i.e. requests are rejected straight away);</li>
+ * <li><code>timeout</code>: the maximum time a queued request waits for a
+ * permit, in milliseconds (default: 1000);</li>
+ * <li><code>result</code>: the result returned when a request is rejected
+ * (default: <code>error_bulkhead_full</code>).</li></ul>
+ *
+ * @author Andrea Funto'
+ */
+public class Bulkhead extends Interceptor {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(Bulkhead.class);
+
+	/**
+	 * The default maximum number of concurrent executions.
+	 */
+	public static final int DEFAULT_PERMITS = 10;
+
+	/**
+	 * The default maximum time a queued request waits, in milliseconds.
+	 */
+	public static final long DEFAULT_TIMEOUT = 1000;
+
+	/**
+	 * The default result returned when a request is rejected.
+	 */
+	public static final String DEFAULT_RESULT = "error_bulkhead_full";
+
+	/**
+	 * The key of the semaphore shared by all targets.
+	 */
+	private static final String SHARED = "";
+
+	/**
+	 * The maximum number of concurrent executions.
+	 */
+	private int permits = DEFAULT_PERMITS;
+
+	/**
+	 * Whether executions are counted per target.
+	 */
+	private boolean perTarget = true;
+
+	/**
+	 * The maximum number of requests waiting for a permit.
+	 */
+	private int queue = 0;
+
+	/**
+	 * The maximum time a queued request waits, in milliseconds.
+	 */
+	private long timeout = DEFAULT_TIMEOUT;
+
+	/**
+	 * The result returned when a request is rejected.
+	 */
+	private String result = DEFAULT_RESULT;
+
+	/**
+	 * The semaphores, by target identifier (or {@link #SHARED}).
+	 */
+	private final ConcurrentMap<String, Semaphore> semaphores = new ConcurrentHashMap<String, Semaphore>();
+
+	/**
+	 * The number of requests currently waiting for a permit.
+	 */
+	private final AtomicInteger waiting = new AtomicInteger();
+
+	/**
+	 * The counter of rejected requests, once looked up in the portlet metrics.
+	 */
+	private volatile AtomicLong rejected;
+
+	/**
+	 * The counter of queued requests, once looked up in the portlet metrics.
+	 */
+	private volatile AtomicLong queued;
+
+	/**
+	 * The counter of queued requests that timed out, once looked up in the
+	 * portlet metrics.
+	 */
+	private volatile AtomicLong timeouts;
+
+	/**
+	 * @see org.dihedron.strutlets.interceptors.Interceptor#initialise()
+	 */
+	@Override
+	public void initialise() {
+		String value = getParameter("permits");
+		if(Strings.isValid(value)) {
+			permits = Integer.parseInt(value.trim());
+		}
+		value = getParameter("per-target");
+		if(Strings.isValid(value)) {
+			perTarget = Boolean.parseBoolean(value.trim());
+		}
+		value = getParameter("queue");
+		if(Strings.isValid(value)) {
+			queue = Integer.parseInt(value.trim());
+		}
+		value = getParameter("timeout");
+		if(Strings.isValid(value)) {
+			timeout = Long.parseLong(value.trim());
+		}
+		value = getParameter("result");
+		if(Strings.isValid(value)) {
+			result = value.trim();
+		}
+		logger.info("interceptor '{}' allows {} concurrent executions {} (queue: {}, timeout: {} ms)",
+				getId(), permits, perTarget ? "per target" : "overall", queue, timeout);
+	}
+
+	/**
+	 * Forwards the request if a permit is available (possibly after waiting in
+	 * the queue), otherwise returns the configured result.
+	 *
+	 * @param invocation
+	 *   the current action invocation.
+	 * @return
+	 *   the result of the nested components' execution, or the configured
+	 *   result if the request is rejected.
+	 * @see
+	 *   org.dihedron.strutlets.interceptors.Interceptor#intercept(org.dihedron.strutlets.ActionInvocation)
+	 */
+	@Override
+	public String intercept(ActionInvocation invocation) throws StrutletsException {
+		bindCounters();
+		String target = invocation.getTarget().getId().toString();
+		Semaphore semaphore = getSemaphore(perTarget ? target : SHARED);
+		if(!acquire(semaphore)) {
+			rejected.incrementAndGet();
+			logger.warn("execution of target '{}' rejected by bulkhead, forwarding result '{}'", target, result);
+			return result;
+		}
+		try {
+			return invocation.invoke();
+		} finally {
+			semaphore.release();
+		}
+	}
+
+	/**
+	 * Returns the number of requests currently waiting for a permit.
+	 *
+	 * @return
+	 *   the number of queued requests.
+	 */
+	public int getWaiting() {
+		return waiting.get();
+	}
+
+	/**
+	 * Acquires a permit, waiting in the queue if it is not full.
+	 *
+	 * @param semaphore
+	 *   the semaphore.
+	 * @return
+	 *   whether the permit was acquired.
+	 * @throws InterceptorException
+	 *   if the thread was interrupted while waiting.
+	 */
+	boolean acquire(Semaphore semaphore) throws InterceptorException {
+		if(semaphore.tryAcquire()) {
+			return true;
+		}
+		if(queue <= 0) {
+			return false;
+		}
+		if(waiting.incrementAndGet() > queue) {
+			waiting.decrementAndGet();
+			return false;
+		}
+		queued.incrementAndGet();
+		try {
+			if(semaphore.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+				return true;
+			}
+			timeouts.incrementAndGet();
+			return false;
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterceptorException("interrupted while waiting for a permit from interceptor '" + getId() + "'", e);
+		} finally {
+			waiting.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns the semaphore associated with the given key, creating it if it
+	 * does not exist yet.
+	 *
+	 * @param key
+	 *   the target identifier, or {@link #SHARED}.
+	 * @return
+	 *   the semaphore.
+	 */
+	Semaphore getSemaphore(String key) {
+		Semaphore semaphore = semaphores.get(key);
+		if(semaphore == null) {
+			Semaphore created = new Semaphore(permits, true);
+			semaphore = semaphores.putIfAbsent(key, created);
+			if(semaphore == null) {
+				semaphore = created;
+			}
+		}
+		return semaphore;
+	}
+
+	/**
+	 * Looks the interceptor's counters up in the portlet metrics, the first
+	 * time the interceptor is invoked.
+	 */
+	@SuppressWarnings("deprecation")
+	private void bindCounters() {
+		if(timeouts == null) {
+			bindCounters(ActionContext.getActionController().getMetrics());
+		}
+	}
+
+	/**
+	 * Looks the interceptor's counters up in the given metrics registry.
+	 *
+	 * @param metrics
+	 *   the metrics registry.
+	 */
+	void bindCounters(MetricsRegistry metrics) {
+		rejected = metrics.getCounter(getId() + ".rejected");
+		queued = metrics.getCounter(getId() + ".queued");
+		timeouts = metrics.getCounter(getId() + ".timeouts");
+	}
+}
@@ -0,0 +1,442 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.interceptors.impl;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.dihedron.core.strings.Strings;
+import org.dihedron.strutlets.ActionContext;
+import org.dihedron.strutlets.ActionInvocation;
+import org.dihedron.strutlets.exceptions.StrutletsException;
+import org.dihedron.strutlets.interceptors.Interceptor;
+import org.dihedron.strutlets.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An interceptor that stops invoking a target whose executions keep failing or
+ * running slow, so that requests (e.g. page renders) fail fast with a fallback
+ * result instead of piling up on a degraded backend.
+ *
+ * The outcomes of the most recent executions of each target are kept in a
+ * lock-free ring buffer; when the buffer holds enough outcomes and the ratio of
+ * failed or slow ones reaches the threshold, the circuit opens and requests are
+ * short-circuited to the fallback result. After the cool-down period a single
+ * probe request is let through ("half-open" state): if it succeeds the circuit
+ * closes again, otherwise it stays open for another cool-down period. An
+ * execution fails if it throws an exception or returns one of the configured
+ * failure results; it is slow if it takes longer than the slow call threshold.
+ *
+ * Circuit openings and short-circuited requests are counted in the portlet
+ * metrics, as "&lt;interceptor id&gt;.opened" and "&lt;interceptor
+ * id&gt;.short-circuited" respectively.
+ *
+ * The interceptor supports the following parameters:<ul>
+ * <li><code>window</code>: the number of recent executions considered
+ * (default: 20);</li>
+ * <li><code>minimum-calls</code>: the minimum number of executions in the
+ * window before the circuit can open (default: 10);</li>
+ * <li><code>failure-rate</code>: the ratio of failed or slow executions that
+ * opens the circuit, between 0 and 1 (default: 0.5);</li>
+ * <li><code>slow-call</code>: the time after which an execution is considered
+ * slow, in milliseconds (default: 0, i.e. latency is not considered);</li>
+ * <li><code>failure-results</code>: a comma-separated list of results denoting
+ * a failed execution (default: none);</li>
+ * <li><code>cool-down</code>: the time the circuit stays open before a probe
+ * request is let through, in milliseconds (default: 30000);</li>
+ * <li><code>result</code>: the result returned when the circuit is open
+ * (default: <code>error_circuit_open</code>).</li></ul>
+ *
+ * @author Andrea Funto'
+ */
+public class CircuitBreaker extends Interceptor {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	/**
+	 * The default number of recent executions considered.
+	 */
+	public static final int DEFAULT_WINDOW = 20;
+
+	/**
+	 * The default minimum number of executions before the circuit can open.
+	 */
+	public static final int DEFAULT_MINIMUM_CALLS = 10;
+
+	/**
+	 * The default ratio of failed or slow executions that opens the circuit.
+	 */
+	public static final double DEFAULT_FAILURE_RATE = 0.5;
+
+	/**
+	 * The default time the circuit stays open, in milliseconds.
+	 */
+	public static final long DEFAULT_COOL_DOWN = 30000;
+
+	/**
+	 * The default result returned when the circuit is open.
+	 */
+	public static final String DEFAULT_RESULT = "error_circuit_open";
+
+	/**
+	 * The state of a circuit.
+	 */
+	public enum State {
+		/**
+		 * Requests are forwarded and their outcome recorded.
+		 */
+		CLOSED,
+
+		/**
+		 * Requests are short-circuited to the fallback result.
+		 */
+		OPEN,
+
+		/**
+		 * A single probe request is being forwarded.
+		 */
+		HALF_OPEN
+	}
+
+	/**
+	 * An empty slot in the ring buffer.
+	 */
+	private static final int EMPTY = 0;
+
+	/**
+	 * A successful execution.
+	 */
+	static final int SUCCESS = 1;
+
+	/**
+	 * A failed or slow execution.
+	 */
+	static final int FAILURE = 2;
+
+	/**
+	 * The circuit of a single target.
+	 */
+	class Circuit {
+
+		/**
+		 * The outcomes of the most recent executions.
+		 */
+		private final AtomicIntegerArray outcomes = new AtomicIntegerArray(window);
+
+		/**
+		 * The number of executions recorded so far, used to pick the next slot.
+		 */
+		private final AtomicLong recorded = new AtomicLong();
+
+		/**
+		 * The number of outcomes in the ring buffer.
+		 */
+		private final AtomicInteger calls = new AtomicInteger();
+
+		/**
+		 * The number of failed or slow outcomes in the ring buffer.
+		 */
+		private final AtomicInteger failures = new AtomicInteger();
+
+		/**
+		 * The circuit state, as the ordinal of a {@link State}.
+		 */
+		private final AtomicInteger state = new AtomicInteger(State.CLOSED.ordinal());
+
+		/**
+		 * The value of the nanosecond timer when the circuit was last opened.
+		 */
+		private volatile long opened;
+
+		/**
+		 * Records the outcome of an execution, replacing the oldest one in the
+		 * ring buffer, and opens the circuit if the failure rate is reached.
+		 *
+		 * @param outcome
+		 *   {@link #SUCCESS} or {@link #FAILURE}.
+		 */
+		void record(int outcome) {
+			int slot = (int)(recorded.getAndIncrement() % window);
+			int previous = outcomes.getAndSet(slot, outcome);
+			if(previous == EMPTY) {
+				calls.incrementAndGet();
+			} else if(previous == FAILURE) {
+				failures.decrementAndGet();
+			}
+			int failed = outcome == FAILURE ? failures.incrementAndGet() : failures.get();
+			int total = calls.get();
+			if(outcome == FAILURE && total >= minimumCalls && failed >= failureRate * total) {
+				open(State.CLOSED, System.nanoTime());
+			}
+		}
+
+		/**
+		 * Checks whether a request can be forwarded to the target, letting a 
+		 * single probe request through once the circuit has been open for the
+		 * cool-down time.
+		 *
+		 * @param now
+		 *   the current value of the nanosecond timer.
+		 * @return
+		 *   {@link State#CLOSED} if the request can be forwarded, 
+		 *   {@link State#HALF_OPEN} if it is the probe request, and 
+		 *   {@link State#OPEN} if it must be short-circuited.
+		 */
+		State admit(long now) {
+			int current = state.get();
+			if(current == State.CLOSED.ordinal()) {
+				return State.CLOSED;
+			}
+			if(current == State.OPEN.ordinal() && now - opened >= coolDown
+					&& state.compareAndSet(State.OPEN.ordinal(), State.HALF_OPEN.ordinal())) {
+				return State.HALF_OPEN;
+			}
+			return State.OPEN;
+		}
+
+		/**
+		 * Opens the circuit, if it is in the expected state.
+		 *
+		 * @param expected
+		 *   the state the circuit is expected to be in.
+		 * @param now
+		 *   the current value of the nanosecond timer.
+		 */
+		void open(State expected, long now) {
+			if(state.get() != expected.ordinal()) {
+				return;
+			}
+			// the opening time must be visible before the state that publishes it
+			opened = now;
+			if(state.compareAndSet(expected.ordinal(), State.OPEN.ordinal())) {
+				openings.incrementAndGet();
+				logger.warn("interceptor '{}' opened the circuit ({} failures in {} calls)", getId(), failures.get(), calls.get());
+			}
+		}
+
+		/**
+		 * Closes the circuit after a successful probe, clearing the ring buffer.
+		 */
+		void close() {
+			for(int i = 0; i < window; ++i) {
+				outcomes.set(i, EMPTY);
+			}
+			calls.set(0);
+			failures.set(0);
+			state.set(State.CLOSED.ordinal());
+			logger.info("interceptor '{}' closed the circuit", getId());
+		}
+	}
+
+	/**
+	 * The number of recent executions considered.
+	 */
+	private int window = DEFAULT_WINDOW;
+
+	/**
+	 * The minimum number of executions before the circuit can open.
+	 */
+	private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+
+	/**
+	 * The ratio of failed or slow executions that opens the circuit.
+	 */
+	private double failureRate = DEFAULT_FAILURE_RATE;
+
+	/**
+	 * The time after which an execution is slow, in nanoseconds; 0 if latency
+	 * is not considered.
+	 */
+	private long slowCall = 0;
+
+	/**
+	 * The results denoting a failed execution.
+	 */
+	private final Set<String> failureResults = new HashSet<String>();
+
+	/**
+	 * The time the circuit stays open, in nanoseconds.
+	 */
+	private long coolDown = TimeUnit.MILLISECONDS.toNanos(DEFAULT_COOL_DOWN);
+
+	/**
+	 * The result returned when the circuit is open.
+	 */
+	private String result = DEFAULT_RESULT;
+
+	/**
+	 * The circuits, by target identifier.
+	 */
+	private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<String, Circuit>();
+
+	/**
+	 * The counter of circuit openings, once looked up in the portlet metrics.
+	 */
+	private volatile AtomicLong openings;
+
+	/**
+	 * The counter of short-circuited requests, once looked up in the portlet
+	 * metrics.
+	 */
+	private volatile AtomicLong shortCircuited;
+
+	/**
+	 * @see org.dihedron.strutlets.interceptors.Interceptor#initialise()
+	 */
+	@Override
+	public void initialise() {
+		String value = getParameter("window");
+		if(Strings.isValid(value)) {
+			window = Integer.parseInt(value.trim());
+		}
+		value = getParameter("minimum-calls");
+		if(Strings.isValid(value)) {
+			minimumCalls = Integer.parseInt(value.trim());
+		}
+		value = getParameter("failure-rate");
+		if(Strings.isValid(value)) {
+			failureRate = Double.parseDouble(value.trim());
+		}
+		value = getParameter("slow-call");
+		if(Strings.isValid(value)) {
+			slowCall = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(value.trim()));
+		}
+		value = getParameter("failure-results");
+		if(Strings.isValid(value)) {
+			for(String failure : Strings.split(value, ",", true)) {
+				failureResults.add(failure.trim());
+			}
+		}
+		value = getParameter("cool-down");
+		if(Strings.isValid(value)) {
+			coolDown = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(value.trim()));
+		}
+		value = getParameter("result");
+		if(Strings.isValid(value)) {
+			result = value.trim();
+		}
+		minimumCalls = Math.min(minimumCalls, window);
+		logger.info("interceptor '{}' opens the circuit at a {} failure rate over {} calls (cool-down: {} ms)",
+				getId(), failureRate, window, TimeUnit.NANOSECONDS.toMillis(coolDown));
+	}
+
+	/**
+	 * Forwards the request if the target's circuit is closed (or if this is the
+	 * probe request of a half-open circuit) and records its outcome; otherwise
+	 * returns the configured result.
+	 *
+	 * @param invocation
+	 *   the current action invocation.
+	 * @return
+	 *   the result of the nested components' execution, or the configured
+	 *   result if the circuit is open.
+	 * @see
+	 *   org.dihedron.strutlets.interceptors.Interceptor#intercept(org.dihedron.strutlets.ActionInvocation)
+	 */
+	@Override
+	public String intercept(ActionInvocation invocation) throws StrutletsException {
+		bindCounters();
+		String target = invocation.getTarget().getId().toString();
+		Circuit circuit = getCircuit(target);
+
+		State admission = circuit.admit(System.nanoTime());
+		if(admission == State.OPEN) {
+			shortCircuited.incrementAndGet();
+			logger.debug("circuit open, forwarding result '{}' for target '{}'", result, target);
+			return result;
+		}
+		boolean probe = admission == State.HALF_OPEN;
+		if(probe) {
+			logger.debug("interceptor '{}' letting a probe request through to target '{}'", getId(), target);
+		}
+
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			String outcome = invocation.invoke();
+			failed = outcome != null && failureResults.contains(outcome);
+			return outcome;
+		} finally {
+			if(!failed && slowCall > 0 && System.nanoTime() - start > slowCall) {
+				failed = true;
+			}
+			if(probe) {
+				if(failed) {
+					circuit.open(State.HALF_OPEN, System.nanoTime());
+				} else {
+					circuit.close();
+				}
+			} else {
+				circuit.record(failed ? FAILURE : SUCCESS);
+			}
+		}
+	}
+
+	/**
+	 * Returns the state of the circuit of the given target.
+	 *
+	 * @param target
+	 *   the target identifier.
+	 * @return
+	 *   the circuit state.
+	 */
+	public State getState(String target) {
+		Circuit circuit = circuits.get(target);
+		return circuit != null ? State.values()[circuit.state.get()] : State.CLOSED;
+	}
+
+	/**
+	 * Returns the circuit associated with the given target, creating it if it
+	 * does not exist yet.
+	 *
+	 * @param target
+	 *   the target identifier.
+	 * @return
+	 *   the circuit.
+	 */
+	Circuit getCircuit(String target) {
+		Circuit circuit = circuits.get(target);
+		if(circuit == null) {
+			Circuit created = new Circuit();
+			circuit = circuits.putIfAbsent(target, created);
+			if(circuit == null) {
+				circuit = created;
+			}
+		}
+		return circuit;
+	}
+
+	/**
+	 * Looks the interceptor's counters up in the portlet metrics, the first
+	 * time the interceptor is invoked.
+	 */
+	@SuppressWarnings("deprecation")
+	private void bindCounters() {
+		if(shortCircuited == null) {
+			bindCounters(ActionContext.getActionController().getMetrics());
+		}
+	}
+
+	/**
+	 * Looks the interceptor's counters up in the given metrics registry.
+	 *
+	 * @param metrics
+	 *   the metrics registry.
+	 */
+	void bindCounters(MetricsRegistry metrics) {
+		openings = metrics.getCounter(getId() + ".opened");
+		shortCircuited = metrics.getCounter(getId() + ".short-circuited");
+	}
+}
@@ -6,6 +6,7 @@ package org.dihedron.strutlets.interceptors.impl;
 
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.dihedron.core.regex.Regex;
 import org.dihedron.core.strings.Strings;
@@ -18,6 +19,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * An interceptor that dumps the contents of form parameters, scopes and HTTP
+ * parameters and attributes before and after the action execution. 
+ * 
+ * Dumping is expensive, so it is only performed when the logger is enabled at 
+ * DEBUG level, and then only for a sample of the requests; the dump itself is
+ * formatted lazily, each value is truncated to a maximum length, and values 
+ * stop being collected (and formatted) as soon as the dump reaches its maximum 
+ * length. The interceptor supports the following parameters:<ul>
+ * <li><code>exclude</code>: a regular expression matching the names of the 
+ * values that must not be dumped;</li>
+ * <li><code>sample</code>: the ratio of requests being dumped, between 0 and 1
+ * (default: 1);</li>
+ * <li><code>max-value-length</code>: the maximum number of characters dumped 
+ * per value (default: 256);</li>
+ * <li><code>max-length</code>: the maximum number of characters per dump 
+ * (default: 16384).</li></ul>
+ * 
  * @author Andrea Funto'
  */
 public class Dumper extends Interceptor {
@@ -28,6 +46,31 @@ public class Dumper extends Interceptor {
 	 */
 	public static final String EXCLUDE_PARAMETER = "exclude";
 	
+	/**
+	 * The name of the parameter containing the ratio of requests being dumped.
+	 */
+	public static final String SAMPLE_PARAMETER = "sample";
+	
+	/**
+	 * The name of the parameter containing the maximum length of each value.
+	 */
+	public static final String MAX_VALUE_LENGTH_PARAMETER = "max-value-length";
+	
+	/**
+	 * The name of the parameter containing the maximum length of each dump.
+	 */
+	public static final String MAX_LENGTH_PARAMETER = "max-length";
+	
+	/**
+	 * The default maximum length of each value.
+	 */
+	public static final int DEFAULT_MAX_VALUE_LENGTH = 256;
+	
+	/**
+	 * The default maximum length of each dump.
+	 */
+	public static final int DEFAULT_MAX_LENGTH = 16384;
+	
 	/**
 	 * The logger.
 	 */
@@ -39,18 +82,96 @@ public class Dumper extends Interceptor {
 	
 	private static final String SECTION_FOOTER = "================================================================";
 
+	private static final String TRUNCATED = "...";
+
 	private Regex regex = null;
 	
+	/**
+	 * The ratio of requests being dumped.
+	 */
+	private double sample = 1.0;
+	
+	/**
+	 * The maximum length of each value.
+	 */
+	private int maxValueLength = DEFAULT_MAX_VALUE_LENGTH;
+	
+	/**
+	 * The maximum length of each dump.
+	 */
+	private int maxLength = DEFAULT_MAX_LENGTH;
+	
+	/**
+	 * A dump of the action context, formatted only when (and if) it is actually
+	 * written to the log.
+	 */
+	private class Dump {
+		
+		/**
+		 * Whether the dump is taken after the action execution.
+		 */
+		private final boolean after;
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param after
+		 *   whether the dump is taken after the action execution.
+		 */
+		Dump(boolean after) {
+			this.after = after;
+		}
+		
+		/**
+		 * Formats the dump.
+		 * 
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			if(after) {
+				dumpRenderParameters(builder, maxLength);
+			} else {
+				dumpFormParameters(builder, maxLength);
+			}
+			dumpAttributes(Scope.REQUEST, builder, maxLength);
+			dumpAttributes(Scope.PORTLET, builder, maxLength);
+			dumpAttributes(Scope.APPLICATION, builder, maxLength);
+			dumpHttpParameters(builder, maxLength);
+			dumpHttpAttributes(builder, maxLength);
+			if(builder.length() >= maxLength) {
+				builder.setLength(maxLength);
+				builder.append(TRUNCATED).append("\n");
+			}
+			builder.append(SECTION_FOOTER).append("\n");
+			return builder.toString();
+		}
+	}
+	
 	@Override
 	public void initialise() {
-		String exclude = getParameter("exclude");
+		String exclude = getParameter(EXCLUDE_PARAMETER);
 		if(Strings.isValid(exclude)) {
 			regex = new Regex(exclude);
 		}
+		String value = getParameter(SAMPLE_PARAMETER);
+		if(Strings.isValid(value)) {
+			sample = Double.parseDouble(value.trim());
+		}
+		value = getParameter(MAX_VALUE_LENGTH_PARAMETER);
+		if(Strings.isValid(value)) {
+			maxValueLength = Integer.parseInt(value.trim());
+		}
+		value = getParameter(MAX_LENGTH_PARAMETER);
+		if(Strings.isValid(value)) {
+			maxLength = Integer.parseInt(value.trim());
+		}
 	}
 	
 	/**
-	 * Dumps the various scopes before and after the action invocation. 
+	 * Dumps the various scopes before and after the action invocation, if the
+	 * logger is enabled at DEBUG level and the request is sampled. 
 	 * 
 	 * @param invocation
 	 *   the current action invocation.
@@ -61,43 +182,60 @@ public class Dumper extends Interceptor {
 	 */
 	@Override
 	public String intercept(ActionInvocation invocation) throws StrutletsException {
-		StringBuilder builder = new StringBuilder();
-		dumpFormParameters(builder);
-		dumpAttributes(Scope.REQUEST, builder);
-		dumpAttributes(Scope.PORTLET, builder);
-		dumpAttributes(Scope.APPLICATION, builder);
-		dumpHttpParameters(builder);
-		dumpHttpAttributes(builder);
-		builder.append(SECTION_FOOTER).append("\n");
-		logger.debug("action context BEFORE execution:\n{}", builder);
-		builder.setLength(0);
+		if(!logger.isDebugEnabled() || (sample < 1.0 && ThreadLocalRandom.current().nextDouble() >= sample)) {
+			return invocation.invoke();
+		}
+		logger.debug("action context BEFORE execution:\n{}", new Dump(false));
 		String result = invocation.invoke();
-		dumpRenderParameters(builder);
-		dumpAttributes(Scope.REQUEST, builder);
-		dumpAttributes(Scope.PORTLET, builder);
-		dumpAttributes(Scope.APPLICATION, builder);
-		dumpHttpParameters(builder);
-		dumpHttpAttributes(builder);
-		builder.append(SECTION_FOOTER).append("\n");
-		logger.debug("action context AFTER execution:\n{}", builder);
+		logger.debug("action context AFTER execution:\n{}", new Dump(true));
 		return result;		
 	}
 	
+	/**
+	 * Appends a value to the provided buffer, truncating it if it is too long.
+	 * 
+	 * @param builder
+	 *   the buffer used for output accumulation.
+	 * @param value
+	 *   the value.
+	 */
+	private void append(StringBuilder builder, Object value) {
+		String string = value != null ? value.toString() : null;
+		if(string != null && string.length() > maxValueLength) {
+			builder.append(string, 0, maxValueLength).append(TRUNCATED);
+		} else {
+			builder.append(string);
+		}
+	}
+	
 	/**
 	 * Dumps any user-submitted web form parameters to the provided buffer.
 	 * 
 	 * @param builder
 	 *   the buffer used for output accumulation.
+	 * @param limit
+	 *   the length of the buffer past which nothing more is appended.
 	 */
-	private void dumpFormParameters(StringBuilder builder) {
+	private void dumpFormParameters(StringBuilder builder, int limit) {
+		if(builder.length() >= limit) {
+			return;
+		}
 		Map<String, String[]> parameters = ActionContext.getParameters();	
 		if(parameters != null) {
 			builder.append(Strings.centre(" WEB FORM ", SECTION_HEADER_LENGTH, SECTION_HEADER_PADDING)).append("\n");
 			for(Entry<String, String[]> entry : parameters.entrySet()) {
+				if(builder.length() >= limit) {
+					break;
+				}
 				if(regex == null || !regex.matches(entry.getKey())) {
 					builder.append("'").append(entry.getKey()).append("' = [ ");
 					for(String value : entry.getValue()) {
-						builder.append("'").append(value).append("', ");
+						if(builder.length() >= limit) {
+							break;
+						}
+						builder.append("'");
+						append(builder, value);
+						builder.append("', ");
 					}
 					builder.append("]\n");
 				}
@@ -110,16 +248,29 @@ public class Dumper extends Interceptor {
 	 * 
 	 * @param builder
 	 *   the buffer used for output accumulation.
+	 * @param limit
+	 *   the length of the buffer past which nothing more is appended.
 	 */
-	private void dumpRenderParameters(StringBuilder builder) {
+	private void dumpRenderParameters(StringBuilder builder, int limit) {
+		if(builder.length() >= limit) {
+			return;
+		}
 		Map<String, String[]> parameters = ActionContext.getRenderParameterMap();		
 		builder.append(Strings.centre(" RENDER PARAMETERS ", SECTION_HEADER_LENGTH, SECTION_HEADER_PADDING)).append("\n");
 		if(parameters != null) {
 			for(Entry<String, String[]> entry : parameters.entrySet()) {
+				if(builder.length() >= limit) {
+					break;
+				}
 				if(regex == null || !regex.matches(entry.getKey())) {
 					builder.append("'").append(entry.getKey()).append("' = [ ");
 					for(String value : entry.getValue()) {
-						builder.append("'").append(value).append("', ");
+						if(builder.length() >= limit) {
+							break;
+						}
+						builder.append("'");
+						append(builder, value);
+						builder.append("', ");
 					}
 					builder.append("]\n");
 				}
@@ -134,29 +285,57 @@ public class Dumper extends Interceptor {
 	 *   the scope whose values are being dumped.
 	 * @param builder
 	 *   the buffer used for output accumulation.
+	 * @param limit
+	 *   the length of the buffer past which nothing more is appended.
 	 */
-	private void dumpAttributes(Scope scope, StringBuilder builder) {
+	private void dumpAttributes(Scope scope, StringBuilder builder, int limit) {
+		if(builder.length() >= limit) {
+			return;
+		}
 		Map<String, Object> attributes = ActionContext.getAttributes(scope);
 		builder.append(Strings.centre(" " + scope.name() + " SCOPE ", SECTION_HEADER_LENGTH, SECTION_HEADER_PADDING)).append("\n");
 		if(attributes != null) {			
 			for(Entry<String, Object> entry : attributes.entrySet()) {
+				if(builder.length() >= limit) {
+					break;
+				}
 				if(regex == null || !regex.matches(entry.getKey())) {
-					String value = entry.getValue() != null ? entry.getValue().toString() : null; 
-					builder.append("'").append(entry.getKey()).append("' = '").append(value).append("'\n");
+					builder.append("'").append(entry.getKey()).append("' = '");
+					append(builder, entry.getValue());
+					builder.append("'\n");
 				}
 			}
 		}
 	}
 	
-	private void dumpHttpParameters(StringBuilder builder) {
+	/**
+	 * Dumps the HTTP request parameters to the provided buffer.
+	 * 
+	 * @param builder
+	 *   the buffer used for output accumulation.
+	 * @param limit
+	 *   the length of the buffer past which nothing more is appended.
+	 */
+	private void dumpHttpParameters(StringBuilder builder, int limit) {
+		if(builder.length() >= limit) {
+			return;
+		}
 		Map<String, String[]> parameters = ActionContext.getHttpParametersMap();		
 		builder.append(Strings.centre(" HTTP PARAMETERS ", SECTION_HEADER_LENGTH, SECTION_HEADER_PADDING)).append("\n");
 		if(parameters != null) {
 			for(Entry<String, String[]> entry : parameters.entrySet()) {
+				if(builder.length() >= limit) {
+					break;
+				}
 				if(regex == null || !regex.matches(entry.getKey())) {
 					builder.append("'").append(entry.getKey()).append("' = [ ");
 					for(String value : entry.getValue()) {
-						builder.append("'").append(value).append("', ");
+						if(builder.length() >= limit) {
+							break;
+						}
+						builder.append("'");
+						append(builder, value);
+						builder.append("', ");
 					}
 					builder.append("]\n");
 				}
@@ -164,14 +343,29 @@ public class Dumper extends Interceptor {
 		}		
 	}
 	
-	private void dumpHttpAttributes(StringBuilder builder) {
+	/**
+	 * Dumps the HTTP request attributes to the provided buffer.
+	 * 
+	 * @param builder
+	 *   the buffer used for output accumulation.
+	 * @param limit
+	 *   the length of the buffer past which nothing more is appended.
+	 */
+	private void dumpHttpAttributes(StringBuilder builder, int limit) {
+		if(builder.length() >= limit) {
+			return;
+		}
 		Map<String, Object> attributes = ActionContext.getHttpAttributesMap();
 		builder.append(Strings.centre(" HTTP ATTRIBUTES ", SECTION_HEADER_LENGTH, SECTION_HEADER_PADDING)).append("\n");
 		if(attributes != null) {			
 			for(Entry<String, Object> entry : attributes.entrySet()) {
+				if(builder.length() >= limit) {
+					break;
+				}
 				if(regex == null || !regex.matches(entry.getKey())) {				
-					String value = entry.getValue() != null ? entry.getValue().toString() : null; 
-					builder.append("'").append(entry.getKey()).append("' = '").append(value).append("'\n");
+					builder.append("'").append(entry.getKey()).append("' = '");
+					append(builder, entry.getValue());
+					builder.append("'\n");
 				}
 			}
 		}
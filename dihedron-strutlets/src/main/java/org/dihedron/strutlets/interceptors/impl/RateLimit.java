@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.interceptors.impl;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.portlet.PortletSession;
+import javax.portlet.ResourceResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.dihedron.core.strings.Strings;
+import org.dihedron.strutlets.ActionContext;
+import org.dihedron.strutlets.ActionInvocation;
+import org.dihedron.strutlets.exceptions.StrutletsException;
+import org.dihedron.strutlets.interceptors.Interceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An interceptor that limits the rate at which targets can be invoked, by
+ * keeping a token bucket per key, where the key is made up of any combination
+ * of the user, the session, the target and the client IP address. Requests
+ * exceeding the rate are not forwarded to the action: the interceptor returns
+ * the configured result instead and, in the resource phase, sets the HTTP
+ * status to "429 Too Many Requests".
+ *
+ * Each bucket is a single atomic counter holding the time at which it will be
+ * full again (the "generic cell rate algorithm" formulation of a token bucket),
+ * so accounting for a request takes one compare-and-set and no locks. Buckets
+ * are kept in a bounded map: when it grows beyond its capacity, the buckets
+ * that have refilled completely (and are thus indistinguishable from new ones)
+ * are evicted.
+ *
+ * The interceptor supports the following parameters:<ul>
+ * <li><code>rate</code>: the number of requests per second allowed per key
+ * (default: 10);</li>
+ * <li><code>burst</code>: the number of requests that can be served in a burst
+ * (default: the rate);</li>
+ * <li><code>key</code>: a comma-separated list of the elements making up the
+ * key, among <code>user</code>, <code>session</code>, <code>target</code> and
+ * <code>ip</code> (default: <code>user, target</code>); anonymous users are
+ * told apart by their IP address or, if it is not available, by their session,
+ * so that they do not all share the same bucket;</li>
+ * <li><code>result</code>: the result returned when a request is rejected
+ * (default: <code>error_rate_limited</code>);</li>
+ * <li><code>capacity</code>: the maximum number of buckets kept (default:
+ * 10000).</li></ul>
+ *
+ * @author Andrea Funto'
+ */
+public class RateLimit extends Interceptor {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(RateLimit.class);
+
+	/**
+	 * The default number of requests per second allowed per key.
+	 */
+	public static final double DEFAULT_RATE = 10.0;
+
+	/**
+	 * The default result returned when a request is rejected.
+	 */
+	public static final String DEFAULT_RESULT = "error_rate_limited";
+
+	/**
+	 * The default key.
+	 */
+	public static final String DEFAULT_KEY = "user, target";
+
+	/**
+	 * The default maximum number of buckets kept.
+	 */
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	/**
+	 * The HTTP status code for rejected resource requests.
+	 */
+	private static final String TOO_MANY_REQUESTS = "429";
+
+	/**
+	 * The elements that can make up a bucket key.
+	 */
+	private enum KeyElement {
+		USER,
+		SESSION,
+		TARGET,
+		IP
+	}
+
+	/**
+	 * The elements making up the bucket key.
+	 */
+	private KeyElement[] key;
+
+	/**
+	 * The time between two requests at the sustained rate, in nanoseconds.
+	 */
+	private long interval;
+
+	/**
+	 * The time it takes for an empty bucket to refill, in nanoseconds.
+	 */
+	private long tolerance;
+
+	/**
+	 * The result returned when a request is rejected.
+	 */
+	private String result = DEFAULT_RESULT;
+
+	/**
+	 * The maximum number of buckets kept.
+	 */
+	private int capacity = DEFAULT_CAPACITY;
+
+	/**
+	 * The buckets, by key; each holds the (nanosecond timer) time at which the
+	 * bucket will be full again.
+	 */
+	private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<String, AtomicLong>();
+
+	/**
+	 * The number of requests rejected so far.
+	 */
+	private final AtomicLong rejected = new AtomicLong();
+
+	/**
+	 * @see org.dihedron.strutlets.interceptors.Interceptor#initialise()
+	 */
+	@Override
+	public void initialise() {
+		double rate = DEFAULT_RATE;
+		String value = getParameter("rate");
+		if(Strings.isValid(value)) {
+			rate = Double.parseDouble(value.trim());
+		}
+		double burst = rate;
+		value = getParameter("burst");
+		if(Strings.isValid(value)) {
+			burst = Double.parseDouble(value.trim());
+		}
+		value = getParameter("result");
+		if(Strings.isValid(value)) {
+			result = value.trim();
+		}
+		value = getParameter("capacity");
+		if(Strings.isValid(value)) {
+			capacity = Integer.parseInt(value.trim());
+		}
+		value = getParameter("key");
+		if(!Strings.isValid(value)) {
+			value = DEFAULT_KEY;
+		}
+		String[] elements = Strings.split(value, ",", true);
+		key = new KeyElement[elements.length];
+		for(int i = 0; i < elements.length; ++i) {
+			key[i] = KeyElement.valueOf(elements[i].trim().toUpperCase());
+		}
+		interval = (long)(TimeUnit.SECONDS.toNanos(1) / rate);
+		tolerance = (long)(interval * Math.max(1.0, burst));
+		logger.info("interceptor '{}' allows {} requests per second (burst: {}) per key '{}'", getId(), rate, burst, value);
+	}
+
+	/**
+	 * Forwards the request if the bucket associated with its key has a token
+	 * left, otherwise returns the configured result.
+	 *
+	 * @param invocation
+	 *   the current action invocation.
+	 * @return
+	 *   the result of the nested components' execution, or the configured
+	 *   result if the request is rejected.
+	 * @see
+	 *   org.dihedron.strutlets.interceptors.Interceptor#intercept(org.dihedron.strutlets.ActionInvocation)
+	 */
+	@Override
+	public String intercept(ActionInvocation invocation) throws StrutletsException {
+		String id = makeKey(invocation);
+		long wait = acquire(id, System.nanoTime());
+		if(wait > 0) {
+			rejected.incrementAndGet();
+			logger.warn("request for key '{}' rejected by rate limiting, forwarding result '{}'", id, result);
+			reject(wait);
+			return result;
+		}
+		return invocation.invoke();
+	}
+
+	/**
+	 * Returns the number of requests rejected so far.
+	 *
+	 * @return
+	 *   the number of rejected requests.
+	 */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	/**
+	 * Returns the number of buckets currently kept.
+	 *
+	 * @return
+	 *   the number of buckets.
+	 */
+	public int getBucketCount() {
+		return buckets.size();
+	}
+
+	/**
+	 * Takes a token from the bucket associated with the given key.
+	 *
+	 * @param id
+	 *   the bucket key.
+	 * @param now
+	 *   the current value of the nanosecond timer.
+	 * @return
+	 *   0 if a token was available, otherwise the time until the next token
+	 *   becomes available, in nanoseconds.
+	 */
+	long acquire(String id, long now) {
+		AtomicLong bucket = buckets.get(id);
+		if(bucket == null) {
+			if(buckets.size() >= capacity) {
+				evict(now);
+			}
+			AtomicLong created = new AtomicLong(now);
+			bucket = buckets.putIfAbsent(id, created);
+			if(bucket == null) {
+				bucket = created;
+			}
+		}
+		while(true) {
+			long full = bucket.get();
+			long next = Math.max(full, now) + interval;
+			if(next - now > tolerance) {
+				return next - now - tolerance;
+			}
+			if(bucket.compareAndSet(full, next)) {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Evicts the buckets that have refilled completely; if none has, an
+	 * arbitrary bucket is evicted to keep the map bounded.
+	 *
+	 * @param now
+	 *   the current value of the nanosecond timer.
+	 */
+	private void evict(long now) {
+		int evicted = 0;
+		for(Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+			if(entry.getValue().get() - now <= 0 && buckets.remove(entry.getKey(), entry.getValue())) {
+				++evicted;
+			}
+		}
+		if(evicted == 0) {
+			Iterator<String> iterator = buckets.keySet().iterator();
+			if(iterator.hasNext()) {
+				iterator.next();
+				iterator.remove();
+			}
+		}
+		logger.debug("interceptor '{}' evicted {} idle buckets, {} left", getId(), evicted, buckets.size());
+	}
+
+	/**
+	 * Composes the bucket key for the current request.
+	 *
+	 * @param invocation
+	 *   the current action invocation.
+	 * @return
+	 *   the bucket key.
+	 */
+	@SuppressWarnings("deprecation")
+	private String makeKey(ActionInvocation invocation) {
+		StringBuilder builder = new StringBuilder();
+		for(KeyElement element : key) {
+			if(builder.length() > 0) {
+				builder.append('|');
+			}
+			switch(element) {
+			case USER:
+				String user = ActionContext.getRemoteUser();
+				if(user != null) {
+					builder.append(user);
+				} else {
+					// anonymous users must not share a single bucket
+					String address = getRemoteAddress();
+					if(address != null) {
+						builder.append("<anonymous:").append(address).append('>');
+					} else {
+						String session = getSessionId();
+						builder.append(session != null ? "<anonymous:" + session + ">" : "<anonymous>");
+					}
+				}
+				break;
+			case SESSION:
+				String session = getSessionId();
+				builder.append(session != null ? session : "<none>");
+				break;
+			case TARGET:
+				builder.append(invocation.getTarget().getId());
+				break;
+			case IP:
+				String address = getRemoteAddress();
+				builder.append(address != null ? address : "<unknown>");
+				break;
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Returns the identifier of the current session, without creating one.
+	 *
+	 * @return
+	 *   the session identifier, or {@code null} if there is no session.
+	 */
+	@SuppressWarnings("deprecation")
+	private String getSessionId() {
+		PortletSession session = ActionContext.getPortletRequest().getPortletSession(false);
+		return session != null ? session.getId() : null;
+	}
+
+	/**
+	 * Returns the IP address of the client, if available.
+	 *
+	 * @return
+	 *   the IP address of the client, or {@code null} if not available.
+	 */
+	@SuppressWarnings("deprecation")
+	private String getRemoteAddress() {
+		HttpServletRequest request = ActionContext.getHttpServletRequest();
+		return request != null ? request.getRemoteAddr() : null;
+	}
+
+	/**
+	 * Marks the response to a rejected resource request with a "429" status
+	 * and a "Retry-After" header.
+	 *
+	 * @param wait
+	 *   the time until the next token becomes available, in nanoseconds.
+	 */
+	@SuppressWarnings("deprecation")
+	private void reject(long wait) {
+		if(ActionContext.isResourcePhase() && ActionContext.getPortletResponse() instanceof ResourceResponse) {
+			ResourceResponse response = (ResourceResponse)ActionContext.getPortletResponse();
+			response.setProperty(ResourceResponse.HTTP_STATUS_CODE, TOO_MANY_REQUESTS);
+			response.setProperty("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait) + 1)));
+		}
+	}
+}
@@ -4,7 +4,9 @@
 
 package org.dihedron.strutlets.interceptors.impl;
 
-import java.util.HashMap;
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.portlet.PortletSession;
@@ -12,119 +14,369 @@ import javax.portlet.PortletSession;
 import org.dihedron.core.strings.Strings;
 import org.dihedron.strutlets.ActionContext;
 import org.dihedron.strutlets.ActionInvocation;
+import org.dihedron.strutlets.exceptions.InterceptorException;
 import org.dihedron.strutlets.exceptions.StrutletsException;
 import org.dihedron.strutlets.interceptors.Interceptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * An interceptor that prevents double form submissions by keeping track of the
+ * form tokens ("form timestamps") submitted in the current user session.
+ *
+ * Tokens are kept in a small, bounded store in the user's session: when the
+ * store is full the oldest token is evicted, and tokens expire after a given
+ * time anyway. The store is only locked to register or look up a token: the
+ * action runs outside of the lock, and duplicate submits of a form that is still
+ * being processed wait for the first submit's result rather than serialising all
+ * form submits in the session.
+ *
+ * The interceptor supports the following parameters:<ul>
+ * <li><code>result</code>: the result to be returned on double submits; if not
+ * specified, the result of the first submit is replayed;</li>
+ * <li><code>capacity</code>: the maximum number of tokens kept per session
+ * (default: 32);</li>
+ * <li><code>ttl</code>: the number of seconds after which a token expires
+ * (default: 600);</li>
+ * <li><code>timeout</code>: the maximum number of milliseconds a duplicate submit
+ * waits for the first submit to complete (default: 30000).</li></ul>
+ *
  * @author Andrea Funto'
  */
 public class Resubmit extends Interceptor {
 
 	/**
-	 * The timestamp parameter in the form; if available , it will act as a 
+	 * The timestamp parameter in the form; if available , it will act as a
 	 * signature for the form, and will be used to check if the form has already
 	 * been submitted.
 	 */
 	public final static String FORM_TOKEN = "formDate";
-	
+
+	/**
+	 * The default maximum number of tokens kept per session.
+	 */
+	public static final int DEFAULT_CAPACITY = 32;
+
+	/**
+	 * The default time to live of a token, in seconds.
+	 */
+	public static final long DEFAULT_TTL = 600;
+
+	/**
+	 * The default time a duplicate submit waits for the first one to complete,
+	 * in milliseconds.
+	 */
+	public static final long DEFAULT_TIMEOUT = 30000;
+
+	/**
+	 * The result to be returned on double submits, if any.
+	 */
 	private String defaultResult = null;
-	
+
+	/**
+	 * The maximum number of tokens kept per session.
+	 */
+	private int capacity = DEFAULT_CAPACITY;
+
+	/**
+	 * The time to live of a token, in milliseconds.
+	 */
+	private long ttl = DEFAULT_TTL * 1000;
+
+	/**
+	 * The time a duplicate submit waits for the first one to complete, in
+	 * milliseconds.
+	 */
+	private long timeout = DEFAULT_TIMEOUT;
+
 	/**
 	 * The logger.
 	 */
 	private static final Logger logger = LoggerFactory.getLogger(Resubmit.class);
-	
+
+	/**
+	 * Information about a form submission: whether it is still being processed
+	 * and, if it is done, its result; duplicate submits wait on this object until
+	 * the first submit completes.
+	 */
+	static class Submission implements Serializable {
+
+		/**
+		 * Serial version id.
+		 */
+		private static final long serialVersionUID = -4386012558839785307L;
+
+		/**
+		 * The time at which the form was first submitted.
+		 */
+		private final long created = System.currentTimeMillis();
+
+		/**
+		 * Whether the first submit is done processing.
+		 */
+		private boolean done = false;
+
+		/**
+		 * Whether the first submit failed.
+		 */
+		private boolean failed = false;
+
+		/**
+		 * The result of the first submit.
+		 */
+		private String result = null;
+
+		/**
+		 * Records the outcome of the first submit and wakes up any waiting
+		 * duplicate submits.
+		 *
+		 * @param result
+		 *   the result of the first submit, or {@code null} if it failed.
+		 * @param failed
+		 *   whether the first submit failed.
+		 */
+		synchronized void complete(String result, boolean failed) {
+			this.result = result;
+			this.failed = failed;
+			this.done = true;
+			notifyAll();
+		}
+
+		/**
+		 * Waits for the first submit to complete and returns its result.
+		 *
+		 * @param timeout
+		 *   the maximum time to wait, in milliseconds.
+		 * @return
+		 *   the result of the first submit.
+		 * @throws InterceptorException
+		 *   if the first submit failed, did not complete in time or the thread was
+		 *   interrupted while waiting.
+		 */
+		synchronized String await(long timeout) throws InterceptorException {
+			long deadline = System.currentTimeMillis() + timeout;
+			try {
+				while(!done) {
+					long remaining = deadline - System.currentTimeMillis();
+					if(remaining <= 0) {
+						throw new InterceptorException("Timed out waiting for the first submit of the same form to complete");
+					}
+					wait(remaining);
+				}
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterceptorException("Interrupted while waiting for the first submit of the same form to complete");
+			}
+			if(failed) {
+				throw new InterceptorException("The first submit of the same form failed");
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * A bounded, time-expiring store of form submissions, kept in the user's
+	 * session; all methods must be invoked while holding the store's monitor.
+	 */
+	static class TokenStore implements Serializable {
+
+		/**
+		 * Serial version id.
+		 */
+		private static final long serialVersionUID = 8137766493260181367L;
+
+		/**
+		 * The submissions, in order of arrival.
+		 */
+		private final LinkedHashMap<String, Submission> submissions;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param capacity
+		 *   the maximum number of submissions kept; when exceeded, the oldest one
+		 *   is evicted.
+		 */
+		TokenStore(final int capacity) {
+			this.submissions = new LinkedHashMap<String, Submission>(capacity + 1, 1.0f, false) {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Submission> eldest) {
+					return size() > capacity;
+				}
+			};
+		}
+
+		/**
+		 * Removes expired submissions; since submissions are kept in order of
+		 * arrival, the scan stops at the first non-expired one.
+		 *
+		 * @param ttl
+		 *   the time to live of a submission, in milliseconds.
+		 */
+		void purge(long ttl) {
+			long now = System.currentTimeMillis();
+			Iterator<Submission> iterator = submissions.values().iterator();
+			while(iterator.hasNext() && now - iterator.next().created > ttl) {
+				iterator.remove();
+			}
+		}
+
+		/**
+		 * Returns the submission associated with the given token.
+		 * 
+		 * @param token
+		 *   the form token.
+		 * @return
+		 *   the submission, or {@code null} if none.
+		 */
+		Submission get(String token) {
+			return submissions.get(token);
+		}
+
+		/**
+		 * Associates a submission with the given token.
+		 * 
+		 * @param token
+		 *   the form token.
+		 * @param submission
+		 *   the submission.
+		 */
+		void put(String token, Submission submission) {
+			submissions.put(token, submission);
+		}
+
+		/**
+		 * Removes the submission associated with the given token.
+		 * 
+		 * @param token
+		 *   the form token.
+		 */
+		void remove(String token) {
+			submissions.remove(token);
+		}
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.interceptors.Interceptor#initialise()
+	 */
 	@Override
 	public void initialise() {
-		defaultResult = getParameter("result"); 
+		defaultResult = getParameter("result");
+		String value = getParameter("capacity");
+		if(Strings.isValid(value)) {
+			capacity = Integer.parseInt(value.trim());
+		}
+		value = getParameter("ttl");
+		if(Strings.isValid(value)) {
+			ttl = Long.parseLong(value.trim()) * 1000;
+		}
+		value = getParameter("timeout");
+		if(Strings.isValid(value)) {
+			timeout = Long.parseLong(value.trim());
+		}
+		logger.trace("interceptor '{}' keeps up to {} tokens per session for {} ms", getId(), capacity, ttl);
 	}
-	
+
 	/**
-	 * Ensures that the interceptor's per-user data are properly initialised in 
-	 * the user's session by retieving or creating a map that will store form names 
-	 * and their corresponding timestamps for the current user session. This map 
-	 * will be used to keep track of submitted forms and as a synchronisation
-	 * point for different instances of the same portlet in the current user 
-	 * session.
-	 *   
+	 * Ensures that the interceptor's per-user data are properly initialised in
+	 * the user's session by retieving or creating the store that will keep
+	 * track of submitted form tokens for the current user session. The session
+	 * is only locked the first time the store is created; the lock is keyed by
+	 * session id, since some portals hand out a new session object on every 
+	 * request.
+	 *
 	 * @return
-	 *   the set containing form submit timestamps.
+	 *   the store of form submissions.
 	 */
-	@SuppressWarnings({ "unchecked", "deprecation" })
-	private Map<Long, String> ensureSubmitDataAvailable() {
-		Map<Long, String> submits = null;
-		PortletSession session = ActionContext.getPortletSession();
-		 synchronized(session) {
-			 submits = (Map<Long, String>)ActionContext.getInterceptorData(getId());
-			 if(submits == null) {
-				 submits = new HashMap<Long, String>();
-				 ActionContext.setInterceptorData(getId(), submits);
-			 }
-		}
-		return submits;
+	@SuppressWarnings("deprecation")
+	private TokenStore ensureSubmitDataAvailable() {
+		TokenStore store = ActionContext.getInterceptorData(getId(), TokenStore.class);
+		if(store == null) {
+			PortletSession session = ActionContext.getPortletSession();
+			synchronized(ActionContext.getSessionLock(session)) {
+				store = ActionContext.getInterceptorData(getId(), TokenStore.class);
+				if(store == null) {
+					store = new TokenStore(capacity);
+					ActionContext.setInterceptorData(getId(), store);
+				}
+			}
+		}
+		return store;
 	}
-	
+
 	/**
 	 * Checks if a form has already been submitted by testing the "form timestamp"
-	 * parameter, and if so, aborts the request. The timestamp of all prior 
-	 * invocations is stored under the portlet session attributes; as soon as a 
-	 * form submit starts being processed, the interceptors enters a synchronised 
-	 * block that prevents other forms from being processed until the first one
-	 * is done; then if a form has already been processed it is discarded and 
-	 * the result is retrieved, so it can be re-rendered.
-	 * This interceptor tries to be as lightweight as possible, but it severely
-	 * interferes with the portal internal parallelism by removing concurrency of
-	 * different portlets. Please consider adopting different mechanisms to prevent
-	 * double-submit, such as disabling the submit button as soon as it is clicked.
-	 * 
+	 * parameter. The first submit of a form registers its token as "in flight"
+	 * and runs the action outside of any lock; duplicate submits either get the
+	 * configured default result straight away or wait for the first submit to
+	 * complete and replay its result.
+	 *
 	 * @param invocation
 	 *   the current action invocation.
 	 * @return
-	 *   the result of the nested components' execution if this form hasn't been 
-	 *   submitted before, an error otherwise.
-	 * @see 
+	 *   the result of the nested components' execution if this form hasn't been
+	 *   submitted before, the default or previous result otherwise.
+	 * @see
 	 *   org.dihedron.strutlets.interceptors.Interceptor#intercept(org.dihedron.strutlets.ActionInvocation)
 	 */
 	@Override
 	public String intercept(ActionInvocation invocation) throws StrutletsException {
-		
-		String result = null;
-
-		if(ActionContext.isActionPhase() || ActionContext.isResourcePhase()) {
-			logger.trace("in action or resource phase");
-			Object form = ActionContext.getParameterValues(FORM_TOKEN);
-			if(form instanceof String[] && form != null) {
-				String[] tokens = (String[])form;
-				if(tokens != null && tokens.length > 0) {
-					long timestamp = Long.parseLong(tokens[0]);
-					logger.trace("form time: '{}'", timestamp);
-					Map<Long, String> submits = ensureSubmitDataAvailable();
-					synchronized(submits) {
-						if(submits.containsKey(timestamp)) {
-							if(Strings.isValid(defaultResult)) {
-								logger.error("action execution aborted due to double-submit, forwarding default result for target '{}': '{}'", invocation.getTarget().getId().toString(), defaultResult);
-								result = defaultResult;
-							} else {
-								logger.error("action execution aborted due to double-submit, forwarding previous result for target '{}': '{}'", invocation.getTarget().getId().toString(), submits.get(timestamp));
-								result = submits.get(timestamp);
-							}
-						} else {
-							logger.trace("synchronised action execution forwarded");						
-							result = invocation.invoke();
-							submits.put(timestamp, result);
-						}
-					}				
-				} else {
-					logger.trace("unsynchronised action execution forwarded: no timestamp in request");
-					result = invocation.invoke();
+
+		if(!ActionContext.isActionPhase() && !ActionContext.isResourcePhase()) {
+			logger.trace("unsynchronised action execution forwarded: not in action or resource phase");
+			return invocation.invoke();
+		}
+
+		logger.trace("in action or resource phase");
+		Object form = ActionContext.getParameterValues(FORM_TOKEN);
+		if(!(form instanceof String[]) || ((String[])form).length == 0 || !Strings.isValid(((String[])form)[0])) {
+			logger.trace("unsynchronised action execution forwarded: no timestamp in request");
+			return invocation.invoke();
+		}
+
+		String target = invocation.getTarget().getId().toString();
+		String token = target + "@" + ((String[])form)[0].trim();
+		logger.trace("form token: '{}'", token);
+
+		TokenStore store = ensureSubmitDataAvailable();
+		Submission submission = null;
+		boolean first = false;
+		synchronized(store) {
+			store.purge(ttl);
+			submission = store.get(token);
+			if(submission == null) {
+				submission = new Submission();
+				store.put(token, submission);
+				first = true;
+			}
+		}
+
+		if(first) {
+			logger.trace("first submit of form, action execution forwarded");
+			String result = null;
+			boolean failed = true;
+			try {
+				result = invocation.invoke();
+				failed = false;
+				return result;
+			} finally {
+				if(failed) {
+					// let the user submit the same form again
+					synchronized(store) {
+						store.remove(token);
+					}
 				}
+				submission.complete(result, failed);
 			}
-		} else {
-			logger.trace("unsynchronised action execution forwarded: not in action or resource phase");
-			result = invocation.invoke();
 		}
-		return result;		
+
+		if(Strings.isValid(defaultResult)) {
+			logger.error("action execution aborted due to double-submit, forwarding default result for target '{}': '{}'", target, defaultResult);
+			return defaultResult;
+		}
+		String result = submission.await(timeout);
+		logger.error("action execution aborted due to double-submit, forwarding previous result for target '{}': '{}'", target, result);
+		return result;
 	}
 }
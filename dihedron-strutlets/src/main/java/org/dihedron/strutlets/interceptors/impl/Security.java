@@ -4,28 +4,249 @@
 
 package org.dihedron.strutlets.interceptors.impl;
 
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.portlet.PortletSession;
+import javax.portlet.ResourceResponse;
+
+import org.dihedron.core.strings.Strings;
+import org.dihedron.strutlets.ActionContext;
 import org.dihedron.strutlets.ActionInvocation;
 import org.dihedron.strutlets.exceptions.StrutletsException;
 import org.dihedron.strutlets.interceptors.Interceptor;
+import org.dihedron.strutlets.targets.Target;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
+ * An interceptor enforcing the access restrictions declared through the 
+ * {@code @Secured} annotation on action methods or classes: the restrictions 
+ * are resolved once per target, when targets are registered, and requests for
+ * targets that are not secured are forwarded straight away.
+ * 
+ * Since checking a role can be expensive on some portals, role decisions are
+ * cached in the user's session for a configurable amount of time; the cache is
+ * discarded if the remote user changes within the same session.
+ * 
+ * The interceptor supports the following parameters:<ul>
+ * <li><code>result</code>: the result returned when access is denied (default:
+ * <code>error_access_denied</code>); in the resource phase the HTTP status is
+ * set to "403 Forbidden" too;</li>
+ * <li><code>ttl</code>: the number of seconds role decisions are cached for 
+ * (default: 300; 0 disables caching).</li></ul>
+ * 
  * @author Andrea Funto'
  */
 public class Security extends Interceptor {
+	
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(Security.class);
+	
+	/**
+	 * The default result returned when access is denied.
+	 */
+	public static final String DEFAULT_RESULT = "error_access_denied";
+	
+	/**
+	 * The default time to live of role decisions, in seconds.
+	 */
+	public static final long DEFAULT_TTL = 300;
+	
+	/**
+	 * The HTTP status code for denied resource requests.
+	 */
+	private static final String FORBIDDEN = "403";
+	
+	/**
+	 * The result returned when access is denied.
+	 */
+	private String result = DEFAULT_RESULT;
+	
+	/**
+	 * The time to live of role decisions, in milliseconds.
+	 */
+	private long ttl = DEFAULT_TTL * 1000;
+	
+	/**
+	 * The role decisions made for the user of a session.
+	 */
+	static class Decisions implements Serializable {
+
+		/**
+		 * Serial version id.
+		 */
+		private static final long serialVersionUID = -2385816230934519375L;
+
+		/**
+		 * The user the decisions refer to.
+		 */
+		private final String user;
+		
+		/**
+		 * The time at which the decisions expire.
+		 */
+		private final long expires;
+		
+		/**
+		 * The decisions, by role.
+		 */
+		final Map<String, Boolean> roles = new ConcurrentHashMap<String, Boolean>();
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param user
+		 *   the user the decisions refer to.
+		 * @param ttl
+		 *   the time to live of the decisions, in milliseconds.
+		 */
+		Decisions(String user, long ttl) {
+			this.user = user;
+			this.expires = System.currentTimeMillis() + ttl;
+		}
+		
+		/**
+		 * Returns whether the decisions still apply to the given user.
+		 * 
+		 * @param user
+		 *   the current remote user.
+		 * @return
+		 *   whether the decisions are still valid.
+		 */
+		boolean isValidFor(String user) {
+			return this.user.equals(user) && System.currentTimeMillis() < expires;
+		}
+	}
+	
+	/**
+	 * @see org.dihedron.strutlets.interceptors.Interceptor#initialise()
+	 */
+	@Override
+	public void initialise() {
+		String value = getParameter("result");
+		if(Strings.isValid(value)) {
+			result = value.trim();
+		}
+		value = getParameter("ttl");
+		if(Strings.isValid(value)) {
+			ttl = Long.parseLong(value.trim()) * 1000;
+		}
+		logger.trace("interceptor '{}' caches role decisions for {} ms", getId(), ttl);
+	}
 
 	/**
-	 * For raw JSP access, checks if the user has access to it. 
+	 * Checks that the user is authenticated and has one of the required roles,
+	 * if the target is secured. 
 	 * 
 	 * @param invocation
 	 *   the current action invocation.
 	 * @return
-	 *   the result of the nested components' execution.
+	 *   the result of the nested components' execution, or the configured 
+	 *   result if access is denied.
 	 * @see 
 	 *   org.dihedron.strutlets.interceptors.Interceptor#intercept(org.dihedron.strutlets.ActionInvocation)
 	 */
 	@Override
 	public String intercept(ActionInvocation invocation) throws StrutletsException {
-		// TODO: check if target is a raw JSP and check access to it if necessary
+		Target target = invocation.getTarget();
+		if(target.getSecurityPolicy() == null) {
+			return invocation.invoke();
+		}
+		
+		String user = ActionContext.getRemoteUser();
+		if(user == null && target.isAuthenticationRequired()) {
+			return deny(target, "anonymous user");
+		}
+		
+		List<String> roles = target.getRequiredRoles();
+		if(!roles.isEmpty()) {
+			Decisions decisions = getDecisions(user);
+			boolean granted = false;
+			for(String role : roles) {
+				if(isUserInRole(decisions, role)) {
+					granted = true;
+					break;
+				}
+			}
+			if(!granted) {
+				return deny(target, "user '" + user + "' has none of the roles " + roles);
+			}
+		}
 		return invocation.invoke();		
 	}
+	
+	/**
+	 * Checks whether the user has the given role, looking the decision up in the
+	 * cache first.
+	 * 
+	 * @param decisions
+	 *   the cached decisions, or {@code null} if caching is disabled.
+	 * @param role
+	 *   the role.
+	 * @return
+	 *   whether the user has the role.
+	 */
+	private boolean isUserInRole(Decisions decisions, String role) {
+		if(decisions == null) {
+			return ActionContext.isUserInRole(role);
+		}
+		Boolean decision = decisions.roles.get(role);
+		if(decision == null) {
+			decision = ActionContext.isUserInRole(role);
+			decisions.roles.put(role, decision);
+		}
+		return decision;
+	}
+	
+	/**
+	 * Retrieves the role decisions cached in the user's session, replacing them
+	 * if they have expired or refer to a different user.
+	 * 
+	 * @param user
+	 *   the remote user.
+	 * @return
+	 *   the cached decisions, or {@code null} if caching is disabled.
+	 */
+	@SuppressWarnings("deprecation")
+	Decisions getDecisions(String user) {
+		if(ttl <= 0 || user == null) {
+			return null;
+		}
+		Decisions decisions = ActionContext.getInterceptorData(getId(), Decisions.class);
+		if(decisions == null || !decisions.isValidFor(user)) {
+			PortletSession session = ActionContext.getPortletSession();
+			synchronized(ActionContext.getSessionLock(session)) {
+				decisions = ActionContext.getInterceptorData(getId(), Decisions.class);
+				if(decisions == null || !decisions.isValidFor(user)) {
+					decisions = new Decisions(user, ttl);
+					ActionContext.setInterceptorData(getId(), decisions);
+				}
+			}
+		}
+		return decisions;
+	}
+	
+	/**
+	 * Denies access to the target.
+	 * 
+	 * @param target
+	 *   the target.
+	 * @param reason
+	 *   the reason why access is denied.
+	 * @return
+	 *   the configured result.
+	 */
+	@SuppressWarnings("deprecation")
+	private String deny(Target target, String reason) {
+		logger.warn("access to target '{}' denied ({}), forwarding result '{}'", target.getId(), reason, result);
+		if(ActionContext.isResourcePhase() && ActionContext.getPortletResponse() instanceof ResourceResponse) {
+			((ResourceResponse)ActionContext.getPortletResponse()).setProperty(ResourceResponse.HTTP_STATUS_CODE, FORBIDDEN);
+		}
+		return result;
+	}
 }
@@ -11,6 +11,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
@@ -21,10 +23,16 @@ import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 
 import org.dihedron.core.url.URLFactory;
+import org.dihedron.core.strings.Strings;
 import org.dihedron.core.xml.DOM;
+import org.dihedron.strutlets.ActionContext.Phase;
 import org.dihedron.strutlets.exceptions.StrutletsException;
+import org.dihedron.strutlets.interceptors.Applicability;
 import org.dihedron.strutlets.interceptors.Interceptor;
 import org.dihedron.strutlets.interceptors.InterceptorStack;
+import org.dihedron.strutlets.targets.Target;
+import org.dihedron.strutlets.targets.TargetId;
+import org.dihedron.strutlets.targets.registry.TargetRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -77,11 +85,29 @@ public class InterceptorsRegistry {
 	 */
 	public static final String DEFAULT_INTERCEPTOR_STACK = "default";
 	
+	/**
+	 * The name of the diagnostic interceptor stack ("diagnostic"), which adds
+	 * the dumping of the action context to the default stack.
+	 */
+	public static final String DIAGNOSTIC_INTERCEPTOR_STACK = "diagnostic";
+	
+	/**
+	 * The id of the stack used for actions that do not declare one, or that 
+	 * declare a non-existing one; it can be overridden at deployment time.
+	 */
+	private String defaultStackId = DEFAULT_INTERCEPTOR_STACK;
+	
 	/**
 	 * The map of registered interceptor stacks.
 	 */
 	private Map<String, InterceptorStack> stacks = Collections.synchronizedMap(new HashMap<String, InterceptorStack>());
 	
+	/**
+	 * The per-target chains of interceptors, pre-filtered according to their
+	 * applicability and indexed by phase ordinal.
+	 */
+	private ConcurrentMap<TargetId, InterceptorStack[]> chains = new ConcurrentHashMap<TargetId, InterceptorStack[]>();
+	
 //	/**
 //	 * Initialises the configuration by parsing the input configuration file
 //	 * as read from the file-system.
@@ -190,6 +216,14 @@ public class InterceptorsRegistry {
 						interceptor.setId(stackId, interceptorId);
 						logger.trace(" + interceptor '{}' ", interceptorId);
 						
+						String phases = i.getAttribute("phases");
+						String targets = i.getAttribute("targets");
+						String annotations = i.getAttribute("annotations");
+						if(Strings.isValid(phases) || Strings.isValid(targets) || Strings.isValid(annotations)) {
+							interceptor.setApplicability(new Applicability().setPhases(phases).setTargets(targets).setAnnotations(annotations));
+							logger.trace("   + applies to {}", interceptor.getApplicability());
+						}
+						
 						for(Element parameter : DOM.getChildrenByTagName(i, "parameter")) {
 							String key = DOM.getElementText(DOM.getFirstChildByTagName(parameter, "key"));
 							String value = DOM.getElementText(DOM.getFirstChildByTagName(parameter, "value"));
@@ -203,6 +237,7 @@ public class InterceptorsRegistry {
 					}
 					stacks.put(stack.getId(), stack);
 				}
+				chains.clear();
 				logger.info("configuration loaded");
 			}
 				
@@ -323,16 +358,137 @@ public class InterceptorsRegistry {
 	 * @param id
 	 *   the id of the stack to be retrieved.
 	 * @return
-	 *   the stack, or the default stack if not found.
+	 *   the stack, or the default stack if not found; actions using the 
+	 *   "default" stack get the stack configured as default, if overridden.
 	 */
 	public InterceptorStack getStackOrDefault(String id) {
-		InterceptorStack stack = stacks.get(id);
+		InterceptorStack stack = null;
+		if(id != null && !id.equals(DEFAULT_INTERCEPTOR_STACK)) {
+			stack = stacks.get(id);
+		}
 		if(stack == null) {
-			stack = stacks.get(DEFAULT_INTERCEPTOR_STACK);
+			stack = stacks.get(defaultStackId);
 		}
 		return stack;
 	}
 	
+	/**
+	 * Sets the id of the stack used for actions that do not declare one, or
+	 * that declare the "default" stack or a non-existing one.
+	 * 
+	 * @param id
+	 *   the id of the default stack, which must have been already loaded.
+	 * @return
+	 *   the object itself, for method chaining.
+	 * @throws StrutletsException
+	 *   if no stack with the given id has been registered.
+	 */
+	public InterceptorsRegistry setDefaultStackId(String id) throws StrutletsException {
+		if(!stacks.containsKey(id)) {
+			throw new StrutletsException("no interceptors stack with id '" + id + "' to be used as default");
+		}
+		this.defaultStackId = id;
+		return this;
+	}
+	
+	/**
+	 * Returns the id of the stack used for actions that do not declare one.
+	 * 
+	 * @return
+	 *   the id of the default stack.
+	 */
+	public String getDefaultStackId() {
+		return defaultStackId;
+	}
+	
+	/**
+	 * Retrieves the chain of interceptors to be executed for the given target
+	 * in the given phase, i.e. the target's stack (or the default one) filtered
+	 * according to each interceptor's applicability; chains are resolved once 
+	 * per target and then reused.
+	 * 
+	 * @param target
+	 *   the target being invoked.
+	 * @param phase
+	 *   the request processing phase.
+	 * @return
+	 *   the chain of interceptors, or null if no stack is available.
+	 */
+	public InterceptorStack getChain(Target target, Phase phase) {
+		InterceptorStack[] resolved = chains.get(target.getId());
+		if(resolved == null) {
+			resolved = resolve(target);
+			InterceptorStack[] existing = chains.putIfAbsent(target.getId(), resolved);
+			if(existing != null) {
+				resolved = existing;
+			}
+		}
+		return resolved[phase.ordinal()];
+	}
+	
+	/**
+	 * Resolves in advance the interceptor chains of all targets in the given
+	 * registry, so that no filtering takes place while processing requests.
+	 * 
+	 * @param registry
+	 *   the targets registry.
+	 * @throws StrutletsException
+	 */
+	public void prepare(TargetRegistry registry) throws StrutletsException {
+		for(TargetId id : registry.getTargetIds()) {
+			Target target = registry.getTarget(id);
+			chains.put(id, resolve(target));
+		}
+		logger.info("interceptor chains resolved for {} targets", chains.size());
+	}
+	
+	/**
+	 * Filters the target's stack according to the applicability of each of its
+	 * interceptors, for each phase; if all interceptors apply, the stack itself
+	 * is used.
+	 * 
+	 * @param target
+	 *   the target.
+	 * @return
+	 *   the chains, indexed by phase ordinal.
+	 */
+	private InterceptorStack[] resolve(Target target) {
+		InterceptorStack stack = getStackOrDefault(target.getInterceptorStackId());
+		InterceptorStack[] resolved = new InterceptorStack[Phase.values().length];
+		for(Phase phase : Phase.values()) {
+			if(stack == null) {
+				continue;
+			}
+			InterceptorStack chain = new InterceptorStack(stack.getId());
+			for(Interceptor interceptor : stack) {
+				if(interceptor.appliesTo(target, phase)) {
+					chain.add(interceptor);
+				}
+			}
+			resolved[phase.ordinal()] = chain.size() == stack.size() ? stack : chain;
+			logger.trace("target '{}' runs {} of {} interceptors in phase {}", target.getId(), chain.size(), stack.size(), phase);
+		}
+		return resolved;
+	}
+	
+	/**
+	 * Releases the resources held by all interceptors in all stacks.
+	 */
+	public void cleanup() {
+		synchronized(stacks) {
+			for(InterceptorStack stack : stacks.values()) {
+				for(Interceptor interceptor : stack) {
+					try {
+						interceptor.cleanup();
+					} catch(RuntimeException e) {
+						logger.error("error cleaning up interceptor '" + interceptor.getId() + "'", e);
+					}
+				}
+			}
+		}
+		chains.clear();
+	}
+	
 	/**
 	 * Returns a pretty printed, complex representation of the object as a string.
 	 */
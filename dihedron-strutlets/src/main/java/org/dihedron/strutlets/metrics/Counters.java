@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A set of named counters, created on first use; components should look their
+ * counters up once and keep a reference to them, so that counting an event is
+ * a single atomic increment.
+ * 
+ * @author Andrea Funto'
+ */
+public class Counters implements CountersMXBean {
+
+	/**
+	 * The counters, by name.
+	 */
+	private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+	
+	/**
+	 * Returns the counter with the given name, creating it if it does not exist
+	 * yet.
+	 * 
+	 * @param name
+	 *   the name of the counter.
+	 * @return
+	 *   the counter.
+	 */
+	public AtomicLong get(String name) {
+		AtomicLong counter = counters.get(name);
+		if(counter == null) {
+			AtomicLong created = new AtomicLong();
+			counter = counters.putIfAbsent(name, created);
+			if(counter == null) {
+				counter = created;
+			}
+		}
+		return counter;
+	}
+	
+	/**
+	 * @see org.dihedron.strutlets.metrics.CountersMXBean#getValues()
+	 */
+	@Override
+	public Map<String, Long> getValues() {
+		Map<String, Long> values = new TreeMap<String, Long>();
+		for(Entry<String, AtomicLong> entry : counters.entrySet()) {
+			values.put(entry.getKey(), entry.getValue().get());
+		}
+		return Collections.unmodifiableMap(values);
+	}
+	
+	/**
+	 * @see org.dihedron.strutlets.metrics.CountersMXBean#reset()
+	 */
+	@Override
+	public void reset() {
+		for(AtomicLong counter : counters.values()) {
+			counter.set(0);
+		}
+	}
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX management interface of the named counters maintained by framework 
+ * components (e.g. interceptors) alongside the per-target metrics.
+ * 
+ * @author Andrea Funto'
+ */
+public interface CountersMXBean {
+	
+	/**
+	 * Returns the current value of all counters.
+	 * 
+	 * @return
+	 *   the counter values, by counter name.
+	 */
+	Map<String, Long> getValues();
+	
+	/**
+	 * Resets all counters.
+	 */
+	void reset();
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies, expressed in nanoseconds. Values are 
+ * recorded into log-linear buckets, in the spirit of HdrHistogram: each power 
+ * of two is split into 32 linear sub-buckets, so that any value is recorded with
+ * a relative error below 3.2%, regardless of its magnitude; values up to 2^44 
+ * nanoseconds (almost 5 hours) are supported, larger values are clamped. 
+ * Recording a value only involves a few atomic increments, so it can be safely
+ * done on the request processing path by any number of concurrent threads.
+ * 
+ * @author Andrea Funto'
+ */
+public class Histogram {
+	
+	/**
+	 * The number of bits used for linear sub-buckets.
+	 */
+	private static final int SUB_BUCKET_BITS = 5;
+	
+	/**
+	 * The number of linear sub-buckets in each power of two.
+	 */
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	
+	/**
+	 * The highest power of two supported.
+	 */
+	private static final int MAX_EXPONENT = 44;
+	
+	/**
+	 * The highest value that can be recorded.
+	 */
+	public static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+	
+	/**
+	 * The bucket counters.
+	 */
+	private final AtomicLongArray buckets = new AtomicLongArray(SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT);
+	
+	/**
+	 * The number of recorded values.
+	 */
+	private final AtomicLong count = new AtomicLong();
+	
+	/**
+	 * The sum of all recorded values.
+	 */
+	private final AtomicLong total = new AtomicLong();
+	
+	/**
+	 * The smallest recorded value.
+	 */
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	
+	/**
+	 * The largest recorded value.
+	 */
+	private final AtomicLong max = new AtomicLong(0);
+	
+	/**
+	 * Records a value.
+	 * 
+	 * @param value
+	 *   the value, in nanoseconds; negative values are recorded as 0, values 
+	 *   larger than {@link #MAX_VALUE} are clamped.
+	 */
+	public void record(long value) {
+		if(value < 0) {
+			value = 0;
+		} else if(value > MAX_VALUE) {
+			value = MAX_VALUE;
+		}
+		buckets.incrementAndGet(getBucketIndex(value));
+		count.incrementAndGet();
+		total.addAndGet(value);
+		long current = min.get();
+		while(value < current && !min.compareAndSet(current, value)) {
+			current = min.get();
+		}
+		current = max.get();
+		while(value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+	
+	/**
+	 * Returns the number of recorded values.
+	 * 
+	 * @return
+	 *   the number of recorded values.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+	
+	/**
+	 * Returns the smallest recorded value.
+	 * 
+	 * @return
+	 *   the smallest recorded value, or 0 if no value was recorded.
+	 */
+	public long getMin() {
+		long value = min.get();
+		return value == Long.MAX_VALUE ? 0 : value;
+	}
+	
+	/**
+	 * Returns the largest recorded value.
+	 * 
+	 * @return
+	 *   the largest recorded value, or 0 if no value was recorded.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+	
+	/**
+	 * Returns the mean of the recorded values.
+	 * 
+	 * @return
+	 *   the mean of the recorded values, or 0 if no value was recorded.
+	 */
+	public double getMean() {
+		long n = count.get();
+		return n > 0 ? (double)total.get() / n : 0.0;
+	}
+	
+	/**
+	 * Returns the value below which the given percentage of recorded values fall;
+	 * the value is the upper bound of the bucket containing the percentile, so it
+	 * may overestimate the actual value by the histogram's relative error.
+	 * 
+	 * @param percentile
+	 *   the percentile, between 0 and 100.
+	 * @return
+	 *   the value at the given percentile, or 0 if no value was recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long n = count.get();
+		if(n == 0) {
+			return 0;
+		}
+		long threshold = Math.max(1, (long)Math.ceil(Math.min(percentile, 100.0) / 100.0 * n));
+		long cumulated = 0;
+		for(int i = 0; i < buckets.length(); ++i) {
+			cumulated += buckets.get(i);
+			if(cumulated >= threshold) {
+				return Math.min(getBucketUpperBound(i), getMax());
+			}
+		}
+		return getMax();
+	}
+	
+	/**
+	 * Clears all recorded values; values recorded concurrently with the reset 
+	 * may be partially lost.
+	 */
+	public void reset() {
+		for(int i = 0; i < buckets.length(); ++i) {
+			buckets.set(i, 0);
+		}
+		count.set(0);
+		total.set(0);
+		min.set(Long.MAX_VALUE);
+		max.set(0);
+	}
+	
+	/**
+	 * Returns the index of the bucket where the given value is recorded.
+	 * 
+	 * @param value
+	 *   a non-negative value, not larger than {@link #MAX_VALUE}.
+	 * @return
+	 *   the index of the bucket.
+	 */
+	static int getBucketIndex(long value) {
+		if(value < SUB_BUCKET_COUNT) {
+			return (int)value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		int sub = (int)(value >>> shift) - SUB_BUCKET_COUNT;
+		return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + sub;
+	}
+	
+	/**
+	 * Returns the largest value recorded in the given bucket.
+	 * 
+	 * @param index
+	 *   the index of the bucket.
+	 * @return
+	 *   the largest value that falls in the bucket.
+	 */
+	static long getBucketUpperBound(int index) {
+		if(index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+		long sub = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+		return ((SUB_BUCKET_COUNT + sub + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.metrics;
+
+import java.util.Collection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A metrics reporter that writes the metrics of all targets that have been 
+ * invoked at least once to the log, at INFO level.
+ * 
+ * @author Andrea Funto'
+ */
+public class LoggingMetricsReporter implements MetricsReporter {
+	
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(LoggingMetricsReporter.class);
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.MetricsReporter#report(java.lang.String, java.util.Collection)
+	 */
+	@Override
+	public void report(String portlet, Collection<TargetMetrics> metrics) {
+		StringBuilder buffer = new StringBuilder("metrics for portlet '").append(portlet).append("':\n");
+		for(TargetMetrics metric : metrics) {
+			if(metric.getInvocations() > 0) {
+				buffer.append(" - ").append(metric).append("\n");
+			}
+		}
+		logger.info(buffer.toString());
+	}
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.dihedron.core.strings.Strings;
+import org.dihedron.strutlets.ActionContext.Phase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The registry of per-target, per-phase metrics of a portlet. Metrics are 
+ * created lazily the first time a target is invoked in a given phase and, if
+ * JMX support is enabled, registered as MBeans under the 
+ * {@value #JMX_DOMAIN} domain, qualified by the portlet context (i.e. the web
+ * application) and the portlet name; reporters can be plugged in to periodically 
+ * publish the collected metrics.
+ * 
+ * @author Andrea Funto'
+ */
+public class MetricsRegistry {
+	
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+	
+	/**
+	 * The JMX domain under which MBeans are registered.
+	 */
+	public static final String JMX_DOMAIN = "org.dihedron.strutlets";
+	
+	/**
+	 * The name of the portlet the metrics belong to.
+	 */
+	private final String portlet;
+	
+	/**
+	 * The key properties of the MBean object names, identifying the portlet
+	 * context and the portlet.
+	 */
+	private final String qualifier;
+	
+	/**
+	 * Whether metrics should be registered as JMX MBeans.
+	 */
+	private final boolean jmx;
+	
+	/**
+	 * The metrics, by target and phase.
+	 */
+	private final ConcurrentMap<String, TargetMetrics> metrics = new ConcurrentHashMap<String, TargetMetrics>();
+	
+	/**
+	 * The histograms of the time spent in each interceptor alone, by interceptor
+	 * identifier, in nanoseconds.
+	 */
+	private final ConcurrentMap<String, Histogram> interceptors = new ConcurrentHashMap<String, Histogram>();
+	
+	/**
+	 * The number of multipart/form-data requests.
+	 */
+	private final AtomicLong uploads = new AtomicLong();
+	
+	/**
+	 * The number of uploaded files.
+	 */
+	private final AtomicLong uploadedFiles = new AtomicLong();
+	
+	/**
+	 * The total size of uploaded files, in bytes.
+	 */
+	private final AtomicLong uploadedBytes = new AtomicLong();
+	
+	/**
+	 * The named counters maintained by other components.
+	 */
+	private final Counters counters = new Counters();
+	
+	/**
+	 * The names of the registered MBeans.
+	 */
+	private final List<ObjectName> mbeans = Collections.synchronizedList(new ArrayList<ObjectName>());
+	
+	/**
+	 * The scheduler running the reporters, if any.
+	 */
+	private ScheduledExecutorService scheduler = null;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param context
+	 *   the name of the portlet context (i.e. the web application) the portlet 
+	 *   belongs to, if available.
+	 * @param portlet
+	 *   the name of the portlet the metrics belong to.
+	 * @param jmx
+	 *   whether metrics should be registered as JMX MBeans.
+	 */
+	public MetricsRegistry(String context, String portlet, boolean jmx) {
+		this.portlet = portlet;
+		this.qualifier = (Strings.isValid(context) ? ",context=" + ObjectName.quote(context) : "") + ",portlet=" + ObjectName.quote(portlet);
+		this.jmx = jmx;
+		if(jmx) {
+			register(JMX_DOMAIN + ":type=Counters" + qualifier, counters);
+		}
+	}
+	
+	/**
+	 * Returns the name of the portlet the metrics belong to.
+	 * 
+	 * @return
+	 *   the name of the portlet.
+	 */
+	public String getPortlet() {
+		return portlet;
+	}
+	
+	/**
+	 * Returns the metrics of the given target in the given phase, creating them
+	 * if they do not exist yet.
+	 * 
+	 * @param target
+	 *   the target identifier.
+	 * @param phase
+	 *   the request processing phase.
+	 * @return
+	 *   the target metrics.
+	 */
+	public TargetMetrics getMetrics(String target, Phase phase) {
+		String key = target + "|" + phase.name();
+		TargetMetrics metric = metrics.get(key);
+		if(metric == null) {
+			TargetMetrics created = new TargetMetrics(target, phase);
+			metric = metrics.putIfAbsent(key, created);
+			if(metric == null) {
+				metric = created;
+				register(metric);
+			}
+		}
+		return metric;
+	}
+	
+	/**
+	 * Returns the metrics of all targets and phases.
+	 * 
+	 * @return
+	 *   an unmodifiable view of all metrics.
+	 */
+	public Collection<TargetMetrics> getAllMetrics() {
+		return Collections.unmodifiableCollection(metrics.values());
+	}
+	
+	/**
+	 * Records a target invocation.
+	 * 
+	 * @param target
+	 *   the target identifier.
+	 * @param phase
+	 *   the request processing phase.
+	 * @param nanos
+	 *   the invocation latency, in nanoseconds.
+	 * @param failed
+	 *   whether the invocation ended with an error.
+	 */
+	public void recordInvocation(String target, Phase phase, long nanos, boolean failed) {
+		getMetrics(target, phase).recordInvocation(nanos, failed);
+	}
+	
+	/**
+	 * Records the rendering of a target's output.
+	 * 
+	 * @param target
+	 *   the target identifier.
+	 * @param phase
+	 *   the request processing phase.
+	 * @param nanos
+	 *   the rendering time, in nanoseconds.
+	 */
+	public void recordRendering(String target, Phase phase, long nanos) {
+		getMetrics(target, phase).recordRendering(nanos);
+	}
+	
+	/**
+	 * Records the time spent in an interceptor alone, excluding the nested
+	 * interceptors and the action.
+	 * 
+	 * @param interceptor
+	 *   the interceptor's namespaced identifier.
+	 * @param nanos
+	 *   the time spent in the interceptor, in nanoseconds.
+	 */
+	public void recordInterceptor(String interceptor, long nanos) {
+		Histogram histogram = interceptors.get(interceptor);
+		if(histogram == null) {
+			Histogram created = new Histogram();
+			histogram = interceptors.putIfAbsent(interceptor, created);
+			if(histogram == null) {
+				histogram = created;
+			}
+		}
+		histogram.record(nanos);
+	}
+	
+	/**
+	 * Returns the histograms of the time spent in each interceptor alone, in 
+	 * nanoseconds.
+	 * 
+	 * @return
+	 *   a map of histograms, sorted by interceptor identifier.
+	 */
+	public Map<String, Histogram> getInterceptorMetrics() {
+		return Collections.unmodifiableMap(new TreeMap<String, Histogram>(interceptors));
+	}
+	
+	/**
+	 * Records a multipart/form-data request.
+	 * 
+	 * @param files
+	 *   the number of files uploaded with the request.
+	 * @param bytes
+	 *   the total size of the uploaded files, in bytes.
+	 */
+	public void recordUpload(int files, long bytes) {
+		uploads.incrementAndGet();
+		uploadedFiles.addAndGet(files);
+		uploadedBytes.addAndGet(bytes);
+	}
+	
+	/**
+	 * Returns the number of multipart/form-data requests.
+	 * 
+	 * @return
+	 *   the number of multipart/form-data requests.
+	 */
+	public long getUploads() {
+		return uploads.get();
+	}
+	
+	/**
+	 * Returns the number of uploaded files.
+	 * 
+	 * @return
+	 *   the number of uploaded files.
+	 */
+	public long getUploadedFiles() {
+		return uploadedFiles.get();
+	}
+	
+	/**
+	 * Returns the total size of uploaded files.
+	 * 
+	 * @return
+	 *   the total size of uploaded files, in bytes.
+	 */
+	public long getUploadedBytes() {
+		return uploadedBytes.get();
+	}
+	
+	/**
+	 * Returns the named counter, creating it if it does not exist yet; callers
+	 * should keep a reference to the counter rather than looking it up for 
+	 * every event.
+	 * 
+	 * @param name
+	 *   the name of the counter, e.g. the interceptor identifier followed by 
+	 *   the name of the event being counted.
+	 * @return
+	 *   the counter.
+	 */
+	public AtomicLong getCounter(String name) {
+		return counters.get(name);
+	}
+	
+	/**
+	 * Returns the current value of all named counters.
+	 * 
+	 * @return
+	 *   the counter values, sorted by counter name.
+	 */
+	public Map<String, Long> getCounters() {
+		return counters.getValues();
+	}
+	
+	/**
+	 * Clears all metrics.
+	 */
+	public void reset() {
+		for(TargetMetrics metric : metrics.values()) {
+			metric.reset();
+		}
+		for(Histogram histogram : interceptors.values()) {
+			histogram.reset();
+		}
+		uploads.set(0);
+		uploadedFiles.set(0);
+		uploadedBytes.set(0);
+		counters.reset();
+	}
+	
+	/**
+	 * Schedules a reporter to periodically publish the collected metrics.
+	 * 
+	 * @param reporter
+	 *   the reporter.
+	 * @param interval
+	 *   the reporting interval, in seconds.
+	 */
+	public synchronized void addReporter(final MetricsReporter reporter, long interval) {
+		if(scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "strutlets-metrics-" + portlet);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		logger.info("reporting metrics through '{}' every {} seconds", reporter.getClass().getName(), interval);
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					reporter.report(portlet, getAllMetrics());
+				} catch(RuntimeException e) {
+					logger.error("error reporting metrics through '" + reporter.getClass().getName() + "'", e);
+				}
+			}
+		}, interval, interval, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Stops all reporters and unregisters all MBeans.
+	 */
+	public synchronized void shutdown() {
+		if(scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+		if(jmx) {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			synchronized(mbeans) {
+				for(ObjectName name : mbeans) {
+					try {
+						if(server.isRegistered(name)) {
+							server.unregisterMBean(name);
+						}
+					} catch(JMException e) {
+						logger.warn("error unregistering MBean '{}'", name);
+					}
+				}
+				mbeans.clear();
+			}
+		}
+	}
+	
+	/**
+	 * Registers the given metrics as a JMX MBean, if JMX support is enabled.
+	 * 
+	 * @param metric
+	 *   the metrics to be registered.
+	 */
+	private void register(TargetMetrics metric) {
+		if(jmx) {
+			register(JMX_DOMAIN + ":type=TargetMetrics" + qualifier 
+					+ ",target=" + ObjectName.quote(metric.getTarget()) + ",phase=" + metric.getPhase(), metric);
+		}
+	}
+	
+	/**
+	 * Registers the given object as a JMX MBean under the given name; if an MBean
+	 * with the same name is already registered, it does not belong to this 
+	 * registry and is left in place.
+	 * 
+	 * @param objectName
+	 *   the MBean object name.
+	 * @param mbean
+	 *   the object to be registered.
+	 */
+	private void register(String objectName, Object mbean) {
+		try {
+			ObjectName name = new ObjectName(objectName);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if(server.isRegistered(name)) {
+				logger.warn("an MBean named '{}' is already registered, metrics will not be exposed under that name", name);
+				return;
+			}
+			server.registerMBean(mbean, name);
+			mbeans.add(name);
+			logger.trace("metrics MBean '{}' registered", name);
+		} catch(JMException e) {
+			logger.warn("error registering metrics MBean '{}'", objectName);
+		}
+	}
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.metrics;
+
+import java.util.Collection;
+
+/**
+ * The interface to be implemented by classes that periodically publish the 
+ * collected metrics somewhere (logs, monitoring systems...); implementations 
+ * must have a public no-args constructor.
+ * 
+ * @author Andrea Funto'
+ */
+public interface MetricsReporter {
+	
+	/**
+	 * Publishes the current metrics.
+	 * 
+	 * @param portlet
+	 *   the name of the portlet the metrics belong to.
+	 * @param metrics
+	 *   the per-target, per-phase metrics.
+	 */
+	void report(String portlet, Collection<TargetMetrics> metrics);
+}
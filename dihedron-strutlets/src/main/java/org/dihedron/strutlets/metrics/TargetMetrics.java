@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.dihedron.strutlets.ActionContext.Phase;
+
+/**
+ * The metrics of a target in a given phase: the latency of its invocations 
+ * (interceptors and action), the number of invocations and errors, and the 
+ * time spent rendering its output.
+ * 
+ * @author Andrea Funto'
+ */
+public class TargetMetrics implements TargetMetricsMBean {
+	
+	/**
+	 * The number of nanoseconds in a millisecond.
+	 */
+	private static final double NANOS_PER_MILLI = 1000000.0;
+	
+	/**
+	 * The target the metrics refer to.
+	 */
+	private final String target;
+	
+	/**
+	 * The phase the metrics refer to.
+	 */
+	private final Phase phase;
+	
+	/**
+	 * The histogram of invocation latencies.
+	 */
+	private final Histogram latency = new Histogram();
+	
+	/**
+	 * The histogram of rendering times.
+	 */
+	private final Histogram rendering = new Histogram();
+	
+	/**
+	 * The number of failed invocations.
+	 */
+	private final AtomicLong errors = new AtomicLong();
+	
+	/**
+	 * The time at which metrics started being collected, in milliseconds.
+	 */
+	private volatile long started = System.currentTimeMillis();
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param target
+	 *   the target the metrics refer to.
+	 * @param phase
+	 *   the phase the metrics refer to.
+	 */
+	public TargetMetrics(String target, Phase phase) {
+		this.target = target;
+		this.phase = phase;
+	}
+	
+	/**
+	 * Records a target invocation.
+	 * 
+	 * @param nanos
+	 *   the invocation latency, in nanoseconds.
+	 * @param failed
+	 *   whether the invocation ended with an error.
+	 */
+	public void recordInvocation(long nanos, boolean failed) {
+		latency.record(nanos);
+		if(failed) {
+			errors.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Records the rendering of the target's output.
+	 * 
+	 * @param nanos
+	 *   the rendering time, in nanoseconds.
+	 */
+	public void recordRendering(long nanos) {
+		rendering.record(nanos);
+	}
+	
+	/**
+	 * Returns the histogram of invocation latencies, in nanoseconds.
+	 * 
+	 * @return
+	 *   the histogram of invocation latencies.
+	 */
+	public Histogram getLatencyHistogram() {
+		return latency;
+	}
+	
+	/**
+	 * Returns the histogram of rendering times, in nanoseconds.
+	 * 
+	 * @return
+	 *   the histogram of rendering times.
+	 */
+	public Histogram getRenderingHistogram() {
+		return rendering;
+	}
+	
+	/**
+	 * Returns the phase the metrics refer to.
+	 * 
+	 * @return
+	 *   the phase.
+	 */
+	public Phase getPhaseValue() {
+		return phase;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.TargetMetricsMBean#getTarget()
+	 */
+	@Override
+	public String getTarget() {
+		return target;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.TargetMetricsMBean#getPhase()
+	 */
+	@Override
+	public String getPhase() {
+		return phase.name();
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.TargetMetricsMBean#getInvocations()
+	 */
+	@Override
+	public long getInvocations() {
+		return latency.getCount();
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.TargetMetricsMBean#getErrors()
+	 */
+	@Override
+	public long getErrors() {
+		return errors.get();
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.TargetMetricsMBean#getErrorRate()
+	 */
+	@Override
+	public double getErrorRate() {
+		long invocations = getInvocations();
+		return invocations > 0 ? (double)getErrors() / invocations : 0.0;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.TargetMetricsMBean#getThroughput()
+	 */
+	@Override
+	public double getThroughput() {
+		long elapsed = System.currentTimeMillis() - started;
+		return elapsed > 0 ? getInvocations() * 1000.0 / elapsed : 0.0;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.TargetMetricsMBean#getMeanLatency()
+	 */
+	@Override
+	public double getMeanLatency() {
+		return latency.getMean() / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.TargetMetricsMBean#getLatency50thPercentile()
+	 */
+	@Override
+	public double getLatency50thPercentile() {
+		return latency.getValueAtPercentile(50.0) / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.TargetMetricsMBean#getLatency95thPercentile()
+	 */
+	@Override
+	public double getLatency95thPercentile() {
+		return latency.getValueAtPercentile(95.0) / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.TargetMetricsMBean#getLatency99thPercentile()
+	 */
+	@Override
+	public double getLatency99thPercentile() {
+		return latency.getValueAtPercentile(99.0) / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.TargetMetricsMBean#getMaxLatency()
+	 */
+	@Override
+	public double getMaxLatency() {
+		return latency.getMax() / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.TargetMetricsMBean#getRenderings()
+	 */
+	@Override
+	public long getRenderings() {
+		return rendering.getCount();
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.TargetMetricsMBean#getMeanRenderingTime()
+	 */
+	@Override
+	public double getMeanRenderingTime() {
+		return rendering.getMean() / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.TargetMetricsMBean#getRenderingTime95thPercentile()
+	 */
+	@Override
+	public double getRenderingTime95thPercentile() {
+		return rendering.getValueAtPercentile(95.0) / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.metrics.TargetMetricsMBean#reset()
+	 */
+	@Override
+	public void reset() {
+		latency.reset();
+		rendering.reset();
+		errors.set(0);
+		started = System.currentTimeMillis();
+	}
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s [%s]: %d invocations, %d errors, latency mean %.3f ms, p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms; rendering mean %.3f ms, p95 %.3f ms", 
+				target, phase.name(), getInvocations(), getErrors(), getMeanLatency(), getLatency50thPercentile(), 
+				getLatency95thPercentile(), getLatency99thPercentile(), getMaxLatency(), getMeanRenderingTime(), getRenderingTime95thPercentile());
+	}
+}
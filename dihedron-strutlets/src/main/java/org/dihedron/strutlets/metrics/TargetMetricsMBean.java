@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.metrics;
+
+/**
+ * The JMX management interface of per-target, per-phase metrics; all times are
+ * expressed in milliseconds.
+ * 
+ * @author Andrea Funto'
+ */
+public interface TargetMetricsMBean {
+	
+	/**
+	 * Returns the target the metrics refer to.
+	 * 
+	 * @return
+	 *   the target identifier.
+	 */
+	String getTarget();
+	
+	/**
+	 * Returns the phase the metrics refer to.
+	 * 
+	 * @return
+	 *   the name of the phase.
+	 */
+	String getPhase();
+	
+	/**
+	 * Returns the number of invocations.
+	 * 
+	 * @return
+	 *   the number of invocations.
+	 */
+	long getInvocations();
+	
+	/**
+	 * Returns the number of invocations that ended with an error.
+	 * 
+	 * @return
+	 *   the number of failed invocations.
+	 */
+	long getErrors();
+	
+	/**
+	 * Returns the ratio of invocations that ended with an error.
+	 * 
+	 * @return
+	 *   the error rate, between 0 and 1.
+	 */
+	double getErrorRate();
+	
+	/**
+	 * Returns the average number of invocations per second since metrics 
+	 * started being collected (or were last reset).
+	 * 
+	 * @return
+	 *   the throughput, in invocations per second.
+	 */
+	double getThroughput();
+	
+	/**
+	 * Returns the mean invocation latency.
+	 * 
+	 * @return
+	 *   the mean latency, in milliseconds.
+	 */
+	double getMeanLatency();
+	
+	/**
+	 * Returns the median invocation latency.
+	 * 
+	 * @return
+	 *   the 50th percentile of latencies, in milliseconds.
+	 */
+	double getLatency50thPercentile();
+	
+	/**
+	 * Returns the 95th percentile of invocation latencies.
+	 * 
+	 * @return
+	 *   the 95th percentile of latencies, in milliseconds.
+	 */
+	double getLatency95thPercentile();
+	
+	/**
+	 * Returns the 99th percentile of invocation latencies.
+	 * 
+	 * @return
+	 *   the 99th percentile of latencies, in milliseconds.
+	 */
+	double getLatency99thPercentile();
+	
+	/**
+	 * Returns the maximum invocation latency.
+	 * 
+	 * @return
+	 *   the maximum latency, in milliseconds.
+	 */
+	double getMaxLatency();
+	
+	/**
+	 * Returns the number of times the target's output was rendered.
+	 * 
+	 * @return
+	 *   the number of renderings.
+	 */
+	long getRenderings();
+	
+	/**
+	 * Returns the mean rendering time.
+	 * 
+	 * @return
+	 *   the mean rendering time, in milliseconds.
+	 */
+	double getMeanRenderingTime();
+	
+	/**
+	 * Returns the 95th percentile of rendering times.
+	 * 
+	 * @return
+	 *   the 95th percentile of rendering times, in milliseconds.
+	 */
+	double getRenderingTime95thPercentile();
+	
+	/**
+	 * Clears all metrics.
+	 */
+	void reset();
+}
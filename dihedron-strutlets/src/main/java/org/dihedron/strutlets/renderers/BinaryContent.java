@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.renderers;
+
+/**
+ * A wrapper around the payload handed to a {@link StreamingRenderer} (a byte 
+ * array, an input stream, a file...), carrying the metadata to be sent along
+ * with it; unset metadata are worked out by the renderer where possible.
+ * 
+ * @author Andrea Funto'
+ */
+public class BinaryContent {
+	
+	/**
+	 * The payload.
+	 */
+	private final Object payload;
+	
+	/**
+	 * The MIME type of the content.
+	 */
+	private String contentType;
+	
+	/**
+	 * The character encoding of textual content.
+	 */
+	private String characterEncoding;
+	
+	/**
+	 * The length of the content, in bytes; -1 if unknown.
+	 */
+	private long length = -1;
+	
+	/**
+	 * The name of the file the content should be saved as by the client.
+	 */
+	private String fileName;
+	
+	/**
+	 * Whether the client should display the content rather than save it.
+	 */
+	private boolean inline = false;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param payload
+	 *   the payload, whose type must be supported by the renderer. 
+	 */
+	public BinaryContent(Object payload) {
+		this.payload = payload;
+	}
+
+	/**
+	 * Returns the payload.
+	 * 
+	 * @return
+	 *   the payload.
+	 */
+	public Object getPayload() {
+		return payload;
+	}
+
+	/**
+	 * Returns the MIME type of the content.
+	 * 
+	 * @return
+	 *   the MIME type, or {@code null} if unset.
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * Sets the MIME type of the content.
+	 * 
+	 * @param contentType
+	 *   the MIME type.
+	 * @return
+	 *   the object itself, for method chaining.
+	 */
+	public BinaryContent setContentType(String contentType) {
+		this.contentType = contentType;
+		return this;
+	}
+
+	/**
+	 * Returns the character encoding of textual content.
+	 * 
+	 * @return
+	 *   the character encoding, or {@code null} if unset.
+	 */
+	public String getCharacterEncoding() {
+		return characterEncoding;
+	}
+
+	/**
+	 * Sets the character encoding of textual content.
+	 * 
+	 * @param characterEncoding
+	 *   the character encoding (e.g. "UTF-8").
+	 * @return
+	 *   the object itself, for method chaining.
+	 */
+	public BinaryContent setCharacterEncoding(String characterEncoding) {
+		this.characterEncoding = characterEncoding;
+		return this;
+	}
+
+	/**
+	 * Returns the length of the content.
+	 * 
+	 * @return
+	 *   the length, in bytes, or -1 if unset.
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Sets the length of the content.
+	 * 
+	 * @param length
+	 *   the length, in bytes.
+	 * @return
+	 *   the object itself, for method chaining.
+	 */
+	public BinaryContent setLength(long length) {
+		this.length = length;
+		return this;
+	}
+
+	/**
+	 * Returns the name of the file the content should be saved as.
+	 * 
+	 * @return
+	 *   the file name, or {@code null} if unset.
+	 */
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * Sets the name of the file the content should be saved as.
+	 * 
+	 * @param fileName
+	 *   the file name.
+	 * @return
+	 *   the object itself, for method chaining.
+	 */
+	public BinaryContent setFileName(String fileName) {
+		this.fileName = fileName;
+		return this;
+	}
+
+	/**
+	 * Returns whether the client should display the content rather than save it.
+	 * 
+	 * @return
+	 *   whether the content is to be displayed inline.
+	 */
+	public boolean isInline() {
+		return inline;
+	}
+
+	/**
+	 * Sets whether the client should display the content rather than save it.
+	 * 
+	 * @param inline
+	 *   whether the content is to be displayed inline.
+	 * @return
+	 *   the object itself, for method chaining.
+	 */
+	public BinaryContent setInline(boolean inline) {
+		this.inline = inline;
+		return this;
+	}
+}
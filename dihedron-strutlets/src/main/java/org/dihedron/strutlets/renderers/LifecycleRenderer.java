@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.renderers;
+
+import org.dihedron.strutlets.exceptions.StrutletsException;
+
+/**
+ * The interface of renderers that need to be notified when they are put into
+ * service and when they are taken out of it; the registry only calls these 
+ * methods on renderers implementing this interface.
+ * 
+ * @author Andrea Funto'
+ */
+public interface LifecycleRenderer extends Renderer {
+	
+	/**
+	 * Initialises the renderer, once the portlet has been set and before it is 
+	 * first used; renderers holding expensive resources (object mappers, JAXB
+	 * contexts, template caches...) should create them here.
+	 * 
+	 * @throws StrutletsException
+	 *   if the renderer cannot be initialised; the portlet will not start.
+	 */
+	void initialise() throws StrutletsException;
+	
+	/**
+	 * Releases any resources held by the renderer, when the portlet is shut
+	 * down.
+	 */
+	void cleanup();
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.renderers;
+
+import java.io.IOException;
+
+import javax.portlet.MimeResponse;
+import javax.portlet.PortletException;
+import javax.portlet.PortletRequest;
+
+/**
+ * The interface of renderers writing (possibly binary) output straight to the 
+ * response output stream, out of a typed object rather than out of the name
+ * of a bean to be looked up.
+ * 
+ * @author Andrea Funto'
+ */
+public interface StreamingRenderer extends Renderer {
+
+	/**
+	 * Renders the given object to the client.
+	 * 
+	 * @param request
+	 *   the request object.
+	 * @param response
+	 *   the response object, either a render or a resource response.
+	 * @param value
+	 *   the object to be rendered; it can be a {@link BinaryContent} to control
+	 *   the content type, length, character encoding and file name.
+	 * @throws IOException
+	 *   if it cannot write to the output stream.
+	 * @throws PortletException
+	 *   if the object cannot be rendered by this renderer.
+	 */
+	void render(PortletRequest request, MimeResponse response, Object value) throws IOException, PortletException;
+}
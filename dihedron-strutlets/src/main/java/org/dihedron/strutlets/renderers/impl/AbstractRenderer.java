@@ -5,13 +5,19 @@
 package org.dihedron.strutlets.renderers.impl;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 
 import javax.portlet.GenericPortlet;
+import javax.portlet.MimeResponse;
+import javax.portlet.PortletRequest;
 import javax.portlet.PortletResponse;
 import javax.portlet.RenderResponse;
 import javax.portlet.ResourceResponse;
 
+import org.dihedron.core.strings.Strings;
+import org.dihedron.strutlets.InitParameter;
+import org.dihedron.strutlets.cache.CapturingResourceResponse;
 import org.dihedron.strutlets.renderers.Renderer;
 
 /**
@@ -25,6 +31,12 @@ public abstract class AbstractRenderer implements Renderer {
 	 * A reference to the protlet that is going to be using this renderer.
 	 */
 	private GenericPortlet portlet;
+	
+	/**
+	 * The output compression settings, lazily read from the portlet 
+	 * configuration.
+	 */
+	private volatile Compression compression;
 		
 	/**
 	 * Sets a reference to the portlet that is going to be using this renderer.
@@ -64,4 +76,146 @@ public abstract class AbstractRenderer implements Renderer {
 		}
 		return writer;
 	}
+	
+	/**
+	 * Writes textual output to the response; in the resource phase, output 
+	 * larger than the configured threshold is compressed if the client accepts
+	 * it. Output captured for the resource cache is never compressed, since 
+	 * cached bodies are replayed regardless of the client's capabilities.
+	 * 
+	 * @param request
+	 *   the request object.
+	 * @param response
+	 *   the response object.
+	 * @param text
+	 *   the output.
+	 * @throws IOException
+	 */
+	protected void write(PortletRequest request, PortletResponse response, String text) throws IOException {
+		if(response instanceof ResourceResponse && !(response instanceof CapturingResourceResponse)) {
+			Compression compression = getCompression();
+			String encoding = compression.negotiate(request, text.length());
+			if(encoding != null) {
+				ResourceResponse resource = (ResourceResponse)response;
+				String charset = resource.getCharacterEncoding();
+				if(charset == null) {
+					charset = "UTF-8";
+					resource.setCharacterEncoding(charset);
+				}
+				byte[] body = compression.compress(text.getBytes(charset), encoding);
+				resource.setProperty("Content-Encoding", encoding);
+				resource.addProperty("Vary", "Accept-Encoding");
+				setContentLength(resource, body.length);
+				OutputStream stream = resource.getPortletOutputStream();
+				stream.write(body);
+				stream.flush();
+				return;
+			}
+		}
+		PrintWriter writer = getWriter(response);
+		writer.print(text);
+		writer.flush();
+	}
+	
+	/**
+	 * Returns a stream compressing output of unknown size on the fly, if the
+	 * response is a resource response, compression is enabled and the client
+	 * accepts it; the appropriate headers are set on the response. The stream
+	 * must be finished once the output is complete, and released in a {@code 
+	 * finally} block so that its deflater goes back to the per-thread pool.
+	 * 
+	 * @param request
+	 *   the request object.
+	 * @param response
+	 *   the response object.
+	 * @return
+	 *   the compressing stream, or {@code null} if output must not be compressed.
+	 * @throws IOException
+	 */
+	protected Compression.CompressedStream getCompressedStream(PortletRequest request, PortletResponse response) throws IOException {
+		if(response instanceof ResourceResponse && !(response instanceof CapturingResourceResponse)) {
+			Compression compression = getCompression();
+			String encoding = compression.negotiate(request, Integer.MAX_VALUE);
+			if(encoding != null) {
+				ResourceResponse resource = (ResourceResponse)response;
+				resource.setProperty("Content-Encoding", encoding);
+				resource.addProperty("Vary", "Accept-Encoding");
+				return compression.wrap(resource.getPortletOutputStream(), encoding);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the output compression settings of the portlet.
+	 * 
+	 * @return
+	 *   the output compression settings.
+	 */
+	protected Compression getCompression() {
+		if(compression == null) {
+			int threshold = Compression.DEFAULT_THRESHOLD;
+			int level = Compression.DEFAULT_LEVEL;
+			if(portlet != null) {
+				String value = InitParameter.COMPRESSION_THRESHOLD.getValueForPortlet(portlet);
+				if(Strings.isValid(value)) {
+					threshold = Integer.parseInt(value.trim());
+				}
+				value = InitParameter.COMPRESSION_LEVEL.getValueForPortlet(portlet);
+				if(Strings.isValid(value)) {
+					level = Integer.parseInt(value.trim());
+				}
+			}
+			compression = new Compression(threshold, level);
+		}
+		return compression;
+	}
+	
+	/**
+	 * Returns the {@code OutputStream} associated with the response object, for
+	 * renderers writing binary output.
+	 * 
+	 * @param response
+	 *   the response object.
+	 * @return
+	 *   the {@code OutputStream} associated with the response object, or 
+	 *   {@code null} if the response does not support output.
+	 * @throws IOException
+	 */
+	protected OutputStream getOutputStream(PortletResponse response) throws IOException {
+		if(response instanceof MimeResponse) {
+			return ((MimeResponse)response).getPortletOutputStream();
+		}
+		return null;
+	}
+	
+	/**
+	 * Sets the length of the response body, if the response supports it (i.e.
+	 * in the resource phase).
+	 * 
+	 * @param response
+	 *   the response object.
+	 * @param length
+	 *   the length of the body, in bytes; negative values are ignored.
+	 */
+	protected void setContentLength(PortletResponse response, long length) {
+		if(response instanceof ResourceResponse && length >= 0 && length <= Integer.MAX_VALUE) {
+			((ResourceResponse)response).setContentLength((int)length);
+		}
+	}
+	
+	/**
+	 * Sets the character encoding of the response body, if the response supports
+	 * it (i.e. in the resource phase).
+	 * 
+	 * @param response
+	 *   the response object.
+	 * @param encoding
+	 *   the character encoding; {@code null} values are ignored.
+	 */
+	protected void setCharacterEncoding(PortletResponse response, String encoding) {
+		if(response instanceof ResourceResponse && encoding != null) {
+			((ResourceResponse)response).setCharacterEncoding(encoding);
+		}
+	}
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.renderers.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.portlet.GenericPortlet;
+
+import org.dihedron.core.strings.Strings;
+import org.dihedron.strutlets.actions.Result;
+import org.dihedron.strutlets.exceptions.StrutletsException;
+import org.dihedron.strutlets.renderers.LifecycleRenderer;
+import org.dihedron.strutlets.renderers.Renderer;
+import org.dihedron.strutlets.renderers.registry.RendererRegistry;
+import org.dihedron.strutlets.targets.Target;
+import org.dihedron.strutlets.targets.TargetId;
+import org.dihedron.strutlets.targets.registry.TargetRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base class for renderer registries: renderer classes are collected while the
+ * portlet starts up; when the registry is initialised, each is assigned an 
+ * index and the registry is frozen, so that lookups on the request processing
+ * path go through immutable structures and need no synchronisation.
+ * 
+ * @author Andrea Funto'
+ */
+public abstract class AbstractRendererRegistry implements RendererRegistry {
+	
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(AbstractRendererRegistry.class);
+
+	/**
+	 * The portlet this registry belongs to.
+	 */
+	private final GenericPortlet portlet;
+	
+	/**
+	 * The classes of the registered renderers, by id, in order of registration;
+	 * only used until the registry is initialised.
+	 */
+	private Map<String, Class<? extends Renderer>> classes = new LinkedHashMap<String, Class<? extends Renderer>>();
+	
+	/**
+	 * The indexes of the renderers, by id, once the registry is initialised.
+	 */
+	private volatile Map<String, Integer> indexes = null;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param portlet
+	 *   the portlet this registry belongs to.
+	 */
+	protected AbstractRendererRegistry(GenericPortlet portlet) {
+		this.portlet = portlet;
+	}
+	
+	/**
+	 * @see org.dihedron.strutlets.renderers.registry.RendererRegistry#addRenderer(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public void addRenderer(String id, Class<? extends Renderer> clazz) throws StrutletsException {
+		if(indexes != null) {
+			logger.error("cannot register renderer '{}': the registry has already been initialised", id);
+			throw new StrutletsException("Cannot register renderer '" + id + "' after the registry has been initialised");
+		}
+		if(Strings.isValid(id) && clazz != null) {
+			logger.info("registering renderer '{}' of class '{}'", id, clazz.getName());
+			classes.put(id, clazz);
+		}
+	}
+	
+	/**
+	 * @see org.dihedron.strutlets.renderers.registry.RendererRegistry#getRenderer(java.lang.String)
+	 */
+	@Override
+	public Renderer getRenderer(String id) throws StrutletsException {
+		int index = getIndex(id);
+		return index >= 0 ? getRenderer(index) : null;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.registry.RendererRegistry#getIndex(java.lang.String)
+	 */
+	@Override
+	public int getIndex(String id) {
+		if(indexes == null || !Strings.isValid(id)) {
+			return -1;
+		}
+		Integer index = indexes.get(id);
+		return index != null ? index : -1;
+	}
+	
+	/**
+	 * Assigns the indexes, lets the subclass set up its renderers and freezes
+	 * the registry.
+	 * 
+	 * @see org.dihedron.strutlets.renderers.registry.RendererRegistry#initialise()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void initialise() throws StrutletsException {
+		Map<String, Integer> map = new HashMap<String, Integer>();
+		Class<? extends Renderer>[] array = new Class[classes.size()];
+		int index = 0;
+		for(Entry<String, Class<? extends Renderer>> entry : classes.entrySet()) {
+			map.put(entry.getKey(), index);
+			array[index++] = entry.getValue();
+		}
+		initialise(array);
+		indexes = Collections.unmodifiableMap(map);
+		classes = null;
+		logger.info("renderers registry frozen with {} renderers", array.length);
+	}
+	
+	/**
+	 * @see org.dihedron.strutlets.renderers.registry.RendererRegistry#prepare(org.dihedron.strutlets.targets.registry.TargetRegistry)
+	 */
+	@Override
+	public void prepare(TargetRegistry registry) throws StrutletsException {
+		int count = 0;
+		for(TargetId id : registry.getTargetIds()) {
+			Target target = registry.getTarget(id);
+			for(Result result : target.getResults().values()) {
+				int index = getIndex(result.getRenderer());
+				if(index < 0) {
+					logger.warn("result '{}' of target '{}' refers to unknown renderer '{}'", result.getId(), id, result.getRenderer());
+					continue;
+				}
+				result.setRendererIndex(index);
+				++count;
+			}
+		}
+		logger.info("renderers resolved for {} results", count);
+	}
+	
+	/**
+	 * Returns the portlet this registry belongs to.
+	 * 
+	 * @return
+	 *   the portlet.
+	 */
+	protected GenericPortlet getPortlet() {
+		return portlet;
+	}
+	
+	/**
+	 * Creates a renderer instance, bound to the portlet and, if it implements
+	 * {@link LifecycleRenderer}, initialised.
+	 * 
+	 * @param clazz
+	 *   the renderer class.
+	 * @return
+	 *   the renderer instance.
+	 * @throws StrutletsException
+	 */
+	protected Renderer instantiate(Class<? extends Renderer> clazz) throws StrutletsException {
+		try {
+			Renderer renderer = clazz.newInstance();
+			renderer.setPortlet(portlet);
+			if(renderer instanceof LifecycleRenderer) {
+				((LifecycleRenderer)renderer).initialise();
+			}
+			return renderer;
+		} catch (InstantiationException e) {
+			logger.error("error instantiating object of class '{}'", clazz.getCanonicalName());
+			throw new StrutletsException("Error instantiating renderer class '" + clazz.getCanonicalName() + "'", e);
+		} catch (IllegalAccessException e) {
+			logger.error("error accessing class '{}'", clazz.getCanonicalName());
+			throw new StrutletsException("Error accessing renderer class '" + clazz.getCanonicalName() + "'", e);
+		}
+	}
+	
+	/**
+	 * Releases the resources held by a renderer instance, if it implements 
+	 * {@link LifecycleRenderer}.
+	 * 
+	 * @param renderer
+	 *   the renderer instance.
+	 */
+	protected void dispose(Renderer renderer) {
+		if(renderer instanceof LifecycleRenderer) {
+			((LifecycleRenderer)renderer).cleanup();
+		}
+	}
+	
+	/**
+	 * Sets up the renderers, once their indexes have been assigned.
+	 * 
+	 * @param renderers
+	 *   the renderer classes, by index.
+	 * @throws StrutletsException
+	 */
+	protected abstract void initialise(Class<? extends Renderer>[] renderers) throws StrutletsException;
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder();
+		buffer.append("renderers: [\n");
+		if(indexes != null) {
+			for(Entry<String, Integer> entry : indexes.entrySet()) {
+				buffer.append("  { name: '").append(entry.getKey()).append("', index: ").append(entry.getValue()).append(" },\n");
+			}
+		} else {
+			for(Entry<String, Class<? extends Renderer>> entry : classes.entrySet()) {
+				buffer.append("  { name: '").append(entry.getKey()).append("', class: '").append(entry.getValue().getCanonicalName()).append("' },\n");
+			}
+		}
+		buffer.append("]\n");		
+		return buffer.toString();
+	}
+}
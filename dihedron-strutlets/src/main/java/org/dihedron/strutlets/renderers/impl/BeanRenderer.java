@@ -11,6 +11,7 @@ import javax.portlet.PortletSession;
 
 import org.dihedron.core.strings.Strings;
 import org.dihedron.strutlets.ActionContext;
+import org.dihedron.strutlets.ActionInvocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,7 +25,8 @@ public abstract class BeanRenderer extends AbstractRenderer {
 	private static final Logger logger = LoggerFactory.getLogger(BeanRenderer.class);
 	
 	/**
-	 * Tries to retrieve the bean from the parameters and the attrobutes.
+	 * Tries to retrieve the bean from the values produced by the action in the 
+	 * current request, then from the parameters and the attributes.
 	 * 
 	 * @param request
 	 *   the portlet request obejct.
@@ -35,6 +37,12 @@ public abstract class BeanRenderer extends AbstractRenderer {
 	protected Object getBean(PortletRequest request, String bean) {
 		
 		logger.trace("trying to retrieve bean '{}'...", bean);
+		ActionInvocation invocation = ActionContext.getInvocation();
+		if(invocation != null && invocation.hasOutput(bean)) {
+			logger.trace("... bean found among action outputs");
+			return invocation.getOutput(bean);
+		}
+		
 		Object object = getParameterValues(request, bean);
 		if(object != null) {
 			logger.trace("... bean found among parameters");
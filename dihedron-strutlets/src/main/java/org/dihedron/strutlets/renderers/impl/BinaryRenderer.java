@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.renderers.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.portlet.MimeResponse;
+import javax.portlet.PortletException;
+import javax.portlet.PortletRequest;
+import javax.portlet.PortletResponse;
+
+import org.dihedron.strutlets.renderers.BinaryContent;
+import org.dihedron.strutlets.renderers.StreamingRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base class for renderers writing binary output straight to the response
+ * output stream, bypassing character encoding altogether; the payload is 
+ * looked up as a bean and can be wrapped in a {@link BinaryContent} to control
+ * the content type, length, character encoding and file name sent along with
+ * it. Subclasses only need to know how to measure and write their payloads.
+ * 
+ * @author Andrea Funto'
+ */
+public abstract class BinaryRenderer extends BeanRenderer implements StreamingRenderer {
+
+	/**
+	 * The MIME type used when none is specified or can be worked out.
+	 */
+	public static final String DEFAULT_MIME_TYPE = "application/octet-stream";
+	
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(BinaryRenderer.class);
+	
+	/**
+	 * The hexadecimal digits, for percent-encoding file names.
+	 */
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+	
+	/**
+	 * @see org.dihedron.strutlets.renderers.Renderer#render(javax.portlet.PortletRequest, javax.portlet.PortletResponse, java.lang.String)
+	 */
+	@Override
+	public void render(PortletRequest request, PortletResponse response, String data) throws IOException, PortletException {
+		if(!(response instanceof MimeResponse)) {
+			throw new PortletException("renderer '" + getId() + "' can only be used in the render and resource phases");
+		}
+		logger.trace("rendering bean '{}'", data);
+		render(request, (MimeResponse)response, getBean(request, data));
+	}
+	
+	/**
+	 * @see org.dihedron.strutlets.renderers.StreamingRenderer#render(javax.portlet.PortletRequest, javax.portlet.MimeResponse, java.lang.Object)
+	 */
+	@Override
+	public void render(PortletRequest request, MimeResponse response, Object value) throws IOException, PortletException {
+		BinaryContent content = value instanceof BinaryContent ? (BinaryContent)value : new BinaryContent(value);
+		Object payload = content.getPayload();
+		if(payload == null) {
+			logger.warn("renderer '{}' has nothing to render", getId());
+			return;
+		}
+		if(!supports(payload)) {
+			throw new PortletException("renderer '" + getId() + "' cannot render objects of class '" + payload.getClass().getName() + "'");
+		}
+		
+		String contentType = content.getContentType() != null ? content.getContentType() : getContentType(payload);
+		response.setContentType(contentType != null ? contentType : DEFAULT_MIME_TYPE);
+		setCharacterEncoding(response, content.getCharacterEncoding());
+		String fileName = content.getFileName() != null ? content.getFileName() : getFileName(payload);
+		if(fileName != null) {
+			response.setProperty("Content-Disposition", makeContentDisposition(content.isInline(), fileName));
+		}
+		long length = content.getLength() >= 0 ? content.getLength() : getLength(payload);
+		setContentLength(response, length);
+		
+		OutputStream stream = getOutputStream(response);
+		write(payload, stream);
+		stream.flush();
+		logger.trace("renderer '{}' wrote {} bytes of type '{}'", getId(), length >= 0 ? length : "an unknown number of", contentType);
+	}
+	
+	/**
+	 * Builds the value of the "Content-Disposition" header for the given file
+	 * name: a plain ASCII {@code filename} parameter, stripped of control 
+	 * characters (so that the name cannot inject headers), quotes and 
+	 * backslashes, for older clients, and an RFC 5987 {@code filename*} 
+	 * parameter carrying the full UTF-8 name, percent-encoded.
+	 * 
+	 * @param inline
+	 *   whether the content should be displayed inline rather than saved.
+	 * @param fileName
+	 *   the file name.
+	 * @return
+	 *   the header value.
+	 */
+	protected static String makeContentDisposition(boolean inline, String fileName) {
+		StringBuilder ascii = new StringBuilder(fileName.length());
+		for(int i = 0; i < fileName.length(); ++i) {
+			char c = fileName.charAt(i);
+			if(c < 0x20 || c == 0x7F || c == '"' || c == '\\') {
+				continue;
+			}
+			ascii.append(c < 0x80 ? c : '_');
+		}
+		StringBuilder header = new StringBuilder(inline ? "inline" : "attachment");
+		header.append("; filename=\"").append(ascii).append("\"; filename*=UTF-8''");
+		for(byte b : fileName.getBytes(StandardCharsets.UTF_8)) {
+			char c = (char)(b & 0xFF);
+			if((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || "!#$&+-.^_`|~".indexOf(c) >= 0) {
+				header.append(c);
+			} else {
+				header.append('%').append(HEX_DIGITS[(c >> 4) & 0x0F]).append(HEX_DIGITS[c & 0x0F]);
+			}
+		}
+		return header.toString();
+	}
+	
+	/**
+	 * Returns whether the renderer can write the given payload.
+	 * 
+	 * @param payload
+	 *   the payload.
+	 * @return
+	 *   whether the payload is of a supported type.
+	 */
+	protected abstract boolean supports(Object payload);
+	
+	/**
+	 * Returns the length of the given payload, if it can be known in advance.
+	 * 
+	 * @param payload
+	 *   the payload.
+	 * @return
+	 *   the length, in bytes, or -1 if unknown.
+	 * @throws IOException
+	 */
+	protected long getLength(Object payload) throws IOException {
+		return -1;
+	}
+	
+	/**
+	 * Returns the MIME type of the given payload, if it can be worked out.
+	 * 
+	 * @param payload
+	 *   the payload.
+	 * @return
+	 *   the MIME type, or {@code null} to use the default.
+	 * @throws IOException
+	 */
+	protected String getContentType(Object payload) throws IOException {
+		return null;
+	}
+	
+	/**
+	 * Returns the name of the file the payload should be saved as, if any.
+	 * 
+	 * @param payload
+	 *   the payload.
+	 * @return
+	 *   the file name, or {@code null} if none.
+	 */
+	protected String getFileName(Object payload) {
+		return null;
+	}
+	
+	/**
+	 * Writes the payload to the response output stream.
+	 * 
+	 * @param payload
+	 *   the payload.
+	 * @param stream
+	 *   the response output stream.
+	 * @throws IOException
+	 *   if the payload cannot be read or the output cannot be written.
+	 */
+	protected abstract void write(Object payload, OutputStream stream) throws IOException;
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.renderers.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.dihedron.strutlets.annotations.Alias;
+
+/**
+ * A renderer writing a byte array (e.g. a generated PDF) to the response.
+ * 
+ * @author Andrea Funto'
+ */
+@Alias(BytesRenderer.ID)
+public class BytesRenderer extends BinaryRenderer {
+	
+	/**
+	 * The renderer unique id.
+	 */
+	public static final String ID = "bytes";
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.Renderer#getId()
+	 */
+	@Override
+	public String getId() {
+		return ID;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.BinaryRenderer#supports(java.lang.Object)
+	 */
+	@Override
+	protected boolean supports(Object payload) {
+		return payload instanceof byte[];
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.BinaryRenderer#getLength(java.lang.Object)
+	 */
+	@Override
+	protected long getLength(Object payload) {
+		return ((byte[])payload).length;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.BinaryRenderer#write(java.lang.Object, java.io.OutputStream)
+	 */
+	@Override
+	protected void write(Object payload, OutputStream stream) throws IOException {
+		stream.write((byte[])payload);
+	}
+}
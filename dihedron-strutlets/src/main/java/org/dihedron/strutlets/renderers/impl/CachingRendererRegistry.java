@@ -4,23 +4,21 @@
 
 package org.dihedron.strutlets.renderers.impl;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
-
 import javax.portlet.GenericPortlet;
 
-import org.dihedron.core.strings.Strings;
 import org.dihedron.strutlets.exceptions.StrutletsException;
 import org.dihedron.strutlets.renderers.Renderer;
-import org.dihedron.strutlets.renderers.registry.RendererRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * A renderer registry holding a single, shared instance of each renderer, 
+ * created and initialised when the registry is initialised and cleaned up when
+ * the portlet is shut down.
+ * 
  * @author Andrea Funto'
  */
-public class CachingRendererRegistry implements RendererRegistry {
+public class CachingRendererRegistry extends AbstractRendererRegistry {
 		
 	/**
 	 * The logger.
@@ -28,57 +26,50 @@ public class CachingRendererRegistry implements RendererRegistry {
 	private static final Logger logger = LoggerFactory.getLogger(CachingRendererRegistry.class);
 
 	/**
-	 * The portlet this registry belongs to.
-	 */
-	private GenericPortlet portlet;
-	
-	/**
-	 * The map containing an instance of each registered renderers.
+	 * The renderer instances, by index.
 	 */
-	private Map<String, Renderer> renderers = new HashMap<String, Renderer>();  
+	private Renderer[] renderers = new Renderer[0];  
 	
 	/**
 	 * Constructor.
 	 */
 	public CachingRendererRegistry(GenericPortlet portlet) {
+		super(portlet);
 		logger.info("instantiating caching renderers registry...");
-		this.portlet = portlet;
-		//this.addRenderer("jsp", "org.dihedron.strutlets.renderers.impl.JspRenderer");
 	}
 	
-	public void addRenderer(String id, Class<? extends Renderer> clazz) throws StrutletsException {
-		if(Strings.isValid(id) && clazz != null) {
-			try {
-				logger.info("registering renderer '{}' of class '{}'", id, clazz.getName());
-				Renderer renderer = clazz.newInstance();
-				renderer.setPortlet(this.portlet);
-				this.renderers.put(id, renderer);
-			} catch (InstantiationException e) {
-				logger.error("error instantiating object of class '{}'", clazz.getCanonicalName());
-				throw new StrutletsException("Error instantiating renderer class '" + clazz.getCanonicalName() + "'", e);
-			} catch (IllegalAccessException e) {
-				logger.error("error accessing class '{}'", clazz.getCanonicalName());
-				throw new StrutletsException("Error accessing renderer class '" + clazz.getCanonicalName() + "'", e);
-			}				
-		}
+	/**
+	 * @see org.dihedron.strutlets.renderers.registry.RendererRegistry#getRenderer(int)
+	 */
+	@Override
+	public Renderer getRenderer(int index) throws StrutletsException {
+		return renderers[index];
 	}
 	
-	public Renderer getRenderer(String id) throws StrutletsException {
-		Renderer renderer = null;
-		if(Strings.isValid(id)) {
-			renderer = this.renderers.get(id);
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.AbstractRendererRegistry#initialise(java.lang.Class[])
+	 */
+	@Override
+	protected void initialise(Class<? extends Renderer>[] classes) throws StrutletsException {
+		Renderer[] array = new Renderer[classes.length];
+		for(int i = 0; i < classes.length; ++i) {
+			array[i] = instantiate(classes[i]);
+			logger.trace("renderer '{}' of class '{}' initialised", array[i].getId(), classes[i].getName());
 		}
-		return renderer;
+		renderers = array;
 	}
 	
+	/**
+	 * @see org.dihedron.strutlets.renderers.registry.RendererRegistry#cleanup()
+	 */
 	@Override
-	public String toString() {
-		StringBuilder buffer = new StringBuilder();
-		buffer.append("renderers: [\n");
-		for(Entry<String, Renderer> entry : renderers.entrySet()) {
-			buffer.append("  { name: '").append(entry.getValue().getId()).append("', class: '").append(entry.getValue().getClass().getCanonicalName()).append("' },\n");
+	public void cleanup() {
+		for(Renderer renderer : renderers) {
+			try {
+				dispose(renderer);
+			} catch(RuntimeException e) {
+				logger.error("error cleaning up renderer '" + renderer.getId() + "'", e);
+			}
 		}
-		buffer.append("]\n");		
-		return buffer.toString();
 	}
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.renderers.impl;
+
+import org.dihedron.strutlets.annotations.Alias;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * A renderer serialising beans in CBOR (Concise Binary Object Representation,
+ * RFC 7049), a binary encoding of the JSON data model that is more compact and
+ * cheaper to produce than JSON text.
+ * 
+ * @author Andrea Funto'
+ */
+@Alias(CborRenderer.ID)
+public class CborRenderer extends JacksonRenderer {
+	
+	/**
+	 * The renderer unique id.
+	 */
+	public static final String ID = "cbor";
+
+	/**
+	 * The MIME type returned as content type by this renderer.
+	 */
+	public static final String CBOR_MIME_TYPE = "application/cbor";
+	
+	/**
+	 * The shared writer.
+	 */
+	private static final ObjectWriter writer = configure(new ObjectMapper(new CBORFactory())).writer();
+	
+	/**
+	 * @see org.dihedron.strutlets.renderers.Renderer#getId()
+	 */
+	@Override
+	public String getId() {
+		return ID;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.JacksonRenderer#getContentType()
+	 */
+	@Override
+	public String getContentType() {
+		return CBOR_MIME_TYPE;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.JacksonRenderer#getObjectWriter()
+	 */
+	@Override
+	protected ObjectWriter getObjectWriter() {
+		return writer;
+	}
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.renderers.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.portlet.PortletRequest;
+
+import org.dihedron.core.strings.Strings;
+
+/**
+ * The negotiation and compression of renderer output for resource responses,
+ * where the servlet container's compression filters cannot be relied upon. 
+ * Output is compressed with "gzip" or "deflate", according to the request's
+ * {@code Accept-Encoding} header, only if its size reaches a threshold. The
+ * {@code Deflater}s (which hold native memory) are kept one per thread and per
+ * format and reused across requests, both for buffered and for streamed output,
+ * rather than being allocated and released for every response.
+ * 
+ * @author Andrea Funto'
+ */
+public class Compression {
+	
+	/**
+	 * The "gzip" content encoding.
+	 */
+	public static final String GZIP = "gzip";
+	
+	/**
+	 * The "deflate" content encoding.
+	 */
+	public static final String DEFLATE = "deflate";
+	
+	/**
+	 * The default minimum size of compressed output, in characters.
+	 */
+	public static final int DEFAULT_THRESHOLD = 1024;
+	
+	/**
+	 * The default compression level.
+	 */
+	public static final int DEFAULT_LEVEL = 6;
+	
+	/**
+	 * The fixed header of a gzip member (no file name, no timestamp).
+	 */
+	private static final byte[] GZIP_HEADER = { 0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte)0xff };
+	
+	/**
+	 * The size of the buffer the compressed data is drained through.
+	 */
+	private static final int BUFFER_SIZE = 8192;
+	
+	/**
+	 * The per-thread deflaters producing raw data, for the gzip format.
+	 */
+	private static final ThreadLocal<Deflater> raw = new ThreadLocal<Deflater>();
+	
+	/**
+	 * The per-thread deflaters producing zlib data, for the deflate format.
+	 */
+	private static final ThreadLocal<Deflater> zlib = new ThreadLocal<Deflater>();
+	
+	/**
+	 * The per-thread drain buffers.
+	 */
+	private static final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>();
+	
+	/**
+	 * A stream compressing data on the fly, through one of the per-thread 
+	 * deflaters, in either the gzip or the deflate format; the gzip header and 
+	 * trailer are written by the stream itself. The deflater is borrowed from 
+	 * the pool when the stream is created and must be given back by calling 
+	 * {@link #release()} (or {@link #close()}) once the stream is no longer in 
+	 * use, whether the output was completed or not.
+	 * 
+	 * @author Andrea Funto'
+	 */
+	public static class CompressedStream extends DeflaterOutputStream {
+		
+		/**
+		 * Whether the gzip format is produced.
+		 */
+		private final boolean gzip;
+		
+		/**
+		 * The checksum of the uncompressed data, for the gzip trailer.
+		 */
+		private final CRC32 crc = new CRC32();
+		
+		/**
+		 * Whether the deflater has been given back to the pool.
+		 */
+		private boolean released = false;
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param stream
+		 *   the underlying stream.
+		 * @param deflater
+		 *   the deflater borrowed from the pool.
+		 * @param gzip
+		 *   whether the gzip format must be produced.
+		 * @throws IOException
+		 */
+		CompressedStream(OutputStream stream, Deflater deflater, boolean gzip) throws IOException {
+			super(stream, deflater, BUFFER_SIZE, true);
+			this.gzip = gzip;
+			if(gzip) {
+				stream.write(GZIP_HEADER);
+			}
+		}
+		
+		/**
+		 * @see java.util.zip.DeflaterOutputStream#write(byte[], int, int)
+		 */
+		@Override
+		public void write(byte[] data, int offset, int length) throws IOException {
+			super.write(data, offset, length);
+			if(gzip) {
+				crc.update(data, offset, length);
+			}
+		}
+		
+		/**
+		 * Writes the remaining compressed data and, for the gzip format, the 
+		 * trailer, without closing the underlying stream.
+		 * 
+		 * @see java.util.zip.DeflaterOutputStream#finish()
+		 */
+		@Override
+		public void finish() throws IOException {
+			if(!def.finished()) {
+				super.finish();
+				if(gzip) {
+					ByteArrayOutputStream trailer = new ByteArrayOutputStream(8);
+					writeInt(trailer, (int)crc.getValue());
+					writeInt(trailer, (int)def.getBytesRead());
+					trailer.writeTo(out);
+				}
+			}
+		}
+		
+		/**
+		 * Finishes the output and gives the deflater back to the pool; the 
+		 * underlying stream, which belongs to the portlet container, is left 
+		 * open.
+		 * 
+		 * @see java.util.zip.DeflaterOutputStream#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				finish();
+				out.flush();
+			} finally {
+				release();
+			}
+		}
+		
+		/**
+		 * Gives the deflater back to the per-thread pool, discarding any data
+		 * not written yet; the stream cannot be used afterwards.
+		 */
+		public void release() {
+			if(!released) {
+				released = true;
+				giveBack(def, gzip);
+			}
+		}
+	}
+	
+	/**
+	 * The minimum size of compressed output, in characters; negative values
+	 * disable compression.
+	 */
+	private final int threshold;
+	
+	/**
+	 * The compression level, between 1 (fastest) and 9 (smallest).
+	 */
+	private final int level;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param threshold
+	 *   the minimum size of compressed output, in characters; negative values 
+	 *   disable compression.
+	 * @param level
+	 *   the compression level, between 1 (fastest) and 9 (smallest).
+	 */
+	public Compression(int threshold, int level) {
+		this.threshold = threshold;
+		this.level = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, level));
+	}
+	
+	/**
+	 * Returns whether compression is enabled.
+	 * 
+	 * @return
+	 *   whether compression is enabled.
+	 */
+	public boolean isEnabled() {
+		return threshold >= 0;
+	}
+	
+	/**
+	 * Picks the content encoding for output of the given size, out of those 
+	 * accepted by the client.
+	 * 
+	 * @param request
+	 *   the portlet request.
+	 * @param size
+	 *   the size of the output, in characters or bytes.
+	 * @return
+	 *   {@link #GZIP}, {@link #DEFLATE}, or {@code null} if the output should
+	 *   not be compressed.
+	 */
+	public String negotiate(PortletRequest request, int size) {
+		if(threshold < 0 || size < threshold) {
+			return null;
+		}
+		String header = request.getProperty("Accept-Encoding");
+		if(!Strings.isValid(header)) {
+			return null;
+		}
+		boolean deflate = false;
+		for(String token : Strings.split(header, ",", true)) {
+			String[] parts = token.trim().split(";");
+			String coding = parts[0].trim().toLowerCase();
+			if(parts.length > 1 && parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?")) {
+				continue;
+			}
+			if(coding.equals(GZIP) || coding.equals("x-gzip")) {
+				return GZIP;
+			} else if(coding.equals(DEFLATE)) {
+				deflate = true;
+			}
+		}
+		return deflate ? DEFLATE : null;
+	}
+	
+	/**
+	 * Compresses the given data.
+	 * 
+	 * @param data
+	 *   the uncompressed data.
+	 * @param encoding
+	 *   either {@link #GZIP} or {@link #DEFLATE}.
+	 * @return
+	 *   the compressed data.
+	 */
+	public byte[] compress(byte[] data, String encoding) {
+		boolean gzip = GZIP.equals(encoding);
+		Deflater deflater = borrow(gzip);
+		byte[] buffer = buffers.get();
+		if(buffer == null) {
+			buffer = new byte[BUFFER_SIZE];
+			buffers.set(buffer);
+		}
+		ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(BUFFER_SIZE, data.length / 4));
+		try {
+			if(gzip) {
+				output.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+			}
+			deflater.setInput(data);
+			deflater.finish();
+			while(!deflater.finished()) {
+				int length = deflater.deflate(buffer);
+				output.write(buffer, 0, length);
+			}
+			if(gzip) {
+				CRC32 crc = new CRC32();
+				crc.update(data);
+				writeInt(output, (int)crc.getValue());
+				writeInt(output, data.length);
+			}
+		} finally {
+			giveBack(deflater, gzip);
+		}
+		return output.toByteArray();
+	}
+	
+	/**
+	 * Wraps the given stream so that data written to it is compressed on the
+	 * fly, through the current thread's deflater, for output whose size is not 
+	 * known in advance; flushing the wrapper flushes all data compressed so far. 
+	 * The wrapper must be finished once the output is complete, and released
+	 * (or closed) in a {@code finally} block in any case.
+	 * 
+	 * @param stream
+	 *   the underlying stream.
+	 * @param encoding
+	 *   either {@link #GZIP} or {@link #DEFLATE}.
+	 * @return
+	 *   the compressing stream.
+	 * @throws IOException
+	 */
+	public CompressedStream wrap(OutputStream stream, String encoding) throws IOException {
+		boolean gzip = GZIP.equals(encoding);
+		Deflater deflater = borrow(gzip);
+		try {
+			return new CompressedStream(stream, deflater, gzip);
+		} catch(IOException e) {
+			giveBack(deflater, gzip);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Takes the current thread's deflater for the given format out of the pool,
+	 * set to the configured level; if it is already in use (e.g. by an outer 
+	 * stream), a new one is created.
+	 * 
+	 * @param gzip
+	 *   whether raw data (for the gzip format) must be produced.
+	 * @return
+	 *   a deflater ready for use.
+	 */
+	private Deflater borrow(boolean gzip) {
+		ThreadLocal<Deflater> pool = gzip ? raw : zlib;
+		Deflater deflater = pool.get();
+		if(deflater == null) {
+			return new Deflater(level, gzip);
+		}
+		pool.remove();
+		deflater.setLevel(level);
+		return deflater;
+	}
+	
+	/**
+	 * Resets the given deflater and puts it back into the current thread's pool
+	 * or, if the pool already holds one, releases its native memory.
+	 * 
+	 * @param deflater
+	 *   the deflater.
+	 * @param gzip
+	 *   whether the deflater produces raw data (for the gzip format).
+	 */
+	private static void giveBack(Deflater deflater, boolean gzip) {
+		ThreadLocal<Deflater> pool = gzip ? raw : zlib;
+		if(pool.get() == null) {
+			deflater.reset();
+			pool.set(deflater);
+		} else {
+			deflater.end();
+		}
+	}
+	
+	/**
+	 * Writes a 32-bit integer in little-endian order, as required by gzip.
+	 * 
+	 * @param output
+	 *   the output stream.
+	 * @param value
+	 *   the value.
+	 */
+	private static void writeInt(ByteArrayOutputStream output, int value) {
+		output.write(value & 0xff);
+		output.write((value >> 8) & 0xff);
+		output.write((value >> 16) & 0xff);
+		output.write((value >> 24) & 0xff);
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.renderers.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.dihedron.strutlets.annotations.Alias;
+
+/**
+ * A renderer sending a file (a {@code java.nio.file.Path} or a {@code 
+ * java.io.File}) to the response; the content type is probed from the file
+ * and the file is read through a NIO channel in large chunks; since the portlet
+ * output stream is wrapped in a channel, the data still goes through a heap 
+ * buffer on its way to the response. Unless the file is wrapped in a {@code 
+ * BinaryContent} specifying otherwise, the client is asked to save it under 
+ * its own name.
+ * 
+ * @author Andrea Funto'
+ */
+@Alias(FileRenderer.ID)
+public class FileRenderer extends BinaryRenderer {
+	
+	/**
+	 * The renderer unique id.
+	 */
+	public static final String ID = "file";
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.Renderer#getId()
+	 */
+	@Override
+	public String getId() {
+		return ID;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.BinaryRenderer#supports(java.lang.Object)
+	 */
+	@Override
+	protected boolean supports(Object payload) {
+		return payload instanceof Path || payload instanceof File;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.BinaryRenderer#getLength(java.lang.Object)
+	 */
+	@Override
+	protected long getLength(Object payload) throws IOException {
+		return Files.size(toPath(payload));
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.BinaryRenderer#getContentType(java.lang.Object)
+	 */
+	@Override
+	protected String getContentType(Object payload) throws IOException {
+		return Files.probeContentType(toPath(payload));
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.BinaryRenderer#getFileName(java.lang.Object)
+	 */
+	@Override
+	protected String getFileName(Object payload) {
+		Path name = toPath(payload).getFileName();
+		return name != null ? name.toString() : null;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.BinaryRenderer#write(java.lang.Object, java.io.OutputStream)
+	 */
+	@Override
+	protected void write(Object payload, OutputStream stream) throws IOException {
+		WritableByteChannel target = Channels.newChannel(stream);
+		try(FileChannel source = FileChannel.open(toPath(payload), StandardOpenOption.READ)) {
+			long position = 0;
+			long size = source.size();
+			while(position < size) {
+				long transferred = source.transferTo(position, size - position, target);
+				if(transferred <= 0) {
+					// the file was truncated while being sent
+					break;
+				}
+				position += transferred;
+			}
+		}
+	}
+	
+	/**
+	 * Converts the payload into a {@code Path}.
+	 * 
+	 * @param payload
+	 *   a {@code Path} or a {@code File}.
+	 * @return
+	 *   the path.
+	 */
+	private Path toPath(Object payload) {
+		return payload instanceof Path ? (Path)payload : ((File)payload).toPath();
+	}
+}
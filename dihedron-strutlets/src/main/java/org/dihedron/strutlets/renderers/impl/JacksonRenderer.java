@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.renderers.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.portlet.MimeResponse;
+import javax.portlet.PortletException;
+import javax.portlet.PortletRequest;
+import javax.portlet.PortletResponse;
+
+import org.dihedron.strutlets.renderers.StreamingRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Base class for renderers serialising beans through Jackson, in any of the 
+ * formats it supports (JSON, Smile, CBOR...). Object mappers are expensive to
+ * create and configure, whereas {@code ObjectWriter}s are immutable and can be
+ * shared by all threads: each renderer class builds its own once and reuses it
+ * for all requests.
+ * 
+ * @author Andrea Funto'
+ */
+public abstract class JacksonRenderer extends BeanRenderer implements StreamingRenderer {
+	
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(JacksonRenderer.class);
+	
+	/**
+	 * Applies the serialisation settings common to all formats to the given 
+	 * object mapper.
+	 * 
+	 * @param mapper
+	 *   the object mapper.
+	 * @return
+	 *   the object mapper itself.
+	 */
+	protected static ObjectMapper configure(ObjectMapper mapper) {
+		mapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+		mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+		return mapper;
+	}
+	
+	/**
+	 * @see org.dihedron.strutlets.renderers.Renderer#render(javax.portlet.PortletRequest, javax.portlet.PortletResponse, java.lang.String)
+	 */
+	@Override
+	public void render(PortletRequest request, PortletResponse response, String data) throws IOException, PortletException {
+		if(!(response instanceof MimeResponse)) {
+			throw new PortletException("renderer '" + getId() + "' can only be used in the render and resource phases");
+		}
+		logger.trace("rendering bean '{}'", data);
+		render(request, (MimeResponse)response, getBean(request, data));
+	}
+	
+	/**
+	 * Serialises the value into a byte array and writes it to the response
+	 * output stream.
+	 * 
+	 * @see org.dihedron.strutlets.renderers.StreamingRenderer#render(javax.portlet.PortletRequest, javax.portlet.MimeResponse, java.lang.Object)
+	 */
+	@Override
+	public void render(PortletRequest request, MimeResponse response, Object value) throws IOException, PortletException {
+		response.setContentType(getContentType());
+		byte[] body = getObjectWriter().writeValueAsBytes(value);
+		setContentLength(response, body.length);
+		OutputStream stream = getOutputStream(response);
+		stream.write(body);
+		stream.flush();
+		logger.trace("renderer '{}' wrote {} bytes", getId(), body.length);
+	}
+	
+	/**
+	 * Returns the MIME type of the renderer's output.
+	 * 
+	 * @return
+	 *   the MIME type.
+	 */
+	public abstract String getContentType();
+	
+	/**
+	 * Returns the shared writer producing the renderer's output format.
+	 * 
+	 * @return
+	 *   the object writer.
+	 */
+	protected abstract ObjectWriter getObjectWriter();
+}
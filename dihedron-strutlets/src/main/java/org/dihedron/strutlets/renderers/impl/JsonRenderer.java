@@ -9,20 +9,20 @@ import java.io.IOException;
 import javax.portlet.MimeResponse;
 import javax.portlet.PortletException;
 import javax.portlet.PortletRequest;
-import javax.portlet.PortletResponse;
 
 import org.dihedron.strutlets.annotations.Alias;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
 /**
  * @author Andrea Funto'
  */
 @Alias(JsonRenderer.ID)
-public class JsonRenderer extends BeanRenderer {
+public class JsonRenderer extends JacksonRenderer {
 	
 	/**
 	 * The renderer unique id.
@@ -39,6 +39,11 @@ public class JsonRenderer extends BeanRenderer {
 	 */
 	private static final Logger logger = LoggerFactory.getLogger(JsonRenderer.class);
 	
+	/**
+	 * The shared writer.
+	 */
+	private static final ObjectWriter writer = configure(new ObjectMapper()).enable(SerializationFeature.INDENT_OUTPUT).writer();
+	
 	/**
 	 * @see org.dihedron.strutlets.renderers.Renderer#getId()
 	 */
@@ -48,28 +53,30 @@ public class JsonRenderer extends BeanRenderer {
 	}
 
 	/**
-	 * @see org.dihedron.strutlets.renderers.Renderer#render(javax.portlet.PortletRequest, javax.portlet.PortletResponse, java.lang.String)
+	 * @see org.dihedron.strutlets.renderers.StreamingRenderer#render(javax.portlet.PortletRequest, javax.portlet.MimeResponse, java.lang.Object)
 	 */
 	@Override
-	public void render(PortletRequest request, PortletResponse response, String data) throws IOException, PortletException {
-		
-		String bean = data;
-		logger.trace("rendering bean '{}'", bean);
-
-		Object object = getBean(request, bean);
-		ObjectMapper mapper = new ObjectMapper();
-		mapper.enable(SerializationFeature.INDENT_OUTPUT);
-		mapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
-		mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-		String json = mapper.writeValueAsString(object);
+	public void render(PortletRequest request, MimeResponse response, Object value) throws IOException, PortletException {
+		String json = writer.writeValueAsString(value);
 		logger.trace("JSON object is:\n{}", json);
-		
-		if(response instanceof MimeResponse) {
-			// this works in both RENDER and RESOURCE (AJAX) phases
-			((MimeResponse)response).setContentType(JSON_MIME_TYPE);
-		}
-		getWriter(response).print(json);
-        getWriter(response).flush();
-        
+		// this works in both RENDER and RESOURCE (AJAX) phases
+		response.setContentType(JSON_MIME_TYPE);
+		write(request, response, json);
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.JacksonRenderer#getContentType()
+	 */
+	@Override
+	public String getContentType() {
+		return JSON_MIME_TYPE;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.JacksonRenderer#getObjectWriter()
+	 */
+	@Override
+	protected ObjectWriter getObjectWriter() {
+		return writer;
 	}
 }
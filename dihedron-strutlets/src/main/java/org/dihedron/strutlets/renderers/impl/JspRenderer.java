@@ -5,30 +5,63 @@
 package org.dihedron.strutlets.renderers.impl;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.portlet.PortletException;
 import javax.portlet.PortletRequest;
 import javax.portlet.PortletRequestDispatcher;
 import javax.portlet.PortletResponse;
 
+import org.dihedron.core.strings.Strings;
+import org.dihedron.strutlets.InitParameter;
 import org.dihedron.strutlets.annotations.Alias;
+import org.dihedron.strutlets.exceptions.StrutletsException;
+import org.dihedron.strutlets.renderers.LifecycleRenderer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * The {@code}
+ * The renderer including JSPs (or any other resource in the portlet context)
+ * in the portlet output. Request dispatchers for plain context-relative paths 
+ * (e.g. "/html/view.jsp", with no query string) are looked up once and reused, 
+ * since dispatcher lookup can be surprisingly expensive on some portals; such 
+ * paths are not passed through {@code encodeURL}, which is only meaningful for
+ * URLs sent back to the client. Caching can be disabled through the 
+ * "strutlets:jsp-dispatcher-cache" initialisation parameter, for containers
+ * whose dispatchers cannot be reused across requests.
+ * 
  * @author Andrea Funto'
  */
 @Alias(JspRenderer.ID)
-public class JspRenderer extends AbstractRenderer {
+public class JspRenderer extends AbstractRenderer implements LifecycleRenderer {
 	
 	public static final String ID = "jsp";
 	
+	/**
+	 * The maximum number of cached dispatchers; since paths may come from the
+	 * client (e.g. Liferay's "jspPage" parameter), the cache must be bounded.
+	 */
+	public static final int MAX_CACHED_DISPATCHERS = 1024;
+	
 	/**
 	 * The logger.
 	 */
 	private static final Logger logger = LoggerFactory.getLogger(JspRenderer.class);
 	
+	/**
+	 * The cached dispatchers, by path.
+	 */
+	private final ConcurrentMap<String, PortletRequestDispatcher> dispatchers = new ConcurrentHashMap<String, PortletRequestDispatcher>();
+	
+	/**
+	 * Whether dispatchers are cached.
+	 */
+	private boolean caching = true;
+	
 	/**
 	 * @see org.dihedron.strutlets.renderers.Renderer#getId()
 	 */
@@ -37,9 +70,33 @@ public class JspRenderer extends AbstractRenderer {
 		return ID;
 	}
 	
+	/**
+	 * Reads whether dispatchers should be cached from the portlet configuration.
+	 * 
+	 * @see org.dihedron.strutlets.renderers.LifecycleRenderer#initialise()
+	 */
+	@Override
+	public void initialise() throws StrutletsException {
+		String value = InitParameter.JSP_DISPATCHER_CACHE.getValueForPortlet(getPortlet());
+		if(Strings.isValid(value)) {
+			caching = Boolean.parseBoolean(value.trim());
+		}
+		logger.info("JSP dispatcher caching is {}", caching ? "enabled" : "disabled");
+	}
+	
+	/**
+	 * Drops all cached dispatchers.
+	 * 
+	 * @see org.dihedron.strutlets.renderers.LifecycleRenderer#cleanup()
+	 */
+	@Override
+	public void cleanup() {
+		dispatchers.clear();
+	}
+	
 	@Override
 	public void render(PortletRequest request, PortletResponse response, String data) throws IOException, PortletException {
-        PortletRequestDispatcher dispatcher = getPortlet().getPortletContext().getRequestDispatcher(response.encodeURL(data));
+        PortletRequestDispatcher dispatcher = getDispatcher(response, data);
 
         if (dispatcher == null) {
             logger.error("'{}' is not a valid include path (jsp)", data);
@@ -47,4 +104,80 @@ public class JspRenderer extends AbstractRenderer {
             dispatcher.include(request, response);
         }		
 	}
+	
+	/**
+	 * Looks up and caches the dispatchers for the given paths, typically all
+	 * those known at startup.
+	 * 
+	 * @param paths
+	 *   the paths.
+	 * @return
+	 *   the paths for which no dispatcher could be found.
+	 */
+	public List<String> preload(Collection<String> paths) {
+		List<String> missing = new ArrayList<String>();
+		if(caching) {
+			for(String path : paths) {
+				if(isCacheable(path) && getCachedDispatcher(path) == null) {
+					missing.add(path);
+				}
+			}
+			logger.info("{} JSP dispatchers preloaded, {} paths not found", dispatchers.size(), missing.size());
+		}
+		return missing;
+	}
+	
+	/**
+	 * Returns the dispatcher for the given path, from the cache if possible.
+	 * 
+	 * @param response
+	 *   the response object.
+	 * @param path
+	 *   the path of the resource to be included.
+	 * @return
+	 *   the dispatcher, or {@code null} if the path is not valid.
+	 */
+	private PortletRequestDispatcher getDispatcher(PortletResponse response, String path) {
+		if(caching && isCacheable(path)) {
+			return getCachedDispatcher(path);
+		}
+		return getPortlet().getPortletContext().getRequestDispatcher(response.encodeURL(path));
+	}
+	
+	/**
+	 * Returns the dispatcher for the given path, looking it up and caching it
+	 * if necessary (and if the cache is not full).
+	 * 
+	 * @param path
+	 *   a plain context-relative path.
+	 * @return
+	 *   the dispatcher, or {@code null} if the path is not valid.
+	 */
+	private PortletRequestDispatcher getCachedDispatcher(String path) {
+		PortletRequestDispatcher dispatcher = dispatchers.get(path);
+		if(dispatcher == null) {
+			dispatcher = getPortlet().getPortletContext().getRequestDispatcher(path);
+			if(dispatcher != null && dispatchers.size() < MAX_CACHED_DISPATCHERS) {
+				PortletRequestDispatcher existing = dispatchers.putIfAbsent(path, dispatcher);
+				if(existing != null) {
+					dispatcher = existing;
+				}
+			}
+		}
+		return dispatcher;
+	}
+	
+	/**
+	 * Returns whether the dispatcher for the given path can be cached, that is
+	 * if the path is context-relative and has no query string nor path 
+	 * parameters.
+	 * 
+	 * @param path
+	 *   the path.
+	 * @return
+	 *   whether the path is a plain context-relative path.
+	 */
+	private static boolean isCacheable(String path) {
+		return path != null && path.startsWith("/") && path.indexOf('?') < 0 && path.indexOf(';') < 0;
+	}
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.renderers.impl;
+
+import java.io.IOException;
+
+import javax.portlet.GenericPortlet;
+import javax.portlet.MimeResponse;
+import javax.portlet.PortletException;
+import javax.portlet.PortletRequest;
+
+import org.dihedron.core.strings.Strings;
+import org.dihedron.strutlets.annotations.Alias;
+import org.dihedron.strutlets.exceptions.StrutletsException;
+import org.dihedron.strutlets.renderers.LifecycleRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * A renderer serialising beans in the format preferred by the client among
+ * CBOR, Smile and JSON, according to the request's {@code Accept} header; 
+ * JSON is used when the client expresses no preference for either binary
+ * format, so the same target can serve both browsers and clients decoding
+ * binary payloads. To force a given format regardless of the request, use 
+ * the "cbor", "smile" or "json" renderer in the {@code @Result} annotation.
+ * 
+ * @author Andrea Funto'
+ */
+@Alias(NegotiatingRenderer.ID)
+public class NegotiatingRenderer extends JacksonRenderer implements LifecycleRenderer {
+	
+	/**
+	 * The renderer unique id.
+	 */
+	public static final String ID = "negotiated";
+	
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(NegotiatingRenderer.class);
+	
+	/**
+	 * The renderers among which the format is chosen, in order of preference 
+	 * when the client accepts more than one with the same quality; the last
+	 * one is the fallback.
+	 */
+	private final JacksonRenderer[] renderers = { new CborRenderer(), new SmileRenderer(), new JsonRenderer() };
+	
+	/**
+	 * @see org.dihedron.strutlets.renderers.Renderer#getId()
+	 */
+	@Override
+	public String getId() {
+		return ID;
+	}
+	
+	/**
+	 * Propagates the portlet to the renderers the output is delegated to.
+	 * 
+	 * @see org.dihedron.strutlets.renderers.impl.AbstractRenderer#setPortlet(javax.portlet.GenericPortlet)
+	 */
+	@Override
+	public void setPortlet(GenericPortlet portlet) {
+		super.setPortlet(portlet);
+		for(JacksonRenderer renderer : renderers) {
+			renderer.setPortlet(portlet);
+		}
+	}
+
+	/**
+	 * Initialises the renderers the output is delegated to, if they need it.
+	 * 
+	 * @see org.dihedron.strutlets.renderers.LifecycleRenderer#initialise()
+	 */
+	@Override
+	public void initialise() throws StrutletsException {
+		for(JacksonRenderer renderer : renderers) {
+			if(renderer instanceof LifecycleRenderer) {
+				((LifecycleRenderer)renderer).initialise();
+			}
+		}
+	}
+	
+	/**
+	 * Cleans up the renderers the output is delegated to, if they need it.
+	 * 
+	 * @see org.dihedron.strutlets.renderers.LifecycleRenderer#cleanup()
+	 */
+	@Override
+	public void cleanup() {
+		for(JacksonRenderer renderer : renderers) {
+			if(renderer instanceof LifecycleRenderer) {
+				((LifecycleRenderer)renderer).cleanup();
+			}
+		}
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.StreamingRenderer#render(javax.portlet.PortletRequest, javax.portlet.MimeResponse, java.lang.Object)
+	 */
+	@Override
+	public void render(PortletRequest request, MimeResponse response, Object value) throws IOException, PortletException {
+		JacksonRenderer renderer = negotiate(request.getProperty("Accept"));
+		logger.trace("rendering value as '{}'", renderer.getContentType());
+		response.setProperty("Vary", "Accept");
+		renderer.render(request, response, value);
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.JacksonRenderer#getContentType()
+	 */
+	@Override
+	public String getContentType() {
+		return JsonRenderer.JSON_MIME_TYPE;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.JacksonRenderer#getObjectWriter()
+	 */
+	@Override
+	protected ObjectWriter getObjectWriter() {
+		return renderers[renderers.length - 1].getObjectWriter();
+	}
+	
+	/**
+	 * Picks the renderer whose MIME type the client accepts with the highest
+	 * quality.
+	 * 
+	 * @param accept
+	 *   the value of the {@code Accept} header.
+	 * @return
+	 *   the renderer.
+	 */
+	JacksonRenderer negotiate(String accept) {
+		JacksonRenderer best = renderers[renderers.length - 1];
+		if(!Strings.isValid(accept)) {
+			return best;
+		}
+		double quality = 0.0;
+		for(String range : Strings.split(accept, ",", true)) {
+			String[] parts = range.trim().split(";");
+			String type = parts[0].trim().toLowerCase();
+			double q = 1.0;
+			for(int i = 1; i < parts.length; ++i) {
+				String parameter = parts[i].trim();
+				if(parameter.startsWith("q=")) {
+					try {
+						q = Double.parseDouble(parameter.substring(2).trim());
+					} catch(NumberFormatException e) {
+						q = 0.0;
+					}
+				}
+			}
+			for(JacksonRenderer renderer : renderers) {
+				if(renderer.getContentType().equals(type) && (q > quality || (q == quality && precedes(renderer, best)))) {
+					best = renderer;
+					quality = q;
+				}
+			}
+		}
+		return quality > 0.0 ? best : renderers[renderers.length - 1];
+	}
+	
+	/**
+	 * Returns whether the first renderer is preferred over the second one.
+	 * 
+	 * @param first
+	 *   the first renderer.
+	 * @param second
+	 *   the second renderer.
+	 * @return
+	 *   whether the first renderer comes first in order of preference.
+	 */
+	private boolean precedes(JacksonRenderer first, JacksonRenderer second) {
+		for(JacksonRenderer renderer : renderers) {
+			if(renderer == first) {
+				return true;
+			} else if(renderer == second) {
+				return false;
+			}
+		}
+		return false;
+	}
+}
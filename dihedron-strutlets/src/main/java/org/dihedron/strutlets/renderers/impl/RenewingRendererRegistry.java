@@ -4,23 +4,27 @@
 
 package org.dihedron.strutlets.renderers.impl;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.io.IOException;
 
 import javax.portlet.GenericPortlet;
+import javax.portlet.PortletException;
+import javax.portlet.PortletRequest;
+import javax.portlet.PortletResponse;
 
-import org.dihedron.core.strings.Strings;
 import org.dihedron.strutlets.exceptions.StrutletsException;
 import org.dihedron.strutlets.renderers.Renderer;
-import org.dihedron.strutlets.renderers.registry.RendererRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * A renderer registry creating (and initialising) a new renderer instance for
+ * each rendering, and cleaning it up right after; it is only meant for 
+ * developing renderers that are not yet stateless, since no state (such as
+ * the JSP dispatcher cache) survives across renderings.
+ * 
  * @author Andrea Funto'
  */
-public class RenewingRendererRegistry implements RendererRegistry {
+public class RenewingRendererRegistry extends AbstractRendererRegistry {
 		
 	/**
 	 * The logger.
@@ -28,58 +32,106 @@ public class RenewingRendererRegistry implements RendererRegistry {
 	private static final Logger logger = LoggerFactory.getLogger(RenewingRendererRegistry.class);
 
 	/**
-	 * The portlet this registry belongs to.
+	 * A renderer delegating each rendering to a brand new instance of the 
+	 * actual renderer class, which is cleaned up as soon as it is done.
+	 * 
+	 * @author Andrea Funto'
 	 */
-	private GenericPortlet portlet;
+	private class RenewingRenderer implements Renderer {
+		
+		/**
+		 * The actual renderer class.
+		 */
+		private final Class<? extends Renderer> clazz;
+		
+		/**
+		 * The identifier of the renderer.
+		 */
+		private final String id;
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param clazz
+		 *   the actual renderer class.
+		 * @param id
+		 *   the identifier of the renderer.
+		 */
+		RenewingRenderer(Class<? extends Renderer> clazz, String id) {
+			this.clazz = clazz;
+			this.id = id;
+		}
+		
+		/**
+		 * @see org.dihedron.strutlets.renderers.Renderer#getId()
+		 */
+		@Override
+		public String getId() {
+			return id;
+		}
+		
+		/**
+		 * @see org.dihedron.strutlets.renderers.Renderer#setPortlet(javax.portlet.GenericPortlet)
+		 */
+		@Override
+		public void setPortlet(GenericPortlet portlet) {
+		}
+		
+		/**
+		 * @see org.dihedron.strutlets.renderers.Renderer#render(javax.portlet.PortletRequest, javax.portlet.PortletResponse, java.lang.String)
+		 */
+		@Override
+		public void render(PortletRequest request, PortletResponse response, String data) throws IOException, PortletException {
+			Renderer renderer = instantiate(clazz);
+			try {
+				renderer.render(request, response, data);
+			} finally {
+				dispose(renderer);
+			}
+		}
+	}
 	
 	/**
-	 * The map containing the classes of all registered renderers.
+	 * The renewing renderers, by index.
 	 */
-	private Map<String, Class<? extends Renderer>> renderers = new HashMap<String, Class<? extends Renderer>>();  
+	private Renderer[] renderers;  
 	
 	/**
 	 * Constructor.
 	 */
 	public RenewingRendererRegistry(GenericPortlet portlet) {
+		super(portlet);
 		logger.info("instantiating renewing renderers registry...");
-		this.portlet = portlet;
 	}
 	
-	public void addRenderer(String id, Class<? extends Renderer> clazz) {
-		if(Strings.isValid(id) && clazz != null) {
-			logger.info("registering renderer '{}' of class '{}'", id, clazz.getName());
-			this.renderers.put(id, clazz);
-		}
+	/**
+	 * @see org.dihedron.strutlets.renderers.registry.RendererRegistry#getRenderer(int)
+	 */
+	@Override
+	public Renderer getRenderer(int index) throws StrutletsException {
+		return renderers[index];
 	}
 	
-	public Renderer getRenderer(String id) throws StrutletsException {
-		String classname = null;
-		Renderer renderer = null;
-		try {
-			if(Strings.isValid(id)) {
-				Class<? extends Renderer> clazz = this.renderers.get(id);
-				renderer = clazz.newInstance();
-				renderer.setPortlet(portlet);
-			}
-		} catch (InstantiationException e) {
-			logger.error("error instantiating object of class '{}'", classname);
-			throw new StrutletsException("Error instantiating renderer class '" + classname + "'", e);
-		} catch (IllegalAccessException e) {
-			logger.error("error accessing class '{}'", classname);
-			throw new StrutletsException("Error accessing renderer class '" + classname + "'", e);
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.AbstractRendererRegistry#initialise(java.lang.Class[])
+	 */
+	@Override
+	protected void initialise(Class<? extends Renderer>[] classes) throws StrutletsException {
+		Renderer[] array = new Renderer[classes.length];
+		for(int i = 0; i < classes.length; ++i) {
+			// create a throw-away instance to check that it can be initialised
+			Renderer renderer = instantiate(classes[i]);
+			array[i] = new RenewingRenderer(classes[i], renderer.getId());
+			dispose(renderer);
+			logger.trace("renderer '{}' of class '{}' will be renewed on each rendering", array[i].getId(), classes[i].getName());
 		}
-		return renderer;
+		renderers = array;
 	}
 	
+	/**
+	 * @see org.dihedron.strutlets.renderers.registry.RendererRegistry#cleanup()
+	 */
 	@Override
-	public String toString() {
-		StringBuilder buffer = new StringBuilder();
-		buffer.append("renderers: [\n");
-		for(Entry<String, Class<? extends Renderer>> entry : renderers.entrySet()) {
-			buffer.append("  name: '").append(entry.getKey()).append("', class: '").append(entry.getValue().getCanonicalName()).append("' },\n");
-		}
-		buffer.append("]\n");		
-		return buffer.toString();
+	public void cleanup() {
 	}
-	
 }
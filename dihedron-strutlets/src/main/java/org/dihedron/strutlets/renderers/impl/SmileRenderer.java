@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.renderers.impl;
+
+import org.dihedron.strutlets.annotations.Alias;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * A renderer serialising beans in Smile, a binary encoding of the JSON data 
+ * model that is more compact and cheaper to produce than JSON text.
+ * 
+ * @author Andrea Funto'
+ */
+@Alias(SmileRenderer.ID)
+public class SmileRenderer extends JacksonRenderer {
+	
+	/**
+	 * The renderer unique id.
+	 */
+	public static final String ID = "smile";
+
+	/**
+	 * The MIME type returned as content type by this renderer.
+	 */
+	public static final String SMILE_MIME_TYPE = "application/x-jackson-smile";
+	
+	/**
+	 * The shared writer.
+	 */
+	private static final ObjectWriter writer = configure(new ObjectMapper(new SmileFactory())).writer();
+	
+	/**
+	 * @see org.dihedron.strutlets.renderers.Renderer#getId()
+	 */
+	@Override
+	public String getId() {
+		return ID;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.JacksonRenderer#getContentType()
+	 */
+	@Override
+	public String getContentType() {
+		return SMILE_MIME_TYPE;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.JacksonRenderer#getObjectWriter()
+	 */
+	@Override
+	protected ObjectWriter getObjectWriter() {
+		return writer;
+	}
+}
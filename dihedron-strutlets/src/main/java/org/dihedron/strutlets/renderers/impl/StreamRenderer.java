@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.renderers.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.dihedron.strutlets.annotations.Alias;
+
+/**
+ * A renderer copying an {@code InputStream} to the response; the stream is 
+ * always closed once copied. The copy goes through a per-thread buffer that is
+ * reused across requests.
+ * 
+ * @author Andrea Funto'
+ */
+@Alias(StreamRenderer.ID)
+public class StreamRenderer extends BinaryRenderer {
+	
+	/**
+	 * The renderer unique id.
+	 */
+	public static final String ID = "stream";
+	
+	/**
+	 * The size of the copy buffer.
+	 */
+	public static final int BUFFER_SIZE = 8192;
+	
+	/**
+	 * The per-thread copy buffer.
+	 */
+	private static final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[BUFFER_SIZE];
+		}
+	};
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.Renderer#getId()
+	 */
+	@Override
+	public String getId() {
+		return ID;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.BinaryRenderer#supports(java.lang.Object)
+	 */
+	@Override
+	protected boolean supports(Object payload) {
+		return payload instanceof InputStream;
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.impl.BinaryRenderer#write(java.lang.Object, java.io.OutputStream)
+	 */
+	@Override
+	protected void write(Object payload, OutputStream stream) throws IOException {
+		byte[] buffer = buffers.get();
+		try(InputStream input = (InputStream)payload) {
+			int read;
+			while((read = input.read(buffer)) != -1) {
+				stream.write(buffer, 0, read);
+			}
+		}
+	}
+}
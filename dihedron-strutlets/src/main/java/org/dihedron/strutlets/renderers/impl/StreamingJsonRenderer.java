@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.renderers.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Iterator;
+
+import javax.portlet.MimeResponse;
+import javax.portlet.PortletException;
+import javax.portlet.PortletRequest;
+import javax.portlet.PortletResponse;
+
+import org.dihedron.strutlets.annotations.Alias;
+import org.dihedron.strutlets.renderers.StreamingRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * A renderer writing JSON straight to the response output stream as it is
+ * generated, without ever holding the whole document in memory; it is meant
+ * for large result sets, such as table exports. If the bean is an {@code 
+ * Iterator}, an {@code Iterable}, an {@code Enumeration} or an array, its 
+ * elements are serialised one by one into a JSON array and the output is 
+ * flushed every {@value #FLUSH_INTERVAL} elements, so the elements can be 
+ * produced lazily (e.g. by a database cursor) while the client is already 
+ * receiving the first ones; any other bean is serialised as a whole, as by
+ * the {@link JsonRenderer}. Beans that are {@code AutoCloseable} (e.g. 
+ * cursors) are closed once rendered. In the resource phase, output is 
+ * compressed on the fly if the client accepts it.
+ * 
+ * @author Andrea Funto'
+ */
+@Alias(StreamingJsonRenderer.ID)
+public class StreamingJsonRenderer extends BeanRenderer implements StreamingRenderer {
+	
+	/**
+	 * The renderer unique id.
+	 */
+	public static final String ID = "json-stream";
+	
+	/**
+	 * The number of array elements written between two flushes.
+	 */
+	public static final int FLUSH_INTERVAL = 1000;
+	
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(StreamingJsonRenderer.class);
+	
+	/**
+	 * The object mapper, shared by all threads once configured; elements are 
+	 * written compact, and flushing is left to the renderer.
+	 */
+	private static final ObjectMapper mapper = new ObjectMapper()
+		.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+		.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+		.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+	
+	/**
+	 * @see org.dihedron.strutlets.renderers.Renderer#getId()
+	 */
+	@Override
+	public String getId() {
+		return ID;
+	}
+	
+	/**
+	 * @see org.dihedron.strutlets.renderers.Renderer#render(javax.portlet.PortletRequest, javax.portlet.PortletResponse, java.lang.String)
+	 */
+	@Override
+	public void render(PortletRequest request, PortletResponse response, String data) throws IOException, PortletException {
+		if(!(response instanceof MimeResponse)) {
+			throw new PortletException("renderer '" + getId() + "' can only be used in the render and resource phases");
+		}
+		logger.trace("rendering bean '{}'", data);
+		render(request, (MimeResponse)response, getBean(request, data));
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.renderers.StreamingRenderer#render(javax.portlet.PortletRequest, javax.portlet.MimeResponse, java.lang.Object)
+	 */
+	@Override
+	public void render(PortletRequest request, MimeResponse response, Object value) throws IOException, PortletException {
+		response.setContentType(JsonRenderer.JSON_MIME_TYPE);
+		setCharacterEncoding(response, "UTF-8");
+		Compression.CompressedStream compressed = getCompressedStream(request, response);
+		OutputStream stream = compressed != null ? compressed : getOutputStream(response);
+		JsonGenerator generator = mapper.getFactory().createGenerator(stream, JsonEncoding.UTF8);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		try {
+			Iterator<?> elements = asIterator(value);
+			if(elements != null) {
+				long count = 0;
+				generator.writeStartArray();
+				while(elements.hasNext()) {
+					mapper.writeValue(generator, elements.next());
+					if(++count % FLUSH_INTERVAL == 0) {
+						generator.flush();
+					}
+				}
+				generator.writeEndArray();
+				logger.trace("renderer '{}' streamed {} elements", getId(), count);
+			} else {
+				mapper.writeValue(generator, value);
+			}
+			generator.close();
+			if(compressed != null) {
+				compressed.finish();
+			}
+			stream.flush();
+		} finally {
+			if(compressed != null) {
+				compressed.release();
+			}
+			if(value instanceof AutoCloseable) {
+				try {
+					((AutoCloseable)value).close();
+				} catch(Exception e) {
+					logger.warn("error closing bean of class '" + value.getClass().getName() + "' after rendering", e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns an iterator over the elements of the given value, if it is a
+	 * collection of some sort.
+	 * 
+	 * @param value
+	 *   the value to be rendered.
+	 * @return
+	 *   an iterator, or {@code null} if the value must be rendered as a whole.
+	 */
+	private static Iterator<?> asIterator(Object value) {
+		if(value instanceof Iterator) {
+			return (Iterator<?>)value;
+		} else if(value instanceof Iterable) {
+			return ((Iterable<?>)value).iterator();
+		} else if(value instanceof Object[]) {
+			return Arrays.asList((Object[])value).iterator();
+		} else if(value instanceof Enumeration) {
+			final Enumeration<?> enumeration = (Enumeration<?>)value;
+			return new Iterator<Object>() {
+				@Override
+				public boolean hasNext() {
+					return enumeration.hasMoreElements();
+				}
+				@Override
+				public Object next() {
+					return enumeration.nextElement();
+				}
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+		return null;
+	}
+}
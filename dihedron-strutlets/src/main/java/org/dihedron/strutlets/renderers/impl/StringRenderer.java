@@ -64,7 +64,6 @@ public class StringRenderer extends BeanRenderer {
 			// this works in both RENDER and RESOURCE (AJAX) phases
 			((MimeResponse)response).setContentType(TEXT_MIME_TYPE);
 		}
-		getWriter(response).print(string);
-        getWriter(response).flush();        
+		write(request, response, string);
 	}
 }
@@ -5,6 +5,7 @@
 package org.dihedron.strutlets.renderers.impl;
 
 import java.io.IOException;
+import java.io.StringWriter;
 
 import javax.portlet.MimeResponse;
 import javax.portlet.PortletException;
@@ -65,7 +66,9 @@ public class XmlRenderer extends BeanRenderer {
 			}			
 			context = JAXBContext.newInstance("org.dihedron.strutlets");
 			Marshaller marshaller = context.createMarshaller();
-			marshaller.marshal(object, getWriter(response)); 
+			StringWriter xml = new StringWriter();
+			marshaller.marshal(object, xml);
+			write(request, response, xml.toString());
 		} catch (JAXBException e) {
 			logger.error("error marshalling bean to XML", e);
 			throw new PortletException("Error marshalling Java bean to XML", e); 
@@ -6,6 +6,7 @@ package org.dihedron.strutlets.renderers.registry;
 
 import org.dihedron.strutlets.exceptions.StrutletsException;
 import org.dihedron.strutlets.renderers.Renderer;
+import org.dihedron.strutlets.targets.registry.TargetRegistry;
 
 /**
  * @author Andrea Funto'
@@ -39,4 +40,52 @@ public interface RendererRegistry {
 	 * @throws StrutletsException
 	 */
 	Renderer getRenderer(String id) throws StrutletsException;
+	
+	/**
+	 * Returns an instance of {@code Renderer} given its index, as returned by
+	 * {@link #getIndex(String)}; this is the lookup to be used on the request
+	 * processing path.
+	 * 
+	 * @param index
+	 *   the index of the renderer.
+	 * @return
+	 *   the {@code Renderer} instance.
+	 * @throws StrutletsException
+	 */
+	Renderer getRenderer(int index) throws StrutletsException;
+	
+	/**
+	 * Returns the index of the renderer with the given id; indexes do not 
+	 * change once the registry has been initialised.
+	 * 
+	 * @param id
+	 *   the id of the renderer.
+	 * @return
+	 *   the index of the renderer, or -1 if no such renderer is registered.
+	 */
+	int getIndex(String id);
+	
+	/**
+	 * Initialises the registered renderers and freezes the registry, so that no
+	 * more renderers can be added and lookups need no synchronisation.
+	 * 
+	 * @throws StrutletsException
+	 *   if any renderer cannot be instantiated or initialised.
+	 */
+	void initialise() throws StrutletsException;
+	
+	/**
+	 * Stores the index of its renderer on each of the results declared by the
+	 * registered targets, so that it needs not be looked up per request.
+	 * 
+	 * @param registry
+	 *   the targets registry.
+	 * @throws StrutletsException
+	 */
+	void prepare(TargetRegistry registry) throws StrutletsException;
+	
+	/**
+	 * Cleans up the registered renderers, when the portlet is shut down.
+	 */
+	void cleanup();
 }
\ No newline at end of file
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.targets;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A path pattern containing <code>${name}</code> variables (such as the JSP 
+ * path pattern, "${rootdir}/${action}/${method}/${result}.jsp"), parsed once 
+ * into alternating literal and variable segments so that it can be expanded 
+ * any number of times without regular expressions. Variables for which no
+ * value is supplied are left in the output as they are. Templates are 
+ * immutable and can be shared by all threads.
+ * 
+ * @author Andrea Funto'
+ */
+public final class PathTemplate implements Serializable {
+	
+	/**
+	 * Serial version id.
+	 */
+	private static final long serialVersionUID = 4618225734216207384L;
+	
+	/**
+	 * The per-thread buffers used to expand templates.
+	 */
+	private static final ThreadLocal<StringBuilder> buffers = new ThreadLocal<StringBuilder>() {
+		@Override protected StringBuilder initialValue() {
+			return new StringBuilder(128);
+		}
+	};
+
+	/**
+	 * The original pattern.
+	 */
+	private final String pattern;
+	
+	/**
+	 * The literal segments; there is always one more literal than variables,
+	 * possibly empty.
+	 */
+	private final String[] literals;
+	
+	/**
+	 * The names of the variables, each coming after the literal with the same
+	 * index.
+	 */
+	private final String[] variables;
+	
+	/**
+	 * Parses the given pattern into a template.
+	 * 
+	 * @param pattern
+	 *   the pattern.
+	 * @return
+	 *   the template.
+	 */
+	public static PathTemplate compile(String pattern) {
+		List<String> literals = new ArrayList<String>();
+		List<String> variables = new ArrayList<String>();
+		StringBuilder literal = new StringBuilder();
+		int position = 0;
+		while(position < pattern.length()) {
+			int start = pattern.indexOf("${", position);
+			int end = start >= 0 ? pattern.indexOf('}', start + 2) : -1;
+			if(end < 0) {
+				literal.append(pattern, position, pattern.length());
+				break;
+			}
+			literal.append(pattern, position, start);
+			literals.add(literal.toString());
+			literal.setLength(0);
+			variables.add(pattern.substring(start + 2, end));
+			position = end + 1;
+		}
+		literals.add(literal.toString());
+		return new PathTemplate(pattern, literals.toArray(new String[literals.size()]), variables.toArray(new String[variables.size()]));
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param pattern
+	 *   the original pattern.
+	 * @param literals
+	 *   the literal segments.
+	 * @param variables
+	 *   the variable names.
+	 */
+	private PathTemplate(String pattern, String[] literals, String[] variables) {
+		this.pattern = pattern;
+		this.literals = literals;
+		this.variables = variables;
+	}
+	
+	/**
+	 * Returns the names of the variables in the template, in order of 
+	 * appearance.
+	 * 
+	 * @return
+	 *   an unmodifiable list of variable names.
+	 */
+	public List<String> getVariables() {
+		List<String> names = new ArrayList<String>(variables.length);
+		Collections.addAll(names, variables);
+		return Collections.unmodifiableList(names);
+	}
+	
+	/**
+	 * Returns a new template where the given variable is replaced by a fixed 
+	 * value, e.g. to bind the root directory once and for all.
+	 * 
+	 * @param name
+	 *   the name of the variable.
+	 * @param value
+	 *   the value of the variable.
+	 * @return
+	 *   the new template.
+	 */
+	public PathTemplate bind(String name, String value) {
+		return compile(expand(Collections.singletonMap(name, value)));
+	}
+	
+	/**
+	 * Expands the template with the given values.
+	 * 
+	 * @param values
+	 *   the values of the variables, by name.
+	 * @return
+	 *   the expanded path.
+	 */
+	public String expand(Map<String, ?> values) {
+		StringBuilder buffer = buffers.get();
+		buffer.setLength(0);
+		return appendTo(buffer, values).toString();
+	}
+	
+	/**
+	 * Expands the template with the given values into the given buffer.
+	 * 
+	 * @param buffer
+	 *   the buffer.
+	 * @param values
+	 *   the values of the variables, by name.
+	 * @return
+	 *   the buffer itself.
+	 */
+	public StringBuilder appendTo(StringBuilder buffer, Map<String, ?> values) {
+		for(int i = 0; i < variables.length; ++i) {
+			buffer.append(literals[i]);
+			Object value = values.get(variables[i]);
+			if(value != null) {
+				buffer.append(value);
+			} else {
+				buffer.append("${").append(variables[i]).append('}');
+			}
+		}
+		return buffer.append(literals[variables.length]);
+	}
+	
+	/**
+	 * Returns the original pattern.
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return pattern;
+	}
+}
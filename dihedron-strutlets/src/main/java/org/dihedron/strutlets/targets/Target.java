@@ -5,16 +5,24 @@
 package org.dihedron.strutlets.targets;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.dihedron.core.strings.Strings;
 import org.dihedron.strutlets.actions.PortletMode;
 import org.dihedron.strutlets.actions.Result;
 import org.dihedron.strutlets.actions.WindowState;
+import org.dihedron.strutlets.actions.factory.ActionPool;
+import org.dihedron.strutlets.annotations.Cached;
 import org.dihedron.strutlets.annotations.Invocable;
+import org.dihedron.strutlets.annotations.Lifecycle;
+import org.dihedron.strutlets.annotations.Secured;
 import org.dihedron.strutlets.renderers.impl.JspRenderer;
 import org.dihedron.strutlets.targets.registry.TargetRegistry;
 import org.slf4j.Logger;
@@ -81,17 +89,45 @@ public class Target {
 	/**
 	 * The pattern used to create JSP URLs.
 	 */
-	private String jspUrlPattern = TargetRegistry.DEFAULT_HTML_PATH_PATTERN;
+	private PathTemplate jspUrlTemplate = DEFAULT_JSP_URL_TEMPLATE;
 	
 	/**
 	 * The name of the interceptor stack to be used with this action.
 	 */
 	private String interceptors;
 	
+	/**
+	 * The lifecycle of the action instances servicing this target.
+	 */
+	private Lifecycle lifecycle = Lifecycle.AUTOMATIC;
+	
+	/**
+	 * The pool of idle action instances, for pooled actions; the pool is shared
+	 * by all the targets implemented by the same action class.
+	 */
+	private ActionPool pool;
+	
+	/**
+	 * The output caching policy, for idempotent targets whose rendered output 
+	 * can be cached; {@code null} if the output must not be cached.
+	 */
+	private Cached cache;
+	
+	/**
+	 * The access restrictions, if any.
+	 */
+	private Secured security;
+	
+	/**
+	 * The roles granting access to the target, resolved once out of the access
+	 * restrictions.
+	 */
+	private List<String> roles = Collections.emptyList();
+	
 	/**
 	 * The map of expected results.
 	 */
-	private Map<String, Result> results = Collections.synchronizedMap(new HashMap<String, Result>());
+	private final ConcurrentMap<String, Result> results = new ConcurrentHashMap<String, Result>();
 	
 	/**
 	 * Constructor.
@@ -291,7 +327,7 @@ public class Target {
 	 *   the URL pattern used for auto-configured JSP-rendered results.
 	 */
 	public String getJspUrlPattern() {
-		return this.jspUrlPattern;
+		return this.jspUrlTemplate.toString();
 	}
 	
 	/**
@@ -304,12 +340,170 @@ public class Target {
 	 */
 	public Target setJspUrlPattern(String pattern) {
 		if(Strings.isValid(pattern)) {
-			this.jspUrlPattern = Strings.trim(pattern);
+			this.jspUrlTemplate = PathTemplate.compile(Strings.trim(pattern));
 		}
-		logger.trace("target '{}' has URL pattern '{}'", id, this.jspUrlPattern);
+		logger.trace("target '{}' has URL pattern '{}'", id, this.jspUrlTemplate);
+		return this;
+	}
+	
+	/**
+	 * Sets the already parsed HTML views path template for automagic actions,
+	 * so that targets sharing the same pattern can share the same template.
+	 * 
+	 * @param template
+	 *   the template to be used to JSP path reconstruction at runtime.
+	 * @return 
+	 *   the object itself, for method chaining.
+	 */
+	public Target setJspUrlTemplate(PathTemplate template) {
+		if(template != null) {
+			this.jspUrlTemplate = template;
+		}
+		logger.trace("target '{}' has URL pattern '{}'", id, this.jspUrlTemplate);
 		return this;
 	}	
 	
+	/**
+	 * Returns the lifecycle of the action instances servicing this target.
+	 * 
+	 * @return
+	 *   the lifecycle of the action instances.
+	 */
+	public Lifecycle getLifecycle() {
+		return lifecycle;
+	}
+	
+	/**
+	 * Sets the lifecycle of the action instances servicing this target.
+	 * 
+	 * @param lifecycle
+	 *   the lifecycle of the action instances.
+	 * @return 
+	 *   the object itself, for method chaining.
+	 */
+	public Target setLifecycle(Lifecycle lifecycle) {
+		if(lifecycle != null) {
+			this.lifecycle = lifecycle;
+		}
+		logger.trace("target '{}' has lifecycle {}", id, this.lifecycle);
+		return this;
+	}
+	
+	/**
+	 * Returns the pool of idle action instances, for pooled actions.
+	 * 
+	 * @return
+	 *   the pool of idle action instances, or {@code null} if the action is
+	 *   not pooled.
+	 */
+	public ActionPool getActionPool() {
+		return pool;
+	}
+	
+	/**
+	 * Sets the pool of idle action instances, for pooled actions.
+	 * 
+	 * @param pool
+	 *   the pool of idle action instances.
+	 * @return 
+	 *   the object itself, for method chaining.
+	 */
+	public Target setActionPool(ActionPool pool) {
+		this.pool = pool;
+		return this;
+	}
+	
+	/**
+	 * Returns the output caching policy of this target.
+	 * 
+	 * @return
+	 *   the output caching policy, or {@code null} if the output of this target
+	 *   must not be cached.
+	 */
+	public Cached getCachePolicy() {
+		return cache;
+	}
+	
+	/**
+	 * Sets the output caching policy of this target.
+	 * 
+	 * @param cache
+	 *   the output caching policy, or {@code null} to disable output caching.
+	 * @return 
+	 *   the object itself, for method chaining.
+	 */
+	public Target setCachePolicy(Cached cache) {
+		this.cache = cache;
+		return this;
+	}
+	
+	/**
+	 * Returns whether the output of this target can be stored in the render 
+	 * cache: only idempotent targets with a valid caching policy qualify.
+	 * 
+	 * @return
+	 *   whether the rendered output of the target can be cached.
+	 */
+	public boolean isRenderCacheable() {
+		return idempotent && cache != null && cache.ttl() > 0;
+	}
+	
+	/**
+	 * Returns whether the output of this target, when served as a resource, 
+	 * supports ETags, conditional requests and (if a positive TTL is declared)
+	 * server-side caching.
+	 * 
+	 * @return
+	 *   whether the resource output of the target can be cached.
+	 */
+	public boolean isResourceCacheable() {
+		return cache != null;
+	}
+	
+	/**
+	 * Returns the access restrictions of this target.
+	 * 
+	 * @return
+	 *   the access restrictions, or {@code null} if the target is not secured.
+	 */
+	public Secured getSecurityPolicy() {
+		return security;
+	}
+	
+	/**
+	 * Sets the access restrictions of this target.
+	 * 
+	 * @param security
+	 *   the access restrictions, or {@code null} if the target is not secured.
+	 * @return 
+	 *   the object itself, for method chaining.
+	 */
+	public Target setSecurityPolicy(Secured security) {
+		this.security = security;
+		this.roles = security != null ? Collections.unmodifiableList(Arrays.asList(security.roles())) : Collections.<String>emptyList();
+		return this;
+	}
+	
+	/**
+	 * Returns the roles granting access to this target.
+	 * 
+	 * @return
+	 *   an unmodifiable list of roles, empty if no role is required.
+	 */
+	public List<String> getRequiredRoles() {
+		return roles;
+	}
+	
+	/**
+	 * Returns whether only authenticated users may access this target.
+	 * 
+	 * @return
+	 *   whether the user must be authenticated.
+	 */
+	public boolean isAuthenticationRequired() {
+		return security != null && (security.authenticated() || !roles.isEmpty());
+	}
+	
 	/**
 	 * Retrieves the id of the interceptors stack.
 	 * 
@@ -356,12 +550,21 @@ public class Target {
 		} else {
 			logger.trace("adding result '{}' with mode '{}', state '{}' and data '{}'", id, mode, state, data);				
 		}
-		Result result = new Result(id, renderer, data, mode, state);
+		Result result = new Result(id, renderer, data, mode, state).setDeclared(true);
 		this.results.put(id, result);
 		
 	}
 	
-	public void addUndeclaredResult(String value) {
+	/**
+	 * Adds an auto-configured result, unless one with the same identifier has
+	 * already been added (possibly by a concurrent request).
+	 * 
+	 * @param value
+	 *   the result identifier.
+	 * @return
+	 *   the result associated with the identifier.
+	 */
+	public Result addUndeclaredResult(String value) {
 		String id = value;
 		String renderer = DEFAULT_RENDERER;
 		PortletMode mode = DEFAULT_MODE;
@@ -369,7 +572,22 @@ public class Target {
 		String data = makeJspUrl(id, mode, state);
 		logger.trace("adding (auto-configured) result '{}' with mode '{}', state '{}' and data '{}'", id, mode, state, data);								
 		Result result = new Result(id, renderer, data, mode, state);
-		this.results.put(id, result);		
+		Result existing = this.results.putIfAbsent(id, result);
+		return existing != null ? existing : result;
+	}
+	
+	/**
+	 * Returns the URL of the JSP that would render the given result, were it 
+	 * returned by the target without having been declared, according to the 
+	 * pattern for auto-configured results.
+	 * 
+	 * @param result
+	 *   the result identifier.
+	 * @return
+	 *   the URL of the JSP.
+	 */
+	public String getUndeclaredJspUrl(String result) {
+		return makeJspUrl(result, DEFAULT_MODE, DEFAULT_STATE);
 	}
 	
 	/**
@@ -387,7 +605,9 @@ public class Target {
 	 * result string, or null if none found. If the target belongs to an auto-
 	 * configured action and no result could be found, the methodName attempts to
 	 * reconstruct the information and returns it, after having added it to the
-	 * set of valid results. 
+	 * set of valid results; results are kept in a concurrent map, so lookups 
+	 * never lock, and concurrent requests racing to add the same result all 
+	 * get the same instance. 
 	 * 
 	 * @param rid
 	 *   a result string (e.g. "success", "error").
@@ -399,9 +619,9 @@ public class Target {
 		Result result = results.get(rid);
 		if(result == null) {
 			logger.trace("result '{}' is not present yet, auto-configuring...", rid);
-			addUndeclaredResult(rid);
+			result = addUndeclaredResult(rid);
 		}
-		return results.get(rid);
+		return result;
 	}
 	
 	/**
@@ -417,6 +637,11 @@ public class Target {
 		buffer.append("  cacheable   ('").append(this.isCacheable()).append("')\n");
 		buffer.append("  url pattern ('").append(this.getJspUrlPattern()).append("')\n");
 		buffer.append("  stack       ('").append(interceptors).append("')\n");
+		buffer.append("  lifecycle   ('").append(lifecycle).append("')\n");
+		buffer.append("  cached      ('").append(this.isRenderCacheable()).append("')\n");
+		if(security != null) {
+			buffer.append("  secured     ('").append(roles).append(isAuthenticationRequired() ? ", authenticated" : "").append("')\n");
+		}
 		buffer.append("  javaclass   ('").append(action.getCanonicalName()).append("')\n");
 		if(!results.isEmpty()) {
 			buffer.append("  results {\n");
@@ -449,12 +674,13 @@ public class Target {
 	 *   the URL of the JSP-renderered page for the given result.
 	 */
 	private String makeJspUrl(String result, PortletMode mode, WindowState state) {
-		String path = this.jspUrlPattern
-						.replaceAll("\\$\\{action\\}", id.getActionName())
-						.replaceAll("\\$\\{method\\}", id.getMethodName())
-						.replaceAll("\\$\\{mode\\}", mode.toString())
-						.replaceAll("\\$\\{state\\}", state.toString())
-						.replaceAll("\\$\\{result\\}", result);
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("action", id.getActionName());
+		values.put("method", id.getMethodName());
+		values.put("mode", mode.toString());
+		values.put("state", state.toString());
+		values.put("result", result);
+		String path = this.jspUrlTemplate.expand(values);
 		logger.debug("path for target: '{}', mode: '{}', state: '{}', result: '{}' is '{}'", id, mode, state, result, path);
 		return path;
 	}	
@@ -480,6 +706,11 @@ public class Target {
 	 */
 	private static final boolean DEFAULT_CACHEABLE = false;
 	
+	/**
+	 * The default template for JSP paths.
+	 */
+	private static final PathTemplate DEFAULT_JSP_URL_TEMPLATE = PathTemplate.compile(TargetRegistry.DEFAULT_HTML_PATH_PATTERN);
+	
 	/**
 	 * The default renderer, to be used when no renderer is specified.
 	 */
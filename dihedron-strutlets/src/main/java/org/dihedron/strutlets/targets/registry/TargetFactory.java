@@ -3,17 +3,22 @@
  */ 
 package org.dihedron.strutlets.targets.registry;
 
+import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Map;
 import java.util.Set;
 
 import org.dihedron.core.strings.Strings;
+import org.dihedron.strutlets.actions.Resettable;
+import org.dihedron.strutlets.actions.factory.ActionPool;
 import org.dihedron.strutlets.annotations.Action;
 import org.dihedron.strutlets.annotations.Invocable;
+import org.dihedron.strutlets.annotations.Lifecycle;
 import org.dihedron.strutlets.aop.ActionProxy;
 import org.dihedron.strutlets.aop.ActionProxyFactory;
 //import org.dihedron.strutlets.classpath.ClassPathScanner;
+import org.dihedron.strutlets.exceptions.DeploymentException;
 import org.dihedron.strutlets.exceptions.StrutletsException;
 import org.reflections.Reflections;
 import org.reflections.scanners.SubTypesScanner;
@@ -119,6 +124,22 @@ public class TargetFactory {
    
 	    	String interceptors = actionClass.getAnnotation(Action.class).interceptors(); 
 	    	
+	    	// pooled actions share a single pool among all their targets
+	    	Lifecycle lifecycle = actionClass.getAnnotation(Action.class).lifecycle();
+	    	ActionPool pool = null;
+	    	if(lifecycle == Lifecycle.PER_SESSION && !Serializable.class.isAssignableFrom(actionClass)) {
+	    		logger.error("action '{}' has a per-session lifecycle but is not serializable", actionClass.getName());
+	    		throw new DeploymentException("Action '" + actionClass.getName() + "' has a per-session lifecycle and must implement java.io.Serializable");
+	    	}
+	    	if(lifecycle == Lifecycle.POOLED && !Resettable.class.isAssignableFrom(actionClass)) {
+	    		logger.warn("action '{}' is pooled but does not implement Resettable: instances will be reused with the field values left by the previous request", actionClass.getName());
+	    	}
+	    	if(lifecycle == Lifecycle.POOLED) {
+	    		int size = actionClass.getAnnotation(Action.class).poolSize();
+	    		logger.trace("action '{}' will be pooled (max {} idle instances)", actionClass.getSimpleName(), size);
+	    		pool = new ActionPool(size);
+	    	}
+	    	
 	    	// let the factory inspect the action and generate a factory method
 	    	// ans a set of proxy methods for valid @Invocable-annotated action methods 
 	    	// (possibly walking up the class hierarchy and discarding duplicates, 
@@ -133,7 +154,9 @@ public class TargetFactory {
 	        		logger.trace("... adding annotated method '{}' in class '{}' (proxy: '{}' in class '{}')", actionMethod.getName(), 
 	        				actionClass.getSimpleName(), proxyMethod.getName(), proxy.getProxyClass().getSimpleName());
 	        		Invocable invocable = actionMethod.getAnnotation(Invocable.class); 
-	        		registry.addTarget(actionClass, proxy.getFactoryMethod(), actionMethod, proxyMethod, invocable, interceptors);
+	        		registry.addTarget(actionClass, proxy.getFactoryMethod(), actionMethod, proxyMethod, invocable, interceptors)
+	        			.setLifecycle(lifecycle)
+	        			.setActionPool(pool);
 	    		} else {
 	    			logger.trace("... discarding unannotated method '{}' in class '{}'", actionMethod.getName(), actionClass.getSimpleName());
 	    		}
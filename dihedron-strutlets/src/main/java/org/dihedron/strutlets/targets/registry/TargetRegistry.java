@@ -15,9 +15,13 @@ import javax.xml.namespace.QName;
 
 import org.dihedron.core.strings.Strings;
 import org.dihedron.strutlets.annotations.Action;
+import org.dihedron.strutlets.annotations.Cached;
+import org.dihedron.strutlets.annotations.Secured;
 import org.dihedron.strutlets.annotations.Event;
 import org.dihedron.strutlets.annotations.Invocable;
+import org.dihedron.strutlets.exceptions.DeploymentException;
 import org.dihedron.strutlets.exceptions.StrutletsException;
+import org.dihedron.strutlets.targets.PathTemplate;
 import org.dihedron.strutlets.targets.Target;
 import org.dihedron.strutlets.targets.TargetId;
 import org.slf4j.Logger;
@@ -76,6 +80,12 @@ public class TargetRegistry implements Serializable {
 	 * {@link org.dihedron.strutlets.ActionController.InitParameter.RENDER_PATH_PATTERN InitParameter.RENDER_PATH_PATTERN}.
 	 */	
 	private volatile String pattern = DEFAULT_HTML_PATH_PATTERN;
+	
+	/**
+	 * The pattern, with the root directory bound, parsed once and shared by all
+	 * targets.
+	 */
+	private volatile PathTemplate template = PathTemplate.compile(DEFAULT_HTML_PATH_PATTERN);
 		
 	/**
 	 * Constructor.
@@ -114,7 +124,8 @@ public class TargetRegistry implements Serializable {
 			this.pattern = pattern;
 		}
 		
-		this.pattern = this.pattern.replaceAll("\\$\\{rootdir\\}", this.rootdir);
+		this.template = PathTemplate.compile(this.pattern).bind("rootdir", this.rootdir);
+		this.pattern = this.template.toString();
 		
 		logger.info("root directory for conjured-up result URLs: '{}'", this.rootdir);
 		logger.info("pattern for auto-configured targets' JSPs: '{}'", this.pattern);
@@ -135,9 +146,14 @@ public class TargetRegistry implements Serializable {
 	 *   the method annotation, from which some information might be extracted.
 	 * @param interceptors
 	 *   the name of the interceptor stack to be used for the given action.
+	 * @return
+	 *   the newly registered {@code Target}, for further configuration.
 	 * @throws StrutletsException 
+	 *   if the target cannot be registered, e.g. because it is secured and its
+	 *   output is cached for all users, which would have cached output replayed
+	 *   to users the security policy does not allow.
 	 */
-	public void addTarget(Class<?> actionClass, Method factoryMethod, Method actionMethod, Method proxyMethod, 
+	public Target addTarget(Class<?> actionClass, Method factoryMethod, Method actionMethod, Method proxyMethod, 
 			Invocable invocable, String interceptors) throws StrutletsException {
 		String actionName = Strings.isValid(actionClass.getAnnotation(Action.class).alias()) ? actionClass.getAnnotation(Action.class).alias() : actionClass.getSimpleName(); 
 		logger.info("adding target '{}!{}' (proxy: '{}')", actionName, actionMethod.getName(), proxyMethod.getName());
@@ -151,8 +167,15 @@ public class TargetRegistry implements Serializable {
 		data.setProxyMethod(proxyMethod);
 		data.setIdempotent(invocable.idempotent());
 		data.setCacheable(invocable.cacheable());
+		data.setCachePolicy(actionMethod.getAnnotation(Cached.class));
+		data.setSecurityPolicy(actionMethod.isAnnotationPresent(Secured.class) ? actionMethod.getAnnotation(Secured.class) : actionClass.getAnnotation(Secured.class));
+		if(data.getSecurityPolicy() != null && data.getCachePolicy() != null && !data.getCachePolicy().perUser()) {
+			// cached output is replayed without going through the interceptors
+			logger.error("target '{}' is secured but caches its output for all users", id);
+			throw new DeploymentException("Target '" + id + "' is @Secured and cannot be @Cached(perUser = false), since its output would be replayed to any user");
+		}
 		data.setInterceptorsStackId(interceptors);
-		data.setJspUrlPattern(pattern);
+		data.setJspUrlTemplate(template);
 		data.addDeclaredResults(invocable);
 					
 		logger.trace("auto-configuring events of '{}'", id);
@@ -163,6 +186,7 @@ public class TargetRegistry implements Serializable {
 			events.put(qname.toString(), id);
 		}		
 		this.store.put(id,  data);
+		return data;
 	}
 	
 	/**
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.tracing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A trace sink that writes completed traces to the log, at INFO level.
+ *
+ * @author Andrea Funto'
+ */
+public class LoggingTraceSink implements TraceSink {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(LoggingTraceSink.class);
+
+	/**
+	 * @see org.dihedron.strutlets.tracing.TraceSink#export(java.lang.String, org.dihedron.strutlets.tracing.Trace)
+	 */
+	@Override
+	public void export(String portlet, Trace trace) {
+		if(logger.isInfoEnabled()) {
+			logger.info("portlet '{}', {}", portlet, trace);
+		}
+	}
+}
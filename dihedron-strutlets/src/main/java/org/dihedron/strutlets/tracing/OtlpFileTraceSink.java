@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.tracing;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.SecureRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A trace sink that appends completed traces to a file, one OpenTelemetry
+ * (OTLP/JSON) {@code ExportTraceServiceRequest} document per line; the file can
+ * be picked up by an OpenTelemetry collector (e.g. through its OTLP JSON file
+ * receiver) and forwarded to any tracing backend, so this sink acts as a local
+ * stand-in for a proper OTLP exporter without requiring any additional library.
+ * Each trace is exported as a root span named after the trace (the request
+ * processing phase), with the recorded spans as its descendants.
+ *
+ * The file is given by the {@value #OUTPUT_FILE_PROPERTY} system property and
+ * defaults to {@code strutlets-traces.json} in the temporary directory.
+ *
+ * @author Andrea Funto'
+ */
+public class OtlpFileTraceSink implements TraceSink, Closeable {
+
+	/**
+	 * The system property used to specify the output file.
+	 */
+	public static final String OUTPUT_FILE_PROPERTY = "org.dihedron.strutlets.tracing.otlp-file";
+
+	/**
+	 * The name of the default output file, in the temporary directory.
+	 */
+	public static final String DEFAULT_OUTPUT_FILE = "strutlets-traces.json";
+
+	/**
+	 * The instrumentation scope name.
+	 */
+	private static final String SCOPE = "org.dihedron.strutlets";
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(OtlpFileTraceSink.class);
+
+	/**
+	 * The random high half of the trace identifiers generated by this sink, so
+	 * that traces coming from different nodes or deployments do not collide.
+	 */
+	private final long prefix = new SecureRandom().nextLong();
+
+	/**
+	 * The output file.
+	 */
+	private final File file;
+
+	/**
+	 * The writer on the output file.
+	 */
+	private Writer writer;
+
+	/**
+	 * Constructor.
+	 */
+	public OtlpFileTraceSink() {
+		this(new File(System.getProperty(OUTPUT_FILE_PROPERTY, new File(System.getProperty("java.io.tmpdir"), DEFAULT_OUTPUT_FILE).getPath())));
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file
+	 *   the output file.
+	 */
+	public OtlpFileTraceSink(File file) {
+		this.file = file;
+		logger.info("exporting traces in OTLP/JSON format to '{}'", file.getAbsolutePath());
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.tracing.TraceSink#export(java.lang.String, org.dihedron.strutlets.tracing.Trace)
+	 */
+	@Override
+	public void export(String portlet, Trace trace) {
+		String traceId = String.format("%016x%016x", prefix, trace.getId());
+		long origin = trace.getTimestamp() * 1000000L;
+
+		StringBuilder json = new StringBuilder(512 + trace.getSpanCount() * 192);
+		json.append("{\"resourceSpans\":[{\"resource\":{\"attributes\":[");
+		appendAttribute(json, "service.name", portlet).append("]},\"scopeSpans\":[{\"scope\":{\"name\":\"").append(SCOPE).append("\"},\"spans\":[");
+		appendSpan(json, traceId, trace.getId(), -1, -2, trace.getName(), origin, origin + trace.getDuration());
+		json.setLength(json.length() - 1);
+		json.append(",\"attributes\":[");
+		if(trace.getTarget() != null) {
+			appendAttribute(json, "strutlets.target", trace.getTarget()).append(",");
+		}
+		appendAttribute(json, "strutlets.dropped_spans", String.valueOf(trace.getDroppedSpans())).append("]}");
+		for(int i = 0; i < trace.getSpanCount(); ++i) {
+			long start = origin + trace.getSpanStart(i);
+			json.append(",");
+			appendSpan(json, traceId, trace.getId(), i, trace.getSpanParent(i), trace.getSpanName(i), start, start + trace.getSpanDuration(i));
+		}
+		json.append("]}]}]}\n");
+
+		synchronized(this) {
+			try {
+				if(writer == null) {
+					writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), Charset.forName("UTF-8")));
+				}
+				writer.write(json.toString());
+				writer.flush();
+			} catch(IOException e) {
+				logger.warn("error writing trace to '{}': {}", file.getAbsolutePath(), e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Closes the output file.
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if(writer != null) {
+			writer.close();
+			writer = null;
+		}
+	}
+
+	/**
+	 * Appends a span to the JSON document.
+	 *
+	 * @param json
+	 *   the JSON document being built.
+	 * @param traceId
+	 *   the trace identifier, as a hex string.
+	 * @param id
+	 *   the numeric trace identifier.
+	 * @param span
+	 *   the span index, -1 for the root span.
+	 * @param parent
+	 *   the parent span index, -1 for the root span, -2 for none.
+	 * @param name
+	 *   the span name.
+	 * @param start
+	 *   the start time, in nanoseconds since the epoch.
+	 * @param end
+	 *   the end time, in nanoseconds since the epoch.
+	 */
+	private static void appendSpan(StringBuilder json, String traceId, long id, int span, int parent, String name, long start, long end) {
+		json.append("{\"traceId\":\"").append(traceId).append("\",\"spanId\":\"").append(makeSpanId(id, span)).append("\",");
+		if(parent > -2) {
+			json.append("\"parentSpanId\":\"").append(makeSpanId(id, parent)).append("\",");
+		}
+		json.append("\"name\":\"");
+		appendEscaped(json, name);
+		json.append("\",\"kind\":").append(parent == -2 ? 2 : 1);
+		json.append(",\"startTimeUnixNano\":\"").append(start).append("\",\"endTimeUnixNano\":\"").append(end).append("\"}");
+	}
+
+	/**
+	 * Appends a string attribute to the JSON document.
+	 *
+	 * @param json
+	 *   the JSON document being built.
+	 * @param key
+	 *   the attribute key.
+	 * @param value
+	 *   the attribute value.
+	 * @return
+	 *   the JSON document being built.
+	 */
+	private static StringBuilder appendAttribute(StringBuilder json, String key, String value) {
+		json.append("{\"key\":\"").append(key).append("\",\"value\":{\"stringValue\":\"");
+		appendEscaped(json, value);
+		return json.append("\"}}");
+	}
+
+	/**
+	 * Returns the identifier of a span, as a 16 characters hex string.
+	 *
+	 * @param id
+	 *   the numeric trace identifier.
+	 * @param span
+	 *   the span index, -1 for the root span.
+	 * @return
+	 *   the span identifier.
+	 */
+	private static String makeSpanId(long id, int span) {
+		return String.format("%08x%08x", (int)id, span + 2);
+	}
+
+	/**
+	 * Appends a string to the JSON document, escaping it as needed.
+	 *
+	 * @param json
+	 *   the JSON document being built.
+	 * @param value
+	 *   the string to append.
+	 */
+	private static void appendEscaped(StringBuilder json, String value) {
+		for(int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if(c < 0x20) {
+				json.append(String.format("\\u%04x", (int)c));
+			} else {
+				json.append(c);
+			}
+		}
+	}
+}
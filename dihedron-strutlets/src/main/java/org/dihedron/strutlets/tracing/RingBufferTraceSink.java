@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A trace sink that keeps a copy of the most recent traces in memory, in a
+ * fixed-size ring buffer, so that they can be inspected in the administrative
+ * console; older traces are overwritten as new ones come in.
+ *
+ * @author Andrea Funto'
+ */
+public class RingBufferTraceSink implements TraceSink {
+
+	/**
+	 * The default number of traces kept in memory.
+	 */
+	public static final int DEFAULT_CAPACITY = 100;
+
+	/**
+	 * The ring buffer.
+	 */
+	private final AtomicReferenceArray<Trace> traces;
+
+	/**
+	 * The number of traces exported so far, used to pick the next slot.
+	 */
+	private final AtomicLong exported = new AtomicLong();
+
+	/**
+	 * Constructor.
+	 */
+	public RingBufferTraceSink() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *   the number of traces kept in memory.
+	 */
+	public RingBufferTraceSink(int capacity) {
+		this.traces = new AtomicReferenceArray<Trace>(capacity);
+	}
+
+	/**
+	 * @see org.dihedron.strutlets.tracing.TraceSink#export(java.lang.String, org.dihedron.strutlets.tracing.Trace)
+	 */
+	@Override
+	public void export(String portlet, Trace trace) {
+		long slot = exported.getAndIncrement();
+		traces.set((int)(slot % traces.length()), trace.copy());
+	}
+
+	/**
+	 * Returns the traces currently in the buffer, most recent first.
+	 *
+	 * @return
+	 *   the most recent traces.
+	 */
+	public List<Trace> getTraces() {
+		List<Trace> result = new ArrayList<Trace>(traces.length());
+		long last = exported.get();
+		for(long i = last - 1; i >= 0 && i >= last - traces.length(); --i) {
+			Trace trace = traces.get((int)(i % traces.length()));
+			if(trace != null) {
+				result.add(trace);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Removes all traces from the buffer.
+	 */
+	public void clear() {
+		for(int i = 0; i < traces.length(); ++i) {
+			traces.set(i, null);
+		}
+	}
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.tracing;
+
+/**
+ * The trace of a single request: a tree of timed spans, each representing a
+ * stage of the request processing (the phase as a whole, the target invocation,
+ * each interceptor, the scope binding and validation code in the proxy, the
+ * action body, the storing of {@code @Out} parameters and the rendering).
+ *
+ * Spans are kept in preallocated parallel arrays, so recording a span never
+ * allocates memory; when the arrays are full further spans are counted as
+ * dropped. Traces are recycled by the {@code Tracer} and are not thread safe:
+ * they are only ever accessed by the thread processing the request and by the
+ * sinks the trace is exported to, which must {@link #copy()} it if they need
+ * to keep it after {@link TraceSink#export(String, Trace)} returns.
+ *
+ * @author Andrea Funto'
+ */
+public class Trace {
+
+	/**
+	 * The default maximum number of spans per trace.
+	 */
+	public static final int DEFAULT_MAX_SPANS = 64;
+
+	/**
+	 * The number of nanoseconds in a millisecond.
+	 */
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	/**
+	 * The trace unique identifier.
+	 */
+	private long id;
+
+	/**
+	 * The name of the trace, usually the request processing phase.
+	 */
+	private String name;
+
+	/**
+	 * The target being invoked, if any.
+	 */
+	private String target;
+
+	/**
+	 * The wall-clock time at which the trace started, in milliseconds.
+	 */
+	private long timestamp;
+
+	/**
+	 * The value of the nanosecond timer at which the trace started.
+	 */
+	private long origin;
+
+	/**
+	 * The value of the nanosecond timer at which the trace ended.
+	 */
+	private long end;
+
+	/**
+	 * The span names.
+	 */
+	private final String[] names;
+
+	/**
+	 * The value of the nanosecond timer at which each span started.
+	 */
+	private final long[] starts;
+
+	/**
+	 * The value of the nanosecond timer at which each span ended, or -1 if the
+	 * span is still open.
+	 */
+	private final long[] ends;
+
+	/**
+	 * The index of the parent of each span, or -1 for top-level spans.
+	 */
+	private final int[] parents;
+
+	/**
+	 * The number of recorded spans.
+	 */
+	private int count;
+
+	/**
+	 * The innermost open span, or -1 if none.
+	 */
+	private int current;
+
+	/**
+	 * The number of spans that could not be recorded because the trace was full.
+	 */
+	private int dropped;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *   the maximum number of spans in the trace.
+	 */
+	public Trace(int capacity) {
+		this.names = new String[capacity];
+		this.starts = new long[capacity];
+		this.ends = new long[capacity];
+		this.parents = new int[capacity];
+	}
+
+	/**
+	 * Resets the trace and starts it anew.
+	 *
+	 * @param id
+	 *   the trace unique identifier.
+	 * @param name
+	 *   the name of the trace.
+	 */
+	void start(long id, String name) {
+		this.id = id;
+		this.name = name;
+		this.target = null;
+		this.timestamp = System.currentTimeMillis();
+		this.origin = System.nanoTime();
+		this.end = -1;
+		this.count = 0;
+		this.current = -1;
+		this.dropped = 0;
+	}
+
+	/**
+	 * Ends the trace, closing any span left open (e.g. because of an exception).
+	 */
+	void finish() {
+		end = System.nanoTime();
+		for(int i = 0; i < count; ++i) {
+			if(ends[i] < 0) {
+				ends[i] = end;
+			}
+		}
+		current = -1;
+	}
+
+	/**
+	 * Opens a new span, nested in the innermost open span.
+	 *
+	 * @param name
+	 *   the name of the span.
+	 * @return
+	 *   the span index, or -1 if the trace is full.
+	 */
+	public int begin(String name) {
+		if(count == names.length) {
+			dropped++;
+			return -1;
+		}
+		int span = count++;
+		names[span] = name;
+		starts[span] = System.nanoTime();
+		ends[span] = -1;
+		parents[span] = current;
+		current = span;
+		return span;
+	}
+
+	/**
+	 * Closes the given span, along with any nested span left open.
+	 *
+	 * @param span
+	 *   the index of the span, as returned by {@link #begin(String)}.
+	 */
+	public void end(int span) {
+		if(span < 0 || span >= count || ends[span] >= 0) {
+			return;
+		}
+		long now = System.nanoTime();
+		for(int i = current; i != span && i >= 0; i = parents[i]) {
+			ends[i] = now;
+		}
+		ends[span] = now;
+		current = parents[span];
+	}
+
+	/**
+	 * Returns a copy of this trace, sized to its actual number of spans, that
+	 * can be kept after the trace has been recycled.
+	 *
+	 * @return
+	 *   a copy of the trace.
+	 */
+	public Trace copy() {
+		Trace copy = new Trace(count);
+		copy.id = id;
+		copy.name = name;
+		copy.target = target;
+		copy.timestamp = timestamp;
+		copy.origin = origin;
+		copy.end = end;
+		copy.count = count;
+		copy.current = current;
+		copy.dropped = dropped;
+		System.arraycopy(names, 0, copy.names, 0, count);
+		System.arraycopy(starts, 0, copy.starts, 0, count);
+		System.arraycopy(ends, 0, copy.ends, 0, count);
+		System.arraycopy(parents, 0, copy.parents, 0, count);
+		return copy;
+	}
+
+	/**
+	 * Returns the trace unique identifier.
+	 *
+	 * @return
+	 *   the trace identifier.
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the name of the trace, usually the request processing phase.
+	 *
+	 * @return
+	 *   the name of the trace.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the target invoked during the request, if any.
+	 *
+	 * @return
+	 *   the target identifier, or {@code null}.
+	 */
+	public String getTarget() {
+		return target;
+	}
+
+	/**
+	 * Sets the target invoked during the request.
+	 *
+	 * @param target
+	 *   the target identifier.
+	 * @return
+	 *   the trace itself, for method chaining.
+	 */
+	public Trace setTarget(String target) {
+		this.target = target;
+		return this;
+	}
+
+	/**
+	 * Returns the wall-clock time at which the trace started.
+	 *
+	 * @return
+	 *   the start time, in milliseconds since the epoch.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Returns the duration of the whole trace.
+	 *
+	 * @return
+	 *   the duration, in nanoseconds.
+	 */
+	public long getDuration() {
+		return (end >= 0 ? end : System.nanoTime()) - origin;
+	}
+
+	/**
+	 * Returns the number of recorded spans.
+	 *
+	 * @return
+	 *   the number of spans.
+	 */
+	public int getSpanCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the number of spans that could not be recorded because the trace
+	 * was full.
+	 *
+	 * @return
+	 *   the number of dropped spans.
+	 */
+	public int getDroppedSpans() {
+		return dropped;
+	}
+
+	/**
+	 * Returns the name of the given span.
+	 *
+	 * @param span
+	 *   the span index.
+	 * @return
+	 *   the span name.
+	 */
+	public String getSpanName(int span) {
+		return names[span];
+	}
+
+	/**
+	 * Returns the parent of the given span.
+	 *
+	 * @param span
+	 *   the span index.
+	 * @return
+	 *   the index of the parent span, or -1 for top-level spans.
+	 */
+	public int getSpanParent(int span) {
+		return parents[span];
+	}
+
+	/**
+	 * Returns the time at which the given span started, relative to the start
+	 * of the trace.
+	 *
+	 * @param span
+	 *   the span index.
+	 * @return
+	 *   the span start offset, in nanoseconds.
+	 */
+	public long getSpanStart(int span) {
+		return starts[span] - origin;
+	}
+
+	/**
+	 * Returns the duration of the given span.
+	 *
+	 * @param span
+	 *   the span index.
+	 * @return
+	 *   the span duration, in nanoseconds.
+	 */
+	public long getSpanDuration(int span) {
+		return (ends[span] >= 0 ? ends[span] : System.nanoTime()) - starts[span];
+	}
+
+	/**
+	 * Returns the nesting depth of the given span.
+	 *
+	 * @param span
+	 *   the span index.
+	 * @return
+	 *   the span depth, 0 for top-level spans.
+	 */
+	public int getSpanDepth(int span) {
+		int depth = 0;
+		for(int i = parents[span]; i >= 0; i = parents[i]) {
+			depth++;
+		}
+		return depth;
+	}
+
+	/**
+	 * Returns a human-readable, indented representation of the trace.
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder();
+		buffer.append(String.format("trace %016x '%s'%s: %.3f ms", id, name, target != null ? " (" + target + ")" : "", getDuration() / NANOS_PER_MILLI));
+		for(int i = 0; i < count; ++i) {
+			buffer.append("\n");
+			for(int j = 0; j <= getSpanDepth(i); ++j) {
+				buffer.append("  ");
+			}
+			buffer.append(String.format("%s: %.3f ms (at +%.3f ms)", names[i], getSpanDuration(i) / NANOS_PER_MILLI, getSpanStart(i) / NANOS_PER_MILLI));
+		}
+		if(dropped > 0) {
+			buffer.append("\n  (").append(dropped).append(" spans dropped)");
+		}
+		return buffer.toString();
+	}
+}
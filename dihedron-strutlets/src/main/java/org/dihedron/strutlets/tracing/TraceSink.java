@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.tracing;
+
+/**
+ * The interface of the components to which completed traces are exported.
+ * Sinks are invoked synchronously by the thread that processed the request,
+ * so they should be quick; moreover traces are recycled as soon as all sinks
+ * have been invoked, so sinks that need to keep a trace must {@link
+ * Trace#copy()} it. Sinks must have a public no-args constructor and, if they
+ * hold any resource, implement {@code java.io.Closeable}.
+ *
+ * @author Andrea Funto'
+ */
+public interface TraceSink {
+
+	/**
+	 * Exports a completed trace.
+	 *
+	 * @param portlet
+	 *   the name of the portlet that processed the request.
+	 * @param trace
+	 *   the completed trace.
+	 */
+	void export(String portlet, Trace trace);
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.tracing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The per-portlet tracing facility: it decides which requests are traced
+ * (according to the sampling rate), hands out preallocated traces to the
+ * threads processing them and exports completed traces to the registered
+ * sinks. Traces are taken from and given back to a lock-free pool, so that in
+ * steady state tracing a request does not allocate any memory for the spans.
+ *
+ * @author Andrea Funto'
+ */
+public class Tracer {
+
+	/**
+	 * The logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(Tracer.class);
+
+	/**
+	 * The name of the portlet whose requests are traced.
+	 */
+	private final String portlet;
+
+	/**
+	 * The ratio of requests that are traced, between 0 and 1.
+	 */
+	private final double rate;
+
+	/**
+	 * The maximum number of spans per trace.
+	 */
+	private final int capacity;
+
+	/**
+	 * The pool of idle traces.
+	 */
+	private final AtomicReferenceArray<Trace> pool;
+
+	/**
+	 * The generator of trace identifiers.
+	 */
+	private final AtomicLong ids = new AtomicLong(new Random().nextLong());
+
+	/**
+	 * The sinks completed traces are exported to.
+	 */
+	private final List<TraceSink> sinks = new CopyOnWriteArrayList<TraceSink>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param portlet
+	 *   the name of the portlet whose requests are traced.
+	 * @param rate
+	 *   the ratio of requests that are traced, between 0 and 1.
+	 * @param capacity
+	 *   the maximum number of spans per trace.
+	 * @param pooled
+	 *   the number of traces preallocated in the pool.
+	 */
+	public Tracer(String portlet, double rate, int capacity, int pooled) {
+		this.portlet = portlet;
+		this.rate = Math.max(0.0, Math.min(1.0, rate));
+		this.capacity = capacity;
+		this.pool = new AtomicReferenceArray<Trace>(pooled);
+		for(int i = 0; i < pooled; ++i) {
+			pool.set(i, new Trace(capacity));
+		}
+	}
+
+	/**
+	 * Adds a sink completed traces will be exported to.
+	 *
+	 * @param sink
+	 *   the trace sink.
+	 * @return
+	 *   the tracer itself, for method chaining.
+	 */
+	public Tracer addSink(TraceSink sink) {
+		sinks.add(sink);
+		return this;
+	}
+
+	/**
+	 * Returns the sinks completed traces are exported to.
+	 *
+	 * @return
+	 *   an unmodifiable list of sinks.
+	 */
+	public List<TraceSink> getSinks() {
+		return Collections.unmodifiableList(sinks);
+	}
+
+	/**
+	 * Returns the first sink of the given type, if any.
+	 *
+	 * @param type
+	 *   the class of the sink.
+	 * @return
+	 *   the sink, or {@code null} if no sink of the given type is registered.
+	 */
+	public <T extends TraceSink> T getSink(Class<T> type) {
+		for(TraceSink sink : sinks) {
+			if(type.isInstance(sink)) {
+				return type.cast(sink);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the ratio of requests that are traced.
+	 *
+	 * @return
+	 *   the sampling rate, between 0 and 1.
+	 */
+	public double getSamplingRate() {
+		return rate;
+	}
+
+	/**
+	 * Starts tracing the request being processed by the current thread, if it
+	 * is sampled; nested calls (e.g. if a request is already being traced) have
+	 * no effect.
+	 *
+	 * @param name
+	 *   the name of the trace, usually the request processing phase.
+	 * @return
+	 *   whether the request is being traced, in which case {@link #endTrace()}
+	 *   must be called when the request has been processed.
+	 */
+	public boolean startTrace(String name) {
+		if(rate <= 0.0 || Tracing.isActive()) {
+			return false;
+		}
+		if(rate < 1.0 && ThreadLocalRandom.current().nextDouble() >= rate) {
+			return false;
+		}
+		Trace trace = acquire();
+		trace.start(ids.incrementAndGet(), name);
+		Tracing.bind(trace);
+		return true;
+	}
+
+	/**
+	 * Ends tracing the request being processed by the current thread and
+	 * exports the trace to all sinks.
+	 */
+	public void endTrace() {
+		Trace trace = Tracing.getCurrentTrace();
+		if(trace == null) {
+			return;
+		}
+		Tracing.unbind();
+		trace.finish();
+		for(TraceSink sink : sinks) {
+			try {
+				sink.export(portlet, trace);
+			} catch(RuntimeException e) {
+				logger.error("error exporting trace to sink of class '" + sink.getClass().getName() + "'", e);
+			}
+		}
+		release(trace);
+	}
+
+	/**
+	 * Closes all sinks holding resources.
+	 */
+	public void shutdown() {
+		for(TraceSink sink : sinks) {
+			if(sink instanceof Closeable) {
+				try {
+					((Closeable)sink).close();
+				} catch(IOException e) {
+					logger.warn("error closing trace sink of class '{}'", sink.getClass().getName());
+				}
+			}
+		}
+		sinks.clear();
+	}
+
+	/**
+	 * Takes an idle trace from the pool, or creates a new one if the pool is
+	 * empty.
+	 *
+	 * @return
+	 *   a trace.
+	 */
+	private Trace acquire() {
+		for(int i = 0; i < pool.length(); ++i) {
+			Trace trace = pool.getAndSet(i, null);
+			if(trace != null) {
+				return trace;
+			}
+		}
+		return new Trace(capacity);
+	}
+
+	/**
+	 * Gives a trace back to the pool; if the pool is full the trace is left to
+	 * the garbage collector.
+	 *
+	 * @param trace
+	 *   the trace.
+	 */
+	private void release(Trace trace) {
+		for(int i = 0; i < pool.length(); ++i) {
+			if(pool.compareAndSet(i, null, trace)) {
+				return;
+			}
+		}
+	}
+}
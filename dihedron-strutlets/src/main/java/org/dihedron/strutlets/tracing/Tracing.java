@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+
+package org.dihedron.strutlets.tracing;
+
+/**
+ * The static entry point used by the framework (and by the generated proxy
+ * code) to record spans in the trace of the request being processed by the
+ * current thread. If the current request is not being traced, because tracing
+ * is disabled or the request was not sampled, all methods return immediately;
+ * this makes instrumenting a stage as cheap as a thread-local lookup:
+ * <pre>
+ *   int span = Tracing.begin("stage");
+ *   try {
+ *     ...
+ *   } finally {
+ *     Tracing.end(span);
+ *   }
+ * </pre>
+ *
+ * @author Andrea Funto'
+ */
+public final class Tracing {
+
+	/**
+	 * The trace of the request being processed by the current thread, if it is
+	 * being traced.
+	 */
+	private static final ThreadLocal<Trace> current = new ThreadLocal<Trace>();
+
+	/**
+	 * Opens a new span in the current trace.
+	 *
+	 * @param name
+	 *   the name of the span.
+	 * @return
+	 *   the span index, to be passed to {@link #end(int)}, or -1 if the current
+	 *   request is not being traced.
+	 */
+	public static int begin(String name) {
+		Trace trace = current.get();
+		return trace != null ? trace.begin(name) : -1;
+	}
+
+	/**
+	 * Opens a new span in the current trace; the span name is only composed if
+	 * the current request is actually being traced.
+	 *
+	 * @param prefix
+	 *   the prefix of the span name.
+	 * @param name
+	 *   the rest of the span name.
+	 * @return
+	 *   the span index, to be passed to {@link #end(int)}, or -1 if the current
+	 *   request is not being traced.
+	 */
+	public static int begin(String prefix, String name) {
+		Trace trace = current.get();
+		return trace != null ? trace.begin(prefix + name) : -1;
+	}
+
+	/**
+	 * Closes a span in the current trace.
+	 *
+	 * @param span
+	 *   the span index, as returned by {@link #begin(String)}.
+	 */
+	public static void end(int span) {
+		if(span >= 0) {
+			Trace trace = current.get();
+			if(trace != null) {
+				trace.end(span);
+			}
+		}
+	}
+
+	/**
+	 * Records the target invoked by the current request, if it is being traced.
+	 *
+	 * @param target
+	 *   the target identifier.
+	 */
+	public static void setTarget(String target) {
+		Trace trace = current.get();
+		if(trace != null) {
+			trace.setTarget(target);
+		}
+	}
+
+	/**
+	 * Returns whether the request being processed by the current thread is
+	 * being traced.
+	 *
+	 * @return
+	 *   whether the current request is being traced.
+	 */
+	public static boolean isActive() {
+		return current.get() != null;
+	}
+
+	/**
+	 * Returns the trace of the request being processed by the current thread.
+	 *
+	 * @return
+	 *   the current trace, or {@code null} if the request is not being traced.
+	 */
+	public static Trace getCurrentTrace() {
+		return current.get();
+	}
+
+	/**
+	 * Binds a trace to the current thread.
+	 *
+	 * @param trace
+	 *   the trace.
+	 */
+	static void bind(Trace trace) {
+		current.set(trace);
+	}
+
+	/**
+	 * Unbinds the trace from the current thread.
+	 */
+	static void unbind() {
+		current.remove();
+	}
+
+	/**
+	 * Private constructor, to prevent instantiation.
+	 */
+	private Tracing() {
+	}
+}
@@ -2,14 +2,22 @@
 <%@ taglib uri="http://www.dihedron.org/strutlets" prefix="strutlets" %>
 
 <%@ page import="org.dihedron.core.properties.Properties" %>
+<%@ page import="org.dihedron.strutlets.adminconsole.RuntimeStatistics" %>
 <%@ page import="org.dihedron.strutlets.diagnostics.Error" %>
+<%@ page import="org.dihedron.strutlets.diagnostics.SlowRequest" %>
 <%@ page import="org.dihedron.strutlets.targets.Target" %>
 <%@ page import="org.dihedron.strutlets.targets.TargetId" %>
 <%@ page import="org.dihedron.strutlets.targets.registry.TargetRegistry" %>
+<%@ page import="org.dihedron.strutlets.tracing.Trace" %>
+<%@ page import="java.util.List" %>
+<%@ page import="java.util.Map" %>
 
 
 <strutlets:useBean name="org.dihedron.strutlets:configuration" type="Properties" scopes="request" var="configuration" />
 <strutlets:useBean name="org.dihedron.strutlets:registry" type="TargetRegistry" scopes="request" var="registry" />
+<strutlets:useBean name="org.dihedron.strutlets:statistics" type="RuntimeStatistics" scopes="request" var="statistics" />
+<strutlets:useBean name="org.dihedron.strutlets:traces" type="List" scopes="request" var="traces" />
+<strutlets:useBean name="org.dihedron.strutlets:slow-requests" type="List" scopes="request" var="slow" />
 
 
 <style>
@@ -140,6 +148,223 @@
 	
 	<% } %>
 	
+	<% 
+	if(statistics != null) { 
+		pageContext.setAttribute("statistics", statistics);
+	%>
+	<p>
+		Statistics as of <%= new java.util.Date(statistics.getTimestamp()) %>; all times are in milliseconds 
+		(<a href="<portlet:resourceURL id="StrutletsAdminConsole!statistics" />">JSON</a>).
+	</p>
+	
+	<table class="strutlets">
+		<caption>Target Statistics</caption>
+		<thead>
+			<tr>
+				<th>TARGET</th>
+				<th>PHASE</th>
+				<th>INVOCATIONS</th>
+				<th>REQ/S</th>
+				<th>ERROR RATE</th>
+				<th>MEAN</th>
+				<th>P50</th>
+				<th>P95</th>
+				<th>P99</th>
+				<th>MAX</th>
+				<th>RENDERING MEAN</th>
+				<th>RENDERING P95</th>
+			</tr>
+		</thead>
+		<tbody>
+		<% 
+		for(RuntimeStatistics.TargetStatistics target : statistics.getTargets()) {
+			pageContext.setAttribute("target", target); 
+		%>	
+			<tr>
+				<td>${target.target}</td>
+				<td>${target.phase}</td>
+				<td>${target.invocations}</td>
+				<td><%= String.format("%.2f", target.getThroughput()) %></td>
+				<td><%= String.format("%.2f%%", target.getErrorRate() * 100) %></td>
+				<td><%= String.format("%.3f", target.getMeanLatency()) %></td>
+				<td><%= String.format("%.3f", target.getLatency50thPercentile()) %></td>
+				<td><%= String.format("%.3f", target.getLatency95thPercentile()) %></td>
+				<td><%= String.format("%.3f", target.getLatency99thPercentile()) %></td>
+				<td><%= String.format("%.3f", target.getMaxLatency()) %></td>
+				<td><%= String.format("%.3f", target.getMeanRenderingTime()) %></td>
+				<td><%= String.format("%.3f", target.getRenderingTime95thPercentile()) %></td>
+			</tr>
+		<% } %>
+		</tbody>
+	</table>
+	<br>
+	
+	<table class="strutlets">
+		<caption>Interceptor Statistics</caption>
+		<thead>
+			<tr>
+				<th>INTERCEPTOR</th>
+				<th>INVOCATIONS</th>
+				<th>MEAN</th>
+				<th>P95</th>
+				<th>TOTAL</th>
+			</tr>
+		</thead>
+		<tbody>
+		<% for(RuntimeStatistics.InterceptorStatistics interceptor : statistics.getInterceptors()) { %>	
+			<tr>
+				<td><%= interceptor.getInterceptor() %></td>
+				<td><%= interceptor.getInvocations() %></td>
+				<td><%= String.format("%.3f", interceptor.getMeanTime()) %></td>
+				<td><%= String.format("%.3f", interceptor.getTime95thPercentile()) %></td>
+				<td><%= String.format("%.3f", interceptor.getTotalTime()) %></td>
+			</tr>
+		<% } %>
+		</tbody>
+	</table>
+	<br>
+	
+	<table class="strutlets">
+		<caption>Cache Statistics</caption>
+		<thead>
+			<tr>
+				<th>CACHE</th>
+				<th>ENTRIES</th>
+				<th>HITS</th>
+				<th>MISSES</th>
+				<th>HIT RATIO</th>
+			</tr>
+		</thead>
+		<tbody>
+		<% for(RuntimeStatistics.CacheStatistics cache : statistics.getCaches()) { %>	
+			<tr>
+				<td><%= cache.getCache() %></td>
+				<td><%= cache.getEntries() %></td>
+				<td><%= cache.getHits() %></td>
+				<td><%= cache.getMisses() %></td>
+				<td><%= String.format("%.2f%%", cache.getHitRatio() * 100) %></td>
+			</tr>
+		<% } %>
+		</tbody>
+	</table>
+	<br>
+	
+	<% if(!statistics.getCounters().isEmpty()) { %>
+	<table class="strutlets">
+		<caption>Counters</caption>
+		<thead>
+			<tr>
+				<th>COUNTER</th>
+				<th>VALUE</th>
+			</tr>
+		</thead>
+		<tbody>
+		<% for(Map.Entry<String, Long> counter : statistics.getCounters().entrySet()) { %>	
+			<tr>
+				<td><%= counter.getKey() %></td>
+				<td><%= counter.getValue() %></td>
+			</tr>
+		<% } %>
+		</tbody>
+	</table>
+	<br>
+	<% } %>
+	
+	<table class="strutlets">
+		<caption>Runtime</caption>
+		<thead>
+			<tr>
+				<th>KEY</th>
+				<th>VALUE</th>
+			</tr>
+		</thead>
+		<tbody>
+			<tr><td>Uploads (requests/files/bytes)</td><td>${statistics.uploads} / ${statistics.uploadedFiles} / ${statistics.uploadedBytes}</td></tr>
+			<tr><td>Uptime (ms)</td><td>${statistics.uptime}</td></tr>
+			<tr><td>Processors</td><td>${statistics.availableProcessors}</td></tr>
+			<tr><td>System Load Average</td><td>${statistics.systemLoadAverage}</td></tr>
+			<tr><td>Heap (used/committed/max bytes)</td><td>${statistics.heapUsed} / ${statistics.heapCommitted} / ${statistics.heapMax}</td></tr>
+			<tr><td>Non-Heap Used (bytes)</td><td>${statistics.nonHeapUsed}</td></tr>
+			<tr><td>Threads (live/daemon/peak)</td><td>${statistics.threads} / ${statistics.daemonThreads} / ${statistics.peakThreads}</td></tr>
+			<tr><td>Garbage Collections (count/ms)</td><td>${statistics.garbageCollections} / ${statistics.garbageCollectionTime}</td></tr>
+		</tbody>
+	</table>
+	<br>
+	
+	<% } %>
+	
+	<% if(slow != null && !slow.isEmpty()) { %>
+	<table class="strutlets">
+		<caption>Recent Slow Requests</caption>
+		<thead>
+			<tr>
+				<th>TIME</th>
+				<th>TARGET</th>
+				<th>PHASE</th>
+				<th>DURATION (THRESHOLD)</th>
+				<th>PARAMETER SIZES</th>
+				<th>SCOPE SIZES</th>
+				<th>TIMINGS</th>
+				<th>STACK SAMPLE</th>
+			</tr>
+		</thead>
+		<tbody>
+		<% for(Object object : slow) { SlowRequest slowRequest = (SlowRequest)object; %>	
+			<tr>
+				<td><%= new java.util.Date(slowRequest.getTimestamp()) %></td>
+				<td><%= slowRequest.getTarget() %></td>
+				<td><%= slowRequest.getPhase() %><%= slowRequest.isFailed() ? " (failed)" : "" %></td>
+				<td><%= String.format("%.3f", slowRequest.getDuration()) %> (<%= slowRequest.getThreshold() %>)</td>
+				<td><%= slowRequest.getParameters() %></td>
+				<td><%= slowRequest.getScopes() %></td>
+				<td><%= slowRequest.getTimings() %></td>
+				<td>
+				<% if(slowRequest.getStackTrace() != null) { %>
+					<pre style="font-size: 0.65em;"><% for(StackTraceElement element : slowRequest.getStackTrace()) { %><%= element %>
+<% } %></pre>
+				<% } %>
+				</td>
+			</tr>
+		<% } %>
+		</tbody>
+	</table>
+	<br>
+	<% } %>
+	
+	<% if(traces != null && !traces.isEmpty()) { %>
+	<table class="strutlets">
+		<caption>Recent Request Traces</caption>
+		<thead>
+			<tr>
+				<th>TRACE</th>
+				<th>PHASE</th>
+				<th>TARGET</th>
+				<th>DURATION</th>
+				<th>SPANS</th>
+			</tr>
+		</thead>
+		<tbody>
+		<% for(Object object : traces) { Trace trace = (Trace)object; %>	
+			<tr>
+				<td><%= String.format("%016x", trace.getId()) %><br><%= new java.util.Date(trace.getTimestamp()) %></td>
+				<td><%= trace.getName() %></td>
+				<td><%= trace.getTarget() != null ? trace.getTarget() : "" %></td>
+				<td><%= String.format("%.3f", trace.getDuration() / 1000000.0) %></td>
+				<td>
+				<% for(int i = 0; i < trace.getSpanCount(); ++i) { %>
+					<div style="padding-left: <%= trace.getSpanDepth(i) * 15 %>px;">
+						<%= trace.getSpanName(i) %>: <%= String.format("%.3f", trace.getSpanDuration(i) / 1000000.0) %> 
+						(at +<%= String.format("%.3f", trace.getSpanStart(i) / 1000000.0) %>)
+					</div>
+				<% } %>
+				</td>
+			</tr>
+		<% } %>
+		</tbody>
+	</table>
+	<br>
+	<% } %>
+	
 	<%--
 	<div style="float: left; width: 48px; height: 48px;">
 		<img src="<%=request.getContextPath()%>/strutlets/images/oops.gif" />		
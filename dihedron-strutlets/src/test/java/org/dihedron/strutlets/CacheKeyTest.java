@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.portlet.PortletMode;
+import javax.portlet.PortletRequest;
+import javax.portlet.PortletSession;
+import javax.portlet.WindowState;
+
+import org.dihedron.strutlets.annotations.Cached;
+import org.dihedron.strutlets.targets.Target;
+import org.dihedron.strutlets.targets.TargetId;
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class CacheKeyTest {
+	
+	@Cached
+	public void perUser() {
+	}
+	
+	@Cached(perUser = false)
+	public void shared() {
+	}
+	
+	/**
+	 * Checks that authenticated users own their output, and that anonymous users
+	 * are told apart by their session.
+	 */
+	@Test
+	public void testCacheOwner() {
+		assertEquals("alice", ActionController.getCacheOwner(makeRequest("alice", "1", "a")));
+		assertEquals("<anonymous:1>", ActionController.getCacheOwner(makeRequest(null, "1", "a")));
+		assertEquals("<anonymous>", ActionController.getCacheOwner(makeRequest(null, null, "a")));
+	}
+	
+	/**
+	 * Checks that user-specific output is keyed by user or anonymous session, 
+	 * and shared output is not.
+	 */
+	@Test
+	public void testCacheKey() throws Exception {
+		Target target = makeTarget("perUser");
+		String alice = ActionController.makeCacheKey(target, makeRequest("alice", "1", "a"));
+		assertEquals(alice, ActionController.makeCacheKey(target, makeRequest("alice", "2", "a")));
+		assertFalse(alice.equals(ActionController.makeCacheKey(target, makeRequest("bob", "1", "a"))));
+		assertFalse(alice.equals(ActionController.makeCacheKey(target, makeRequest("alice", "1", "b"))));
+		
+		String anonymous = ActionController.makeCacheKey(target, makeRequest(null, "1", "a"));
+		assertEquals(anonymous, ActionController.makeCacheKey(target, makeRequest(null, "1", "a")));
+		assertFalse(anonymous.equals(ActionController.makeCacheKey(target, makeRequest(null, "2", "a"))));
+		assertFalse(anonymous.equals(ActionController.makeCacheKey(target, makeRequest(null, null, "a"))));
+		
+		target = makeTarget("shared");
+		String shared = ActionController.makeCacheKey(target, makeRequest("alice", "1", "a"));
+		assertEquals(shared, ActionController.makeCacheKey(target, makeRequest("bob", "2", "a")));
+		assertEquals(shared, ActionController.makeCacheKey(target, makeRequest(null, null, "a")));
+		assertFalse(shared.equals(ActionController.makeCacheKey(target, makeRequest(null, null, "b"))));
+	}
+	
+	/**
+	 * Creates a target with the cache policy of the given method.
+	 */
+	private static Target makeTarget(String method) throws Exception {
+		Cached policy = CacheKeyTest.class.getMethod(method).getAnnotation(Cached.class);
+		return new Target(new TargetId("CacheKeyTest", method)).setCachePolicy(policy);
+	}
+	
+	/**
+	 * Creates a portlet request for the given user and session, with a single 
+	 * request parameter.
+	 */
+	private static PortletRequest makeRequest(final String user, final String session, String parameter) {
+		final Map<String, Object> values = new HashMap<String, Object>();
+		values.put("getRemoteUser", user);
+		values.put("getWindowID", "window");
+		values.put("getPortletMode", PortletMode.VIEW);
+		values.put("getWindowState", WindowState.NORMAL);
+		values.put("getLocale", Locale.ITALY);
+		Map<String, String[]> parameters = new LinkedHashMap<String, String[]>();
+		parameters.put("parameter", new String[] { parameter });
+		values.put("getParameterMap", parameters);
+		if(session != null) {
+			values.put("getPortletSession", Proxy.newProxyInstance(PortletSession.class.getClassLoader(), new Class<?>[] { PortletSession.class }, new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					return method.getName().equals("getId") ? session : null;
+				}
+			}));
+		}
+		return (PortletRequest)Proxy.newProxyInstance(PortletRequest.class.getClassLoader(), new Class<?>[] { PortletRequest.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				return values.get(method.getName());
+			}
+		});
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.actions.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class ActionPoolTest {
+	
+	/**
+	 * Checks that the pool holds at most as many idle instances as its capacity,
+	 * and hands each of them out only once.
+	 */
+	@Test
+	public void testCapacity() {
+		ActionPool pool = new ActionPool(3);
+		assertEquals(3, pool.getCapacity());
+		assertNull(pool.acquire());
+		assertFalse(pool.release(null));
+		
+		Object[] instances = { new Object(), new Object(), new Object(), new Object() };
+		assertTrue(pool.release(instances[0]));
+		assertTrue(pool.release(instances[1]));
+		assertTrue(pool.release(instances[2]));
+		assertFalse(pool.release(instances[3]));
+		assertEquals(3, pool.getIdleCount());
+		
+		Set<Object> acquired = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		for(int i = 0; i < 3; ++i) {
+			Object instance = pool.acquire();
+			assertNotNull(instance);
+			assertTrue(acquired.add(instance));
+		}
+		assertFalse(acquired.contains(instances[3]));
+		assertNull(pool.acquire());
+		assertEquals(0, pool.getIdleCount());
+		
+		assertEquals(1, new ActionPool(0).getCapacity());
+	}
+	
+	/**
+	 * Checks that concurrent threads never get hold of the same instance at the
+	 * same time.
+	 */
+	@Test
+	public void testConcurrentUse() throws InterruptedException {
+		final ActionPool pool = new ActionPool(4);
+		final Set<Object> inUse = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>()));
+		final AtomicInteger clashes = new AtomicInteger();
+		final AtomicInteger created = new AtomicInteger();
+		Thread[] threads = new Thread[8];
+		for(int i = 0; i < threads.length; ++i) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for(int j = 0; j < 10000; ++j) {
+						Object instance = pool.acquire();
+						if(instance == null) {
+							instance = new Object();
+							created.incrementAndGet();
+						}
+						if(!inUse.add(instance)) {
+							clashes.incrementAndGet();
+						}
+						inUse.remove(instance);
+						pool.release(instance);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, clashes.get());
+		assertTrue(pool.getIdleCount() <= pool.getCapacity());
+		assertTrue(created.get() < threads.length * 10000);
+	}
+}
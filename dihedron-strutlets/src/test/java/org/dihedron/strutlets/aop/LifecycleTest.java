@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.aop;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.dihedron.strutlets.annotations.Action;
+import org.dihedron.strutlets.annotations.Lifecycle;
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class LifecycleTest {
+	
+	@Action
+	public static class StatelessAction {
+		static final String CONSTANT = "constant";
+	}
+	
+	public static class InheritingAction extends MyBaseAction {
+	}
+	
+	@Action(lifecycle = Lifecycle.SINGLETON)
+	public static class SingletonAction {
+		String service;
+	}
+	
+	@Action(lifecycle = Lifecycle.PER_REQUEST)
+	public static class PerRequestAction {
+	}
+	
+	@Action(lifecycle = Lifecycle.POOLED)
+	public static class PooledAction {
+	}
+	
+	@Action(lifecycle = Lifecycle.PER_SESSION)
+	public static class PerSessionAction {
+	}
+	
+	/**
+	 * Checks that, when the lifecycle is left to the framework, a shared instance
+	 * is only used for classes without instance fields in their hierarchy.
+	 */
+	@Test
+	public void testAutomatic() {
+		assertTrue(ActionProxyFactory.isSingleton(StatelessAction.class));
+		assertTrue(ActionProxyFactory.isSingleton(Object.class));
+		assertFalse(ActionProxyFactory.isSingleton(MyBaseAction.class));
+		assertFalse(ActionProxyFactory.isSingleton(InheritingAction.class));
+	}
+	
+	/**
+	 * Checks that an explicit lifecycle overrides the inspection of the fields.
+	 */
+	@Test
+	public void testExplicit() {
+		assertTrue(ActionProxyFactory.isSingleton(SingletonAction.class));
+		assertFalse(ActionProxyFactory.isSingleton(PerRequestAction.class));
+		assertFalse(ActionProxyFactory.isSingleton(PooledAction.class));
+		assertFalse(ActionProxyFactory.isSingleton(PerSessionAction.class));
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.cache;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import javax.portlet.PortletRequest;
+
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class HttpCachingTest {
+	
+	/**
+	 * The entity tag of the resource.
+	 */
+	private static final String ETAG = HttpCaching.makeETag("version 1");
+	
+	/**
+	 * Checks the evaluation of the "If-None-Match" header.
+	 */
+	@Test
+	public void testIfNoneMatch() {
+		assertTrue(HttpCaching.isNotModified(makeRequest("If-None-Match", ETAG), ETAG, -1));
+		assertTrue(HttpCaching.isNotModified(makeRequest("If-None-Match", "\"other\", W/" + ETAG), ETAG, -1));
+		assertTrue(HttpCaching.isNotModified(makeRequest("If-None-Match", "*"), ETAG, -1));
+		assertFalse(HttpCaching.isNotModified(makeRequest("If-None-Match", "\"other\""), ETAG, -1));
+		assertFalse(HttpCaching.isNotModified(makeRequest("If-None-Match", HttpCaching.makeETag("version 2")), ETAG, -1));
+		assertFalse(HttpCaching.isNotModified(makeRequest(), ETAG, -1));
+	}
+	
+	/**
+	 * Checks the evaluation of the "If-Modified-Since" header, which is only
+	 * taken into account in the absence of "If-None-Match".
+	 */
+	@Test
+	public void testIfModifiedSince() {
+		long lastModified = 1420070400000L;
+		String date = formatDate(lastModified);
+		assertTrue(HttpCaching.isNotModified(makeRequest("If-Modified-Since", date), ETAG, lastModified));
+		assertTrue(HttpCaching.isNotModified(makeRequest("If-Modified-Since", date), ETAG, lastModified + 999));
+		assertFalse(HttpCaching.isNotModified(makeRequest("If-Modified-Since", date), ETAG, lastModified + 1000));
+		assertFalse(HttpCaching.isNotModified(makeRequest("If-Modified-Since", date), ETAG, -1));
+		assertFalse(HttpCaching.isNotModified(makeRequest("If-Modified-Since", "yesterday"), ETAG, lastModified));
+		assertFalse(HttpCaching.isNotModified(makeRequest("If-None-Match", "\"other\"", "If-Modified-Since", date), ETAG, lastModified));
+	}
+	
+	/**
+	 * Formats the given time as an HTTP date.
+	 */
+	private static String formatDate(long time) {
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		return format.format(new Date(time));
+	}
+	
+	/**
+	 * Creates a portlet request with the given headers, as name and value pairs.
+	 */
+	private static PortletRequest makeRequest(String... headers) {
+		final Map<String, String> properties = new HashMap<String, String>();
+		for(int i = 0; i < headers.length; i += 2) {
+			properties.put(headers[i], headers[i + 1]);
+		}
+		return (PortletRequest)Proxy.newProxyInstance(PortletRequest.class.getClassLoader(), new Class<?>[] { PortletRequest.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if(method.getName().equals("getProperty")) {
+					return properties.get(args[0]);
+				}
+				return null;
+			}
+		});
+	}
+}
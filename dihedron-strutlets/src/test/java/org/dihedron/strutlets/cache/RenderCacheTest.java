@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.portlet.RenderResponse;
+import javax.servlet.http.Cookie;
+
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class RenderCacheTest {
+	
+	/**
+	 * A render response recording the calls made on it.
+	 */
+	private static class Recorder implements InvocationHandler {
+		
+		/**
+		 * The output written to the response.
+		 */
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		
+		/**
+		 * The calls made on the response, as method name and first argument.
+		 */
+		final List<String> calls = new ArrayList<String>();
+		
+		/**
+		 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+		 */
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			if(method.getName().equals("getPortletOutputStream")) {
+				return output;
+			}
+			if(args != null) {
+				calls.add(method.getName() + ":" + (args[0] instanceof Cookie ? ((Cookie)args[0]).getName() : args[0]));
+			}
+			return null;
+		}
+		
+		/**
+		 * Returns a render response backed by this recorder.
+		 */
+		RenderResponse getResponse() {
+			return (RenderResponse)Proxy.newProxyInstance(RenderResponse.class.getClassLoader(), new Class<?>[] { RenderResponse.class }, this);
+		}
+	}
+	
+	/**
+	 * Checks that the output is replayed along with its title and properties.
+	 */
+	@Test
+	public void testReplay() throws IOException {
+		RenderCache cache = new RenderCache(10);
+		CapturingRenderResponse capture = capture("<p>hello</p>");
+		capture.setTitle("Hello");
+		capture.setProperty("X-Header", "value");
+		assertTrue(cache.put("key", "alice", capture.getContent(), capture, 60000));
+		assertEquals(1, cache.size());
+		
+		RenderCache.Entry entry = cache.get("key");
+		assertNotNull(entry);
+		Recorder recorder = new Recorder();
+		entry.replay(recorder.getResponse());
+		assertArrayEquals("<p>hello</p>".getBytes("UTF-8"), recorder.output.toByteArray());
+		assertTrue(recorder.calls.contains("setTitle:Hello"));
+		assertTrue(recorder.calls.contains("setProperty:X-Header"));
+		assertNull(cache.get("missing"));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+	
+	/**
+	 * Checks that output setting cookies is never stored.
+	 */
+	@Test
+	public void testCookiesNotStored() throws IOException {
+		RenderCache cache = new RenderCache(10);
+		CapturingRenderResponse capture = capture("<p>hello</p>");
+		capture.addProperty(new Cookie("JSESSIONID", "secret"));
+		assertFalse(cache.put("shared", null, capture.getContent(), capture, 60000));
+		assertFalse(cache.put("owned", "alice", capture.getContent(), capture, 60000));
+		assertNull(cache.get("shared"));
+		assertNull(cache.get("owned"));
+		assertEquals(0, cache.size());
+	}
+	
+	/**
+	 * Checks that invalidation removes the user's entries and the shared ones,
+	 * leaving other users' (and other anonymous sessions') entries in place.
+	 */
+	@Test
+	public void testInvalidate() throws IOException {
+		RenderCache cache = new RenderCache(10);
+		CapturingRenderResponse capture = capture("output");
+		cache.put("alice", "alice", capture.getContent(), capture, 60000);
+		cache.put("bob", "bob", capture.getContent(), capture, 60000);
+		cache.put("anonymous1", "<anonymous:1>", capture.getContent(), capture, 60000);
+		cache.put("anonymous2", "<anonymous:2>", capture.getContent(), capture, 60000);
+		cache.put("shared", null, capture.getContent(), capture, 60000);
+		
+		cache.invalidate("alice");
+		assertNull(cache.get("alice"));
+		assertNull(cache.get("shared"));
+		assertNotNull(cache.get("bob"));
+		assertNotNull(cache.get("anonymous1"));
+		
+		cache.invalidate("<anonymous:1>");
+		assertNull(cache.get("anonymous1"));
+		assertNotNull(cache.get("anonymous2"));
+		assertNotNull(cache.get("bob"));
+		
+		cache.invalidate();
+		assertEquals(0, cache.size());
+	}
+	
+	/**
+	 * Checks that expired entries are not returned, and that a full cache only
+	 * makes room by purging expired entries.
+	 */
+	@Test
+	public void testExpiryAndCapacity() throws IOException, InterruptedException {
+		RenderCache cache = new RenderCache(2);
+		CapturingRenderResponse capture = capture("output");
+		assertTrue(cache.put("short", null, capture.getContent(), capture, 1));
+		assertTrue(cache.put("long", null, capture.getContent(), capture, 60000));
+		Thread.sleep(10);
+		assertNull(cache.get("short"));
+		assertTrue(cache.put("other", null, capture.getContent(), capture, 60000));
+		assertFalse(cache.put("overflow", null, capture.getContent(), capture, 60000));
+		assertTrue(cache.put("long", null, capture.getContent(), capture, 60000));
+		assertEquals(2, cache.size());
+	}
+	
+	/**
+	 * Creates a capturing response holding the given output.
+	 */
+	private static CapturingRenderResponse capture(String output) throws IOException {
+		CapturingRenderResponse capture = new CapturingRenderResponse(new Recorder().getResponse());
+		capture.getPortletOutputStream().write(output.getBytes("UTF-8"));
+		return capture;
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.portlet.ResourceResponse;
+import javax.servlet.http.Cookie;
+
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class ResourceCacheTest {
+	
+	/**
+	 * A resource response recording the calls made on it.
+	 */
+	private static class Recorder implements InvocationHandler {
+		
+		/**
+		 * The output written to the response.
+		 */
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		
+		/**
+		 * The calls made on the response, as method name and first argument.
+		 */
+		final List<String> calls = new ArrayList<String>();
+		
+		/**
+		 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+		 */
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			if(method.getName().equals("getPortletOutputStream")) {
+				return output;
+			}
+			if(args != null) {
+				calls.add(method.getName() + ":" + (args[0] instanceof Cookie ? ((Cookie)args[0]).getName() : args[0]));
+			}
+			return null;
+		}
+		
+		/**
+		 * Returns a resource response backed by this recorder.
+		 */
+		ResourceResponse getResponse() {
+			return (ResourceResponse)Proxy.newProxyInstance(ResourceResponse.class.getClassLoader(), new Class<?>[] { ResourceResponse.class }, this);
+		}
+	}
+	
+	/**
+	 * Checks that the body is replayed along with its headers and content length.
+	 */
+	@Test
+	public void testReplay() throws IOException {
+		ResourceCache cache = new ResourceCache(10);
+		long now = System.currentTimeMillis();
+		CapturingResourceResponse capture = capture("{\"value\":1}");
+		capture.setProperty("X-Header", "value");
+		capture.setContentLength(11);
+		assertTrue(cache.put("key", capture.getContent(), capture, "\"etag\"", now, 60000));
+		
+		ResourceCache.Entry entry = cache.get("key");
+		assertNotNull(entry);
+		assertEquals("\"etag\"", entry.getETag());
+		assertEquals(now, entry.getLastModified());
+		Recorder recorder = new Recorder();
+		entry.replay(recorder.getResponse());
+		assertArrayEquals("{\"value\":1}".getBytes("UTF-8"), recorder.output.toByteArray());
+		assertTrue(recorder.calls.contains("setProperty:X-Header"));
+		assertTrue(recorder.calls.contains("setContentLength:11"));
+	}
+	
+	/**
+	 * Checks that responses setting cookies or varying on request headers are
+	 * never stored.
+	 */
+	@Test
+	public void testNotStored() throws IOException {
+		ResourceCache cache = new ResourceCache(10);
+		long now = System.currentTimeMillis();
+		CapturingResourceResponse capture = capture("body");
+		capture.addProperty(new Cookie("JSESSIONID", "secret"));
+		assertFalse(cache.put("cookie", capture.getContent(), capture, "\"etag\"", now, 60000));
+		assertNull(cache.get("cookie"));
+		
+		capture = capture("body");
+		capture.addProperty("Vary", "Accept");
+		assertFalse(cache.put("vary", capture.getContent(), capture, "\"etag\"", now, 60000));
+		assertNull(cache.get("vary"));
+		assertEquals(0, cache.size());
+	}
+	
+	/**
+	 * Checks that expired entries are not returned and that the least recently
+	 * used entry is evicted when the cache is full.
+	 */
+	@Test
+	public void testExpiryAndEviction() throws IOException {
+		ResourceCache cache = new ResourceCache(2);
+		long now = System.currentTimeMillis();
+		CapturingResourceResponse capture = capture("body");
+		cache.put("expired", capture.getContent(), capture, "\"etag\"", now - 2000, 1000);
+		assertNull(cache.get("expired"));
+		
+		cache.put("first", capture.getContent(), capture, "\"etag\"", now, 60000);
+		cache.put("second", capture.getContent(), capture, "\"etag\"", now, 60000);
+		assertNotNull(cache.get("first"));
+		cache.put("third", capture.getContent(), capture, "\"etag\"", now, 60000);
+		assertEquals(2, cache.size());
+		assertNull(cache.get("second"));
+		assertNotNull(cache.get("first"));
+		assertNotNull(cache.get("third"));
+	}
+	
+	/**
+	 * Creates a capturing response holding the given body.
+	 */
+	private static CapturingResourceResponse capture(String body) throws IOException {
+		CapturingResourceResponse capture = new CapturingResourceResponse(new Recorder().getResponse());
+		capture.getPortletOutputStream().write(body.getBytes("UTF-8"));
+		return capture;
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.interceptors;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.dihedron.strutlets.ActionContext.Phase;
+import org.dihedron.strutlets.annotations.Cached;
+import org.dihedron.strutlets.annotations.Secured;
+import org.dihedron.strutlets.exceptions.StrutletsException;
+import org.dihedron.strutlets.targets.Target;
+import org.dihedron.strutlets.targets.TargetId;
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class ApplicabilityTest {
+	
+	/**
+	 * An action class requiring authorisation.
+	 */
+	@Secured
+	public static class SecuredAction {
+		public void list() {
+		}
+	}
+	
+	/**
+	 * An action method with no annotations.
+	 */
+	public void plain() {
+	}
+	
+	/**
+	 * An action method whose output is cached.
+	 */
+	@Cached
+	public void cached() {
+	}
+	
+	/**
+	 * Checks that unspecified conditions always match.
+	 */
+	@Test
+	public void testDefaults() throws Exception {
+		Applicability applicability = new Applicability().setPhases("").setTargets(null).setAnnotations(null);
+		for(Phase phase : Phase.values()) {
+			assertTrue(applicability.appliesTo(phase));
+		}
+		assertTrue(applicability.appliesTo(makeTarget("Catalog", ApplicabilityTest.class, "plain")));
+	}
+	
+	/**
+	 * Checks the matching on phases.
+	 */
+	@Test
+	public void testPhases() throws Exception {
+		Applicability applicability = new Applicability().setPhases("action, RESOURCE ");
+		assertTrue(applicability.appliesTo(Phase.ACTION));
+		assertTrue(applicability.appliesTo(Phase.RESOURCE));
+		assertFalse(applicability.appliesTo(Phase.RENDER));
+		assertFalse(applicability.appliesTo(Phase.EVENT));
+		try {
+			new Applicability().setPhases("ACTION, DESTROY");
+			fail("invalid phase accepted");
+		} catch(StrutletsException e) {
+			// expected
+		}
+	}
+	
+	/**
+	 * Checks the matching on target identifiers.
+	 */
+	@Test
+	public void testTargets() throws Exception {
+		Applicability applicability = new Applicability().setTargets("Orders!.*");
+		assertTrue(applicability.appliesTo(makeTarget("Orders", ApplicabilityTest.class, "plain")));
+		assertFalse(applicability.appliesTo(makeTarget("Catalog", ApplicabilityTest.class, "plain")));
+	}
+	
+	/**
+	 * Checks the matching on annotations, either on the action class or method.
+	 */
+	@Test
+	public void testAnnotations() throws Exception {
+		Applicability applicability = new Applicability().setAnnotations(Secured.class.getName() + ", " + Cached.class.getName());
+		assertTrue(applicability.appliesTo(makeTarget("Secured", SecuredAction.class, "list")));
+		assertTrue(applicability.appliesTo(makeTarget("Catalog", ApplicabilityTest.class, "cached")));
+		assertFalse(applicability.appliesTo(makeTarget("Catalog", ApplicabilityTest.class, "plain")));
+		
+		applicability.setTargets("Orders!.*");
+		assertFalse(applicability.appliesTo(makeTarget("Catalog", ApplicabilityTest.class, "cached")));
+		
+		try {
+			new Applicability().setAnnotations(String.class.getName());
+			fail("non-annotation class accepted");
+		} catch(StrutletsException e) {
+			// expected
+		}
+		try {
+			new Applicability().setAnnotations("org.dihedron.strutlets.annotations.Missing");
+			fail("missing class accepted");
+		} catch(StrutletsException e) {
+			// expected
+		}
+	}
+	
+	/**
+	 * Checks that interceptors with no applicability always apply, and others 
+	 * only when both phase and target match.
+	 */
+	@Test
+	public void testInterceptor() throws Exception {
+		Interceptor interceptor = new Interceptor() {
+			@Override
+			public String intercept(org.dihedron.strutlets.ActionInvocation invocation) {
+				return null;
+			}
+		};
+		Target target = makeTarget("Orders", ApplicabilityTest.class, "plain");
+		assertTrue(interceptor.appliesTo(target, Phase.RENDER));
+		interceptor.setApplicability(new Applicability().setPhases("ACTION").setTargets("Orders!.*"));
+		assertTrue(interceptor.appliesTo(target, Phase.ACTION));
+		assertFalse(interceptor.appliesTo(target, Phase.RENDER));
+		assertFalse(interceptor.appliesTo(makeTarget("Catalog", ApplicabilityTest.class, "plain"), Phase.ACTION));
+	}
+	
+	/**
+	 * Creates a target on the given method.
+	 */
+	private static Target makeTarget(String action, Class<?> clazz, String method) throws NoSuchMethodException, StrutletsException {
+		return new Target(new TargetId(action, method))
+			.setActionClass(clazz)
+			.setActionMethod(clazz.getMethod(method));
+	}
+}
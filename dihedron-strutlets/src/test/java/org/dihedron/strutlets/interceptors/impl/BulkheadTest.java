@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.interceptors.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.dihedron.strutlets.exceptions.InterceptorException;
+import org.dihedron.strutlets.metrics.MetricsRegistry;
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class BulkheadTest {
+	
+	/**
+	 * Checks that requests are rejected straight away when there is no queue.
+	 */
+	@Test
+	public void testNoQueue() throws InterceptorException {
+		MetricsRegistry metrics = new MetricsRegistry(null, "test", false);
+		Bulkhead bulkhead = makeBulkhead("1", "0", "1000", metrics);
+		Semaphore semaphore = bulkhead.getSemaphore("target");
+		assertTrue(bulkhead.acquire(semaphore));
+		assertFalse(bulkhead.acquire(semaphore));
+		assertEquals(0, bulkhead.getWaiting());
+		assertEquals(0, metrics.getCounter("stack::bulkhead.queued").get());
+		semaphore.release();
+		assertTrue(bulkhead.acquire(semaphore));
+	}
+	
+	/**
+	 * Checks that each target has its own permits.
+	 */
+	@Test
+	public void testPerTarget() throws InterceptorException {
+		Bulkhead bulkhead = makeBulkhead("1", "0", "1000", new MetricsRegistry(null, "test", false));
+		assertTrue(bulkhead.acquire(bulkhead.getSemaphore("first")));
+		assertFalse(bulkhead.acquire(bulkhead.getSemaphore("first")));
+		assertTrue(bulkhead.acquire(bulkhead.getSemaphore("second")));
+	}
+	
+	/**
+	 * Checks that a queued request gets the permit once it is released, and 
+	 * that requests are rejected while the queue is full.
+	 */
+	@Test
+	public void testQueue() throws Exception {
+		MetricsRegistry metrics = new MetricsRegistry(null, "test", false);
+		final Bulkhead bulkhead = makeBulkhead("1", "1", "10000", metrics);
+		final Semaphore semaphore = bulkhead.getSemaphore("target");
+		assertTrue(bulkhead.acquire(semaphore));
+		final AtomicBoolean acquired = new AtomicBoolean();
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					acquired.set(bulkhead.acquire(semaphore));
+				} catch(InterceptorException e) {
+					acquired.set(false);
+				}
+			}
+		};
+		thread.start();
+		while(bulkhead.getWaiting() == 0) {
+			Thread.sleep(5);
+		}
+		assertFalse(bulkhead.acquire(semaphore));
+		semaphore.release();
+		thread.join(10000);
+		assertTrue(acquired.get());
+		assertEquals(0, bulkhead.getWaiting());
+		assertEquals(1, metrics.getCounter("stack::bulkhead.queued").get());
+		assertEquals(0, metrics.getCounter("stack::bulkhead.timeouts").get());
+	}
+	
+	/**
+	 * Checks that a queued request is rejected when no permit is released in 
+	 * time.
+	 */
+	@Test
+	public void testTimeout() throws InterceptorException {
+		MetricsRegistry metrics = new MetricsRegistry(null, "test", false);
+		Bulkhead bulkhead = makeBulkhead("1", "1", "50", metrics);
+		Semaphore semaphore = bulkhead.getSemaphore("target");
+		assertTrue(bulkhead.acquire(semaphore));
+		long start = System.currentTimeMillis();
+		assertFalse(bulkhead.acquire(semaphore));
+		assertTrue(System.currentTimeMillis() - start >= 40);
+		assertEquals(0, bulkhead.getWaiting());
+		assertEquals(1, metrics.getCounter("stack::bulkhead.queued").get());
+		assertEquals(1, metrics.getCounter("stack::bulkhead.timeouts").get());
+	}
+	
+	/**
+	 * Creates and initialises a bulkhead interceptor.
+	 * 
+	 * @param permits
+	 *   the maximum number of concurrent executions.
+	 * @param queue
+	 *   the maximum number of queued requests.
+	 * @param timeout
+	 *   the maximum time a queued request waits, in milliseconds.
+	 * @param metrics
+	 *   the metrics registry holding the interceptor's counters.
+	 * @return
+	 *   the interceptor.
+	 */
+	private static Bulkhead makeBulkhead(String permits, String queue, String timeout, MetricsRegistry metrics) {
+		Bulkhead bulkhead = new Bulkhead();
+		bulkhead.setId("stack", "bulkhead");
+		bulkhead.setParameter("permits", permits);
+		bulkhead.setParameter("queue", queue);
+		bulkhead.setParameter("timeout", timeout);
+		bulkhead.initialise();
+		bulkhead.bindCounters(metrics);
+		return bulkhead;
+	}
+}
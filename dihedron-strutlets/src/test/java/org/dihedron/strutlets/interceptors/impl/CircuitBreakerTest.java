@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.interceptors.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dihedron.strutlets.interceptors.impl.CircuitBreaker.State;
+import org.dihedron.strutlets.metrics.MetricsRegistry;
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class CircuitBreakerTest {
+	
+	/**
+	 * The cool-down time, in nanoseconds.
+	 */
+	private static final long COOL_DOWN = TimeUnit.MILLISECONDS.toNanos(1000);
+	
+	/**
+	 * Checks that the circuit opens when the failure rate is reached, and not 
+	 * before the minimum number of calls.
+	 */
+	@Test
+	public void testOpen() {
+		MetricsRegistry metrics = new MetricsRegistry(null, "test", false);
+		CircuitBreaker breaker = makeCircuitBreaker("4", "3", "0.5", metrics);
+		CircuitBreaker.Circuit circuit = breaker.getCircuit("target");
+		circuit.record(CircuitBreaker.FAILURE);
+		circuit.record(CircuitBreaker.FAILURE);
+		assertEquals(State.CLOSED, breaker.getState("target"));
+		circuit.record(CircuitBreaker.SUCCESS);
+		assertEquals(State.CLOSED, breaker.getState("target"));
+		circuit.record(CircuitBreaker.FAILURE);
+		assertEquals(State.OPEN, breaker.getState("target"));
+		assertEquals(State.CLOSED, breaker.getState("other"));
+		assertEquals(1, metrics.getCounter("stack::breaker.opened").get());
+	}
+	
+	/**
+	 * Checks that only the most recent outcomes count towards the failure rate.
+	 */
+	@Test
+	public void testWindow() {
+		CircuitBreaker breaker = makeCircuitBreaker("4", "4", "0.75", new MetricsRegistry(null, "test", false));
+		CircuitBreaker.Circuit circuit = breaker.getCircuit("target");
+		circuit.record(CircuitBreaker.FAILURE);
+		circuit.record(CircuitBreaker.FAILURE);
+		circuit.record(CircuitBreaker.SUCCESS);
+		circuit.record(CircuitBreaker.SUCCESS);
+		circuit.record(CircuitBreaker.FAILURE);
+		circuit.record(CircuitBreaker.FAILURE);
+		assertEquals(State.CLOSED, breaker.getState("target"));
+		circuit.record(CircuitBreaker.FAILURE);
+		assertEquals(State.OPEN, breaker.getState("target"));
+	}
+	
+	/**
+	 * Checks that an open circuit short-circuits requests until the cool-down 
+	 * time has elapsed, then lets a single probe through, and reopens if the 
+	 * probe fails.
+	 */
+	@Test
+	public void testProbeFailure() {
+		MetricsRegistry metrics = new MetricsRegistry(null, "test", false);
+		CircuitBreaker breaker = makeCircuitBreaker("2", "1", "0.5", metrics);
+		CircuitBreaker.Circuit circuit = breaker.getCircuit("target");
+		long now = System.nanoTime();
+		circuit.open(State.CLOSED, now);
+		assertEquals(State.OPEN, circuit.admit(now + COOL_DOWN - 1));
+		assertEquals(State.HALF_OPEN, circuit.admit(now + COOL_DOWN));
+		assertEquals(State.HALF_OPEN, breaker.getState("target"));
+		assertEquals(State.OPEN, circuit.admit(now + COOL_DOWN));
+		now += 2 * COOL_DOWN;
+		circuit.open(State.HALF_OPEN, now);
+		assertEquals(State.OPEN, breaker.getState("target"));
+		assertEquals(State.OPEN, circuit.admit(now + COOL_DOWN - 1));
+		assertEquals(State.HALF_OPEN, circuit.admit(now + COOL_DOWN));
+		assertEquals(2, metrics.getCounter("stack::breaker.opened").get());
+	}
+	
+	/**
+	 * Checks that a successful probe closes the circuit and clears the recorded
+	 * outcomes.
+	 */
+	@Test
+	public void testProbeSuccess() {
+		CircuitBreaker breaker = makeCircuitBreaker("4", "2", "0.5", new MetricsRegistry(null, "test", false));
+		CircuitBreaker.Circuit circuit = breaker.getCircuit("target");
+		circuit.record(CircuitBreaker.FAILURE);
+		circuit.record(CircuitBreaker.FAILURE);
+		assertEquals(State.OPEN, breaker.getState("target"));
+		assertEquals(State.HALF_OPEN, circuit.admit(System.nanoTime() + COOL_DOWN));
+		circuit.close();
+		assertEquals(State.CLOSED, breaker.getState("target"));
+		assertEquals(State.CLOSED, circuit.admit(System.nanoTime()));
+		circuit.record(CircuitBreaker.FAILURE);
+		assertEquals(State.CLOSED, breaker.getState("target"));
+	}
+	
+	/**
+	 * Checks that a circuit is only opened from the expected state.
+	 */
+	@Test
+	public void testExpectedState() {
+		MetricsRegistry metrics = new MetricsRegistry(null, "test", false);
+		CircuitBreaker breaker = makeCircuitBreaker("4", "2", "0.5", metrics);
+		CircuitBreaker.Circuit circuit = breaker.getCircuit("target");
+		long now = System.nanoTime();
+		circuit.open(State.HALF_OPEN, now);
+		assertEquals(State.CLOSED, breaker.getState("target"));
+		circuit.open(State.CLOSED, now);
+		circuit.open(State.CLOSED, now + COOL_DOWN);
+		assertEquals(State.HALF_OPEN, circuit.admit(now + COOL_DOWN));
+		assertEquals(1, metrics.getCounter("stack::breaker.opened").get());
+	}
+	
+	/**
+	 * Creates and initialises a circuit breaker interceptor.
+	 * 
+	 * @param window
+	 *   the number of recent executions considered.
+	 * @param minimumCalls
+	 *   the minimum number of executions before the circuit can open.
+	 * @param failureRate
+	 *   the ratio of failed executions that opens the circuit.
+	 * @param metrics
+	 *   the metrics registry holding the interceptor's counters.
+	 * @return
+	 *   the interceptor.
+	 */
+	private static CircuitBreaker makeCircuitBreaker(String window, String minimumCalls, String failureRate, MetricsRegistry metrics) {
+		CircuitBreaker breaker = new CircuitBreaker();
+		breaker.setId("stack", "breaker");
+		breaker.setParameter("window", window);
+		breaker.setParameter("minimum-calls", minimumCalls);
+		breaker.setParameter("failure-rate", failureRate);
+		breaker.setParameter("cool-down", "1000");
+		breaker.initialise();
+		breaker.bindCounters(metrics);
+		return breaker;
+	}
+}
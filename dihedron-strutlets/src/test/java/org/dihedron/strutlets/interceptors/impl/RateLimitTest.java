@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.interceptors.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class RateLimitTest {
+	
+	/**
+	 * The time between two requests at 10 requests per second, in nanoseconds.
+	 */
+	private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+	
+	/**
+	 * Checks that a burst is served at once, and that further requests are 
+	 * served at the sustained rate.
+	 */
+	@Test
+	public void testBurst() {
+		RateLimit limit = makeRateLimit("10", "3", "100");
+		long now = System.nanoTime();
+		assertEquals(0, limit.acquire("user", now));
+		assertEquals(0, limit.acquire("user", now));
+		assertEquals(0, limit.acquire("user", now));
+		assertEquals(INTERVAL, limit.acquire("user", now));
+		assertEquals(INTERVAL / 2, limit.acquire("user", now + INTERVAL / 2));
+		assertEquals(0, limit.acquire("user", now + INTERVAL));
+		assertTrue(limit.acquire("user", now + INTERVAL) > 0);
+	}
+	
+	/**
+	 * Checks that a bucket refills completely after an idle period, and that 
+	 * it does not store more than a burst.
+	 */
+	@Test
+	public void testRefill() {
+		RateLimit limit = makeRateLimit("10", "2", "100");
+		long now = System.nanoTime();
+		assertEquals(0, limit.acquire("user", now));
+		assertEquals(0, limit.acquire("user", now));
+		assertTrue(limit.acquire("user", now) > 0);
+		now += TimeUnit.SECONDS.toNanos(10);
+		assertEquals(0, limit.acquire("user", now));
+		assertEquals(0, limit.acquire("user", now));
+		assertTrue(limit.acquire("user", now) > 0);
+	}
+	
+	/**
+	 * Checks that each key has its own bucket.
+	 */
+	@Test
+	public void testKeys() {
+		RateLimit limit = makeRateLimit("10", "1", "100");
+		long now = System.nanoTime();
+		assertEquals(0, limit.acquire("first", now));
+		assertTrue(limit.acquire("first", now) > 0);
+		assertEquals(0, limit.acquire("second", now));
+		assertEquals(2, limit.getBucketCount());
+	}
+	
+	/**
+	 * Checks that the refilled buckets are evicted when the capacity is 
+	 * reached, and that an arbitrary one is if none has refilled.
+	 */
+	@Test
+	public void testEviction() {
+		RateLimit limit = makeRateLimit("10", "3", "2");
+		long now = System.nanoTime();
+		limit.acquire("first", now);
+		limit.acquire("second", now);
+		assertEquals(2, limit.getBucketCount());
+		limit.acquire("third", now);
+		assertEquals(2, limit.getBucketCount());
+		now += TimeUnit.SECONDS.toNanos(10);
+		limit.acquire("fourth", now);
+		assertEquals(1, limit.getBucketCount());
+		assertEquals(0, limit.acquire("fourth", now));
+		assertEquals(0, limit.acquire("fourth", now));
+		assertTrue(limit.acquire("fourth", now) > 0);
+	}
+	
+	/**
+	 * Creates and initialises a rate limiting interceptor.
+	 * 
+	 * @param rate
+	 *   the number of requests per second.
+	 * @param burst
+	 *   the number of requests in a burst.
+	 * @param capacity
+	 *   the maximum number of buckets.
+	 * @return
+	 *   the interceptor.
+	 */
+	private static RateLimit makeRateLimit(String rate, String burst, String capacity) {
+		RateLimit limit = new RateLimit();
+		limit.setParameter("rate", rate);
+		limit.setParameter("burst", burst);
+		limit.setParameter("capacity", capacity);
+		limit.initialise();
+		return limit;
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.interceptors.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.dihedron.strutlets.exceptions.InterceptorException;
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class ResubmitTest {
+	
+	/**
+	 * Checks that the oldest token is evicted when the store is full.
+	 */
+	@Test
+	public void testCapacity() {
+		Resubmit.TokenStore store = new Resubmit.TokenStore(2);
+		Resubmit.Submission first = new Resubmit.Submission();
+		store.put("first", first);
+		store.put("second", new Resubmit.Submission());
+		assertSame(first, store.get("first"));
+		store.put("third", new Resubmit.Submission());
+		assertNull(store.get("first"));
+		assertNotNull(store.get("second"));
+		assertNotNull(store.get("third"));
+		store.remove("second");
+		assertNull(store.get("second"));
+	}
+	
+	/**
+	 * Checks that expired tokens are purged, and live ones kept.
+	 */
+	@Test
+	public void testExpiry() throws InterruptedException {
+		Resubmit.TokenStore store = new Resubmit.TokenStore(10);
+		store.put("old", new Resubmit.Submission());
+		Thread.sleep(50);
+		store.put("new", new Resubmit.Submission());
+		store.purge(25);
+		assertNull(store.get("old"));
+		assertNotNull(store.get("new"));
+		store.purge(60000);
+		assertNotNull(store.get("new"));
+	}
+	
+	/**
+	 * Checks that duplicate submits get the result of the first one once it 
+	 * completes.
+	 */
+	@Test
+	public void testAwait() throws Exception {
+		final Resubmit.Submission submission = new Resubmit.Submission();
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch(InterruptedException e) {
+					return;
+				}
+				submission.complete("success", false);
+			}
+		};
+		thread.start();
+		assertEquals("success", submission.await(10000));
+		thread.join();
+		assertEquals("success", submission.await(0));
+	}
+	
+	/**
+	 * Checks that duplicate submits fail if the first one failed or did not 
+	 * complete in time.
+	 */
+	@Test
+	public void testAwaitFailure() {
+		Resubmit.Submission submission = new Resubmit.Submission();
+		try {
+			submission.await(20);
+			fail("the wait should have timed out");
+		} catch(InterceptorException e) {
+			// expected
+		}
+		submission.complete(null, true);
+		try {
+			submission.await(1000);
+			fail("the first submit failed");
+		} catch(InterceptorException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.interceptors.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class SecurityTest {
+	
+	/**
+	 * Checks that cached decisions only apply to the user they were made for.
+	 */
+	@Test
+	public void testUser() {
+		Security.Decisions decisions = new Security.Decisions("alice", 60000);
+		assertTrue(decisions.isValidFor("alice"));
+		assertFalse(decisions.isValidFor("bob"));
+		assertFalse(decisions.isValidFor(null));
+	}
+	
+	/**
+	 * Checks that cached decisions expire.
+	 */
+	@Test
+	public void testExpiry() throws InterruptedException {
+		Security.Decisions decisions = new Security.Decisions("alice", 20);
+		assertTrue(decisions.isValidFor("alice"));
+		Thread.sleep(50);
+		assertFalse(decisions.isValidFor("alice"));
+	}
+	
+	/**
+	 * Checks that decisions are not cached for anonymous users, nor when 
+	 * caching is disabled.
+	 */
+	@Test
+	public void testNoCaching() {
+		Security security = makeSecurity("300");
+		assertNull(security.getDecisions(null));
+		security = makeSecurity("0");
+		assertNull(security.getDecisions("alice"));
+	}
+	
+	/**
+	 * Checks that cached decisions survive session serialisation.
+	 */
+	@Test
+	public void testSerialisation() throws Exception {
+		Security.Decisions decisions = new Security.Decisions("alice", 60000);
+		decisions.roles.put("admin", Boolean.TRUE);
+		decisions.roles.put("guest", Boolean.FALSE);
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try(ObjectOutputStream output = new ObjectOutputStream(buffer)) {
+			output.writeObject(decisions);
+		}
+		try(ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+			Security.Decisions copy = (Security.Decisions)input.readObject();
+			assertTrue(copy.isValidFor("alice"));
+			assertEquals(Boolean.TRUE, copy.roles.get("admin"));
+			assertEquals(Boolean.FALSE, copy.roles.get("guest"));
+			assertNull(copy.roles.get("user"));
+		}
+	}
+	
+	/**
+	 * Creates and initialises a security interceptor.
+	 * 
+	 * @param ttl
+	 *   the number of seconds role decisions are cached for.
+	 * @return
+	 *   the interceptor.
+	 */
+	private static Security makeSecurity(String ttl) {
+		Security security = new Security();
+		security.setId("stack", "security");
+		security.setParameter("ttl", ttl);
+		security.initialise();
+		return security;
+	}
+}
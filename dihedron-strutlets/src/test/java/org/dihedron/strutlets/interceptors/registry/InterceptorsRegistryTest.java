@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.interceptors.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dihedron.strutlets.ActionContext.Phase;
+import org.dihedron.strutlets.annotations.Secured;
+import org.dihedron.strutlets.exceptions.StrutletsException;
+import org.dihedron.strutlets.interceptors.Interceptor;
+import org.dihedron.strutlets.interceptors.InterceptorStack;
+import org.dihedron.strutlets.targets.Target;
+import org.dihedron.strutlets.targets.TargetId;
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class InterceptorsRegistryTest {
+	
+	/**
+	 * The test configuration.
+	 */
+	private static final String CONFIGURATION = "classpath:org/dihedron/strutlets/interceptors/test-interceptors.xml";
+	
+	/**
+	 * An action method with no annotations.
+	 */
+	public void plain() {
+	}
+	
+	/**
+	 * An action method requiring authorisation.
+	 */
+	@Secured
+	public void secured() {
+	}
+	
+	/**
+	 * Checks that a stack whose interceptors always apply is used as is.
+	 */
+	@Test
+	public void testUnconditionalStack() throws Exception {
+		InterceptorsRegistry registry = new InterceptorsRegistry();
+		registry.load(CONFIGURATION);
+		Target target = makeTarget("Catalog", "plain", "unconditional");
+		for(Phase phase : Phase.values()) {
+			assertSame(registry.getStack("unconditional"), registry.getChain(target, phase));
+		}
+	}
+	
+	/**
+	 * Checks that chains only hold the interceptors applying to the target in
+	 * each phase, and are resolved only once.
+	 */
+	@Test
+	public void testConditionalChains() throws Exception {
+		InterceptorsRegistry registry = new InterceptorsRegistry();
+		registry.load(CONFIGURATION);
+		
+		Target catalog = makeTarget("Catalog", "plain", "conditional");
+		assertEquals(Arrays.asList("always", "submits"), getIds(registry.getChain(catalog, Phase.ACTION)));
+		assertEquals(Arrays.asList("always"), getIds(registry.getChain(catalog, Phase.RENDER)));
+		assertEquals(Arrays.asList("always", "submits"), getIds(registry.getChain(catalog, Phase.RESOURCE)));
+		
+		Target orders = makeTarget("Orders", "plain", "conditional");
+		assertEquals(Arrays.asList("always", "orders"), getIds(registry.getChain(orders, Phase.RENDER)));
+		assertEquals(Arrays.asList("always", "submits", "orders"), getIds(registry.getChain(orders, Phase.ACTION)));
+		
+		Target secured = makeTarget("Catalog", "secured", "conditional");
+		assertEquals(Arrays.asList("always", "secured"), getIds(registry.getChain(secured, Phase.EVENT)));
+		
+		assertSame(registry.getChain(orders, Phase.ACTION), registry.getChain(orders, Phase.ACTION));
+	}
+	
+	/**
+	 * Creates a target on a method of this class, running the given stack.
+	 */
+	private static Target makeTarget(String action, String method, String stack) throws NoSuchMethodException, StrutletsException {
+		return new Target(new TargetId(action, method))
+			.setActionClass(InterceptorsRegistryTest.class)
+			.setActionMethod(InterceptorsRegistryTest.class.getMethod(method))
+			.setInterceptorsStackId(stack);
+	}
+	
+	/**
+	 * Returns the local identifiers of the interceptors in the given chain.
+	 */
+	private static List<String> getIds(InterceptorStack chain) {
+		List<String> ids = new ArrayList<String>();
+		for(Interceptor interceptor : chain) {
+			String id = interceptor.getId();
+			ids.add(id.substring(id.lastIndexOf(':') + 1));
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.interceptors.registry;
+
+import org.dihedron.strutlets.ActionInvocation;
+import org.dihedron.strutlets.exceptions.StrutletsException;
+import org.dihedron.strutlets.interceptors.Interceptor;
+
+/**
+ * An interceptor that does nothing but forward the invocation.
+ * 
+ * @author Andrea Funto'
+ */
+public class PassThrough extends Interceptor {
+
+	/**
+	 * @see org.dihedron.strutlets.interceptors.Interceptor#intercept(org.dihedron.strutlets.ActionInvocation)
+	 */
+	@Override
+	public String intercept(ActionInvocation invocation) throws StrutletsException {
+		return invocation.invoke();
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class HistogramTest {
+
+	/**
+	 * Checks that every value falls within the bounds of the bucket it is 
+	 * recorded into.
+	 */
+	@Test
+	public void testBucketBounds() {
+		long[] values = { 0, 1, 31, 32, 33, 63, 64, 65, 1000, 123456789L, Histogram.MAX_VALUE };
+		for(long value : values) {
+			int index = Histogram.getBucketIndex(value);
+			long lower = index == 0 ? 0 : Histogram.getBucketUpperBound(index - 1) + 1;
+			long upper = Histogram.getBucketUpperBound(index);
+			assertTrue("value " + value + " below bucket lower bound " + lower, value >= lower);
+			assertTrue("value " + value + " above bucket upper bound " + upper, value <= upper);
+		}
+	}
+	
+	/**
+	 * Checks percentiles against a uniform distribution of values.
+	 */
+	@Test
+	public void testPercentiles() {
+		Histogram histogram = new Histogram();
+		for(long i = 1; i <= 100000; ++i) {
+			histogram.record(i * 1000);
+		}
+		assertEquals(100000, histogram.getCount());
+		assertEquals(1000, histogram.getMin());
+		assertEquals(100000000, histogram.getMax());
+		assertEquals(50000500.0, histogram.getMean(), 0.001);
+		assertEquals(50000000.0, histogram.getValueAtPercentile(50.0), 50000000.0 * 0.032);
+		assertEquals(99000000.0, histogram.getValueAtPercentile(99.0), 99000000.0 * 0.032);
+		assertEquals(100000000, histogram.getValueAtPercentile(100.0));
+		
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getValueAtPercentile(99.0));
+	}
+}
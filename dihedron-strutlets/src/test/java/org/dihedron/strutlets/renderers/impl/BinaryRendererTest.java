@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.renderers.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class BinaryRendererTest {
+	
+	/**
+	 * Checks the header for plain ASCII file names.
+	 */
+	@Test
+	public void testAsciiFileName() {
+		assertEquals("attachment; filename=\"report.pdf\"; filename*=UTF-8''report.pdf", 
+				BinaryRenderer.makeContentDisposition(false, "report.pdf"));
+		assertEquals("inline; filename=\"my report.pdf\"; filename*=UTF-8''my%20report.pdf", 
+				BinaryRenderer.makeContentDisposition(true, "my report.pdf"));
+	}
+	
+	/**
+	 * Checks that non-ASCII file names are replaced in the plain parameter and
+	 * percent-encoded as UTF-8 in the extended one.
+	 */
+	@Test
+	public void testUnicodeFileName() {
+		assertEquals("attachment; filename=\"R_sum_.pdf\"; filename*=UTF-8''R%C3%A9sum%C3%A9.pdf", 
+				BinaryRenderer.makeContentDisposition(false, "Résumé.pdf"));
+	}
+	
+	/**
+	 * Checks that control characters, quotes and backslashes cannot break out 
+	 * of the header or of the quoted file name.
+	 */
+	@Test
+	public void testInjection() {
+		String header = BinaryRenderer.makeContentDisposition(false, "evil\r\nSet-Cookie: a=\"b\"\\.txt");
+		assertEquals("attachment; filename=\"evilSet-Cookie: a=b.txt\"; filename*=UTF-8''evil%0D%0ASet-Cookie%3A%20a%3D%22b%22%5C.txt", header);
+		assertFalse(header.contains("\r"));
+		assertFalse(header.contains("\n"));
+	}
+	
+	/**
+	 * Checks that files are copied whole, including empty ones.
+	 */
+	@Test
+	public void testFileCopy() throws IOException {
+		byte[] data = new byte[300000];
+		new Random(42).nextBytes(data);
+		assertArrayEquals(data, copy(data));
+		assertArrayEquals(new byte[0], copy(new byte[0]));
+	}
+	
+	/**
+	 * Writes the given data to a temporary file and copies it through the file
+	 * renderer.
+	 * 
+	 * @param data
+	 *   the file contents.
+	 * @return
+	 *   the bytes written by the renderer.
+	 */
+	private static byte[] copy(byte[] data) throws IOException {
+		Path file = Files.createTempFile("strutlets", ".bin");
+		try {
+			Files.write(file, data);
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			new FileRenderer().write(file, stream);
+			return stream.toByteArray();
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
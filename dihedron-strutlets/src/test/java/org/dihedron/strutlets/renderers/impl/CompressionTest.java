@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.renderers.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.portlet.PortletRequest;
+
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class CompressionTest {
+	
+	/**
+	 * Checks that buffered output can be decompressed by the JDK streams, for
+	 * both formats and across reuses of the per-thread deflaters.
+	 */
+	@Test
+	public void testCompressRoundTrip() throws IOException {
+		Compression compression = new Compression(0, Compression.DEFAULT_LEVEL);
+		byte[] data = makeData();
+		for(int i = 0; i < 3; ++i) {
+			assertArrayEquals(data, inflate(compression.compress(data, Compression.GZIP), Compression.GZIP));
+			assertArrayEquals(data, inflate(compression.compress(data, Compression.DEFLATE), Compression.DEFLATE));
+		}
+	}
+	
+	/**
+	 * Checks that streamed output can be decompressed by the JDK streams, for
+	 * both formats, including data flushed midway.
+	 */
+	@Test
+	public void testStreamRoundTrip() throws IOException {
+		Compression compression = new Compression(0, Compression.DEFAULT_LEVEL);
+		byte[] data = makeData();
+		for(String encoding : new String[] { Compression.GZIP, Compression.DEFLATE }) {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			Compression.CompressedStream stream = compression.wrap(output, encoding);
+			try {
+				for(int offset = 0; offset < data.length; offset += 1000) {
+					stream.write(data, offset, Math.min(1000, data.length - offset));
+					if(offset % 10000 == 0) {
+						stream.flush();
+					}
+				}
+				stream.finish();
+			} finally {
+				stream.release();
+			}
+			assertArrayEquals(data, inflate(output.toByteArray(), encoding));
+		}
+	}
+	
+	/**
+	 * Checks the content encoding negotiation, including encodings explicitly
+	 * refused with a zero quality value.
+	 */
+	@Test
+	public void testNegotiate() {
+		Compression compression = new Compression(100, Compression.DEFAULT_LEVEL);
+		assertEquals(Compression.GZIP, compression.negotiate(makeRequest("gzip, deflate"), 100));
+		assertEquals(Compression.GZIP, compression.negotiate(makeRequest("deflate, x-gzip"), 100));
+		assertEquals(Compression.DEFLATE, compression.negotiate(makeRequest("gzip;q=0, deflate"), 100));
+		assertEquals(Compression.DEFLATE, compression.negotiate(makeRequest("gzip; q=0.0, deflate;q=0.5"), 100));
+		assertNull(compression.negotiate(makeRequest("gzip;q=0, deflate;q=0"), 100));
+		assertNull(compression.negotiate(makeRequest("identity"), 100));
+		assertNull(compression.negotiate(makeRequest(null), 100));
+		assertNull(compression.negotiate(makeRequest("gzip"), 99));
+		assertNull(new Compression(-1, Compression.DEFAULT_LEVEL).negotiate(makeRequest("gzip"), Integer.MAX_VALUE));
+	}
+	
+	/**
+	 * Returns partly compressible, partly random data.
+	 */
+	private static byte[] makeData() {
+		byte[] data = new byte[100000];
+		new Random(42).nextBytes(data);
+		for(int i = 0; i < data.length / 2; ++i) {
+			data[i] = (byte)(i % 7);
+		}
+		return data;
+	}
+	
+	/**
+	 * Decompresses the given data through the JDK streams.
+	 */
+	private static byte[] inflate(byte[] data, String encoding) throws IOException {
+		InputStream input = new ByteArrayInputStream(data);
+		input = Compression.GZIP.equals(encoding) ? new GZIPInputStream(input) : new InflaterInputStream(input);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int length;
+		while((length = input.read(buffer)) >= 0) {
+			output.write(buffer, 0, length);
+		}
+		return output.toByteArray();
+	}
+	
+	/**
+	 * Creates a portlet request with the given "Accept-Encoding" header.
+	 */
+	private static PortletRequest makeRequest(final String acceptEncoding) {
+		return (PortletRequest)Proxy.newProxyInstance(PortletRequest.class.getClassLoader(), new Class<?>[] { PortletRequest.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if(method.getName().equals("getProperty") && "Accept-Encoding".equals(args[0])) {
+					return acceptEncoding;
+				}
+				return null;
+			}
+		});
+	}
+}
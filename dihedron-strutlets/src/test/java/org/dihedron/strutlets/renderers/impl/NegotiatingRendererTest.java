@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.renderers.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class NegotiatingRendererTest {
+	
+	/**
+	 * The renderer under test.
+	 */
+	private final NegotiatingRenderer renderer = new NegotiatingRenderer();
+	
+	/**
+	 * Checks that JSON is used when the client expresses no preference.
+	 */
+	@Test
+	public void testNoPreference() {
+		assertEquals(JsonRenderer.JSON_MIME_TYPE, negotiate(null));
+		assertEquals(JsonRenderer.JSON_MIME_TYPE, negotiate(""));
+		assertEquals(JsonRenderer.JSON_MIME_TYPE, negotiate("text/html, */*;q=0.8"));
+	}
+	
+	/**
+	 * Checks that the accepted format with the highest quality is chosen.
+	 */
+	@Test
+	public void testQuality() {
+		assertEquals(CborRenderer.CBOR_MIME_TYPE, negotiate("application/cbor"));
+		assertEquals(SmileRenderer.SMILE_MIME_TYPE, negotiate("application/x-jackson-smile"));
+		assertEquals(JsonRenderer.JSON_MIME_TYPE, negotiate("application/json, application/cbor;q=0.5"));
+		assertEquals(CborRenderer.CBOR_MIME_TYPE, negotiate("application/json;q=0.8, APPLICATION/CBOR; q=0.9"));
+	}
+	
+	/**
+	 * Checks that formats accepted with the same quality are chosen in order of
+	 * preference, whatever their order in the header.
+	 */
+	@Test
+	public void testTies() {
+		assertEquals(CborRenderer.CBOR_MIME_TYPE, negotiate("application/x-jackson-smile, application/cbor"));
+		assertEquals(SmileRenderer.SMILE_MIME_TYPE, negotiate("application/json, application/x-jackson-smile"));
+	}
+	
+	/**
+	 * Checks that formats refused by the client, or with an invalid quality, 
+	 * are not chosen.
+	 */
+	@Test
+	public void testRefused() {
+		assertEquals(JsonRenderer.JSON_MIME_TYPE, negotiate("application/cbor;q=0"));
+		assertEquals(JsonRenderer.JSON_MIME_TYPE, negotiate("application/cbor;q=high"));
+		assertEquals(SmileRenderer.SMILE_MIME_TYPE, negotiate("application/cbor;q=0, application/x-jackson-smile;q=0.1"));
+	}
+	
+	/**
+	 * Negotiates the format for the given {@code Accept} header.
+	 * 
+	 * @param accept
+	 *   the value of the {@code Accept} header.
+	 * @return
+	 *   the MIME type of the chosen format.
+	 */
+	private String negotiate(String accept) {
+		return renderer.negotiate(accept).getContentType();
+	}
+}
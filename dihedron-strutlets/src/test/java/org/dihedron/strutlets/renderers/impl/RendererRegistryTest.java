@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.renderers.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.portlet.GenericPortlet;
+import javax.portlet.PortletRequest;
+import javax.portlet.PortletResponse;
+
+import org.dihedron.strutlets.exceptions.StrutletsException;
+import org.dihedron.strutlets.renderers.LifecycleRenderer;
+import org.dihedron.strutlets.renderers.Renderer;
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class RendererRegistryTest {
+	
+	/**
+	 * A renderer with no lifecycle.
+	 */
+	public static class PlainRenderer implements Renderer {
+		
+		/**
+		 * @see org.dihedron.strutlets.renderers.Renderer#getId()
+		 */
+		@Override
+		public String getId() {
+			return "plain";
+		}
+		
+		/**
+		 * @see org.dihedron.strutlets.renderers.Renderer#setPortlet(javax.portlet.GenericPortlet)
+		 */
+		@Override
+		public void setPortlet(GenericPortlet portlet) {
+		}
+		
+		/**
+		 * @see org.dihedron.strutlets.renderers.Renderer#render(javax.portlet.PortletRequest, javax.portlet.PortletResponse, java.lang.String)
+		 */
+		@Override
+		public void render(PortletRequest request, PortletResponse response, String data) {
+		}
+	}
+	
+	/**
+	 * A renderer counting the calls to its lifecycle methods.
+	 */
+	public static class CountingRenderer extends PlainRenderer implements LifecycleRenderer {
+		
+		/**
+		 * The number of initialised instances.
+		 */
+		static final AtomicInteger initialised = new AtomicInteger();
+		
+		/**
+		 * The number of cleaned up instances.
+		 */
+		static final AtomicInteger cleaned = new AtomicInteger();
+		
+		/**
+		 * @see org.dihedron.strutlets.renderers.Renderer#getId()
+		 */
+		@Override
+		public String getId() {
+			return "counting";
+		}
+		
+		/**
+		 * @see org.dihedron.strutlets.renderers.LifecycleRenderer#initialise()
+		 */
+		@Override
+		public void initialise() {
+			initialised.incrementAndGet();
+		}
+		
+		/**
+		 * @see org.dihedron.strutlets.renderers.LifecycleRenderer#cleanup()
+		 */
+		@Override
+		public void cleanup() {
+			cleaned.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Checks that indexes are assigned in order of registration when the 
+	 * registry is initialised, and not before.
+	 */
+	@Test
+	public void testIndexes() throws StrutletsException {
+		CachingRendererRegistry registry = new CachingRendererRegistry(null);
+		registry.addRenderer("plain", PlainRenderer.class);
+		registry.addRenderer("counting", CountingRenderer.class);
+		assertEquals(-1, registry.getIndex("plain"));
+		assertNull(registry.getRenderer("plain"));
+		registry.initialise();
+		assertEquals(0, registry.getIndex("plain"));
+		assertEquals(1, registry.getIndex("counting"));
+		assertEquals(-1, registry.getIndex("unknown"));
+		assertEquals(-1, registry.getIndex(null));
+		assertNull(registry.getRenderer("unknown"));
+		assertEquals("counting", registry.getRenderer("counting").getId());
+		assertSame(registry.getRenderer(1), registry.getRenderer("counting"));
+	}
+	
+	/**
+	 * Checks that no renderer can be registered once the registry is frozen.
+	 */
+	@Test
+	public void testFrozen() throws StrutletsException {
+		CachingRendererRegistry registry = new CachingRendererRegistry(null);
+		registry.addRenderer("plain", PlainRenderer.class);
+		registry.initialise();
+		try {
+			registry.addRenderer("counting", CountingRenderer.class);
+			fail("the registry should be frozen");
+		} catch(StrutletsException e) {
+			// expected
+		}
+		assertEquals(-1, registry.getIndex("counting"));
+	}
+	
+	/**
+	 * Checks that the caching registry initialises its renderers once and 
+	 * cleans them up on shutdown, and only if they have a lifecycle.
+	 */
+	@Test
+	public void testCachingLifecycle() throws Exception {
+		reset();
+		CachingRendererRegistry registry = new CachingRendererRegistry(null);
+		registry.addRenderer("plain", PlainRenderer.class);
+		registry.addRenderer("counting", CountingRenderer.class);
+		registry.initialise();
+		assertEquals(1, CountingRenderer.initialised.get());
+		registry.getRenderer("counting").render(null, null, null);
+		registry.getRenderer("counting").render(null, null, null);
+		assertEquals(1, CountingRenderer.initialised.get());
+		assertEquals(0, CountingRenderer.cleaned.get());
+		registry.cleanup();
+		assertEquals(1, CountingRenderer.cleaned.get());
+	}
+	
+	/**
+	 * Checks that the renewing registry initialises and cleans up a new 
+	 * renderer instance for each rendering.
+	 */
+	@Test
+	public void testRenewingLifecycle() throws Exception {
+		reset();
+		RenewingRendererRegistry registry = new RenewingRendererRegistry(null);
+		registry.addRenderer("plain", PlainRenderer.class);
+		registry.addRenderer("counting", CountingRenderer.class);
+		registry.initialise();
+		assertEquals(1, CountingRenderer.initialised.get());
+		assertEquals(1, CountingRenderer.cleaned.get());
+		assertEquals("counting", registry.getRenderer("counting").getId());
+		registry.getRenderer("counting").render(null, null, null);
+		registry.getRenderer("counting").render(null, null, null);
+		registry.getRenderer("plain").render(null, null, null);
+		assertEquals(3, CountingRenderer.initialised.get());
+		assertEquals(3, CountingRenderer.cleaned.get());
+	}
+	
+	/**
+	 * Resets the lifecycle counters.
+	 */
+	private static void reset() {
+		CountingRenderer.initialised.set(0);
+		CountingRenderer.cleaned.set(0);
+	}
+}
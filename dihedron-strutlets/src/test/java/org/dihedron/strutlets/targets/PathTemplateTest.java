@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2012-2015, Andrea Funto'. All rights reserved. See LICENSE for details.
+ */ 
+package org.dihedron.strutlets.targets;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author Andrea Funto'
+ */
+public class PathTemplateTest {
+	
+	/**
+	 * The default JSP path pattern.
+	 */
+	private static final String PATTERN = "${rootdir}/${action}/${method}/${result}.jsp";
+	
+	/**
+	 * Checks that patterns are split into the expected variables.
+	 */
+	@Test
+	public void testVariables() {
+		assertEquals(Arrays.asList("rootdir", "action", "method", "result"), PathTemplate.compile(PATTERN).getVariables());
+		assertEquals(Collections.emptyList(), PathTemplate.compile("/html/index.jsp").getVariables());
+		assertEquals(Collections.emptyList(), PathTemplate.compile("/html/${unterminated.jsp").getVariables());
+	}
+	
+	/**
+	 * Checks expansion, with missing values left in place.
+	 */
+	@Test
+	public void testExpand() {
+		PathTemplate template = PathTemplate.compile(PATTERN);
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("rootdir", "/html");
+		values.put("action", "MyAction");
+		values.put("method", "doSomething");
+		values.put("result", "success");
+		assertEquals("/html/MyAction/doSomething/success.jsp", template.expand(values));
+		assertEquals("/html/MyAction/doSomething/success.jsp", template.appendTo(new StringBuilder(), values).toString());
+		values.remove("result");
+		assertEquals("/html/MyAction/doSomething/${result}.jsp", template.expand(values));
+		assertEquals(PATTERN, template.expand(Collections.<String, String>emptyMap()));
+		assertEquals(PATTERN, template.toString());
+		assertEquals("/html/${unterminated.jsp", PathTemplate.compile("/html/${unterminated.jsp").expand(values));
+	}
+	
+	/**
+	 * Checks that binding a variable yields an equivalent template without it.
+	 */
+	@Test
+	public void testBind() {
+		PathTemplate template = PathTemplate.compile(PATTERN).bind("rootdir", "/html");
+		assertEquals("/html/${action}/${method}/${result}.jsp", template.toString());
+		assertEquals(Arrays.asList("action", "method", "result"), template.getVariables());
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("action", "MyAction");
+		values.put("method", "doSomething");
+		values.put("result", "error");
+		assertEquals("/html/MyAction/doSomething/error.jsp", template.expand(values));
+	}
+}